@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -68,8 +68,23 @@ public class OccurrencesFinder extends ASTVisitor implements IOccurrencesFinder
 	private String fReadDescription;
 	private String fWriteDescription;
 
+	private final OccurrencesIndex fIndex;
+	private int fNodesVisited;
+
 	public OccurrencesFinder() {
+		this(null);
+	}
+
+	/**
+	 * Creates a finder that answers from an occurrences index if the index is for the searched
+	 * AST and can answer the search, and searches the AST otherwise.
+	 *
+	 * @param index the index of the AST, or <code>null</code> to always search the AST
+	 * @since 1.9
+	 */
+	public OccurrencesFinder(OccurrencesIndex index) {
 		super(true);
+		fIndex= index;
 	}
 
 	@Override
@@ -96,12 +111,30 @@ public class OccurrencesFinder extends ASTVisitor implements IOccurrencesFinder
 
 	private void performSearch() {
 		if (fResult == null) {
+			if (fIndex != null && fIndex.getASTRoot() == fRoot && OccurrencesIndex.canAnswer(fTarget, fTargetIsStaticMethodImport)) {
+				fResult= fIndex.getOccurrences(fTarget, fReadDescription, fWriteDescription);
+				return;
+			}
 			fResult= new ArrayList<>();
 			fWriteUsages= new HashSet<>();
 			fRoot.accept(this);
 		}
 	}
 
+	/**
+	 * @return the number of AST nodes visited by the search, <code>0</code> if the search has
+	 *         been answered by the index
+	 * @since 1.9
+	 */
+	public int getNodesVisited() {
+		return fNodesVisited;
+	}
+
+	@Override
+	public void preVisit(ASTNode node) {
+		fNodesVisited++;
+	}
+
 	@Override
 	public OccurrenceLocation[] getOccurrences() {
 		performSearch();
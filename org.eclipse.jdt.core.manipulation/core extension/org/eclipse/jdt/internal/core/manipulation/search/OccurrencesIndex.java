@@ -0,0 +1,304 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.manipulation.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.Assignment;
+import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.FieldAccess;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.ImportDeclaration;
+import org.eclipse.jdt.core.dom.Modifier;
+import org.eclipse.jdt.core.dom.Name;
+import org.eclipse.jdt.core.dom.NameQualifiedType;
+import org.eclipse.jdt.core.dom.ParameterizedType;
+import org.eclipse.jdt.core.dom.PostfixExpression;
+import org.eclipse.jdt.core.dom.PrefixExpression;
+import org.eclipse.jdt.core.dom.PrefixExpression.Operator;
+import org.eclipse.jdt.core.dom.QualifiedName;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.SimpleType;
+import org.eclipse.jdt.core.dom.SingleVariableDeclaration;
+import org.eclipse.jdt.core.dom.Type;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+
+import org.eclipse.jdt.internal.core.manipulation.search.IOccurrencesFinder.OccurrenceLocation;
+
+/**
+ * The occurrences of all bindings in an AST, keyed by the binding key of their declaration, and
+ * the names that are written to. The index is built with one pass over the AST the first time it
+ * is queried, and then answers the {@link OccurrencesFinder} for every selection in the same AST.
+ * <p>
+ * The index finds the same occurrences, in the same order, as a search of the
+ * {@link OccurrencesFinder} over the AST. Bindings without a key and static methods, whose
+ * occurrences include static imports of all methods of the same name, are not answered by the
+ * index, see {@link #canAnswer(IBinding, boolean)}.
+ * </p>
+ * <p>
+ * An index can be queried from multiple threads.
+ * </p>
+ *
+ * @since 1.9
+ */
+public final class OccurrencesIndex {
+
+	private final CompilationUnit fRoot;
+	private Map<String, List<Name>> fOccurrences;
+	private Set<Name> fWriteUsages;
+	private int fNodesVisited;
+
+	private class IndexBuilder extends ASTVisitor {
+
+		/**
+		 * The keys of the qualified names that are being visited. The original search does not
+		 * descend into a qualified name that matches, so its names are not added for the same key.
+		 */
+		private final List<String> fQualifiedKeys= new ArrayList<>();
+
+		IndexBuilder() {
+			super(true);
+		}
+
+		@Override
+		public void preVisit(ASTNode node) {
+			fNodesVisited++;
+		}
+
+		@Override
+		public boolean visit(QualifiedName node) {
+			IBinding binding= node.resolveBinding();
+			String key;
+			if (binding instanceof IVariableBinding && ((IVariableBinding) binding).isField()) {
+				SimpleName name= node.getName();
+				key= addUsage(name, name.resolveBinding());
+			} else if (binding instanceof IMethodBinding && isStaticImport(node)) {
+				key= null; // only static method targets match here, which are not indexed
+			} else {
+				key= addUsage(node, binding);
+			}
+			fQualifiedKeys.add(key);
+			return true;
+		}
+
+		@Override
+		public void endVisit(QualifiedName node) {
+			fQualifiedKeys.remove(fQualifiedKeys.size() - 1);
+		}
+
+		@Override
+		public boolean visit(SimpleName node) {
+			addUsage(node, node.resolveBinding());
+			return true;
+		}
+
+		@Override
+		public boolean visit(ClassInstanceCreation node) {
+			Type type= node.getType();
+			if (type instanceof ParameterizedType) {
+				type= ((ParameterizedType) type).getType();
+			}
+			if (type instanceof SimpleType) {
+				Name name= ((SimpleType) type).getName();
+				if (name instanceof QualifiedName)
+					name= ((QualifiedName) name).getName();
+				addUsage(name, node.resolveConstructorBinding());
+			} else if (type instanceof NameQualifiedType) {
+				Name name= ((NameQualifiedType) type).getName();
+				addUsage(name, node.resolveConstructorBinding());
+			}
+			return true;
+		}
+
+		@Override
+		public boolean visit(Assignment node) {
+			addWrite(getSimpleName(node.getLeftHandSide()));
+			return true;
+		}
+
+		@Override
+		public boolean visit(SingleVariableDeclaration node) {
+			addWrite(node.getName());
+			return true;
+		}
+
+		@Override
+		public boolean visit(VariableDeclarationFragment node) {
+			if (node.getParent() instanceof FieldDeclaration || node.getInitializer() != null)
+				addWrite(node.getName());
+			return true;
+		}
+
+		@Override
+		public boolean visit(PrefixExpression node) {
+			PrefixExpression.Operator operator= node.getOperator();
+			if (operator == Operator.INCREMENT || operator == Operator.DECREMENT)
+				addWrite(getSimpleName(node.getOperand()));
+			return true;
+		}
+
+		@Override
+		public boolean visit(PostfixExpression node) {
+			addWrite(getSimpleName(node.getOperand()));
+			return true;
+		}
+
+		private void addWrite(Name node) {
+			if (node != null)
+				fWriteUsages.add(node);
+		}
+
+		/**
+		 * Adds an occurrence of a binding, unless it is inside of a qualified name that is an
+		 * occurrence of the same binding.
+		 *
+		 * @param node the name
+		 * @param binding the binding of the name, can be <code>null</code>
+		 * @return the key of the binding if the occurrence has been added, <code>null</code> otherwise
+		 */
+		private String addUsage(Name node, IBinding binding) {
+			if (binding == null)
+				return null;
+			String key= getBindingDeclaration(binding).getKey();
+			if (key == null || fQualifiedKeys.contains(key))
+				return null;
+			List<Name> names= fOccurrences.get(key);
+			if (names == null) {
+				names= new ArrayList<>(4);
+				fOccurrences.put(key, names);
+			}
+			names.add(node);
+			return key;
+		}
+	}
+
+	/**
+	 * Creates an index. The index is built when it is first queried.
+	 *
+	 * @param root the AST to index
+	 */
+	public OccurrencesIndex(CompilationUnit root) {
+		fRoot= root;
+	}
+
+	/**
+	 * @return the indexed AST
+	 */
+	public CompilationUnit getASTRoot() {
+		return fRoot;
+	}
+
+	/**
+	 * Tells whether the index can answer the search for the occurrences of a binding.
+	 *
+	 * @param target the declaration of the searched binding
+	 * @param targetIsStaticMethodImport <code>true</code> if the search starts at the name of a
+	 *            static import
+	 * @return <code>true</code> if {@link #getOccurrences(IBinding, String, String)} can be used
+	 */
+	public static boolean canAnswer(IBinding target, boolean targetIsStaticMethodImport) {
+		if (target.getKey() == null)
+			return false;
+		if (target instanceof IMethodBinding)
+			return !targetIsStaticMethodImport && !Modifier.isStatic(target.getModifiers());
+		return true;
+	}
+
+	/**
+	 * Returns the occurrences of a binding.
+	 *
+	 * @param target the declaration of the searched binding, see {@link #canAnswer(IBinding, boolean)}
+	 * @param readDescription the description of read occurrences
+	 * @param writeDescription the description of write occurrences
+	 * @return the occurrences in the order of the AST, can be empty
+	 */
+	public List<OccurrenceLocation> getOccurrences(IBinding target, String readDescription, String writeDescription) {
+		List<Name> names;
+		synchronized (this) {
+			if (fOccurrences == null)
+				build();
+			names= fOccurrences.get(target.getKey());
+		}
+		if (names == null)
+			return new ArrayList<>();
+
+		boolean isVariable= target instanceof IVariableBinding;
+		List<OccurrenceLocation> result= new ArrayList<>(names.size());
+		for (int i= 0; i < names.size(); i++) {
+			Name name= names.get(i);
+			int flag= 0;
+			String description= readDescription;
+			if (isVariable) {
+				boolean isWrite= fWriteUsages.contains(name);
+				flag= isWrite ? IOccurrencesFinder.F_WRITE_OCCURRENCE : IOccurrencesFinder.F_READ_OCCURRENCE;
+				if (isWrite)
+					description= writeDescription;
+			}
+			result.add(new OccurrenceLocation(name.getStartPosition(), name.getLength(), flag, description));
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of AST nodes visited to build the index, <code>0</code> if it has not
+	 *         been built yet
+	 */
+	public synchronized int getNodesVisited() {
+		return fNodesVisited;
+	}
+
+	private void build() {
+		fOccurrences= new HashMap<>();
+		fWriteUsages= new HashSet<>();
+		fRoot.accept(new IndexBuilder());
+	}
+
+	private static boolean isStaticImport(QualifiedName node) {
+		ASTNode parent= node.getParent();
+		return parent instanceof ImportDeclaration && ((ImportDeclaration) parent).isStatic();
+	}
+
+	private static SimpleName getSimpleName(Expression expression) {
+		if (expression instanceof SimpleName)
+			return ((SimpleName) expression);
+		else if (expression instanceof QualifiedName)
+			return (((QualifiedName) expression).getName());
+		else if (expression instanceof FieldAccess)
+			return ((FieldAccess) expression).getName();
+		return null;
+	}
+
+	private static IBinding getBindingDeclaration(IBinding binding) {
+		switch (binding.getKind()) {
+			case IBinding.TYPE :
+				return ((ITypeBinding) binding).getTypeDeclaration();
+			case IBinding.METHOD :
+				return ((IMethodBinding) binding).getMethodDeclaration();
+			case IBinding.VARIABLE :
+				return ((IVariableBinding) binding).getVariableDeclaration();
+			default:
+				return binding;
+		}
+	}
+}
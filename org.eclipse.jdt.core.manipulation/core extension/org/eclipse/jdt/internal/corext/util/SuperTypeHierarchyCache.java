@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,9 +12,18 @@ package org.eclipse.jdt.internal.corext.util;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.ITypeHierarchy;
@@ -23,6 +32,13 @@ import org.eclipse.jdt.core.JavaModelException;
 
 /**
  * A thread-safe cache for super type hierarchies.
+ * <p>
+ * Every cached hierarchy is indexed by all the types it contains, so lookups are a
+ * single, lock-free map access. The capacity of the cache is expressed as the total
+ * number of types of all cached hierarchies (see {@link #MAXIMUM_WEIGHT_PROPERTY}); the
+ * least recently accessed hierarchies are evicted when it is exceeded. Concurrent requests
+ * for a hierarchy that is not cached yet are computed only once.
+ * </p>
  */
 // @see JDTUIHelperClasses
 public class SuperTypeHierarchyCache {
@@ -30,10 +46,12 @@ public class SuperTypeHierarchyCache {
 	private static class HierarchyCacheEntry implements ITypeHierarchyChangedListener {
 
 		private ITypeHierarchy fTypeHierarchy;
-		private long fLastAccess;
+		private final IType[] fTypes;
+		private volatile long fLastAccess;
 
 		public HierarchyCacheEntry(ITypeHierarchy hierarchy) {
 			fTypeHierarchy= hierarchy;
+			fTypes= hierarchy.getAllTypes();
 			fTypeHierarchy.addTypeHierarchyChangedListener(this);
 			markAsAccessed();
 		}
@@ -43,19 +61,27 @@ public class SuperTypeHierarchyCache {
 			removeHierarchyEntryFromCache(this);
 		}
 
-		public ITypeHierarchy getTypeHierarchy() {
+		public synchronized ITypeHierarchy getTypeHierarchy() {
 			return fTypeHierarchy;
 		}
 
+		public IType[] getTypes() {
+			return fTypes;
+		}
+
+		public int getWeight() {
+			return Math.max(1, fTypes.length);
+		}
+
 		public void markAsAccessed() {
-			fLastAccess= System.currentTimeMillis();
+			fLastAccess= fgAccessCounter.incrementAndGet();
 		}
 
 		public long getLastAccess() {
 			return fLastAccess;
 		}
 
-		public void dispose() {
+		public synchronized void dispose() {
 			if (fTypeHierarchy != null) {
 				fTypeHierarchy.removeTypeHierarchyChangedListener(this);
 				fTypeHierarchy= null;
@@ -64,7 +90,8 @@ public class SuperTypeHierarchyCache {
 
 		@Override
 		public String toString() {
-			return "Super hierarchy of: " + fTypeHierarchy.getType().getElementName(); //$NON-NLS-1$
+			ITypeHierarchy hierarchy= getTypeHierarchy();
+			return "Super hierarchy of: " + (hierarchy != null ? hierarchy.getType().getElementName() : "<disposed>"); //$NON-NLS-1$ //$NON-NLS-2$
 		}
 
 	}
@@ -72,11 +99,41 @@ public class SuperTypeHierarchyCache {
 
 	private static final int CACHE_SIZE= 8;
 
+	/**
+	 * Default for the maximal number of types in all cached hierarchies.
+	 */
+	public static final int DEFAULT_MAXIMUM_WEIGHT= 2000;
+
+	/**
+	 * System property for the maximal number of types in all cached hierarchies. The most recently
+	 * added hierarchy is always kept, even if it is larger.
+	 */
+	public static final String MAXIMUM_WEIGHT_PROPERTY= "org.eclipse.jdt.ui.superTypeHierarchyCacheWeight"; //$NON-NLS-1$
+
+	/**
+	 * Interval in milliseconds in which a caller that waits for a hierarchy computed by another
+	 * thread checks its progress monitor for cancellation.
+	 */
+	private static final long CANCEL_CHECK_INTERVAL= 100;
+
+	/**
+	 * Lock for modifications of {@link #fgHierarchyCache}, {@link #fgTypeIndex} and {@link #fgWeight}.
+	 */
+	private static final Object fgLock= new Object();
+
+	private static final AtomicLong fgAccessCounter= new AtomicLong();
+
 	private static ArrayList<HierarchyCacheEntry> fgHierarchyCache= new ArrayList<>(CACHE_SIZE);
+	private static final Map<IType, HierarchyCacheEntry> fgTypeIndex= new ConcurrentHashMap<>();
+	private static final Map<IType, FutureTask<ITypeHierarchy>> fgPendingRequests= new ConcurrentHashMap<>();
 	private static Map<IType, MethodOverrideTester> fgMethodOverrideTesterCache= new LRUMap<>(CACHE_SIZE);
 
-	private static int fgCacheHits= 0;
-	private static int fgCacheMisses= 0;
+	private static int fgWeight= 0;
+
+	private static final AtomicLong fgCacheHits= new AtomicLong();
+	private static final AtomicLong fgCacheMisses= new AtomicLong();
+	private static final AtomicLong fgCacheEvictions= new AtomicLong();
+	private static final AtomicLong fgComputeTime= new AtomicLong();
 
 	/**
 	 * Returns a super type hierarchy that contains the given type.
@@ -128,52 +185,142 @@ public class SuperTypeHierarchyCache {
 	 * requested type. Therefore, queries such as {@link ITypeHierarchy#getAllClasses()}
 	 * or {@link ITypeHierarchy#getRootInterfaces()} may return more types than the same
 	 * queries on a type hierarchy for just the given type.
+	 * <p>
+	 * If another thread is already computing the hierarchy of <code>type</code>, this
+	 * method waits for that computation instead of starting a second one.
+	 * </p>
 	 *
 	 * @param type the focus type
 	 * @param progressMonitor progress monitor
 	 * @return a supertype hierarchy that contains <code>type</code>
 	 * @throws JavaModelException if a problem occurs
 	 */
-	public static ITypeHierarchy getTypeHierarchy(IType type, IProgressMonitor progressMonitor) throws JavaModelException {
+	public static ITypeHierarchy getTypeHierarchy(final IType type, final IProgressMonitor progressMonitor) throws JavaModelException {
 		ITypeHierarchy hierarchy= findTypeHierarchyInCache(type);
-		if (hierarchy == null) {
-			fgCacheMisses++;
-			hierarchy= type.newSupertypeHierarchy(progressMonitor);
-			addTypeHierarchyToCache(hierarchy);
-		} else {
-			fgCacheHits++;
+		if (hierarchy != null) {
+			fgCacheHits.incrementAndGet();
+			return hierarchy;
 		}
-		return hierarchy;
+
+		FutureTask<ITypeHierarchy> request= new FutureTask<>(new Callable<ITypeHierarchy>() {
+			@Override
+			public ITypeHierarchy call() throws JavaModelException {
+				fgCacheMisses.incrementAndGet();
+				long start= System.nanoTime();
+				ITypeHierarchy result= type.newSupertypeHierarchy(progressMonitor);
+				fgComputeTime.addAndGet(System.nanoTime() - start);
+				addTypeHierarchyToCache(result);
+				return result;
+			}
+		});
+		FutureTask<ITypeHierarchy> pending= fgPendingRequests.putIfAbsent(type, request);
+		if (pending == null) {
+			try {
+				request.run();
+				return getResult(request, null);
+			} finally {
+				fgPendingRequests.remove(type, request);
+			}
+		}
+
+		ITypeHierarchy result;
+		try {
+			result= getResult(pending, progressMonitor);
+		} catch (OperationCanceledException e) {
+			if (progressMonitor != null && progressMonitor.isCanceled())
+				throw e;
+			// the computing thread has been canceled, but this request has not
+			return getTypeHierarchy(type, progressMonitor);
+		}
+		fgCacheHits.incrementAndGet();
+		return result;
 	}
 
-	private static void addTypeHierarchyToCache(ITypeHierarchy hierarchy) {
-		synchronized (fgHierarchyCache) {
-			int nEntries= fgHierarchyCache.size();
-			if (nEntries >= CACHE_SIZE) {
-				// find obsolete entries or remove entry that was least recently accessed
-				HierarchyCacheEntry oldest= null;
-				ArrayList<HierarchyCacheEntry> obsoleteHierarchies= new ArrayList<>(CACHE_SIZE);
-				for (int i= 0; i < nEntries; i++) {
-					HierarchyCacheEntry entry= fgHierarchyCache.get(i);
-					ITypeHierarchy curr= entry.getTypeHierarchy();
-					if (!curr.exists() || hierarchy.contains(curr.getType())) {
-						obsoleteHierarchies.add(entry);
-					} else {
-						if (oldest == null || entry.getLastAccess() < oldest.getLastAccess()) {
-							oldest= entry;
-						}
-					}
+	/**
+	 * Waits for a hierarchy request.
+	 *
+	 * @param request the request
+	 * @param progressMonitor the monitor of the waiting caller, or <code>null</code>
+	 * @return the hierarchy
+	 * @throws JavaModelException if the computation failed
+	 * @throws OperationCanceledException if the computation or the waiting caller has been canceled
+	 */
+	private static ITypeHierarchy getResult(FutureTask<ITypeHierarchy> request, IProgressMonitor progressMonitor) throws JavaModelException {
+		boolean interrupted= false;
+		try {
+			while (true) {
+				if (progressMonitor != null && progressMonitor.isCanceled())
+					throw new OperationCanceledException();
+				try {
+					return request.get(CANCEL_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					// check for cancellation
+				} catch (InterruptedException e) {
+					interrupted= true;
 				}
-				if (!obsoleteHierarchies.isEmpty()) {
-					for (int i= 0; i < obsoleteHierarchies.size(); i++) {
-						removeHierarchyEntryFromCache(obsoleteHierarchies.get(i));
-					}
-				} else if (oldest != null) {
-					removeHierarchyEntryFromCache(oldest);
+			}
+		} catch (ExecutionException e) {
+			Throwable cause= e.getCause();
+			if (cause instanceof JavaModelException)
+				throw (JavaModelException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException(cause);
+		} finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void addTypeHierarchyToCache(ITypeHierarchy hierarchy) {
+		synchronized (fgLock) {
+			// remove obsolete entries and entries that are subsumed by the new hierarchy
+			List<HierarchyCacheEntry> obsoleteHierarchies= new ArrayList<>();
+			for (int i= 0; i < fgHierarchyCache.size(); i++) {
+				HierarchyCacheEntry entry= fgHierarchyCache.get(i);
+				ITypeHierarchy curr= entry.getTypeHierarchy();
+				if (curr == null || !curr.exists() || hierarchy.contains(curr.getType())) {
+					obsoleteHierarchies.add(entry);
 				}
 			}
+			for (int i= 0; i < obsoleteHierarchies.size(); i++) {
+				removeHierarchyEntryFromCache(obsoleteHierarchies.get(i));
+			}
+
+			// created in the lock, so that a change event removes the entry only after it has been added
 			HierarchyCacheEntry newEntry= new HierarchyCacheEntry(hierarchy);
 			fgHierarchyCache.add(newEntry);
+			fgWeight+= newEntry.getWeight();
+			IType[] types= newEntry.getTypes();
+			for (int i= 0; i < types.length; i++) {
+				fgTypeIndex.put(types[i], newEntry);
+			}
+			evict(newEntry);
+		}
+	}
+
+	/**
+	 * Removes the least recently accessed entries until the cache weight
+	 * is within the configured maximum.
+	 *
+	 * @param keep the entry not to evict
+	 */
+	private static void evict(HierarchyCacheEntry keep) {
+		int maximumWeight= Math.max(1, Integer.getInteger(MAXIMUM_WEIGHT_PROPERTY, DEFAULT_MAXIMUM_WEIGHT).intValue());
+		while (fgWeight > maximumWeight && fgHierarchyCache.size() > 1) {
+			HierarchyCacheEntry oldest= null;
+			for (int i= 0; i < fgHierarchyCache.size(); i++) {
+				HierarchyCacheEntry entry= fgHierarchyCache.get(i);
+				if (entry != keep && (oldest == null || entry.getLastAccess() < oldest.getLastAccess())) {
+					oldest= entry;
+				}
+			}
+			if (oldest == null)
+				return;
+			removeHierarchyEntryFromCache(oldest);
+			fgCacheEvictions.incrementAndGet();
 		}
 	}
 
@@ -189,38 +336,43 @@ public class SuperTypeHierarchyCache {
 
 
 	private static ITypeHierarchy findTypeHierarchyInCache(IType type) {
-		synchronized (fgHierarchyCache) {
-			for (int i= fgHierarchyCache.size() - 1; i>= 0; i--) {
-				HierarchyCacheEntry curr= fgHierarchyCache.get(i);
-				ITypeHierarchy hierarchy= curr.getTypeHierarchy();
-				if (!hierarchy.exists()) {
-					removeHierarchyEntryFromCache(curr);
-				} else {
-					if (hierarchy.contains(type)) {
-						curr.markAsAccessed();
-						return hierarchy;
-					}
-				}
-			}
+		HierarchyCacheEntry entry= fgTypeIndex.get(type);
+		if (entry == null)
+			return null;
+
+		ITypeHierarchy hierarchy= entry.getTypeHierarchy();
+		if (hierarchy == null)
+			return null; // removed concurrently
+		if (!hierarchy.exists()) {
+			removeHierarchyEntryFromCache(entry);
+			return null;
 		}
-		return null;
+		entry.markAsAccessed();
+		return hierarchy;
 	}
 
 	private static void removeHierarchyEntryFromCache(HierarchyCacheEntry entry) {
-		synchronized (fgHierarchyCache) {
-			removeMethodOverrideTester(entry.getTypeHierarchy());
+		synchronized (fgLock) {
+			if (!fgHierarchyCache.remove(entry))
+				return;
+			fgWeight-= entry.getWeight();
+			IType[] types= entry.getTypes();
+			for (int i= 0; i < types.length; i++) {
+				fgTypeIndex.remove(types[i], entry);
+			}
+			ITypeHierarchy hierarchy= entry.getTypeHierarchy();
+			if (hierarchy != null)
+				removeMethodOverrideTester(hierarchy);
 			entry.dispose();
-			fgHierarchyCache.remove(entry);
 		}
 	}
 
-
 	/**
 	 * Gets the number of times the hierarchy could be taken from the hierarchy.
 	 * @return Returns a int
 	 */
 	public static int getCacheHits() {
-		return fgCacheHits;
+		return (int) fgCacheHits.get();
 	}
 
 	/**
@@ -228,6 +380,22 @@ public class SuperTypeHierarchyCache {
 	 * @return Returns a int
 	 */
 	public static int getCacheMisses() {
-		return fgCacheMisses;
+		return (int) fgCacheMisses.get();
+	}
+
+	/**
+	 * Gets the number of hierarchies that have been removed to stay within the maximum weight.
+	 * @return the number of evictions
+	 */
+	public static int getCacheEvictions() {
+		return (int) fgCacheEvictions.get();
+	}
+
+	/**
+	 * Gets the total time spent building hierarchies.
+	 * @return the compute time in milliseconds
+	 */
+	public static long getComputeTime() {
+		return fgComputeTime.get() / 1000000;
 	}
 }
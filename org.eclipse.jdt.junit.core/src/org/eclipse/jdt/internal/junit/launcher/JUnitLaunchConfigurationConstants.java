@@ -75,6 +75,12 @@ public class JUnitLaunchConfigurationConstants {
 	 */
 	public static final String ATTR_TEST_UNIQUE_ID= JUnitCorePlugin.PLUGIN_ID + ".TEST_UNIQUE_ID"; //$NON-NLS-1$
 
+	/**
+	 * Whether the test runner and the JUnit view communicate with the text protocol only, without
+	 * negotiating the binary protocol (default: <code>false</code>).
+	 */
+	public static final String ATTR_TEXT_PROTOCOL= JUnitCorePlugin.PLUGIN_ID + ".TEXT_PROTOCOL"; //$NON-NLS-1$
+
 	public static ITestKind getTestRunnerKind(ILaunchConfiguration launchConfiguration) {
 		try {
 			String loaderId = launchConfiguration.getAttribute(JUnitLaunchConfigurationConstants.ATTR_TEST_RUNNER_KIND, (String) null);
@@ -97,5 +103,13 @@ public class JUnitLaunchConfigurationConstants {
 		return null;
 	}
 
+	public static boolean isTextProtocol(ILaunchConfiguration configuration) {
+		try {
+			return configuration.getAttribute(ATTR_TEXT_PROTOCOL, false);
+		} catch (CoreException e) {
+		}
+		return false;
+	}
+
 
 }
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
+
+/**
+ * Keeps the failure traces, expected and actual values of the test elements of a
+ * {@link TestRunSession}.
+ * <p>
+ * Runs with many failing tests can produce more failure data than fits into memory. The
+ * store keeps the data of the most recently failed tests in memory. When the retained size
+ * exceeds {@link #MEMORY_BUDGET} characters, the data of older failures is appended to a
+ * temporary file and read back on demand, e.g. when a failure is shown in the JUnit view.
+ * When the store is disposed, the spilled data of elements that are still referenced is read
+ * back into memory.
+ * </p>
+ */
+class FailureTraceStore {
+
+	/**
+	 * The failure data of a test element, either in memory or spilled to a store.
+	 */
+	static final class Failure {
+		static final Failure NONE= new Failure(null, null, null);
+
+		final String fTrace;
+		final String fExpected;
+		final String fActual;
+		final FailureTraceStore fStore;
+		final long fPosition;
+		final boolean fIsComparisonFailure;
+
+		Failure(String trace, String expected, String actual) {
+			fTrace= trace;
+			fExpected= expected;
+			fActual= actual;
+			fStore= null;
+			fPosition= -1;
+			fIsComparisonFailure= expected != null && actual != null;
+		}
+
+		private Failure(FailureTraceStore store, long position, boolean isComparisonFailure) {
+			fTrace= null;
+			fExpected= null;
+			fActual= null;
+			fStore= store;
+			fPosition= position;
+			fIsComparisonFailure= isComparisonFailure;
+		}
+
+		boolean isSpilled() {
+			return fStore != null;
+		}
+
+		/**
+		 * @return this failure with its data in memory
+		 */
+		Failure load() {
+			if (fStore == null)
+				return this;
+			return fStore.read(this);
+		}
+
+		int length() {
+			return length(fTrace) + length(fExpected) + length(fActual);
+		}
+
+		private static int length(String string) {
+			return string == null ? 0 : string.length();
+		}
+	}
+
+	/**
+	 * Number of characters of failure data that are kept in memory.
+	 */
+	static final int MEMORY_BUDGET= 2 * 1024 * 1024;
+
+	/**
+	 * Test elements with failure data in memory, in the order they failed.
+	 */
+	private final LinkedHashSet<TestElement> fRetained= new LinkedHashSet<>();
+	/**
+	 * Test elements with failure data in the file. They are not kept alive by the store.
+	 */
+	private final ArrayList<WeakReference<TestElement>> fSpilled= new ArrayList<>();
+	private long fRetainedLength;
+	private File fFile;
+	private RandomAccessFile fAccess;
+	private boolean fDisposed;
+	private boolean fSpillFailed;
+
+	/**
+	 * Registers the new failure data of the given element, and spills the data of older
+	 * failures if the retained size exceeds the budget.
+	 *
+	 * @param element the element whose failure data has changed
+	 */
+	synchronized void retain(TestElement element) {
+		if (fRetained.remove(element))
+			fRetainedLength-= element.fRetainedFailureLength;
+		Failure failure= element.getFailure();
+		if (failure == null || failure.isSpilled()) {
+			element.fRetainedFailureLength= 0;
+			return;
+		}
+		element.fRetainedFailureLength= failure.length();
+		fRetainedLength+= element.fRetainedFailureLength;
+		fRetained.add(element);
+		if (fRetainedLength > MEMORY_BUDGET && !fDisposed && !fSpillFailed)
+			spill(element);
+	}
+
+	private void spill(TestElement current) {
+		Iterator<TestElement> iterator= fRetained.iterator();
+		while (fRetainedLength > MEMORY_BUDGET && iterator.hasNext()) {
+			TestElement element= iterator.next();
+			if (element == current)
+				continue; // can still get further traces
+			Failure failure= element.getFailure();
+			try {
+				element.setFailure(write(failure));
+			} catch (IOException e) {
+				JUnitCorePlugin.log(e);
+				fSpillFailed= true; // keep everything else in memory
+				return;
+			}
+			fSpilled.add(new WeakReference<>(element));
+			fRetainedLength-= element.fRetainedFailureLength;
+			element.fRetainedFailureLength= 0;
+			iterator.remove();
+		}
+	}
+
+	private Failure write(Failure failure) throws IOException {
+		if (fAccess == null) {
+			fFile= File.createTempFile("junitFailures", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+			fFile.deleteOnExit();
+			fAccess= new RandomAccessFile(fFile, "rw"); //$NON-NLS-1$
+		}
+		ByteArrayOutputStream bytes= new ByteArrayOutputStream(failure.length() + 16);
+		DataOutputStream data= new DataOutputStream(bytes);
+		writeString(data, failure.fTrace);
+		writeString(data, failure.fExpected);
+		writeString(data, failure.fActual);
+		long position= fAccess.length();
+		fAccess.seek(position);
+		fAccess.writeInt(bytes.size());
+		fAccess.write(bytes.toByteArray());
+		return new Failure(this, position, failure.fIsComparisonFailure);
+	}
+
+	private static void writeString(DataOutputStream data, String string) throws IOException {
+		if (string == null) {
+			data.writeInt(-1);
+		} else {
+			byte[] bytes= string.getBytes(StandardCharsets.UTF_8);
+			data.writeInt(bytes.length);
+			data.write(bytes);
+		}
+	}
+
+	synchronized Failure read(Failure failure) {
+		if (fAccess == null)
+			return Failure.NONE;
+		try {
+			fAccess.seek(failure.fPosition);
+			byte[] bytes= new byte[fAccess.readInt()];
+			fAccess.readFully(bytes);
+			DataInputStream data= new DataInputStream(new ByteArrayInputStream(bytes));
+			String trace= readString(data, bytes);
+			String expected= readString(data, bytes);
+			String actual= readString(data, bytes);
+			return new Failure(trace, expected, actual);
+		} catch (IOException e) {
+			JUnitCorePlugin.log(e);
+			return Failure.NONE;
+		}
+	}
+
+	private static String readString(DataInputStream data, byte[] bytes) throws IOException {
+		int length= data.readInt();
+		if (length < 0)
+			return null;
+		int offset= bytes.length - data.available();
+		data.skipBytes(length);
+		return new String(bytes, offset, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Deletes the temporary file. The spilled failure data of test elements that have not
+	 * been garbage collected is read back into memory first, since test run listeners and
+	 * views can keep elements of a session that has been reset or removed.
+	 */
+	synchronized void dispose() {
+		fDisposed= true;
+		fRetained.clear();
+		fRetainedLength= 0;
+		if (fAccess != null) {
+			for (int i= 0; i < fSpilled.size(); i++) {
+				TestElement element= fSpilled.get(i).get();
+				if (element == null)
+					continue;
+				Failure failure= element.getFailure();
+				if (failure != null && failure.fStore == this)
+					element.setFailure(read(failure));
+			}
+			fSpilled.clear();
+			try {
+				fAccess.close();
+			} catch (IOException e) {
+				// ignore
+			}
+			fAccess= null;
+			fFile.delete();
+		}
+	}
+}
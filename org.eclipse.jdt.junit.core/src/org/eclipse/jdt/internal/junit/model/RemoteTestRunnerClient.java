@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,21 +12,27 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.junit.model;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.io.PushbackReader;
 import java.io.UnsupportedEncodingException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.SafeRunner;
 
 import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
+import org.eclipse.jdt.internal.junit.runner.BinaryMessageWriter;
 import org.eclipse.jdt.internal.junit.runner.MessageIds;
 import org.eclipse.jdt.internal.junit.runner.RemoteTestRunner;
 
@@ -49,6 +55,70 @@ public class RemoteTestRunnerClient {
 	    abstract ProcessingState readMessage(String message);
 	}
 
+	/**
+	 * The line reader of the text protocol, working on bytes so that the binary
+	 * protocol can continue on the same stream after {@link MessageIds#PROTOCOL_SWITCH}.
+	 */
+	private static class LineReader {
+		private final InputStream fInput;
+		private byte[] fLine= new byte[256];
+		private int fLength;
+		private int fPushback= -1;
+
+		LineReader(InputStream input) {
+			fInput= input;
+		}
+
+		private int read() throws IOException {
+			if (fPushback != -1) {
+				int ch= fPushback;
+				fPushback= -1;
+				return ch;
+			}
+			return fInput.read();
+		}
+
+		/**
+		 * @param client the client to inform about the line delimiter
+		 * @return the next line, or <code>null</code> at the end of the stream
+		 * @throws IOException if reading fails
+		 */
+		String readLine(RemoteTestRunnerClient client) throws IOException {
+			fLength= 0;
+			int ch;
+			while ((ch= read()) != -1) {
+				if (ch == '\n') {
+					client.fLastLineDelimiter= "\n"; //$NON-NLS-1$
+					return toLine();
+				} else if (ch == '\r') {
+					ch= read();
+					if (ch == '\n') {
+						client.fLastLineDelimiter= "\r\n"; //$NON-NLS-1$
+					} else {
+						fPushback= ch;
+						client.fLastLineDelimiter= "\r"; //$NON-NLS-1$
+					}
+					return toLine();
+				} else {
+					if (fLength == fLine.length) {
+						byte[] line= new byte[fLength * 2];
+						System.arraycopy(fLine, 0, line, 0, fLength);
+						fLine= line;
+					}
+					fLine[fLength++]= (byte) ch;
+				}
+			}
+			client.fLastLineDelimiter= null;
+			if (fLength == 0)
+				return null;
+			return toLine();
+		}
+
+		private String toLine() {
+			return new String(fLine, 0, fLength, StandardCharsets.UTF_8);
+		}
+	}
+
 	class DefaultProcessingState extends ProcessingState {
 	    @Override
 		ProcessingState readMessage(String message) {
@@ -224,8 +294,12 @@ public class RemoteTestRunnerClient {
 	private Socket fSocket;
 	private int fPort= -1;
 	private PrintWriter fWriter;
-	private PushbackReader fPushbackReader;
+	private InputStream fInputStream;
 	private String fLastLineDelimiter;
+	/**
+	 * Is the binary protocol accepted when the RemoteTestRunner offers it?
+	 */
+	private boolean fBinaryProtocolEnabled= true;
 	/**
 	 * The protocol version
 	 */
@@ -263,19 +337,25 @@ public class RemoteTestRunnerClient {
 					System.out.println("Creating server socket "+fServerPort); //$NON-NLS-1$
 				fServerSocket= new ServerSocket(fServerPort);
 				fSocket= fServerSocket.accept();
-				try {
-				    fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(fSocket.getInputStream(), "UTF-8"))); //$NON-NLS-1$
-				} catch (UnsupportedEncodingException e) {
-				    fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(fSocket.getInputStream())));
-				}
+				InputStream input= new BufferedInputStream(fSocket.getInputStream(), 64 * 1024);
+				fInputStream= input;
 				try {
 				    fWriter= new PrintWriter(new OutputStreamWriter(fSocket.getOutputStream(), "UTF-8"), true); //$NON-NLS-1$
 	            } catch (UnsupportedEncodingException e1) {
 	                fWriter= new PrintWriter(new OutputStreamWriter(fSocket.getOutputStream()), true);
 	            }
+				LineReader reader= new LineReader(input);
 				String message;
-				while(fPushbackReader != null && (message= readMessage(fPushbackReader)) != null)
-					receiveMessage(message);
+				while(fInputStream != null && (message= reader.readLine(RemoteTestRunnerClient.this)) != null) {
+					if (message.startsWith(MessageIds.PROTOCOL_REQUEST)) {
+						replyProtocol(message.substring(MessageIds.MSG_HEADER_LENGTH));
+					} else if (message.startsWith(MessageIds.PROTOCOL_SWITCH)) {
+						readBinaryMessages(new DataInputStream(input));
+						break;
+					} else {
+						receiveMessage(message);
+					}
+				}
 			} catch (SocketException e) {
 				notifyTestRunTerminated();
 			} catch (IOException e) {
@@ -300,6 +380,16 @@ public class RemoteTestRunnerClient {
 		connection.start();
 	}
 
+	/**
+	 * Sets whether the binary protocol is accepted when the RemoteTestRunner offers it.
+	 * The text protocol is used otherwise. Must be called before {@link #startListening(ITestRunListener2[], int)}.
+	 *
+	 * @param enabled <code>true</code> to accept the binary protocol
+	 */
+	public void setBinaryProtocolEnabled(boolean enabled) {
+		fBinaryProtocolEnabled= enabled;
+	}
+
 	/**
 	 * Requests to stop the remote test run.
 	 */
@@ -325,9 +415,9 @@ public class RemoteTestRunnerClient {
 			fWriter= null;
 		}
 		try {
-			if (fPushbackReader != null) {
-				fPushbackReader.close();
-				fPushbackReader= null;
+			if (fInputStream != null) {
+				fInputStream.close();
+				fInputStream= null;
 			}
 		} catch(IOException e) {
 		}
@@ -351,30 +441,58 @@ public class RemoteTestRunnerClient {
 		return fSocket != null;
 	}
 
-	private String readMessage(PushbackReader in) throws IOException {
-		StringBuffer buf= new StringBuffer(128);
-		int ch;
-		while ((ch= in.read()) != -1) {
-			if (ch == '\n') {
-				fLastLineDelimiter= "\n"; //$NON-NLS-1$
-				return buf.toString();
-			} else if (ch == '\r') {
-				ch= in.read();
-				if (ch == '\n') {
-					fLastLineDelimiter= "\r\n"; //$NON-NLS-1$
-				} else {
-					in.unread(ch);
-					fLastLineDelimiter= "\r"; //$NON-NLS-1$
-				}
-				return buf.toString();
-			} else {
-				buf.append((char) ch);
+	private synchronized void replyProtocol(String protocol) {
+		if (fWriter == null)
+			return;
+		if (fBinaryProtocolEnabled && MessageIds.PROTOCOL_BINARY.equals(protocol))
+			fWriter.println(MessageIds.PROTOCOL_REPLY + protocol);
+	}
+
+	/**
+	 * Reads the frames of the binary protocol until the end of the stream.
+	 * The messages are processed like lines of the text protocol, the line
+	 * delimiter of the text protocol stays in effect.
+	 *
+	 * @param in the stream positioned after the {@link MessageIds#PROTOCOL_SWITCH} line
+	 * @throws IOException if reading fails
+	 * @see BinaryMessageWriter
+	 */
+	private void readBinaryMessages(DataInputStream in) throws IOException {
+		List<String> strings= new ArrayList<>();
+		byte[] frame= new byte[64 * 1024];
+		while (fInputStream != null) {
+			int length;
+			try {
+				length= in.readInt();
+			} catch (EOFException e) {
+				return;
+			}
+			if (length > frame.length)
+				frame= new byte[Math.max(length, frame.length * 2)];
+			in.readFully(frame, 0, length);
+			ByteBuffer buffer= ByteBuffer.wrap(frame, 0, length);
+			int count= buffer.getInt();
+			for (int i= 0; i < count; i++) {
+				String header= readString(buffer, strings);
+				String argument= readString(buffer, strings);
+				receiveMessage(header != null ? header + argument : argument);
 			}
 		}
-		fLastLineDelimiter= null;
-		if (buf.length() == 0)
+	}
+
+	private static String readString(ByteBuffer buffer, List<String> strings) {
+		int ref= buffer.getInt();
+		if (ref >= 0)
+			return strings.get(ref);
+		if (ref == BinaryMessageWriter.REF_NONE)
 			return null;
-		return buf.toString();
+		int length= buffer.getInt();
+		int position= buffer.position();
+		String string= new String(buffer.array(), position, length, StandardCharsets.UTF_8);
+		buffer.position(position + length);
+		if (ref == BinaryMessageWriter.REF_DEFINE)
+			strings.add(string);
+		return string;
 	}
 
 	private void receiveMessage(String message) {
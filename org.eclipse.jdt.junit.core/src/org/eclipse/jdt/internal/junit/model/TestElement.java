@@ -188,9 +188,15 @@ public abstract class TestElement implements ITestElement {
 	private String fUniqueId;
 
 	private Status fStatus;
-	private String fTrace;
-	private String fExpected;
-	private String fActual;
+	/**
+	 * The failure trace, expected and actual value, or <code>null</code>.
+	 * The data can have been spilled to disk, see {@link FailureTraceStore}.
+	 */
+	private volatile FailureTraceStore.Failure fFailure;
+	/**
+	 * Length of the failure data accounted in the {@link FailureTraceStore}.
+	 */
+	int fRetainedFailureLength;
 
 	private boolean fAssumptionFailed;
 
@@ -260,8 +266,10 @@ public abstract class TestElement implements ITestElement {
 	public FailureTrace getFailureTrace() {
 		Result testResult= getTestResult(false);
 		if (testResult == Result.ERROR || testResult == Result.FAILURE
-				|| (testResult == Result.IGNORED && fTrace != null)) {
-			return new FailureTrace(fTrace, fExpected, fActual);
+				|| (testResult == Result.IGNORED && fFailure != null)) {
+			FailureTraceStore.Failure failure= getLoadedFailure();
+			if (testResult != Result.IGNORED || failure.fTrace != null)
+				return new FailureTrace(failure.fTrace, failure.fExpected, failure.fActual);
 		}
 		return null;
 	}
@@ -302,35 +310,50 @@ public abstract class TestElement implements ITestElement {
 	}
 
 	public void setStatus(Status status, String trace, String expected, String actual) {
-		if (trace != null && fTrace != null) {
+		FailureTraceStore.Failure failure= getLoadedFailure();
+		if (trace != null && failure.fTrace != null) {
 			//don't overwrite first trace if same test run logs multiple errors
-			fTrace= fTrace + trace;
+			fFailure= new FailureTraceStore.Failure(failure.fTrace + trace, failure.fExpected, failure.fActual);
+		} else if (trace != null || expected != null || actual != null) {
+			fFailure= new FailureTraceStore.Failure(trace, expected, actual);
 		} else {
-			fTrace= trace;
-			fExpected= expected;
-			fActual= actual;
+			fFailure= null;
 		}
 		setStatus(status);
 	}
 
+	FailureTraceStore.Failure getFailure() {
+		return fFailure;
+	}
+
+	void setFailure(FailureTraceStore.Failure failure) {
+		fFailure= failure;
+	}
+
+	private FailureTraceStore.Failure getLoadedFailure() {
+		FailureTraceStore.Failure failure= fFailure;
+		return failure == null ? FailureTraceStore.Failure.NONE : failure.load();
+	}
+
 	public Status getStatus() {
 		return fStatus;
 	}
 
 	public String getTrace() {
-		return fTrace;
+		return getLoadedFailure().fTrace;
 	}
 
 	public String getExpected() {
-		return fExpected;
+		return getLoadedFailure().fExpected;
 	}
 
 	public String getActual() {
-		return fActual;
+		return getLoadedFailure().fActual;
 	}
 
 	public boolean isComparisonFailure() {
-		return fExpected != null && fActual != null;
+		FailureTraceStore.Failure failure= fFailure;
+		return failure != null && failure.fIsComparisonFailure;
 	}
 
 	/**
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Map from test id to test element.
+ * <p>
+ * The RemoteTestRunner numbers the tests of a run consecutively, so most ids are small
+ * non-negative integers. Those elements are kept in an array indexed by the id, which
+ * needs no entry object per test. Other ids (e.g. from old runners or imported runs) are
+ * kept in a hash map.
+ * </p>
+ */
+class TestElementIndex {
+
+	/**
+	 * Ids up to this value are kept in the array.
+	 */
+	private static final int MAX_INDEX= 1 << 24;
+
+	private TestElement[] fElements= new TestElement[64];
+	private HashMap<String, TestElement> fOthers;
+
+	public TestElement get(String id) {
+		int index= toIndex(id);
+		if (index >= 0)
+			return index < fElements.length ? fElements[index] : null;
+		return fOthers == null ? null : fOthers.get(id);
+	}
+
+	public void put(String id, TestElement element) {
+		int index= toIndex(id);
+		if (index >= 0) {
+			if (index >= fElements.length)
+				fElements= Arrays.copyOf(fElements, Math.max(index + 1, fElements.length * 2));
+			fElements[index]= element;
+		} else {
+			if (fOthers == null)
+				fOthers= new HashMap<>();
+			fOthers.put(id, element);
+		}
+	}
+
+	/**
+	 * @param id the test id
+	 * @return the array index for the id, or -1 if the id is not a canonical number
+	 *         in the range of the array
+	 */
+	private static int toIndex(String id) {
+		int length= id.length();
+		if (length == 0 || length > 8 || (length > 1 && id.charAt(0) == '0'))
+			return -1;
+		int index= 0;
+		for (int i= 0; i < length; i++) {
+			char c= id.charAt(i);
+			if (c < '0' || c > '9')
+				return -1;
+			index= index * 10 + (c - '0');
+		}
+		return index < MAX_INDEX ? index : -1;
+	}
+}
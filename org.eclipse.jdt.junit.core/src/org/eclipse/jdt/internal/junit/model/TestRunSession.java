@@ -83,7 +83,17 @@ public class TestRunSession implements ITestRunSession {
 	/**
 	 * Map from testId to testElement.
 	 */
-	private HashMap<String, TestElement> fIdToTest;
+	private TestElementIndex fIdToTest;
+
+	/**
+	 * Failure traces, expected and actual values of the test elements.
+	 */
+	private FailureTraceStore fFailureTraceStore;
+
+	/**
+	 * Shared arrays of method parameter types.
+	 */
+	private HashMap<List<String>, String[]> fParameterTypes;
 
 	/**
 	 * The TestSuites for which additional children are expected.
@@ -164,7 +174,9 @@ public class TestRunSession implements ITestRunSession {
 		fTestRunnerKind= ITestKind.NULL; //TODO
 
 		fTestRoot= new TestRoot(this);
-		fIdToTest= new HashMap<>();
+		fIdToTest= new TestElementIndex();
+		fFailureTraceStore= new FailureTraceStore();
+		fParameterTypes= new HashMap<>();
 
 		fTestRunnerClient= null;
 
@@ -188,9 +200,13 @@ public class TestRunSession implements ITestRunSession {
 		}
 
 		fTestRoot= new TestRoot(this);
-		fIdToTest= new HashMap<>();
+		fIdToTest= new TestElementIndex();
+		fFailureTraceStore= new FailureTraceStore();
+		fParameterTypes= new HashMap<>();
 
 		fTestRunnerClient= new RemoteTestRunnerClient();
+		if (launchConfiguration != null && JUnitLaunchConfigurationConstants.isTextProtocol(launchConfiguration))
+			fTestRunnerClient.setBinaryProtocolEnabled(false);
 		fTestRunnerClient.startListening(new ITestRunListener2[] { new TestSessionNotifier() }, port);
 
 		final ILaunchManager launchManager= DebugPlugin.getDefault().getLaunchManager();
@@ -235,7 +251,10 @@ public class TestRunSession implements ITestRunSession {
 
 		fTestRoot= new TestRoot(this);
 		fTestResult= null;
-		fIdToTest= new HashMap<>();
+		fIdToTest= new TestElementIndex();
+		fFailureTraceStore.dispose();
+		fFailureTraceStore= new FailureTraceStore();
+		fParameterTypes= new HashMap<>();
 	}
 
 	@Override
@@ -371,7 +390,10 @@ public class TestRunSession implements ITestRunSession {
 			fTestResult= fTestRoot.getTestResult(true);
 			fTestRoot= null;
 			fTestRunnerClient= null;
-			fIdToTest= new HashMap<>();
+			fIdToTest= new TestElementIndex();
+			fFailureTraceStore.dispose();
+			fFailureTraceStore= new FailureTraceStore();
+			fParameterTypes= new HashMap<>();
 			fIncompleteTestSuites= null;
 			fFactoryTestSuites= null;
 			fUnrootedSuite= null;
@@ -389,6 +411,7 @@ public class TestRunSession implements ITestRunSession {
 
 
 	public void removeSwapFile() {
+		fFailureTraceStore.dispose();
 		File swapFile= getSwapFile();
 		if (swapFile.exists())
 			swapFile.delete();
@@ -533,7 +556,6 @@ public class TestRunSession implements ITestRunSession {
 				parameterTypes= null;
 			} else {
 				parameterTypes= parameterTypesString.split(","); //$NON-NLS-1$
-				Arrays.parallelSetAll(parameterTypes, i -> parameterTypes[i].trim());
 			}
 
 			scanTestName(treeEntry, index7 + 1, uniqueIdBuffer);
@@ -568,8 +590,8 @@ public class TestRunSession implements ITestRunSession {
 
 	public TestElement createTestElement(TestSuiteElement parent, String id, String testName, boolean isSuite, int testCount, boolean isDynamicTest, String displayName, String[] parameterTypes, String uniqueId) {
 		TestElement testElement;
-		if (parameterTypes != null && parameterTypes.length > 1) {
-			parameterTypes= Arrays.stream(parameterTypes).map(t -> t.trim()).toArray(String[]::new);
+		if (parameterTypes != null) {
+			parameterTypes= shareParameterTypes(parameterTypes);
 		}
 		if (isSuite) {
 			TestSuiteElement testSuiteElement= new TestSuiteElement(parent, id, testName, testCount, displayName, parameterTypes, uniqueId);
@@ -586,6 +608,27 @@ public class TestRunSession implements ITestRunSession {
 		return testElement;
 	}
 
+	/**
+	 * Returns a shared array with the trimmed parameter types, so that the many tests
+	 * of a parameterized method don't all keep their own copy.
+	 *
+	 * @param parameterTypes the parameter types
+	 * @return the shared array, must not be modified
+	 */
+	private String[] shareParameterTypes(String[] parameterTypes) {
+		String[] trimmed= new String[parameterTypes.length];
+		for (int i= 0; i < parameterTypes.length; i++) {
+			trimmed[i]= parameterTypes[i].trim();
+		}
+		List<String> key= Arrays.asList(trimmed);
+		String[] shared= fParameterTypes.get(key);
+		if (shared == null) {
+			fParameterTypes.put(key, trimmed);
+			shared= trimmed;
+		}
+		return shared;
+	}
+
 	/**
 	 * Append the test name from <code>s</code> to <code>testName</code>.
 	 *
@@ -817,6 +860,7 @@ public class TestRunSession implements ITestRunSession {
 
 	public void registerTestFailureStatus(TestElement testElement, Status status, String trace, String expected, String actual) {
 		testElement.setStatus(status, trace, expected, actual);
+		fFailureTraceStore.retain(testElement);
 		if (!testElement.isAssumptionFailure()) {
 			if (status.isError()) {
 				fErrorCount++;
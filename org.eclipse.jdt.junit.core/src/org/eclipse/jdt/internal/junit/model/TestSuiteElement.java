@@ -11,8 +11,7 @@
 
 package org.eclipse.jdt.internal.junit.model;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import org.eclipse.jdt.junit.model.ITestElement;
 import org.eclipse.jdt.junit.model.ITestSuiteElement;
@@ -20,12 +19,22 @@ import org.eclipse.jdt.junit.model.ITestSuiteElement;
 
 public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 
-	private List<TestElement> fChildren;
+	private static final TestElement[] NO_CHILDREN= new TestElement[0];
+
+	/**
+	 * The children; only the first {@link #fChildCount} elements are used.
+	 * The array is replaced, not modified, when it grows or a child is removed, so
+	 * readers in other threads can work on a snapshot without copying it. Writers
+	 * publish the array before the count, readers must read the count before the
+	 * array and use {@link #getSnapshotCount(TestElement[], int)}.
+	 */
+	private volatile TestElement[] fChildren;
+	private volatile int fChildCount;
 	private Status fChildrenStatus;
 
 	public TestSuiteElement(TestSuiteElement parent, String id, String testName, int childrenCount, String displayName, String[] parameterTypes, String uniqueId) {
 		super(parent, id, testName, displayName, parameterTypes, uniqueId);
-		fChildren= new ArrayList<>(childrenCount);
+		fChildren= childrenCount > 0 ? new TestElement[childrenCount] : NO_CHILDREN;
 	}
 
 	@Override
@@ -42,17 +51,56 @@ public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 		return getClassName();
 	}
 
+	/**
+	 * Returns the number of children in a snapshot of the children. A reader that sees the
+	 * count before a removal and the array after it finds a trailing <code>null</code>.
+	 *
+	 * @param children the children array, read after the count
+	 * @param count the child count
+	 * @return the number of children in the array
+	 */
+	private static int getSnapshotCount(TestElement[] children, int count) {
+		count= Math.min(count, children.length);
+		while (count > 0 && children[count - 1] == null)
+			count--;
+		return count;
+	}
+
 	@Override
 	public ITestElement[] getChildren() {
-		return fChildren.toArray(new ITestElement[fChildren.size()]);
+		int count= fChildCount;
+		TestElement[] children= fChildren;
+		ITestElement[] result= new ITestElement[getSnapshotCount(children, count)];
+		System.arraycopy(children, 0, result, 0, result.length);
+		return result;
 	}
 
 	public void addChild(TestElement child) {
-		fChildren.add(child);
+		TestElement[] children= fChildren;
+		int count= fChildCount;
+		if (count == children.length) {
+			children= Arrays.copyOf(children, Math.max(4, count * 2));
+			children[count]= child;
+			fChildren= children;
+		} else {
+			children[count]= child;
+		}
+		fChildCount= count + 1;
 	}
 
 	public void removeChild(TestElement child) {
-		fChildren.remove(child);
+		TestElement[] children= fChildren;
+		int count= fChildCount;
+		for (int i= 0; i < count; i++) {
+			if (children[i].equals(child)) {
+				TestElement[] newChildren= new TestElement[children.length];
+				System.arraycopy(children, 0, newChildren, 0, i);
+				System.arraycopy(children, i + 1, newChildren, i, count - i - 1);
+				fChildren= newChildren;
+				fChildCount= count - 1;
+				return;
+			}
+		}
 	}
 
 	@Override
@@ -67,13 +115,15 @@ public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 	}
 
 	private Status getCumulatedStatus() {
-		TestElement[] children= fChildren.toArray(new TestElement[fChildren.size()]); // copy list to avoid concurreny problems
-		if (children.length == 0)
+		int count= fChildCount;
+		TestElement[] children= fChildren; // snapshot to avoid concurreny problems
+		count= getSnapshotCount(children, count);
+		if (count == 0)
 			return getSuiteStatus();
 
 		Status cumulated= children[0].getStatus();
 
-		for (int i= 1; i < children.length; i++) {
+		for (int i= 1; i < count; i++) {
 			Status childStatus= children[i].getStatus();
 			cumulated= Status.combineStatus(cumulated, childStatus);
 		}
@@ -88,13 +138,17 @@ public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 	}
 
 	public void childChangedStatus(TestElement child, Status childStatus) {
-		int childCount= fChildren.size();
-		if (child == fChildren.get(0) && childStatus.isRunning()) {
+		int childCount= fChildCount;
+		TestElement[] children= fChildren;
+		childCount= getSnapshotCount(children, childCount);
+		if (childCount == 0)
+			return;
+		if (child == children[0] && childStatus.isRunning()) {
 			// is first child, and is running -> copy status
 			internalSetChildrenStatus(childStatus);
 			return;
 		}
-		TestElement lastChild= fChildren.get(childCount - 1);
+		TestElement lastChild= children[childCount - 1];
 		if (child == lastChild) {
 			if (childStatus.isDone()) {
 				// all children done, collect cumulative status
@@ -148,7 +202,7 @@ public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 
 	@Override
 	public String toString() {
-		return "TestSuite: " + getTestName() + " : " + super.toString() + " (" + fChildren.size() + ")";   //$NON-NLS-1$//$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		return "TestSuite: " + getTestName() + " : " + super.toString() + " (" + fChildCount + ")";   //$NON-NLS-1$//$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
 	}
 
 }
@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.runner;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+
+/**
+ * Writes the messages of the RemoteTestRunner in the binary protocol
+ * ({@link MessageIds#PROTOCOL_BINARY}).
+ * <p>
+ * Messages are collected into frames:
+ * <pre>int frameLength, int messageCount, message*</pre>
+ * where <code>frameLength</code> is the number of bytes that follow it.
+ * A message is a header and an argument. Both are string references:
+ * <ul>
+ * <li><code>int index</code> (&gt;= 0): a string that has been defined before</li>
+ * <li>{@link #REF_DEFINE}, <code>int length</code>, UTF-8 bytes: a string that gets the next index</li>
+ * <li>{@link #REF_LITERAL}, <code>int length</code>, UTF-8 bytes: a string that is not remembered</li>
+ * <li>{@link #REF_NONE}: no string, only used for the header of lines that are not messages,
+ * e.g. the lines of a stack trace</li>
+ * </ul>
+ * Headers and the test identifiers of start, end and failure messages are defined once
+ * and then sent as indices.
+ * </p>
+ * <p>
+ * A frame is written when it is full, when {@link #flush()} is called and no frame has been
+ * written in the last {@link #FLUSH_DELAY} ms, and otherwise at the latest after
+ * {@link #FLUSH_DELAY} ms by a daemon thread. This keeps the number of writes
+ * independent of the number of flushes during a run with many fast tests.
+ * </p>
+ */
+public class BinaryMessageWriter {
+
+	public static final int REF_DEFINE= -1;
+	public static final int REF_LITERAL= -2;
+	public static final int REF_NONE= -3;
+
+	private static final int FRAME_SIZE= 32 * 1024;
+	private static final long FLUSH_DELAY= 50;
+
+	/**
+	 * Writes pending messages that have not been flushed explicitly.
+	 */
+	private class FlushThread extends Thread {
+		public FlushThread() {
+			super("BinaryMessageWriter"); //$NON-NLS-1$
+			setDaemon(true);
+		}
+
+		public void run() {
+			synchronized (BinaryMessageWriter.this) {
+				try {
+					while (!fClosed) {
+						if (fMessageCount == 0) {
+							BinaryMessageWriter.this.wait();
+						} else {
+							long delay= fFirstPending + FLUSH_DELAY - System.currentTimeMillis();
+							if (delay > 0)
+								BinaryMessageWriter.this.wait(delay);
+							else
+								writeFrame();
+						}
+					}
+				} catch (InterruptedException e) {
+					// closed
+				}
+			}
+		}
+	}
+
+	private final OutputStream fOutput;
+	private final ByteArrayOutputStream fFrame= new ByteArrayOutputStream(FRAME_SIZE + 1024);
+	private final DataOutputStream fData= new DataOutputStream(fFrame);
+	private final byte[] fFrameHeader= new byte[8];
+	/**
+	 * Maps defined strings to their index (element type: String -> Integer).
+	 */
+	private final HashMap fStrings= new HashMap();
+	private int fMessageCount;
+	private long fFirstPending;
+	private long fLastWrite;
+	private boolean fClosed;
+	private final FlushThread fFlushThread;
+
+	/**
+	 * Creates a writer for the given stream. The stream must not be written by anybody else.
+	 *
+	 * @param output the stream to the client
+	 */
+	public BinaryMessageWriter(OutputStream output) {
+		fOutput= new BufferedOutputStream(output, FRAME_SIZE + 1024);
+		fFlushThread= new FlushThread();
+		fFlushThread.start();
+	}
+
+	/**
+	 * Adds a message to the current frame.
+	 *
+	 * @param message the message in the text protocol, without line delimiter
+	 */
+	public synchronized void sendMessage(String message) {
+		if (fClosed)
+			return;
+		try {
+			if (message.length() >= MessageIds.MSG_HEADER_LENGTH && message.charAt(0) == '%') {
+				String header= message.substring(0, MessageIds.MSG_HEADER_LENGTH);
+				writeString(header, true);
+				writeString(message.substring(MessageIds.MSG_HEADER_LENGTH), isTestIdentifierMessage(header));
+			} else {
+				fData.writeInt(REF_NONE);
+				writeString(message, false);
+			}
+			if (fMessageCount++ == 0) {
+				fFirstPending= System.currentTimeMillis();
+				notifyAll();
+			}
+			if (fFrame.size() >= FRAME_SIZE)
+				writeFrame();
+		} catch (IOException e) {
+			// like PrintWriter, ignore write errors; the client has gone away
+			fClosed= true;
+		}
+	}
+
+	/**
+	 * Requests that pending messages are sent. The messages are written immediately unless
+	 * another frame has been written recently, in which case the flush thread writes them
+	 * after a short delay.
+	 */
+	public synchronized void flush() {
+		if (fMessageCount > 0 && System.currentTimeMillis() - fLastWrite >= FLUSH_DELAY)
+			writeFrame();
+	}
+
+	/**
+	 * Writes all pending messages and stops the flush thread.
+	 * The underlying stream is flushed but not closed.
+	 */
+	public synchronized void close() {
+		if (fMessageCount > 0)
+			writeFrame();
+		fClosed= true;
+		notifyAll();
+	}
+
+	private static boolean isTestIdentifierMessage(String header) {
+		return header.equals(MessageIds.TEST_START) || header.equals(MessageIds.TEST_END)
+				|| header.equals(MessageIds.TEST_ERROR) || header.equals(MessageIds.TEST_FAILED);
+	}
+
+	private void writeString(String string, boolean define) throws IOException {
+		if (define) {
+			Integer index= (Integer) fStrings.get(string);
+			if (index != null) {
+				fData.writeInt(index.intValue());
+				return;
+			}
+			fStrings.put(string, new Integer(fStrings.size()));
+			fData.writeInt(REF_DEFINE);
+		} else {
+			fData.writeInt(REF_LITERAL);
+		}
+		byte[] bytes= string.getBytes("UTF-8"); //$NON-NLS-1$
+		fData.writeInt(bytes.length);
+		fData.write(bytes);
+	}
+
+	private void writeFrame() {
+		if (fClosed)
+			return;
+		int length= fFrame.size() + 4;
+		putInt(fFrameHeader, 0, length);
+		putInt(fFrameHeader, 4, fMessageCount);
+		try {
+			fOutput.write(fFrameHeader);
+			fFrame.writeTo(fOutput);
+			fOutput.flush();
+		} catch (IOException e) {
+			fClosed= true;
+		}
+		fFrame.reset();
+		fMessageCount= 0;
+		fLastWrite= System.currentTimeMillis();
+	}
+
+	private static void putInt(byte[] bytes, int offset, int value) {
+		bytes[offset]= (byte) (value >>> 24);
+		bytes[offset + 1]= (byte) (value >>> 16);
+		bytes[offset + 2]= (byte) (value >>> 8);
+		bytes[offset + 3]= (byte) value;
+	}
+}
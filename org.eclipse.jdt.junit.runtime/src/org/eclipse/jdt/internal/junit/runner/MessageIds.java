@@ -128,6 +128,31 @@ public class MessageIds {
 	 */
 	public static final String TEST_RERUN=	">RERUN  "; //$NON-NLS-1$
 
+	/**
+	 * Offer to switch to another wire protocol, sent by the RemoteTestRunner
+	 * right after connecting.
+	 * PROTOCOL_REQUEST + protocolName.
+	 * Clients that do not understand the request ignore it, and the text
+	 * protocol is used for the whole run.
+	 */
+	public static final String PROTOCOL_REQUEST= "%PROTO  "; //$NON-NLS-1$
+	/**
+	 * Acceptance of a protocol offer, sent by the client.
+	 * PROTOCOL_REPLY + protocolName.
+	 * Messages to the RemoteTestRunner always use the text protocol.
+	 */
+	public static final String PROTOCOL_REPLY= ">PROTO  "; //$NON-NLS-1$
+	/**
+	 * Notification that this is the last message in the text protocol.
+	 * All following messages from the RemoteTestRunner use the accepted
+	 * protocol.
+	 */
+	public static final String PROTOCOL_SWITCH= "%PSWITCH"; //$NON-NLS-1$
+	/**
+	 * Name of the binary protocol, see {@link BinaryMessageWriter}.
+	 */
+	public static final String PROTOCOL_BINARY= "binary1"; //$NON-NLS-1$
+
 	/**
 	 * MessageFormat to encode test method identifiers:
 	 * testMethod(testClass)
@@ -133,6 +133,19 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 
 	private boolean fConsoleMode = false;
 
+	/**
+	 * Writer for the binary protocol, or <code>null</code> as long as the text protocol is used.
+	 */
+	private BinaryMessageWriter fBinaryWriter;
+	/**
+	 * Don't offer the binary protocol to the client (argument -textprotocol)
+	 */
+	private boolean fTextProtocol= false;
+	/**
+	 * Guards the switch from the text to the binary protocol
+	 */
+	private final Object fSendLock= new Object();
+
 	/**
 	 * Reader thread that processes messages from the client.
 	 */
@@ -170,6 +183,12 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 								RemoteTestRunner.this.notifyAll();
 							}
 						}
+
+						else if (message.startsWith(MessageIds.PROTOCOL_REPLY)) {
+							String protocol= message.substring(MessageIds.MSG_HEADER_LENGTH);
+							if (MessageIds.PROTOCOL_BINARY.equals(protocol))
+								switchToBinaryProtocol();
+						}
 					}
 				}
 			} catch (Exception e) {
@@ -197,6 +216,7 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * -host: the host to connect to default local host
 	 * -port: the port to connect to, mandatory argument
 	 * -keepalive: keep the process alive after a test run
+	 * -textprotocol: always use the text protocol
      * </pre>
      */
 	public static void main(String[] args) {
@@ -296,6 +316,9 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 			else if(args[i].toLowerCase().equals("-keepalive")) { //$NON-NLS-1$
 				fKeepAlive= true;
 			}
+			else if(args[i].toLowerCase().equals("-textprotocol")) { //$NON-NLS-1$
+				fTextProtocol= true;
+			}
 			else if(args[i].toLowerCase().equals("-debugging") || args[i].toLowerCase().equals("-debug")){ //$NON-NLS-1$ //$NON-NLS-2$
 			    fDebugMode= true;
 
@@ -662,6 +685,12 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
                 }
 				fReaderThread= new ReaderThread();
 				fReaderThread.start();
+				if (!fTextProtocol) {
+					// the run starts in the text protocol; the switch happens
+					// whenever the client's reply arrives, see switchToBinaryProtocol()
+					fWriter.println(MessageIds.PROTOCOL_REQUEST + MessageIds.PROTOCOL_BINARY);
+					fWriter.flush();
+				}
 				return true;
 			} catch(IOException e){
 				exception= e;
@@ -679,9 +708,15 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * Shutsdown the connection to the remote test listener.
 	 */
 	private void shutDown() {
-		if (fWriter != null) {
-			fWriter.close();
-			fWriter= null;
+		synchronized (fSendLock) {
+			if (fBinaryWriter != null) {
+				fBinaryWriter.close();
+				fBinaryWriter= null;
+			}
+			if (fWriter != null) {
+				fWriter.close();
+				fWriter= null;
+			}
 		}
 		try {
 			if (fReaderThread != null)   {
@@ -714,13 +749,41 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * @see org.eclipse.jdt.internal.junit.runner.MessageSender#sendMessage(java.lang.String)
 	 */
 	public void sendMessage(String msg) {
-		if(fWriter == null)
-			return;
-		fWriter.println(msg);
+		synchronized (fSendLock) {
+			if (fBinaryWriter != null) {
+				fBinaryWriter.sendMessage(msg);
+				return;
+			}
+			if(fWriter == null)
+				return;
+			fWriter.println(msg);
+		}
 //		if (!fConsoleMode)
 //			System.out.println(msg);
 	}
 
+	/**
+	 * Switches to the binary protocol after the client accepted it.
+	 * Messages sent before are complete lines in the text protocol, the
+	 * {@link MessageIds#PROTOCOL_SWITCH} line tells the client where the binary frames start.
+	 */
+	private void switchToBinaryProtocol() {
+		synchronized (fSendLock) {
+			if (fWriter == null || fBinaryWriter != null || fClientSocket == null)
+				return;
+			fWriter.println(MessageIds.PROTOCOL_SWITCH);
+			fWriter.flush();
+			try {
+				fBinaryWriter= new BinaryMessageWriter(fClientSocket.getOutputStream());
+			} catch (IOException e) {
+				if (fDebugMode)
+					e.printStackTrace();
+			}
+			if (fDebugMode)
+				System.out.println("RemoteTestRunner: switched to binary protocol"); //$NON-NLS-1$
+		}
+	}
+
 	protected void notifyTestRunStarted(int testCount) {
 		fSender.sendMessage(MessageIds.TEST_RUN_START + testCount + " " + "v2"); //$NON-NLS-1$ //$NON-NLS-2$
 	}
@@ -753,7 +816,12 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	}
 
 	public void flush() {
-	    fWriter.flush();
+		synchronized (fSendLock) {
+			if (fBinaryWriter != null)
+				fBinaryWriter.flush();
+			else if (fWriter != null)
+				fWriter.flush();
+		}
 	}
 
 	public void runTests(TestExecution execution) {
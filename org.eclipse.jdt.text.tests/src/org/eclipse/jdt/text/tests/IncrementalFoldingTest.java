@@ -0,0 +1,261 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.jdt.text.tests.performance.EditorTestHelper;
+
+import org.eclipse.core.resources.IFile;
+
+import org.eclipse.text.tests.Accessor;
+
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.source.Annotation;
+import org.eclipse.jface.text.source.projection.ProjectionAnnotationModel;
+import org.eclipse.jface.text.source.projection.ProjectionViewer;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+
+import org.eclipse.jdt.ui.text.folding.DefaultJavaFoldingStructureProvider;
+import org.eclipse.jdt.ui.text.folding.IJavaFoldingStructureProvider;
+
+import org.eclipse.jdt.internal.ui.javaeditor.JavaEditor;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests that the incremental updates of the {@link DefaultJavaFoldingStructureProvider} result in
+ * the same folding structure as a full computation.
+ *
+ * @since 3.14
+ */
+public class IncrementalFoldingTest extends TestCase {
+
+	private static final int METHOD_COUNT= 8;
+
+	private ICompilationUnit fCompilationUnit;
+	private JavaEditor fEditor;
+	private IDocument fDocument;
+	private ProjectionAnnotationModel fModel;
+	private IJavaFoldingStructureProvider fProvider;
+	private boolean fWasFoldingEnabled;
+
+	public static Test setUpTest(Test someTest) {
+		return new JUnitProjectTestSetup(someTest);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(IncrementalFoldingTest.class));
+	}
+
+	private String getSource() {
+		StringBuffer buf= new StringBuffer();
+		buf.append("/*\n");
+		buf.append(" * Header comment.\n");
+		buf.append(" */\n");
+		buf.append("package folding;\n");
+		buf.append("\n");
+		buf.append("import java.util.List;\n");
+		buf.append("import java.util.Map;\n");
+		buf.append("\n");
+		buf.append("/**\n");
+		buf.append(" * Type comment.\n");
+		buf.append(" */\n");
+		buf.append("public class " + getName() + " {\n");
+		for (int i= 0; i < METHOD_COUNT; i++) {
+			buf.append("\t/**\n");
+			buf.append("\t * Method " + i + ".\n");
+			buf.append("\t */\n");
+			buf.append("\tvoid method" + i + "(List<String> list, Map<String, String> map) {\n");
+			buf.append("\t\tSystem.out.println(list);\n");
+			buf.append("\t\tSystem.out.println(map);\n");
+			buf.append("\t}\n");
+			buf.append("\n");
+		}
+		buf.append("\tclass Inner {\n");
+		buf.append("\t\tvoid inner() {\n");
+		buf.append("\t\t\tSystem.out.println();\n");
+		buf.append("\t\t}\n");
+		buf.append("\t}\n");
+		buf.append("}\n");
+		return buf.toString();
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fWasFoldingEnabled= EditorTestHelper.enableFolding(true);
+		IPackageFragmentRoot root= JUnitProjectTestSetup.getProject().findPackageFragmentRoot(JUnitProjectTestSetup.getProject().getPath().append("src"));
+		IPackageFragment pack= root.createPackageFragment("folding", true, null);
+		fCompilationUnit= pack.createCompilationUnit(getName() + ".java", getSource(), true, null);
+		fEditor= (JavaEditor) EditorTestHelper.openInEditor((IFile) fCompilationUnit.getResource(), true);
+		fDocument= EditorTestHelper.getDocument(fEditor);
+		fModel= ((ProjectionViewer) fEditor.getViewer()).getProjectionAnnotationModel();
+		fProvider= fEditor.getAdapter(IJavaFoldingStructureProvider.class);
+		assertTrue(fProvider instanceof DefaultJavaFoldingStructureProvider);
+		joinReconciler();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		EditorTestHelper.closeAllEditors();
+		fCompilationUnit.delete(true, null);
+		EditorTestHelper.enableFolding(fWasFoldingEnabled);
+	}
+
+	private void joinReconciler() {
+		assertTrue(EditorTestHelper.joinReconciler(EditorTestHelper.getSourceViewer(fEditor), 100, 10000, 100));
+	}
+
+	/**
+	 * Returns the folding regions of the editor, as sorted strings of their position, their kind
+	 * and the handle of their element. The collapsed state is not compared, since only the initial
+	 * computation collapses regions.
+	 *
+	 * @return the folding regions
+	 */
+	private List<String> getFoldingRegions() {
+		List<String> regions= new ArrayList<>();
+		Iterator<Annotation> e= fModel.getAnnotationIterator();
+		while (e.hasNext()) {
+			Annotation annotation= e.next();
+			Position position= fModel.getPosition(annotation);
+			Accessor accessor= new Accessor(annotation, annotation.getClass());
+			IJavaElement element= (IJavaElement) accessor.invoke("getElement", new Object[0]);
+			boolean isComment= ((Boolean) accessor.invoke("isComment", new Object[0])).booleanValue();
+			regions.add(position.getOffset() + ":" + position.getLength() + (isComment ? " comment of " : " ") + element.getHandleIdentifier());
+		}
+		Collections.sort(regions);
+		return regions;
+	}
+
+	/**
+	 * Applies the edits, waits for the incremental update and compares its result with a full
+	 * computation of the folding structure.
+	 *
+	 * @param edits the edits as triples of the string before which text is inserted or from
+	 *            which text is deleted, the length of the deleted text and the inserted text
+	 * @return the folding regions after the edits
+	 * @throws Exception if the edit fails
+	 */
+	private List<String> assertIncrementalUpdate(Object[]... edits) throws Exception {
+		for (int i= 0; i < edits.length; i++) {
+			int offset= fDocument.get().indexOf((String) edits[i][0]);
+			assertTrue((String) edits[i][0], offset != -1);
+			fDocument.replace(offset, ((Integer) edits[i][1]).intValue(), (String) edits[i][2]);
+		}
+		joinReconciler();
+		List<String> incremental= getFoldingRegions();
+
+		fProvider.initialize();
+		assertEquals(getFoldingRegions(), incremental);
+		return incremental;
+	}
+
+	private static Object[] insert(String before, String text) {
+		return new Object[] { before, Integer.valueOf(0), text };
+	}
+
+	private static Object[] delete(String from, int length) {
+		return new Object[] { from, Integer.valueOf(length), "" };
+	}
+
+	private static String method(String name) {
+		return "\t/**\n\t * Added.\n\t */\n\tvoid " + name + "() {\n\t\tSystem.out.println();\n\t}\n\n";
+	}
+
+	public void testInitialStructure() throws Exception {
+		List<String> regions= getFoldingRegions();
+		// header, imports, type comment, inner type and its method, and a comment and a method each
+		assertEquals(5 + 2 * METHOD_COUNT, regions.size());
+
+		fProvider.initialize();
+		assertEquals(regions, getFoldingRegions());
+	}
+
+	public void testInsertMethodBetweenMethods() throws Exception {
+		int count= getFoldingRegions().size();
+		// at the end of method1 and at the start of the comment of method2
+		List<String> regions= assertIncrementalUpdate(insert("\t/**\n\t * Method 2.", method("added")));
+		assertEquals(count + 2, regions.size());
+	}
+
+	public void testInsertMethodAtEndOfType() throws Exception {
+		int count= getFoldingRegions().size();
+		List<String> regions= assertIncrementalUpdate(insert("\tclass Inner {", method("added")));
+		assertEquals(count + 2, regions.size());
+	}
+
+	public void testDeleteMethod() throws Exception {
+		int count= getFoldingRegions().size();
+		String method= "\t/**\n\t * Method 3.";
+		int length= fDocument.get().indexOf("\t/**\n\t * Method 4.") - fDocument.get().indexOf(method);
+		List<String> regions= assertIncrementalUpdate(delete(method, length));
+		assertEquals(count - 2, regions.size());
+	}
+
+	public void testDeleteLastLineOfMethod() throws Exception {
+		// the end of the method moves up to the start of the changed range
+		assertIncrementalUpdate(delete("\t\tSystem.out.println(map);\n\t}\n\n\t/**\n\t * Method 6.", "\t\tSystem.out.println(map);\n".length()));
+		assertIncrementalUpdate(delete("\t\tSystem.out.println(list);\n\t}\n\n\t/**\n\t * Method 6.", "\t\tSystem.out.println(list);\n".length()));
+	}
+
+	public void testDeleteBlankLineBetweenMethods() throws Exception {
+		assertIncrementalUpdate(delete("\n\t/**\n\t * Method 5.", 1));
+	}
+
+	public void testInsertBeforeComment() throws Exception {
+		assertIncrementalUpdate(insert("\t/**\n\t * Method 4.", "\t// before the comment\n"));
+	}
+
+	public void testInsertIntoComment() throws Exception {
+		assertIncrementalUpdate(insert("\t * Method 4.", "\t * More text.\n"));
+	}
+
+	public void testInsertBeforeHeader() throws Exception {
+		assertIncrementalUpdate(insert("/*\n * Header comment.", "// first line\n"));
+	}
+
+	public void testDeleteHeader() throws Exception {
+		assertIncrementalUpdate(delete("/*\n * Header comment.", "/*\n * Header comment.\n */\n".length()));
+	}
+
+	public void testInsertImport() throws Exception {
+		// at the end of the import container
+		assertIncrementalUpdate(insert("\n/**\n * Type comment.", "import java.util.Set;\n"));
+	}
+
+	public void testInsertIntoInnerType() throws Exception {
+		assertIncrementalUpdate(insert("\t}\n}\n", "\t\tvoid inner2() {\n\t\t\tSystem.out.println();\n\t\t}\n"));
+	}
+
+	public void testEditsBetweenUpdates() throws Exception {
+		assertIncrementalUpdate(
+				insert("\t/**\n\t * Method 1.", method("first")),
+				delete("\t\tSystem.out.println(map);\n\t}\n\n\t/**\n\t * Method 6.", "\t\tSystem.out.println(map);\n".length()),
+				insert("\tclass Inner {", method("last")));
+	}
+
+	public void testSuccessiveUpdates() throws Exception {
+		assertIncrementalUpdate(insert("\t/**\n\t * Method 2.", method("added")));
+		assertIncrementalUpdate(delete("\t/**\n\t * Added.", method("added").length()));
+		assertIncrementalUpdate(insert("\t/**\n\t * Method 2.", method("added")));
+	}
+}
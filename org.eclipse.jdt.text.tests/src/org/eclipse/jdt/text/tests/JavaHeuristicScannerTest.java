@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,8 +16,11 @@ import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
 
+import org.eclipse.text.tests.Accessor;
+
 import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
 import org.eclipse.jface.text.rules.FastPartitioner;
 
 import org.eclipse.jdt.core.JavaCore;
@@ -63,6 +66,13 @@ public class JavaHeuristicScannerTest extends TestCase {
 		}
 
 		fDocument= new Document();
+		fPartitioner= createPartitioner(fDocument);
+
+		fHeuristicScanner= new JavaHeuristicScanner(fDocument);
+		fScanner= new JavaIndenter(fDocument, fHeuristicScanner);
+	}
+
+	private static FastPartitioner createPartitioner(Document document) {
 		String[] types= new String[] {
 			IJavaPartitions.JAVA_DOC,
 			IJavaPartitions.JAVA_MULTI_LINE_COMMENT,
@@ -71,12 +81,10 @@ public class JavaHeuristicScannerTest extends TestCase {
 			IJavaPartitions.JAVA_CHARACTER,
 			IDocument.DEFAULT_CONTENT_TYPE
 		};
-		fPartitioner= new FastPartitioner(new FastJavaPartitionScanner(), types);
-		fPartitioner.connect(fDocument);
-		fDocument.setDocumentPartitioner(IJavaPartitions.JAVA_PARTITIONING, fPartitioner);
-
-		fHeuristicScanner= new JavaHeuristicScanner(fDocument);
-		fScanner= new JavaIndenter(fDocument, fHeuristicScanner);
+		FastPartitioner partitioner= new FastPartitioner(new FastJavaPartitionScanner(), types);
+		partitioner.connect(document);
+		document.setDocumentPartitioner(IJavaPartitions.JAVA_PARTITIONING, partitioner);
+		return partitioner;
 	}
 
 	/*
@@ -1142,4 +1150,48 @@ public class JavaHeuristicScannerTest extends TestCase {
 		String indent= fScanner.computeIndentation(offset).toString();
 		assertEquals("\t", indent);
 	}
+
+	public void testCachesFollowEdits() throws Exception {
+		fDocument.set("int a; /* ( */ int b= (1);\n");
+		int comment= fDocument.get().indexOf("/*");
+		int parenthesis= fDocument.get().indexOf("(1");
+		assertFalse(fHeuristicScanner.isDefaultPartition(comment + 3));
+		assertEquals(parenthesis, fHeuristicScanner.scanForward(0, JavaHeuristicScanner.UNBOUND, '('));
+		Accessor scanner= new Accessor(fHeuristicScanner, JavaHeuristicScanner.class);
+		assertTrue(scanner.getInt("fWindowLength") > 0);
+
+		// the parenthesis in the comment becomes code
+		fDocument.replace(comment, 2, "  ");
+		assertTrue(fHeuristicScanner.isDefaultPartition(comment + 3));
+		assertEquals(0, scanner.getInt("fWindowLength"));
+		assertEquals(comment + 3, fHeuristicScanner.scanForward(0, JavaHeuristicScanner.UNBOUND, '('));
+
+		// a changed character inside the window
+		fDocument.replace(comment + 3, 1, "x");
+		assertEquals(parenthesis, fHeuristicScanner.scanForward(0, JavaHeuristicScanner.UNBOUND, '('));
+		assertEquals(comment + 3, fHeuristicScanner.scanBackward(parenthesis - 1, JavaHeuristicScanner.UNBOUND, 'x'));
+
+		// the code becomes a comment
+		fDocument.replace(0, 0, "//");
+		assertFalse(fHeuristicScanner.isDefaultPartition(parenthesis + 2));
+		assertEquals(JavaHeuristicScanner.NOT_FOUND, fHeuristicScanner.scanForward(0, JavaHeuristicScanner.UNBOUND, '('));
+	}
+
+	public void testDocumentWithoutModificationStamp() throws Exception {
+		Document document= new Document("int a= (1);\n");
+		assertEquals(IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP, document.getModificationStamp());
+		FastPartitioner partitioner= createPartitioner(document);
+		try {
+			JavaHeuristicScanner heuristicScanner= new JavaHeuristicScanner(document);
+			assertEquals(7, heuristicScanner.scanForward(0, JavaHeuristicScanner.UNBOUND, '('));
+			assertEquals(9, heuristicScanner.scanBackward(document.getLength() - 1, JavaHeuristicScanner.UNBOUND, ')'));
+
+			// the characters are read without copying them into the window
+			Accessor scanner= new Accessor(heuristicScanner, JavaHeuristicScanner.class);
+			assertEquals(0, scanner.getInt("fWindowLength"));
+		} finally {
+			document.setDocumentPartitioner(IJavaPartitions.JAVA_PARTITIONING, null);
+			partitioner.disconnect();
+		}
+	}
 }
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.SimpleName;
+
+import org.eclipse.jdt.ui.tests.core.Java18ProjectTestSetup;
+
+import org.eclipse.jdt.internal.core.manipulation.search.IOccurrencesFinder.OccurrenceLocation;
+import org.eclipse.jdt.internal.core.manipulation.search.OccurrencesFinder;
+import org.eclipse.jdt.internal.core.manipulation.search.OccurrencesIndex;
+import org.eclipse.jdt.internal.corext.dom.IASTSharedValues;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests that the {@link OccurrencesIndex} finds the same occurrences as a search of the
+ * {@link OccurrencesFinder}, for every name of a compilation unit.
+ *
+ * @since 3.14
+ */
+public class OccurrencesIndexTest extends TestCase {
+	private static final Class<OccurrencesIndexTest> THIS= OccurrencesIndexTest.class;
+
+	public static Test suite() {
+		return new Java18ProjectTestSetup(new TestSuite(THIS));
+	}
+
+	private IJavaProject fJProject1;
+
+	private IPackageFragmentRoot fSourceFolder;
+
+	@Override
+	protected void setUp() throws Exception {
+		fJProject1= Java18ProjectTestSetup.getProject();
+		fSourceFolder= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.clear(fJProject1, Java18ProjectTestSetup.getDefaultClasspath());
+	}
+
+	private CompilationUnit createCompilationUnit(String source) throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		ICompilationUnit cu= pack1.createCompilationUnit("E.java", source, false, null);
+		ASTParser parser= ASTParser.newParser(IASTSharedValues.SHARED_AST_LEVEL);
+		parser.setSource(cu);
+		parser.setResolveBindings(true);
+		return (CompilationUnit) parser.createAST(null);
+	}
+
+	private void checkAllNames(String source) throws Exception {
+		CompilationUnit root= createCompilationUnit(source);
+		final List<SimpleName> names= new ArrayList<>();
+		root.accept(new ASTVisitor() {
+			@Override
+			public boolean visit(SimpleName node) {
+				names.add(node);
+				return true;
+			}
+		});
+
+		OccurrencesIndex index= new OccurrencesIndex(root);
+		int indexed= 0;
+		for (int i= 0; i < names.size(); i++) {
+			SimpleName name= names.get(i);
+			OccurrencesFinder expectedFinder= new OccurrencesFinder();
+			if (expectedFinder.initialize(root, name) != null)
+				continue;
+			OccurrenceLocation[] expected= expectedFinder.getOccurrences();
+
+			OccurrencesFinder finder= new OccurrencesFinder(index);
+			assertNull(finder.initialize(root, name));
+			OccurrenceLocation[] actual= finder.getOccurrences();
+			if (finder.getNodesVisited() == 0)
+				indexed++;
+
+			String message= name.getIdentifier() + " at " + name.getStartPosition();
+			assertEquals(message, expected == null, actual == null);
+			if (expected == null)
+				continue;
+			assertEquals(message, expected.length, actual.length);
+			for (int j= 0; j < expected.length; j++) {
+				assertEquals(message, expected[j].getOffset(), actual[j].getOffset());
+				assertEquals(message, expected[j].getLength(), actual[j].getLength());
+				assertEquals(message, expected[j].getFlags(), actual[j].getFlags());
+				assertEquals(message, expected[j].getDescription(), actual[j].getDescription());
+			}
+		}
+		assertTrue(indexed > 0);
+		assertTrue(index.getNodesVisited() > 0);
+	}
+
+	public void testVariables() throws Exception {
+		StringBuffer s= new StringBuffer();
+		s.append("package test1;\n");
+		s.append("public class E {\n");
+		s.append("    private int fCount= 0;\n");
+		s.append("    static String NAME;\n");
+		s.append("    public int inc(int delta) {\n");
+		s.append("        int old= fCount;\n");
+		s.append("        fCount+= delta;\n");
+		s.append("        this.fCount++;\n");
+		s.append("        --delta;\n");
+		s.append("        E.NAME= test1.E.NAME + old;\n");
+		s.append("        for (int i= 0; i < delta; i++) {\n");
+		s.append("            old= old * i;\n");
+		s.append("        }\n");
+		s.append("        return old;\n");
+		s.append("    }\n");
+		s.append("}\n");
+		checkAllNames(s.toString());
+	}
+
+	public void testTypesAndMethods() throws Exception {
+		StringBuffer s= new StringBuffer();
+		s.append("package test1;\n");
+		s.append("import java.util.ArrayList;\n");
+		s.append("import java.util.List;\n");
+		s.append("import static java.util.Collections.emptyList;\n");
+		s.append("public class E {\n");
+		s.append("    class Inner<T> {\n");
+		s.append("        Inner(T t) {}\n");
+		s.append("        T get() { return null; }\n");
+		s.append("    }\n");
+		s.append("    List<String> list= new ArrayList<String>();\n");
+		s.append("    java.util.List<String> other= new java.util.ArrayList<>();\n");
+		s.append("    void foo(List<String> l) {\n");
+		s.append("        Inner<String> inner= new Inner<String>(\"\");\n");
+		s.append("        E.Inner<String> inner2= this.new Inner<>(inner.get());\n");
+		s.append("        foo(emptyList());\n");
+		s.append("        foo(java.util.Collections.<String> emptyList());\n");
+		s.append("        System.out.println(inner2.get().length());\n");
+		s.append("        Runnable r= () -> foo(list);\n");
+		s.append("        r.run();\n");
+		s.append("    }\n");
+		s.append("}\n");
+		checkAllNames(s.toString());
+	}
+}
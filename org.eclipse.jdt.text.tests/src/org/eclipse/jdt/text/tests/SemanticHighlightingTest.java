@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,6 +17,7 @@ import junit.framework.TestSuite;
 
 import org.eclipse.jface.text.Position;
 
+import org.eclipse.jdt.internal.ui.javaeditor.SemanticHighlightingReconciler;
 import org.eclipse.jdt.internal.ui.javaeditor.SemanticHighlightings;
 
 public class SemanticHighlightingTest extends AbstractSemanticHighlightingTest {
@@ -208,6 +209,48 @@ public class SemanticHighlightingTest extends AbstractSemanticHighlightingTest {
 		assertEqualPositions(expected, actual);
 	}
 
+	public void testIncrementalLocalVariableHighlighting() throws Exception {
+		setUpSemanticHighlighting(SemanticHighlightings.LOCAL_VARIABLE);
+		SemanticHighlightingReconciler reconciler= getSemanticHighlightingReconciler();
+		int total= reconciler.getTotalNodeCount();
+		assertTrue(total > 0);
+		assertEquals(total, reconciler.getVisitedNodeCount());
+
+		String inserted= "\t\tint local3= local;\n";
+		replaceAndReconcile(10, 0, 0, inserted);
+		try {
+			// only the body of the changed method is visited again
+			int visited= reconciler.getVisitedNodeCount();
+			assertTrue(visited > 0);
+			assertTrue("visited " + visited + " of " + total + " nodes", visited < total);
+			assertEquals(total, reconciler.getTotalNodeCount());
+
+			Position[] expected= new Position[] {
+					createPosition(7, 17, 5),
+					createPosition(8, 6, 5),
+					createPosition(8, 13, 5),
+					createPosition(9, 2, 5),
+					createPosition(10, 6, 6),
+					createPosition(10, 14, 5),
+					createPosition(14, 11, 6),
+					createPosition(14, 22, 6),
+					createPosition(14, 35, 6),
+					createPosition(15, 26, 6),
+					createPosition(16, 3, 5),
+					createPosition(16, 10, 6),
+					createPosition(17, 3, 6),
+					createPosition(42, 16, 4),
+					createPosition(43, 20, 13),
+					createPosition(44, 15, 7),
+			};
+			Position[] actual= getSemanticHighlightingPositions();
+//			System.out.println(toString(actual));
+			assertEqualPositions(expected, actual);
+		} finally {
+			replaceAndReconcile(10, 0, inserted.length(), "");
+		}
+	}
+
 	public void testParameterVariableHighlighting() throws Exception {
 		setUpSemanticHighlighting(SemanticHighlightings.PARAMETER_VARIABLE);
 		Position[] actual= getSemanticHighlightingPositions();
@@ -39,6 +39,7 @@ public class ContentAssistTestSuite {
 		suite.addTest(CodeCompletionTest.suite());
 		suite.addTest(CodeCompletionTest18.suite());
 		suite.addTest(ContinuousTypingCompletionTest.suite());
+		suite.addTest(ProposalComputationTest.suite());
 		//$JUnit-END$
 
 		return suite;
@@ -0,0 +1,298 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.contentassist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.testplugin.util.DisplayHelper;
+
+import org.eclipse.swt.widgets.Display;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.text.tests.Accessor;
+
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.contentassist.CompletionProposal;
+import org.eclipse.jface.text.contentassist.ContentAssistEvent;
+import org.eclipse.jface.text.contentassist.ContentAssistant;
+import org.eclipse.jface.text.contentassist.ICompletionListener;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+import org.eclipse.jface.text.contentassist.IContentAssistProcessor;
+import org.eclipse.jface.text.contentassist.IContextInformation;
+
+import org.eclipse.ui.texteditor.ITextEditorActionConstants;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+
+import org.eclipse.jdt.ui.text.IJavaPartitions;
+import org.eclipse.jdt.ui.text.java.ContentAssistInvocationContext;
+import org.eclipse.jdt.ui.text.java.IJavaCompletionProposalComputer;
+
+import org.eclipse.jdt.internal.ui.javaeditor.EditorUtility;
+import org.eclipse.jdt.internal.ui.javaeditor.JavaEditor;
+import org.eclipse.jdt.internal.ui.javaeditor.JavaSourceViewer;
+import org.eclipse.jdt.internal.ui.text.java.ContentAssistProcessor;
+import org.eclipse.jdt.internal.ui.text.java.JavaCompletionProcessor;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the latency budget of content assist, with the computers contributed by this plug-in to
+ * the <code>org.eclipse.jdt.text.tests.proposalComputationCategory</code>. They only compute
+ * proposals while a test of this class runs.
+ *
+ * @since 3.14
+ */
+public class ProposalComputationTest extends TestCase {
+
+	private static final Class<ProposalComputationTest> THIS= ProposalComputationTest.class;
+
+	private static final String BACKGROUND_PROPOSAL= "ProposalComputationTest.background";
+	private static final String UI_THREAD_PROPOSAL= "ProposalComputationTest.uiThread";
+
+	private static final String PROPOSAL_COMPUTATION= "org.eclipse.jdt.internal.ui.text.java.ProposalComputation";
+
+	/** The latch that releases the background computer, <code>null</code> if no test runs. */
+	private static volatile CountDownLatch fgLatch;
+
+	/**
+	 * A computer that runs in the background and returns its proposal once the test releases it.
+	 */
+	public static final class BackgroundComputer extends TestComputer {
+		@Override
+		public List<ICompletionProposal> computeCompletionProposals(ContentAssistInvocationContext context, IProgressMonitor monitor) {
+			CountDownLatch latch= fgLatch;
+			if (latch == null)
+				return Collections.emptyList();
+			try {
+				latch.await(20, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return createProposal(BACKGROUND_PROPOSAL, context);
+		}
+	}
+
+	/**
+	 * A computer that runs in the UI thread and returns its proposal right away.
+	 */
+	public static final class UIThreadComputer extends TestComputer {
+		@Override
+		public List<ICompletionProposal> computeCompletionProposals(ContentAssistInvocationContext context, IProgressMonitor monitor) {
+			if (fgLatch == null)
+				return Collections.emptyList();
+			return createProposal(UI_THREAD_PROPOSAL, context);
+		}
+	}
+
+	private static abstract class TestComputer implements IJavaCompletionProposalComputer {
+		@Override
+		public void sessionStarted() {
+		}
+
+		@Override
+		public List<IContextInformation> computeContextInformation(ContentAssistInvocationContext context, IProgressMonitor monitor) {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public String getErrorMessage() {
+			return null;
+		}
+
+		@Override
+		public void sessionEnded() {
+		}
+
+		static List<ICompletionProposal> createProposal(String name, ContentAssistInvocationContext context) {
+			ICompletionProposal proposal= new CompletionProposal(name, context.getInvocationOffset(), 0, name.length());
+			return Collections.singletonList(proposal);
+		}
+	}
+
+	private JavaEditor fEditor;
+	private int fOffset;
+
+	public ProposalComputationTest(String name) {
+		super(name);
+	}
+
+	public static Test setUpTest(Test test) {
+		return new CompletionTestSetup(test);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		String contents= "public class " + getName() + " {\n" +
+				"	int ab, ba;\n" +
+				"	void m() {\n" +
+				"		/*COMPLETE_HERE*/\n" +
+				"	}\n" +
+				"}\n";
+		ICompilationUnit cu= CompletionTestSetup.getAnonymousTestPackage().createCompilationUnit(getName() + ".java", contents, true, new NullProgressMonitor());
+		fEditor= (JavaEditor) EditorUtility.openInEditor(cu);
+		fOffset= contents.indexOf("/*COMPLETE_HERE*/");
+		fEditor.getViewer().setSelectedRange(fOffset, 0);
+		fgLatch= new CountDownLatch(1);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		CountDownLatch latch= fgLatch;
+		fgLatch= null;
+		latch.countDown();
+		if (fEditor != null) {
+			fEditor.close(false);
+			fEditor= null;
+		}
+		super.tearDown();
+	}
+
+	private static long getLatencyBudget() {
+		Accessor accessor= new Accessor(null, PROPOSAL_COMPUTATION, ContentAssistProcessor.class.getClassLoader());
+		return ((Long) accessor.get("LATENCY_BUDGET")).longValue();
+	}
+
+	/**
+	 * Creates a processor in the state of a content assist session.
+	 *
+	 * @return the processor
+	 */
+	private JavaCompletionProcessor createProcessor() {
+		ContentAssistant assistant= new ContentAssistant();
+		assistant.setDocumentPartitioning(IJavaPartitions.JAVA_PARTITIONING);
+		JavaCompletionProcessor processor= new JavaCompletionProcessor(fEditor, assistant, IDocument.DEFAULT_CONTENT_TYPE);
+		Accessor accessor= new Accessor(processor, ContentAssistProcessor.class);
+		accessor.invoke("setCategoryIteration", new Object[0]);
+		accessor.set("fRepetition", 0);
+		accessor.set("fIsSessionActive", true);
+		return processor;
+	}
+
+	private static List<String> getTestProposals(ICompletionProposal[] proposals) {
+		List<String> names= new ArrayList<>();
+		for (ICompletionProposal proposal : proposals) {
+			String name= proposal.getDisplayString();
+			if (name.startsWith("ProposalComputationTest."))
+				names.add(name);
+		}
+		return names;
+	}
+
+	public void testLatencyBudget() throws Exception {
+		long budget= getLatencyBudget();
+		if (budget == 0)
+			return;
+
+		JavaCompletionProcessor processor= createProcessor();
+		long start= System.currentTimeMillis();
+		ICompletionProposal[] proposals= processor.computeCompletionProposals(fEditor.getViewer(), fOffset);
+		long elapsed= System.currentTimeMillis() - start;
+
+		assertTrue("waited " + elapsed + " ms", elapsed < budget + 5000);
+		assertEquals(Collections.singletonList(UI_THREAD_PROPOSAL), getTestProposals(proposals));
+		assertNotNull(new Accessor(processor, ContentAssistProcessor.class).get("fPendingComputation"));
+	}
+
+	public void testNoBudgetOutsideOfSession() throws Exception {
+		JavaCompletionProcessor processor= createProcessor();
+		Accessor accessor= new Accessor(processor, ContentAssistProcessor.class);
+		accessor.set("fIsSessionActive", false);
+		fgLatch.countDown();
+
+		ICompletionProposal[] proposals= processor.computeCompletionProposals(fEditor.getViewer(), fOffset);
+
+		assertEquals(2, getTestProposals(proposals).size());
+		assertNull(accessor.get("fPendingComputation"));
+	}
+
+	public void testMergeLateProposals() throws Exception {
+		if (getLatencyBudget() == 0)
+			return;
+
+		JavaCompletionProcessor processor= createProcessor();
+		Accessor accessor= new Accessor(processor, ContentAssistProcessor.class);
+		ICompletionProposal[] partial= processor.computeCompletionProposals(fEditor.getViewer(), fOffset);
+		assertEquals(Collections.singletonList(UI_THREAD_PROPOSAL), getTestProposals(partial));
+
+		// don't run the event loop, the test invokes content assist again instead of the processor
+		Object computation= accessor.get("fPendingComputation");
+		Accessor pending= new Accessor(computation, PROPOSAL_COMPUTATION, ContentAssistProcessor.class.getClassLoader());
+		fgLatch.countDown();
+		long deadline= System.currentTimeMillis() + 20000;
+		while (!((Boolean) pending.invoke("isDone", new Object[0])).booleanValue() && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+
+		accessor.set("fShowingLateProposals", true);
+		ICompletionProposal[] merged= processor.computeCompletionProposals(fEditor.getViewer(), fOffset);
+		accessor.set("fShowingLateProposals", false);
+
+		// in the order of the computers, not in the order they finished
+		List<String> expected= new ArrayList<>();
+		expected.add(BACKGROUND_PROPOSAL);
+		expected.add(UI_THREAD_PROPOSAL);
+		assertEquals(expected, getTestProposals(merged));
+		assertEquals(partial.length + 1, merged.length);
+		assertNull(accessor.get("fPendingComputation"));
+	}
+
+	public void testLateProposalsReinvoke() throws Exception {
+		if (getLatencyBudget() == 0)
+			return;
+
+		final IContentAssistProcessor[] processor= new IContentAssistProcessor[1];
+		class SessionTracker implements ICompletionListener {
+			@Override
+			public void assistSessionStarted(ContentAssistEvent event) {
+				processor[0]= event.processor;
+			}
+
+			@Override
+			public void assistSessionEnded(ContentAssistEvent event) {
+			}
+
+			@Override
+			public void selectionChanged(ICompletionProposal proposal, boolean smartToggle) {
+			}
+		}
+		((JavaSourceViewer) fEditor.getViewer()).getContentAssistantFacade().addCompletionListener(new SessionTracker());
+		fEditor.getAction(ITextEditorActionConstants.CONTENT_ASSIST).run();
+		assertTrue(processor[0] instanceof ContentAssistProcessor);
+
+		final Accessor accessor= new Accessor(processor[0], ContentAssistProcessor.class);
+		final int partialCount= accessor.getInt("fNumberOfComputedResults");
+		assertNotNull(accessor.get("fPendingComputation"));
+
+		// the processor invokes content assist again when the background computer is done
+		fgLatch.countDown();
+		Display display= fEditor.getSite().getShell().getDisplay();
+		boolean reinvoked= new DisplayHelper() {
+			@Override
+			protected boolean condition() {
+				return accessor.get("fPendingComputation") == null && accessor.getInt("fNumberOfComputedResults") == partialCount + 1;
+			}
+		}.waitForCondition(display, 20000);
+
+		assertTrue("late proposals not shown", reinvoked);
+	}
+}
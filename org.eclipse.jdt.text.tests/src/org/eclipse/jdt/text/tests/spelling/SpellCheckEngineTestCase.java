@@ -10,8 +10,11 @@
  *******************************************************************************/
 package org.eclipse.jdt.text.tests.spelling;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.Locale;
 import java.util.Set;
@@ -22,10 +25,13 @@ import org.eclipse.jdt.ui.PreferenceConstants;
 
 import org.eclipse.jdt.internal.ui.text.spelling.SpellCheckEngine;
 import org.eclipse.jdt.internal.ui.text.spelling.engine.AbstractSpellDictionary;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.CompiledSpellDictionary;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.DefaultPhoneticHashProvider;
 import org.eclipse.jdt.internal.ui.text.spelling.engine.DefaultPhoneticDistanceAlgorithm;
 import org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellCheckEngine;
 import org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellChecker;
 import org.eclipse.jdt.internal.ui.text.spelling.engine.RankedWordProposal;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.SpellDictionaryCompiler;
 
 import junit.framework.Test;
 import junit.framework.TestCase;
@@ -47,6 +53,29 @@ public class SpellCheckEngineTestCase extends TestCase {
 		}
 	}
 
+	protected static class CompiledTestDictionary extends TestDictionary {
+
+		private final CompiledSpellDictionary fCompiled;
+
+		public CompiledTestDictionary(String[] words) throws IOException {
+			SpellDictionaryCompiler compiler= new SpellDictionaryCompiler(new DefaultPhoneticHashProvider());
+			for (int i= 0; i < words.length; i++)
+				compiler.addWord(words[i]);
+			ByteArrayOutputStream out= new ByteArrayOutputStream();
+			compiler.write(out, 0);
+			fCompiled= CompiledSpellDictionary.wrap(ByteBuffer.wrap(out.toByteArray()));
+		}
+
+		public CompiledSpellDictionary getCompiled() {
+			return fCompiled;
+		}
+
+		@Override
+		protected CompiledSpellDictionary loadCompiled(URL url) {
+			return fCompiled;
+		}
+	}
+
 	public static final String GLOBAL= "Global"; //$NON-NLS-1$
 	public static final String LASTWAGEN= "Lastwagen"; //$NON-NLS-1$
 	public static final String LORRY= "Lorry"; //$NON-NLS-1$
@@ -140,6 +169,25 @@ public class SpellCheckEngineTestCase extends TestCase {
 		assertTrue(checker.isCorrect(GLOBAL));
 	}
 
+	public void testCompiledDictionary() throws IOException {
+		String[] words= { TRUCK, LORRY, SENTENCESTART, "sentences", "Lorries", TRUCK }; //$NON-NLS-1$ //$NON-NLS-2$
+		CompiledTestDictionary compiled= new CompiledTestDictionary(words);
+		TestDictionary hashed= new TestDictionary();
+		for (int i= 0; i < words.length; i++)
+			hashed.addWord(words[i]);
+
+		assertEquals(5, compiled.getCompiled().getWordCount());
+		String[] queries= { TRUCK, "truck", LORRY, SENTENCECONTENT, SENTENCESTART, LASTWAGEN, "Trcuk", "Lory" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for (int i= 0; i < queries.length; i++) {
+			assertEquals(queries[i], hashed.isCorrect(queries[i]), compiled.isCorrect(queries[i]));
+			assertEquals(queries[i], hashed.getProposals(queries[i], false), compiled.getProposals(queries[i], false));
+			assertEquals(queries[i], hashed.getProposals(queries[i], true), compiled.getProposals(queries[i], true));
+		}
+		assertTrue(compiled.isLoaded());
+		assertTrue(compiled.isCorrect(TRUCK));
+		assertFalse(compiled.isCorrect(LASTWAGEN));
+	}
+
 	public void testDESpellChecker() {
 		fPreferences.setValue(PreferenceConstants.SPELLING_LOCALE, Locale.GERMANY.toString());
 		final ISpellChecker checker= fEngine.getSpellChecker();
@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.Expression;
+
+import org.eclipse.jdt.internal.corext.dom.ASTFlattener;
+
+/**
+ * Benchmarks {@link ASTFlattener} on whole compilation units and on single expressions,
+ * the latter being the common case in quick assists.
+ */
+@State(Scope.Benchmark)
+public class ASTFlattenerBenchmark extends CorpusBenchmark {
+
+	private List<Expression> fExpressions;
+
+	@Override
+	protected void prepare() {
+		fExpressions= collect(Expression.class);
+	}
+
+	@Benchmark
+	public void flattenCompilationUnits(Blackhole blackhole) {
+		List<CompilationUnit> units= fCorpus.getUnits();
+		for (int i= 0; i < units.size(); i++) {
+			blackhole.consume(ASTFlattener.asString(units.get(i)));
+		}
+	}
+
+	@Benchmark
+	public void flattenExpressions(Blackhole blackhole) {
+		for (int i= 0; i < fExpressions.size(); i++) {
+			blackhole.consume(ASTFlattener.asString(fExpressions.get(i)));
+		}
+	}
+}
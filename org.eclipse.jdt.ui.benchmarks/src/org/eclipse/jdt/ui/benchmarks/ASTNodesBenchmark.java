@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.SimpleName;
+
+import org.eclipse.jdt.internal.corext.dom.ASTNodes;
+
+/**
+ * Benchmarks the {@link ASTNodes} queries that quick assists and refactorings
+ * call for each name of a compilation unit.
+ */
+@State(Scope.Benchmark)
+public class ASTNodesBenchmark extends CorpusBenchmark {
+
+	private List<SimpleName> fNames;
+
+	@Override
+	protected void prepare() {
+		fNames= collect(SimpleName.class);
+	}
+
+	@Benchmark
+	public void getParent(Blackhole blackhole) {
+		for (int i= 0; i < fNames.size(); i++) {
+			blackhole.consume(ASTNodes.getParent(fNames.get(i), BodyDeclaration.class));
+		}
+	}
+
+	@Benchmark
+	public void getNormalizedNode(Blackhole blackhole) {
+		for (int i= 0; i < fNames.size(); i++) {
+			blackhole.consume(ASTNodes.getNormalizedNode(fNames.get(i)));
+		}
+	}
+
+	@Benchmark
+	public void getEnclosingType(Blackhole blackhole) {
+		for (int i= 0; i < fNames.size(); i++) {
+			blackhole.consume(ASTNodes.getEnclosingType(fNames.get(i)));
+		}
+	}
+
+	@Benchmark
+	public void getTopMostName(Blackhole blackhole) {
+		for (int i= 0; i < fNames.size(); i++) {
+			blackhole.consume(ASTNodes.getTopMostName(fNames.get(i)));
+		}
+	}
+}
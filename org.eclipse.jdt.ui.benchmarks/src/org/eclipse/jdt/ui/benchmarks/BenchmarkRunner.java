@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import org.junit.Test;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks in the OSGi framework of the test run. The JMH command line is taken from
+ * the <code>benchmarks.args</code> system property, e.g.
+ * <code>-p corpus=/path/to/src ScopeAnalyzer</code>. The benchmarks run in this VM, as a forked
+ * VM would not have the bundles on its class path.
+ */
+public class BenchmarkRunner {
+
+	@Test
+	public void runBenchmarks() throws Exception {
+		String args= System.getProperty("benchmarks.args", "").trim(); //$NON-NLS-1$ //$NON-NLS-2$
+		CommandLineOptions commandLine= new CommandLineOptions(args.isEmpty() ? new String[0] : args.split("\\s+")); //$NON-NLS-1$
+		Options options= new OptionsBuilder()
+				.parent(commandLine)
+				.forks(0)
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+
+import org.eclipse.jdt.internal.corext.dom.Bindings;
+
+/**
+ * Benchmarks the hierarchy walks of {@link Bindings} for the types and
+ * methods declared in the corpus.
+ */
+@State(Scope.Benchmark)
+public class BindingsBenchmark extends CorpusBenchmark {
+
+	private List<ITypeBinding> fTypes;
+	private List<IMethodBinding> fMethods;
+	private ITypeBinding fObject;
+
+	@Override
+	protected void prepare() {
+		fTypes= new ArrayList<>();
+		List<AbstractTypeDeclaration> types= collect(AbstractTypeDeclaration.class);
+		for (int i= 0; i < types.size(); i++) {
+			ITypeBinding binding= types.get(i).resolveBinding();
+			if (binding != null)
+				fTypes.add(binding);
+		}
+		fMethods= new ArrayList<>();
+		List<MethodDeclaration> methods= collect(MethodDeclaration.class);
+		for (int i= 0; i < methods.size(); i++) {
+			IMethodBinding binding= methods.get(i).resolveBinding();
+			if (binding != null)
+				fMethods.add(binding);
+		}
+		fObject= fCorpus.getUnits().get(0).getAST().resolveWellKnownType("java.lang.Object"); //$NON-NLS-1$
+	}
+
+	@Benchmark
+	public void findOverriddenMethod(Blackhole blackhole) {
+		for (int i= 0; i < fMethods.size(); i++) {
+			blackhole.consume(Bindings.findOverriddenMethod(fMethods.get(i), true));
+		}
+	}
+
+	@Benchmark
+	public void getAllSuperTypes(Blackhole blackhole) {
+		for (int i= 0; i < fTypes.size(); i++) {
+			blackhole.consume(Bindings.getAllSuperTypes(fTypes.get(i)));
+		}
+	}
+
+	@Benchmark
+	public void isSuperType(Blackhole blackhole) {
+		for (int i= 0; i < fTypes.size(); i++) {
+			blackhole.consume(Bindings.isSuperType(fObject, fTypes.get(i)));
+		}
+	}
+}
@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.FileASTRequestor;
+
+/**
+ * A set of compilation units with resolved bindings, parsed without a workspace.
+ * <p>
+ * The corpus is either <code>synthetic</code>, i.e. generated sources of a fixed shape,
+ * or the path of a source folder (e.g. a checkout of a real project). Types that are
+ * not in the source folder or in the running JRE are reported as unresolved.
+ * </p>
+ */
+public final class Corpus {
+
+	/**
+	 * Name of the generated corpus.
+	 */
+	public static final String SYNTHETIC= "synthetic"; //$NON-NLS-1$
+
+	private static final int SYNTHETIC_PACKAGES= 5;
+	private static final int SYNTHETIC_TYPES_PER_PACKAGE= 20;
+	private static final int SYNTHETIC_METHODS_PER_TYPE= 12;
+
+	private final List<CompilationUnit> fUnits;
+	private final List<char[]> fSources;
+
+	private Corpus(List<CompilationUnit> units, List<char[]> sources) {
+		fUnits= units;
+		fSources= sources;
+	}
+
+	public List<CompilationUnit> getUnits() {
+		return fUnits;
+	}
+
+	/**
+	 * @return the source of each unit, in the order of {@link #getUnits()}
+	 */
+	public List<char[]> getSources() {
+		return fSources;
+	}
+
+	/**
+	 * Loads a corpus.
+	 *
+	 * @param corpus {@link #SYNTHETIC} or the path of a source folder
+	 * @return the parsed corpus
+	 * @throws IOException if the sources cannot be read or generated
+	 */
+	public static Corpus load(String corpus) throws IOException {
+		File sourceFolder;
+		if (SYNTHETIC.equals(corpus)) {
+			sourceFolder= Files.createTempDirectory("jdt-benchmark").toFile(); //$NON-NLS-1$
+			sourceFolder.deleteOnExit();
+			generate(sourceFolder);
+		} else {
+			sourceFolder= new File(corpus);
+			if (!sourceFolder.isDirectory())
+				throw new IOException("Not a source folder: " + corpus); //$NON-NLS-1$
+		}
+		return parse(sourceFolder);
+	}
+
+	private static Corpus parse(File sourceFolder) throws IOException {
+		final List<String> files= new ArrayList<>();
+		Files.walkFileTree(sourceFolder.toPath(), new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (file.toString().endsWith(".java")) //$NON-NLS-1$
+					files.add(file.toString());
+				return FileVisitResult.CONTINUE;
+			}
+		});
+
+		ASTParser parser= ASTParser.newParser(AST.JLS8);
+		Map<String, String> options= JavaCore.getOptions();
+		JavaCore.setComplianceOptions(JavaCore.VERSION_1_8, options);
+		parser.setCompilerOptions(options);
+		parser.setEnvironment(null, new String[] { sourceFolder.getAbsolutePath() }, null, true);
+		parser.setResolveBindings(true);
+		parser.setBindingsRecovery(true);
+		parser.setStatementsRecovery(true);
+
+		String[] paths= files.toArray(new String[files.size()]);
+		String[] encodings= new String[paths.length];
+		Arrays.fill(encodings, StandardCharsets.UTF_8.name());
+
+		final List<String> parsedPaths= new ArrayList<>();
+		final List<CompilationUnit> units= new ArrayList<>();
+		parser.createASTs(paths, encodings, new String[0], new FileASTRequestor() {
+			@Override
+			public void acceptAST(String sourceFilePath, CompilationUnit ast) {
+				parsedPaths.add(sourceFilePath);
+				units.add(ast);
+			}
+		}, null);
+
+		List<char[]> sources= new ArrayList<>(units.size());
+		for (int i= 0; i < parsedPaths.size(); i++) {
+			sources.add(new String(Files.readAllBytes(new File(parsedPaths.get(i)).toPath()), StandardCharsets.UTF_8).toCharArray());
+		}
+		return new Corpus(units, sources);
+	}
+
+	private static void generate(File sourceFolder) throws IOException {
+		for (int p= 0; p < SYNTHETIC_PACKAGES; p++) {
+			File packageFolder= new File(sourceFolder, "bench/p" + p); //$NON-NLS-1$
+			packageFolder.mkdirs();
+			for (int t= 0; t < SYNTHETIC_TYPES_PER_PACKAGE; t++) {
+				String source= generateType(p, t);
+				Files.write(new File(packageFolder, "Type" + t + ".java").toPath(), source.getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+	}
+
+	/*
+	 * Each type extends the previous type of its package (the first one implements an
+	 * interface from the JRE) and calls into the previous package, so that hierarchies,
+	 * overriding methods and references across compilation units are exercised.
+	 */
+	private static String generateType(int p, int t) {
+		StringBuilder buf= new StringBuilder();
+		buf.append("package bench.p").append(p).append(";\n\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		buf.append("import java.util.ArrayList;\n"); //$NON-NLS-1$
+		buf.append("import java.util.HashMap;\n"); //$NON-NLS-1$
+		buf.append("import java.util.List;\n"); //$NON-NLS-1$
+		buf.append("import java.util.Map;\n"); //$NON-NLS-1$
+		buf.append('\n');
+		buf.append("/**\n * Generated type ").append(t).append(".\n */\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		buf.append("public class Type").append(t); //$NON-NLS-1$
+		if (t > 0)
+			buf.append(" extends Type").append(t - 1); //$NON-NLS-1$
+		else
+			buf.append(" implements Comparable<Type0>"); //$NON-NLS-1$
+		buf.append(" {\n\n"); //$NON-NLS-1$
+		buf.append("\tprivate final Map<String, List<Integer>> fValues= new HashMap<>();\n"); //$NON-NLS-1$
+		buf.append("\tprotected int fCount;\n"); //$NON-NLS-1$
+		if (p > 0)
+			buf.append("\tprivate bench.p").append(p - 1).append(".Type").append(t).append(" fOther= new bench.p").append(p - 1).append(".Type").append(t).append("();\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+		buf.append('\n');
+		for (int m= 0; m < SYNTHETIC_METHODS_PER_TYPE; m++) {
+			buf.append("\t/**\n\t * Computes value ").append(m).append(".\n\t * @param key the key\n\t * @return the sum\n\t */\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			buf.append("\tpublic int compute").append(m).append("(String key) {\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			buf.append("\t\tList<Integer> list= fValues.get(key);\n"); //$NON-NLS-1$
+			buf.append("\t\tif (list == null) {\n\t\t\tlist= new ArrayList<>();\n\t\t\tfValues.put(key, list);\n\t\t}\n"); //$NON-NLS-1$
+			buf.append("\t\tint sum= 0;\n"); //$NON-NLS-1$
+			buf.append("\t\tfor (int i= 0; i < list.size(); i++) {\n"); //$NON-NLS-1$
+			buf.append("\t\t\tint value= list.get(i).intValue();\n"); //$NON-NLS-1$
+			buf.append("\t\t\tif (value > ").append(m).append(") {\n\t\t\t\tsum+= value;\n\t\t\t} else {\n\t\t\t\tsum-= value; // ").append(m).append("\n\t\t\t}\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			buf.append("\t\t}\n"); //$NON-NLS-1$
+			buf.append("\t\tfor (Integer each : list) {\n\t\t\tfCount+= each.hashCode();\n\t\t}\n"); //$NON-NLS-1$
+			buf.append("\t\ttry {\n\t\t\tsum+= Integer.parseInt(key);\n\t\t} catch (NumberFormatException e) {\n\t\t\tsum= -sum;\n\t\t}\n"); //$NON-NLS-1$
+			if (p > 0)
+				buf.append("\t\tsum+= fOther.compute").append(m).append("(key + \"").append(m).append("\");\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			buf.append("\t\treturn sum;\n\t}\n\n"); //$NON-NLS-1$
+		}
+		if (t == 0)
+			buf.append("\t@Override\n\tpublic int compareTo(Type0 other) {\n\t\treturn fCount - other.fCount;\n\t}\n\n"); //$NON-NLS-1$
+		buf.append("\t@Override\n\tpublic String toString() {\n\t\treturn \"Type").append(t).append("\" + fValues;\n\t}\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		buf.append("}\n"); //$NON-NLS-1$
+		return buf.toString();
+	}
+}
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+/**
+ * Base class of the benchmarks that run over a {@link Corpus}. The corpus is
+ * selected with the <code>corpus</code> parameter, e.g. <code>-p corpus=/path/to/src</code>.
+ * <p>
+ * Each benchmark method processes the whole corpus once, so the reported times are
+ * per corpus, not per compilation unit.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations= 5, time= 1)
+@Measurement(iterations= 10, time= 1)
+@Fork(2)
+public abstract class CorpusBenchmark {
+
+	@Param({ Corpus.SYNTHETIC })
+	public String corpus;
+
+	protected Corpus fCorpus;
+
+	@Setup(Level.Trial)
+	public void loadCorpus() throws IOException {
+		fCorpus= Corpus.load(corpus);
+		prepare();
+	}
+
+	/**
+	 * Collects the input of the benchmark methods from {@link #fCorpus}.
+	 * Called once per trial, after the corpus has been loaded.
+	 */
+	protected abstract void prepare();
+
+	/**
+	 * Returns all nodes of the given type in the corpus.
+	 *
+	 * @param nodeClass the type of the nodes
+	 * @param <T> the type of the nodes
+	 * @return the nodes in the order of the compilation units and of their start positions
+	 */
+	protected <T extends ASTNode> List<T> collect(final Class<T> nodeClass) {
+		final List<T> result= new ArrayList<>();
+		ASTVisitor visitor= new ASTVisitor(true) {
+			@Override
+			public void preVisit(ASTNode node) {
+				if (nodeClass.isInstance(node))
+					result.add(nodeClass.cast(node));
+			}
+		};
+		List<CompilationUnit> units= fCorpus.getUnits();
+		for (int i= 0; i < units.size(); i++) {
+			units.get(i).accept(visitor);
+		}
+		return result;
+	}
+}
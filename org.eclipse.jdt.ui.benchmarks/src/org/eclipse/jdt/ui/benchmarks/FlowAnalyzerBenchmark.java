@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.Statement;
+
+import org.eclipse.jdt.internal.corext.dom.LocalVariableIndex;
+import org.eclipse.jdt.internal.corext.dom.Selection;
+import org.eclipse.jdt.internal.corext.refactoring.code.flow.FlowContext;
+import org.eclipse.jdt.internal.corext.refactoring.code.flow.InOutFlowAnalyzer;
+import org.eclipse.jdt.internal.corext.refactoring.code.flow.InputFlowAnalyzer;
+
+/**
+ * Benchmarks the flow analysis of Extract Method with the body of each method
+ * (except the last statement) as selection.
+ */
+@State(Scope.Benchmark)
+public class FlowAnalyzerBenchmark extends CorpusBenchmark {
+
+	private List<MethodDeclaration> fMethods;
+	private List<ASTNode[]> fSelectedNodes;
+	private int[] fMaxVariableIds;
+
+	@Override
+	protected void prepare() {
+		List<MethodDeclaration> methods= collect(MethodDeclaration.class);
+		fMethods= new ArrayList<>();
+		fSelectedNodes= new ArrayList<>();
+		for (int i= 0; i < methods.size(); i++) {
+			MethodDeclaration method= methods.get(i);
+			if (method.getBody() == null || method.getBody().statements().size() < 2)
+				continue;
+			List<Statement> statements= method.getBody().statements();
+			fMethods.add(method);
+			fSelectedNodes.add(statements.subList(0, statements.size() - 1).toArray(new ASTNode[statements.size() - 1]));
+		}
+		fMaxVariableIds= new int[fMethods.size()];
+		for (int i= 0; i < fMethods.size(); i++) {
+			fMaxVariableIds[i]= LocalVariableIndex.perform(fMethods.get(i));
+		}
+	}
+
+	@Benchmark
+	public void inOutFlow(Blackhole blackhole) {
+		for (int i= 0; i < fMethods.size(); i++) {
+			FlowContext context= new FlowContext(0, fMaxVariableIds[i] + 1);
+			context.setConsiderAccessMode(true);
+			context.setComputeMode(FlowContext.RETURN_VALUES);
+			blackhole.consume(new InOutFlowAnalyzer(context).perform(fSelectedNodes.get(i)));
+		}
+	}
+
+	@Benchmark
+	public void inputFlow(Blackhole blackhole) {
+		for (int i= 0; i < fMethods.size(); i++) {
+			ASTNode[] nodes= fSelectedNodes.get(i);
+			ASTNode last= nodes[nodes.length - 1];
+			Selection selection= Selection.createFromStartEnd(nodes[0].getStartPosition(), last.getStartPosition() + last.getLength());
+
+			FlowContext context= new FlowContext(0, fMaxVariableIds[i] + 1);
+			context.setConsiderAccessMode(true);
+			context.setComputeMode(FlowContext.ARGUMENTS);
+			blackhole.consume(new InputFlowAnalyzer(context, selection, true).perform(fMethods.get(i)));
+		}
+	}
+}
@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.URLConnection;
+import java.net.URLDecoder;
+import java.nio.file.Files;
+import java.util.Hashtable;
+import java.util.Random;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.service.url.AbstractURLStreamHandlerService;
+import org.osgi.service.url.URLConstants;
+import org.osgi.service.url.URLStreamHandlerService;
+import org.osgi.service.url.URLStreamHandlerSetter;
+
+import org.eclipse.core.runtime.FileLocator;
+
+import org.eclipse.jdt.internal.ui.jarpackagerfat.FatJarRsrcUrlBuilder;
+import org.eclipse.jdt.internal.ui.jarpackagerfat.FatJarRsrcUrlIndex;
+
+/**
+ * Measures the startup of a Runnable JAR with <code>libraries</code> nested libraries of
+ * <code>entries</code> entries each, followed by <code>lookups</code> resource lookups spread over
+ * all libraries. The loader classes are read from the <code>jar-in-jar-loader.zip</code> of
+ * org.eclipse.jdt.ui, as in a Runnable JAR:
+ * <ul>
+ * <li><code>baseline</code>: the former loader, a {@link URLClassLoader} over the
+ * <code>jar:rsrc:</code> URLs of the nested libraries,</li>
+ * <li><code>indexed</code>: the indexed loader with the index written by the exporter,</li>
+ * <li><code>unindexed</code>: the indexed loader without that index, as for JARs exported by the
+ * Ant script, which indexes the libraries at startup.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+public class JarInJarLoaderBenchmark {
+
+	/**
+	 * The loader of the runnable JAR; the stream handler factory can only be installed once, so the
+	 * JAR of the current trial is set here.
+	 */
+	private static class OuterLoader extends ClassLoader {
+		volatile URLClassLoader fJar;
+
+		OuterLoader() {
+			super(null);
+		}
+
+		@Override
+		protected URL findResource(String name) {
+			return fJar.findResource(name);
+		}
+	}
+
+	/**
+	 * The <code>rsrc:</code> protocol of the jar-in-jar loader as a URL handler service, for the
+	 * OSGi framework that owns the stream handler factory. Parses URLs like
+	 * <code>RsrcURLStreamHandler</code> and opens them like <code>RsrcURLConnection</code>.
+	 */
+	private static class RsrcURLHandlerService extends AbstractURLStreamHandlerService {
+		@Override
+		public URLConnection openConnection(URL u) throws IOException {
+			return new URLConnection(u) {
+				@Override
+				public void connect() {
+					connected= true;
+				}
+
+				@Override
+				public InputStream getInputStream() throws IOException {
+					InputStream result= OUTER_LOADER.getResourceAsStream(URLDecoder.decode(url.getFile(), "UTF-8")); //$NON-NLS-1$
+					if (result == null)
+						throw new IOException("Could not open " + url); //$NON-NLS-1$
+					return result;
+				}
+			};
+		}
+
+		@Override
+		public void parseURL(URLStreamHandlerSetter realHandler, URL url, String spec, int start, int limit) {
+			String file;
+			if (spec.startsWith("rsrc:")) //$NON-NLS-1$
+				file= spec.substring(5);
+			else if (url.getFile().equals("./")) //$NON-NLS-1$
+				file= spec;
+			else if (url.getFile().endsWith("/")) //$NON-NLS-1$
+				file= url.getFile() + spec;
+			else if ("#runtime".equals(spec)) //$NON-NLS-1$
+				file= url.getFile();
+			else
+				file= spec;
+			realHandler.setURL(url, "rsrc", "", -1, null, null, file, null, null); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	private static final OuterLoader OUTER_LOADER= new OuterLoader();
+
+	static {
+		Hashtable<String, Object> properties= new Hashtable<>();
+		properties.put(URLConstants.URL_HANDLER_PROTOCOL, new String[] { "rsrc" }); //$NON-NLS-1$
+		FrameworkUtil.getBundle(JarInJarLoaderBenchmark.class).getBundleContext().registerService(URLStreamHandlerService.class, new RsrcURLHandlerService(), properties);
+	}
+
+	@Param({ "baseline", "indexed", "unindexed" })
+	public String loader;
+
+	@Param({ "50" })
+	public int libraries;
+
+	@Param({ "400" })
+	public int entries;
+
+	@Param({ "2000" })
+	public int lookups;
+
+	private File fDirectory;
+	private File fJar;
+	private String[] fClassPath;
+	private String[] fNames;
+	private URLClassLoader fLoaderClasses;
+	private Constructor<?> fConstructor;
+
+	@Setup
+	public void setUp() throws Exception {
+		fDirectory= Files.createTempDirectory("jarinjar").toFile(); //$NON-NLS-1$
+		fJar= new File(fDirectory, "app.jar"); //$NON-NLS-1$
+		Random random= new Random(entries);
+		FatJarRsrcUrlIndex index= new FatJarRsrcUrlIndex();
+		fClassPath= new String[libraries + 1];
+		fClassPath[0]= "./"; //$NON-NLS-1$
+		try (JarOutputStream out= new JarOutputStream(new BufferedOutputStream(new FileOutputStream(fJar)))) {
+			for (int i= 0; i < libraries; i++) {
+				String name= "lib" + i + ".jar"; //$NON-NLS-1$ //$NON-NLS-2$
+				fClassPath[i + 1]= name;
+				File library= new File(fDirectory, name);
+				try (JarOutputStream libraryOut= new JarOutputStream(new BufferedOutputStream(new FileOutputStream(library)))) {
+					for (int j= 0; j < entries; j++) {
+						libraryOut.putNextEntry(new JarEntry(getName(i, j)));
+						byte[] content= new byte[256 + random.nextInt(4096)];
+						random.nextBytes(content);
+						libraryOut.write(content);
+					}
+				}
+				try (ZipFile zipFile= new ZipFile(library)) {
+					index.addArchive(name, zipFile);
+				}
+				byte[] content= Files.readAllBytes(library.toPath());
+				library.delete();
+				CRC32 crc= new CRC32();
+				crc.update(content);
+				JarEntry entry= new JarEntry(name);
+				entry.setMethod(ZipEntry.STORED);
+				entry.setSize(content.length);
+				entry.setCrc(crc.getValue());
+				out.putNextEntry(entry);
+				out.write(content);
+			}
+			if ("indexed".equals(loader)) { //$NON-NLS-1$
+				out.putNextEntry(new JarEntry("META-INF/JARINJAR.LIST")); //$NON-NLS-1$
+				index.write(out);
+			}
+		}
+		fNames= new String[lookups];
+		for (int i= 0; i < lookups; i++) {
+			fNames[i]= getName(random.nextInt(libraries), random.nextInt(entries));
+		}
+		URL zip= FileLocator.toFileURL(FrameworkUtil.getBundle(FatJarRsrcUrlBuilder.class).getEntry(FatJarRsrcUrlBuilder.JAR_RSRC_LOADER_ZIP));
+		fLoaderClasses= new URLClassLoader(new URL[] { zip }, null);
+		fConstructor= fLoaderClasses.loadClass("org.eclipse.jdt.internal.jarinjarloader.RsrcClassLoader").getDeclaredConstructor(String[].class, ClassLoader.class); //$NON-NLS-1$
+		fConstructor.setAccessible(true);
+	}
+
+	private static String getName(int library, int entry) {
+		return "org/example/lib" + library + "/p" + entry % 20 + "/Resource" + entry + ".bin"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		if (OUTER_LOADER.fJar != null) {
+			OUTER_LOADER.fJar.close();
+			OUTER_LOADER.fJar= null;
+		}
+		fLoaderClasses.close();
+		fJar.delete();
+		fDirectory.delete();
+	}
+
+	@Benchmark
+	public long startAndLoad() throws Exception {
+		if (OUTER_LOADER.fJar != null)
+			OUTER_LOADER.fJar.close();
+		OUTER_LOADER.fJar= new URLClassLoader(new URL[] { fJar.toURI().toURL() }, null);
+		ClassLoader classLoader;
+		if ("baseline".equals(loader)) { //$NON-NLS-1$
+			URL[] urls= new URL[fClassPath.length];
+			for (int i= 0; i < fClassPath.length; i++) {
+				if (fClassPath[i].endsWith("/")) //$NON-NLS-1$
+					urls[i]= new URL("rsrc:" + fClassPath[i]); //$NON-NLS-1$
+				else
+					urls[i]= new URL("jar:rsrc:" + fClassPath[i] + "!/"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			classLoader= new URLClassLoader(urls, null);
+		} else {
+			classLoader= (ClassLoader) fConstructor.newInstance(fClassPath, OUTER_LOADER);
+		}
+		long total= 0;
+		byte[] buffer= new byte[4096];
+		for (int i= 0; i < fNames.length; i++) {
+			try (InputStream is= classLoader.getResourceAsStream(fNames[i])) {
+				int count;
+				while ((count= is.read(buffer)) != -1) {
+					total+= count;
+				}
+			}
+		}
+		if (classLoader instanceof URLClassLoader)
+			((URLClassLoader) classLoader).close();
+		return total;
+	}
+}
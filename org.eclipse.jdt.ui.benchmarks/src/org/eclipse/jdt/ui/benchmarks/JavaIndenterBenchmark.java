@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentPartitioner;
+import org.eclipse.jface.text.rules.FastPartitioner;
+
+import org.eclipse.jdt.ui.text.IJavaPartitions;
+
+import org.eclipse.jdt.internal.ui.text.FastJavaPartitionScanner;
+import org.eclipse.jdt.internal.ui.text.JavaHeuristicScanner;
+import org.eclipse.jdt.internal.ui.text.JavaIndenter;
+
+/**
+ * Benchmarks the {@link JavaHeuristicScanner} through the {@link JavaIndenter} on a large
+ * document with long comments and string literals: the reference position of each sampled line,
+ * with a new scanner per line like typing does, and the indentation of all lines with one shared
+ * scanner like Correct Indentation does.
+ * <p>
+ * The document contains <code>methods</code> generated methods, each with a Javadoc comment of
+ * <code>commentLines</code> lines.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class JavaIndenterBenchmark {
+
+	private static final String[] LEGAL_CONTENT_TYPES= new String[] {
+		IJavaPartitions.JAVA_DOC,
+		IJavaPartitions.JAVA_MULTI_LINE_COMMENT,
+		IJavaPartitions.JAVA_SINGLE_LINE_COMMENT,
+		IJavaPartitions.JAVA_STRING,
+		IJavaPartitions.JAVA_CHARACTER
+	};
+
+	private static final int SAMPLED_LINES= 200;
+
+	@Param({ "500" })
+	public int methods;
+
+	@Param({ "20" })
+	public int commentLines;
+
+	private IDocument fDocument;
+	private int[] fSampledOffsets;
+	private int[] fLineOffsets;
+
+	@Setup
+	public void setUp() throws BadLocationException {
+		StringBuilder buf= new StringBuilder();
+		buf.append("package p;\n\npublic class Large {\n"); //$NON-NLS-1$
+		for (int m= 0; m < methods; m++) {
+			buf.append("\t/**\n"); //$NON-NLS-1$
+			for (int l= 0; l < commentLines; l++)
+				buf.append("\t * Line ").append(l).append(" of the comment, with code like { foo(); } and \"quotes\".\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			buf.append("\t */\n"); //$NON-NLS-1$
+			buf.append("\tpublic String method").append(m).append("(int count, String value) {\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			buf.append("\t\tif (count > 0)\n\t\t\tvalue= value + \"{ not a block ( \" + count; // trailing comment {\n"); //$NON-NLS-1$
+			buf.append("\t\tfor (int i= 0; i < count; i++) {\n\t\t\tswitch (i) {\n\t\t\t\tcase 1:\n"); //$NON-NLS-1$
+			buf.append("\t\t\t\t\tvalue= call(value,\n\t\t\t\t\t\t\t'}', /* ) */ \"]\");\n\t\t\t\t\tbreak;\n"); //$NON-NLS-1$
+			buf.append("\t\t\t\tdefault:\n\t\t\t\t\tvalue= value.trim();\n\t\t\t}\n\t\t}\n\t\treturn value;\n\t}\n\n"); //$NON-NLS-1$
+		}
+		buf.append("}\n"); //$NON-NLS-1$
+
+		Document document= new Document(buf.toString());
+		IDocumentPartitioner partitioner= new FastPartitioner(new FastJavaPartitionScanner(), LEGAL_CONTENT_TYPES);
+		document.setDocumentPartitioner(IJavaPartitions.JAVA_PARTITIONING, partitioner);
+		partitioner.connect(document);
+		fDocument= document;
+
+		int lines= fDocument.getNumberOfLines();
+		fLineOffsets= new int[lines];
+		for (int i= 0; i < lines; i++)
+			fLineOffsets[i]= fDocument.getLineOffset(i);
+		fSampledOffsets= new int[SAMPLED_LINES];
+		for (int i= 0; i < SAMPLED_LINES; i++)
+			fSampledOffsets[i]= fLineOffsets[(int) ((long) i * lines / SAMPLED_LINES)];
+	}
+
+	@Benchmark
+	public void findReferencePosition(Blackhole blackhole) {
+		for (int i= 0; i < fSampledOffsets.length; i++) {
+			JavaIndenter indenter= new JavaIndenter(fDocument, new JavaHeuristicScanner(fDocument));
+			blackhole.consume(indenter.findReferencePosition(fSampledOffsets[i]));
+		}
+	}
+
+	@Benchmark
+	public void computeIndentation(Blackhole blackhole) {
+		JavaIndenter indenter= new JavaIndenter(fDocument, new JavaHeuristicScanner(fDocument));
+		for (int i= 0; i < fLineOffsets.length; i++)
+			blackhole.consume(indenter.computeIndentation(fLineOffsets[i]));
+	}
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.SimpleName;
+
+import org.eclipse.jdt.internal.core.manipulation.search.OccurrencesFinder;
+import org.eclipse.jdt.internal.core.manipulation.search.OccurrencesIndex;
+
+/**
+ * Benchmarks {@link OccurrencesFinder} as used by mark occurrences: one search
+ * per selected variable name, over the whole AST or answered by an {@link OccurrencesIndex}
+ * that is built once per AST.
+ */
+@State(Scope.Benchmark)
+public class OccurrencesFinderBenchmark extends CorpusBenchmark {
+
+	private static final int SELECTIONS_PER_UNIT= 20;
+
+	private List<SimpleName> fSelections;
+
+	@Override
+	protected void prepare() {
+		List<SimpleName> names= collect(SimpleName.class);
+		List<SimpleName> variables= new ArrayList<>();
+		for (int i= 0; i < names.size(); i++) {
+			IBinding binding= names.get(i).resolveBinding();
+			if (binding != null && binding.getKind() == IBinding.VARIABLE)
+				variables.add(names.get(i));
+		}
+		int step= Math.max(1, variables.size() / (SELECTIONS_PER_UNIT * fCorpus.getUnits().size()));
+		fSelections= new ArrayList<>();
+		for (int i= 0; i < variables.size(); i+= step) {
+			fSelections.add(variables.get(i));
+		}
+	}
+
+	@Benchmark
+	public void getOccurrences(Blackhole blackhole) {
+		for (int i= 0; i < fSelections.size(); i++) {
+			SimpleName name= fSelections.get(i);
+			OccurrencesFinder finder= new OccurrencesFinder();
+			if (finder.initialize((CompilationUnit) name.getRoot(), name) == null)
+				blackhole.consume(finder.getOccurrences());
+		}
+	}
+
+	@Benchmark
+	public void getOccurrencesIndexed(Blackhole blackhole) {
+		Map<CompilationUnit, OccurrencesIndex> indexes= new HashMap<>();
+		for (int i= 0; i < fSelections.size(); i++) {
+			SimpleName name= fSelections.get(i);
+			CompilationUnit root= (CompilationUnit) name.getRoot();
+			OccurrencesIndex index= indexes.get(root);
+			if (index == null) {
+				index= new OccurrencesIndex(root);
+				indexes.put(root, index);
+			}
+			OccurrencesFinder finder= new OccurrencesFinder(index);
+			if (finder.initialize(root, name) == null)
+				blackhole.consume(finder.getOccurrences());
+		}
+	}
+}
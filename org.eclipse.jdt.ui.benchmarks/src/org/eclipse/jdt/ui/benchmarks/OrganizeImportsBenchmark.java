@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.SimpleName;
+
+import org.eclipse.jdt.internal.corext.codemanipulation.ImportReferencesCollector;
+import org.eclipse.jdt.internal.corext.dom.Bindings;
+
+/**
+ * Benchmarks the AST part of Organize Imports: collecting the referenced type names
+ * and computing the sorted import names from their bindings.
+ * <p>
+ * The final {@link org.eclipse.jdt.core.dom.rewrite.ImportRewrite} step needs compilation
+ * units of a Java project and is therefore covered by the workbench performance tests.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class OrganizeImportsBenchmark extends CorpusBenchmark {
+
+	@Override
+	protected void prepare() {
+		// all input is in the corpus
+	}
+
+	@Benchmark
+	public void collectReferences(Blackhole blackhole) {
+		List<CompilationUnit> units= fCorpus.getUnits();
+		for (int i= 0; i < units.size(); i++) {
+			List<SimpleName> typeReferences= new ArrayList<>();
+			List<SimpleName> staticReferences= new ArrayList<>();
+			ImportReferencesCollector.collect(units.get(i), null, null, typeReferences, staticReferences);
+			blackhole.consume(typeReferences);
+		}
+	}
+
+	@Benchmark
+	public void computeImports(Blackhole blackhole) {
+		List<CompilationUnit> units= fCorpus.getUnits();
+		for (int i= 0; i < units.size(); i++) {
+			List<SimpleName> typeReferences= new ArrayList<>();
+			ImportReferencesCollector.collect(units.get(i), null, null, typeReferences, null);
+
+			Set<String> imports= new TreeSet<>();
+			for (int k= 0; k < typeReferences.size(); k++) {
+				IBinding binding= typeReferences.get(k).resolveBinding();
+				if (binding != null)
+					imports.add(Bindings.getImportName(binding));
+			}
+			blackhole.consume(imports);
+		}
+	}
+}
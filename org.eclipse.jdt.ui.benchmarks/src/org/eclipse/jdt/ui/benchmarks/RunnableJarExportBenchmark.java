@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Random;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.jdt.internal.ui.jarpackagerfat.ArchiveEntryReader;
+
+/**
+ * Measures the export of a Runnable JAR with <code>libraries</code> generated libraries of
+ * <code>entries</code> entries each, in the three library handling modes of the wizard:
+ * <ul>
+ * <li><code>extract</code>: the entries of the libraries are written into the JAR, read ahead by
+ * the {@link ArchiveEntryReader} or, for the <code>baseline</code>, one after the other,</li>
+ * <li><code>package</code>: the libraries are written into the JAR as nested archives, stored or,
+ * for the <code>baseline</code>, deflated again,</li>
+ * <li><code>copy</code>: the libraries are copied into a folder next to the JAR, with
+ * {@link Files#copy(java.nio.file.Path, java.nio.file.Path, java.nio.file.CopyOption...)} or, for
+ * the <code>baseline</code>, through a small buffer.</li>
+ * </ul>
+ * The JAR is compressed, like the default of the wizard.
+ */
+@State(Scope.Benchmark)
+public class RunnableJarExportBenchmark {
+
+	@Param({ "extract", "package", "copy" })
+	public String mode;
+
+	@Param({ "baseline", "optimized" })
+	public String variant;
+
+	@Param({ "50" })
+	public int libraries;
+
+	@Param({ "400" })
+	public int entries;
+
+	@Param({ "4" })
+	public int parallelism;
+
+	private File fDirectory;
+	private File[] fLibraries;
+	private File fTarget;
+	private File fFolder;
+	private ArchiveEntryReader fReader;
+
+	@Setup
+	public void setUp() throws IOException {
+		fDirectory= Files.createTempDirectory("jarexport").toFile(); //$NON-NLS-1$
+		fTarget= new File(fDirectory, "app.jar"); //$NON-NLS-1$
+		fFolder= new File(fDirectory, "app_lib"); //$NON-NLS-1$
+		fFolder.mkdir();
+		Random random= new Random(entries);
+		fLibraries= new File[libraries];
+		for (int i= 0; i < libraries; i++) {
+			fLibraries[i]= new File(fDirectory, "lib" + i + ".jar"); //$NON-NLS-1$ //$NON-NLS-2$
+			try (JarOutputStream out= new JarOutputStream(new BufferedOutputStream(new FileOutputStream(fLibraries[i])))) {
+				for (int j= 0; j < entries; j++) {
+					out.putNextEntry(new JarEntry("org/example/lib" + i + "/Type" + j + ".class")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					out.write(createContent(random));
+				}
+			}
+		}
+		fReader= new ArchiveEntryReader(parallelism, ArchiveEntryReader.DEFAULT_CAPACITY);
+	}
+
+	/*
+	 * Class file like content: a constant pool of repeated names, followed by random code.
+	 */
+	private static byte[] createContent(Random random) {
+		byte[] content= new byte[1024 + random.nextInt(16 * 1024)];
+		int names= content.length / 2;
+		for (int i= 0; i < names; i++) {
+			content[i]= (byte) ('a' + random.nextInt(8));
+		}
+		for (int i= names; i < content.length; i++) {
+			content[i]= (byte) random.nextInt(256);
+		}
+		return content;
+	}
+
+	@TearDown
+	public void tearDown() {
+		fReader.dispose();
+		File[] files= fFolder.listFiles();
+		for (int i= 0; i < files.length; i++) {
+			files[i].delete();
+		}
+		fFolder.delete();
+		for (int i= 0; i < fLibraries.length; i++) {
+			fLibraries[i].delete();
+		}
+		fTarget.delete();
+		fDirectory.delete();
+	}
+
+	@Benchmark
+	public long export() throws IOException {
+		boolean optimized= "optimized".equals(variant); //$NON-NLS-1$
+		try (JarOutputStream out= new JarOutputStream(new BufferedOutputStream(new FileOutputStream(fTarget)))) {
+			for (int i= 0; i < fLibraries.length; i++) {
+				if ("extract".equals(mode)) { //$NON-NLS-1$
+					extract(fLibraries[i], out, optimized);
+				} else if ("package".equals(mode)) { //$NON-NLS-1$
+					pack(fLibraries[i], out, optimized);
+				} else {
+					copy(fLibraries[i], new File(fFolder, fLibraries[i].getName()), optimized);
+				}
+			}
+		}
+		return fTarget.length();
+	}
+
+	private void extract(File library, final JarOutputStream out, boolean optimized) throws IOException {
+		try (final ZipFile zipFile= new ZipFile(library)) {
+			List<ZipEntry> list= new ArrayList<>();
+			Enumeration<? extends ZipEntry> enumeration= zipFile.entries();
+			while (enumeration.hasMoreElements()) {
+				list.add(enumeration.nextElement());
+			}
+			if (!optimized) {
+				for (int i= 0; i < list.size(); i++) {
+					out.putNextEntry(new JarEntry(list.get(i).getName()));
+					try (InputStream in= zipFile.getInputStream(list.get(i))) {
+						transfer(in, out);
+					}
+				}
+				return;
+			}
+			fReader.read(zipFile, list, new ArchiveEntryReader.IEntryRequestor() {
+				@Override
+				public void acceptEntry(ZipEntry entry, byte[] content, int length) throws IOException {
+					out.putNextEntry(new JarEntry(entry.getName()));
+					if (content != null) {
+						out.write(content, 0, length);
+					} else {
+						try (InputStream in= zipFile.getInputStream(entry)) {
+							transfer(in, out);
+						}
+					}
+				}
+			}, new NullProgressMonitor());
+		}
+	}
+
+	private static void pack(File library, JarOutputStream out, boolean optimized) throws IOException {
+		JarEntry entry= new JarEntry(library.getName());
+		if (optimized) {
+			CRC32 crc= new CRC32();
+			byte[] buffer= new byte[4096];
+			try (InputStream in= new FileInputStream(library)) {
+				int count;
+				while ((count= in.read(buffer)) != -1) {
+					crc.update(buffer, 0, count);
+				}
+			}
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(library.length());
+			entry.setCrc(crc.getValue());
+		}
+		out.putNextEntry(entry);
+		try (InputStream in= new FileInputStream(library)) {
+			transfer(in, out);
+		}
+	}
+
+	private static void copy(File library, File target, boolean optimized) throws IOException {
+		if (optimized) {
+			Files.copy(library.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			return;
+		}
+		try (InputStream in= new FileInputStream(library); OutputStream out= new FileOutputStream(target)) {
+			transfer(in, out);
+		}
+	}
+
+	private static void transfer(InputStream in, OutputStream out) throws IOException {
+		byte[] buffer= new byte[4096];
+		int count;
+		while ((count= in.read(buffer)) != -1) {
+			out.write(buffer, 0, count);
+		}
+	}
+}
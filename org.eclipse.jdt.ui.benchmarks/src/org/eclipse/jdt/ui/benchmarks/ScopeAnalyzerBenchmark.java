@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.ReturnStatement;
+import org.eclipse.jdt.core.dom.SimpleName;
+
+import org.eclipse.jdt.internal.corext.dom.ScopeAnalyzer;
+
+/**
+ * Benchmarks {@link ScopeAnalyzer} queries at the positions of all return statements,
+ * as done by content assist and by refactorings that check for name clashes.
+ */
+@State(Scope.Benchmark)
+public class ScopeAnalyzerBenchmark extends CorpusBenchmark {
+
+	private static final int ALL= ScopeAnalyzer.METHODS | ScopeAnalyzer.VARIABLES | ScopeAnalyzer.TYPES | ScopeAnalyzer.CHECK_VISIBILITY;
+
+	private List<ReturnStatement> fStatements;
+	private List<SimpleName> fNames;
+
+	@Override
+	protected void prepare() {
+		fStatements= collect(ReturnStatement.class);
+		fNames= collect(SimpleName.class);
+	}
+
+	@Benchmark
+	public void getDeclarationsInScope(Blackhole blackhole) {
+		for (int i= 0; i < fStatements.size(); i++) {
+			ReturnStatement statement= fStatements.get(i);
+			ScopeAnalyzer analyzer= new ScopeAnalyzer((CompilationUnit) statement.getRoot());
+			blackhole.consume(analyzer.getDeclarationsInScope(statement.getStartPosition(), ALL));
+		}
+	}
+
+	@Benchmark
+	public void isDeclaredInScope(Blackhole blackhole) {
+		for (int i= 0; i < fNames.size(); i += 10) {
+			SimpleName name= fNames.get(i);
+			ScopeAnalyzer analyzer= new ScopeAnalyzer((CompilationUnit) name.getRoot());
+			blackhole.consume(analyzer.isDeclaredInScope(name.resolveBinding(), name, ALL));
+		}
+	}
+}
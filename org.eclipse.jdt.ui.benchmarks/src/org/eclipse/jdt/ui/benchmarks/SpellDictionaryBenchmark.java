@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.eclipse.jdt.internal.ui.text.spelling.engine.AbstractSpellDictionary;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.CompiledSpellDictionary;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.DefaultPhoneticHashProvider;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.SpellDictionaryCompiler;
+
+/**
+ * Compares the word list dictionary, which hashes every word into the heap when it is first used,
+ * with the precompiled dictionary, which is memory-mapped and queried in place: the time to load
+ * each, and the time to check and correct words against each.
+ * <p>
+ * The dictionary contains <code>words</code> generated words. Pass the path of a real word list,
+ * e.g. <code>-p wordList=/path/to/en_US.dictionary</code>, to measure it instead.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class SpellDictionaryBenchmark {
+
+	private static final String LETTERS= "etaoinshrdlcumwfgypbvkjxqz"; //$NON-NLS-1$
+
+	/**
+	 * Dictionary on a word list file that does not depend on the workbench preferences.
+	 */
+	private static class WordListDictionary extends AbstractSpellDictionary {
+
+		private final URL fURL;
+		private final File fCompiled;
+
+		WordListDictionary(URL url, File compiled) {
+			fURL= url;
+			fCompiled= compiled;
+		}
+
+		@Override
+		protected URL getURL() {
+			return fURL;
+		}
+
+		@Override
+		protected CompiledSpellDictionary loadCompiled(URL url) {
+			if (fCompiled == null)
+				return null;
+			try {
+				return CompiledSpellDictionary.map(fCompiled);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		protected String getEncoding() {
+			return "UTF-8"; //$NON-NLS-1$
+		}
+
+		@Override
+		protected int getInitialSize() {
+			return 32 * 1024;
+		}
+	}
+
+	@Param({ "50000" })
+	public int words;
+
+	@Param({ "" })
+	public String wordList;
+
+	private File fWordList;
+	private File fCompiled;
+	private WordListDictionary fHashedDictionary;
+	private WordListDictionary fCompiledDictionary;
+	private String[] fQueries;
+
+	@Setup
+	public void setUp() throws IOException {
+		if (wordList.length() > 0) {
+			fWordList= new File(wordList);
+		} else {
+			fWordList= File.createTempFile("words", ".dictionary"); //$NON-NLS-1$ //$NON-NLS-2$
+			Random random= new Random(words);
+			StringBuilder buf= new StringBuilder();
+			for (int i= 0; i < words; i++) {
+				int length= 3 + random.nextInt(9);
+				for (int j= 0; j < length; j++)
+					buf.append(LETTERS.charAt((int) Math.abs(random.nextGaussian() * 8) % LETTERS.length()));
+				buf.append('\n');
+			}
+			try (OutputStream out= new FileOutputStream(fWordList)) {
+				out.write(buf.toString().getBytes(StandardCharsets.UTF_8));
+			}
+		}
+
+		String content= new String(Files.readAllBytes(fWordList.toPath()), StandardCharsets.UTF_8);
+		fCompiled= File.createTempFile("words", CompiledSpellDictionary.FILE_EXTENSION); //$NON-NLS-1$
+		SpellDictionaryCompiler compiler= new SpellDictionaryCompiler(new DefaultPhoneticHashProvider());
+		try (BufferedReader reader= new BufferedReader(new StringReader(content))) {
+			compiler.addWords(reader);
+		}
+		try (OutputStream out= new FileOutputStream(fCompiled)) {
+			compiler.write(out, 0);
+		}
+
+		fHashedDictionary= new WordListDictionary(fWordList.toURI().toURL(), null);
+		fCompiledDictionary= new WordListDictionary(fWordList.toURI().toURL(), fCompiled);
+
+		// half of the queries are words of the dictionary, half are misspelled
+		Random random= new Random(42);
+		String[] lines= content.split("\n"); //$NON-NLS-1$
+		fQueries= new String[200];
+		for (int i= 0; i < fQueries.length; i++) {
+			String word= lines[random.nextInt(lines.length)];
+			if (i % 2 == 1 && word.length() > 2)
+				word= word.substring(0, 1) + word.charAt(2) + word.charAt(1) + word.substring(3);
+			fQueries[i]= word;
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (wordList.length() == 0)
+			fWordList.delete();
+		fCompiled.delete();
+	}
+
+	@Benchmark
+	public boolean loadWordList() {
+		return new WordListDictionary(fHashedDictionary.getURL(), null).isCorrect("the"); //$NON-NLS-1$
+	}
+
+	@Benchmark
+	public boolean loadCompiled() {
+		return new WordListDictionary(fCompiledDictionary.getURL(), fCompiled).isCorrect("the"); //$NON-NLS-1$
+	}
+
+	@Benchmark
+	public void isCorrectWordList(Blackhole blackhole) {
+		for (int i= 0; i < fQueries.length; i++)
+			blackhole.consume(fHashedDictionary.isCorrect(fQueries[i]));
+	}
+
+	@Benchmark
+	public void isCorrectCompiled(Blackhole blackhole) {
+		for (int i= 0; i < fQueries.length; i++)
+			blackhole.consume(fCompiledDictionary.isCorrect(fQueries[i]));
+	}
+
+	@Benchmark
+	public void proposalsWordList(Blackhole blackhole) {
+		for (int i= 1; i < fQueries.length; i+= 20)
+			blackhole.consume(fHashedDictionary.getProposals(fQueries[i], false));
+	}
+
+	@Benchmark
+	public void proposalsCompiled(Blackhole blackhole) {
+		for (int i= 1; i < fQueries.length; i+= 20)
+			blackhole.consume(fCompiledDictionary.getProposals(fQueries[i], false));
+	}
+}
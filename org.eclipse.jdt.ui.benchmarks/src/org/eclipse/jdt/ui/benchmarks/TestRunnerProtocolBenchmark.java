@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.eclipse.jdt.internal.junit.model.ITestRunListener2;
+import org.eclipse.jdt.internal.junit.model.RemoteTestRunnerClient;
+import org.eclipse.jdt.internal.junit.runner.MessageIds;
+import org.eclipse.jdt.internal.junit.runner.RemoteTestRunner;
+import org.eclipse.jdt.internal.junit.runner.TestExecution;
+
+/**
+ * Measures the time to transfer the events of a test run from the {@link RemoteTestRunner}
+ * to the {@link RemoteTestRunnerClient}, in the text and in the binary protocol.
+ * <p>
+ * The runner does not run real tests, it sends the messages of a run with
+ * <code>tests</code> tests, every tenth of them failing, in the order and with the
+ * flushes of the real runner.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class TestRunnerProtocolBenchmark {
+
+	private static final String TRACE= "junit.framework.AssertionFailedError: expected:<1> but was:<2>\n" //$NON-NLS-1$
+			+ "\tat junit.framework.Assert.fail(Assert.java:57)\n" //$NON-NLS-1$
+			+ "\tat junit.framework.Assert.failNotEquals(Assert.java:329)\n" //$NON-NLS-1$
+			+ "\tat junit.framework.Assert.assertEquals(Assert.java:78)\n" //$NON-NLS-1$
+			+ "\tat org.example.SampleTests.testSomething(SampleTests.java:42)\n"; //$NON-NLS-1$
+
+	private static class SyntheticRunner extends RemoteTestRunner {
+		private final int fTests;
+
+		SyntheticRunner(int port, int tests) {
+			fTests= tests;
+			init(new String[] { "-classnames", "org.example.SampleTests", "-port", String.valueOf(port) }); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+
+		@Override
+		public void runTests(TestExecution execution) {
+			notifyTestTreeEntry("1,org.example.SampleTests,true," + fTests + ",false,-1,org.example.SampleTests,,"); //$NON-NLS-1$ //$NON-NLS-2$
+			for (int i= 0; i < fTests; i++)
+				notifyTestTreeEntry((i + 2) + "," + testName(i) + ",false,1,false,-1," + testName(i) + ",,"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			notifyTestRunStarted(fTests);
+			for (int i= 0; i < fTests; i++) {
+				String test= (i + 2) + "," + testName(i); //$NON-NLS-1$
+				sendMessage(MessageIds.TEST_START + test);
+				flush();
+				if (i % 10 == 0) {
+					sendMessage(MessageIds.TEST_FAILED + test);
+					sendMessage(MessageIds.TRACE_START);
+					sendMessage(TRACE);
+					sendMessage(MessageIds.TRACE_END);
+				}
+				sendMessage(MessageIds.TEST_END + test);
+			}
+			sendMessage(MessageIds.TEST_RUN_END + 0);
+			flush();
+		}
+
+		private static String testName(int i) {
+			return "test" + i + "(org.example.SampleTests)"; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		void runAndDisconnect() {
+			run();
+		}
+	}
+
+	private static class CountingListener implements ITestRunListener2 {
+		final CountDownLatch fEnded= new CountDownLatch(1);
+		final AtomicInteger fEvents= new AtomicInteger();
+
+		@Override
+		public void testRunStarted(int testCount) {
+			fEvents.incrementAndGet();
+		}
+		@Override
+		public void testRunEnded(long elapsedTime) {
+			fEnded.countDown();
+		}
+		@Override
+		public void testRunStopped(long elapsedTime) {
+			fEnded.countDown();
+		}
+		@Override
+		public void testStarted(String testId, String testName) {
+			fEvents.incrementAndGet();
+		}
+		@Override
+		public void testEnded(String testId, String testName) {
+			fEvents.incrementAndGet();
+		}
+		@Override
+		public void testRunTerminated() {
+			fEnded.countDown();
+		}
+		@Override
+		public void testTreeEntry(String description) {
+			fEvents.incrementAndGet();
+		}
+		@Override
+		public void testFailed(int status, String testId, String testName, String trace, String expected, String actual) {
+			fEvents.incrementAndGet();
+		}
+		@Override
+		public void testReran(String testId, String testClass, String testName, int status, String trace, String expected, String actual) {
+			fEvents.incrementAndGet();
+		}
+	}
+
+	@Param({ "text", "binary" })
+	public String protocol;
+
+	@Param({ "10000" })
+	public int tests;
+
+	private RemoteTestRunnerClient fClient;
+	private CountingListener fListener;
+	private int fPort;
+
+	@Setup(Level.Invocation)
+	public void listen() throws IOException, InterruptedException {
+		try (ServerSocket socket= new ServerSocket(0)) {
+			fPort= socket.getLocalPort();
+		}
+		fClient= new RemoteTestRunnerClient();
+		fClient.setBinaryProtocolEnabled("binary".equals(protocol)); //$NON-NLS-1$
+		fListener= new CountingListener();
+		fClient.startListening(new ITestRunListener2[] { fListener }, fPort);
+		// the runner waits 2s before it retries to connect
+		Thread.sleep(100);
+	}
+
+	@Benchmark
+	public int transferRun() throws InterruptedException {
+		new SyntheticRunner(fPort, tests).runAndDisconnect();
+		if (!fListener.fEnded.await(1, TimeUnit.MINUTES))
+			throw new IllegalStateException("Test run did not end"); //$NON-NLS-1$
+		return fListener.fEvents.get();
+	}
+}
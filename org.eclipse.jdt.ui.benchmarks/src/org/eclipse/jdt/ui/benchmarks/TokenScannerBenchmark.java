@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.eclipse.core.runtime.CoreException;
+
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.ToolFactory;
+import org.eclipse.jdt.core.compiler.IScanner;
+import org.eclipse.jdt.core.compiler.ITerminalSymbols;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.Statement;
+
+import org.eclipse.jdt.internal.corext.dom.TokenScanner;
+
+/**
+ * Benchmarks the {@link TokenScanner} lookups that AST rewrites do around
+ * statements and method declarations.
+ */
+@State(Scope.Benchmark)
+public class TokenScannerBenchmark extends CorpusBenchmark {
+
+	private List<List<Statement>> fStatements;
+	private List<List<MethodDeclaration>> fMethods;
+
+	@Override
+	protected void prepare() {
+		List<CompilationUnit> units= fCorpus.getUnits();
+		fStatements= new ArrayList<>(units.size());
+		fMethods= new ArrayList<>(units.size());
+		for (int i= 0; i < units.size(); i++) {
+			fStatements.add(new ArrayList<Statement>());
+			fMethods.add(new ArrayList<MethodDeclaration>());
+		}
+		List<Statement> statements= collect(Statement.class);
+		for (int i= 0; i < statements.size(); i++) {
+			Statement statement= statements.get(i);
+			fStatements.get(units.indexOf(statement.getRoot())).add(statement);
+		}
+		List<MethodDeclaration> methods= collect(MethodDeclaration.class);
+		for (int i= 0; i < methods.size(); i++) {
+			MethodDeclaration method= methods.get(i);
+			fMethods.get(units.indexOf(method.getRoot())).add(method);
+		}
+	}
+
+	private TokenScanner createScanner(int unit) {
+		IScanner scanner= ToolFactory.createScanner(true, false, false, JavaCore.VERSION_1_8, JavaCore.VERSION_1_8);
+		scanner.setSource(fCorpus.getSources().get(unit));
+		return new TokenScanner(scanner);
+	}
+
+	@Benchmark
+	public void getNextStartOffset(Blackhole blackhole) {
+		for (int u= 0; u < fStatements.size(); u++) {
+			TokenScanner scanner= createScanner(u);
+			List<Statement> statements= fStatements.get(u);
+			for (int i= 0; i < statements.size(); i++) {
+				ASTNode statement= statements.get(i);
+				try {
+					blackhole.consume(scanner.getNextStartOffset(statement.getStartPosition() + statement.getLength(), true));
+				} catch (CoreException e) {
+					// end of file
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void getTokenStartOffset(Blackhole blackhole) {
+		for (int u= 0; u < fMethods.size(); u++) {
+			TokenScanner scanner= createScanner(u);
+			List<MethodDeclaration> methods= fMethods.get(u);
+			for (int i= 0; i < methods.size(); i++) {
+				try {
+					blackhole.consume(scanner.getTokenStartOffset(ITerminalSymbols.TokenNameLPAREN, methods.get(i).getStartPosition()));
+				} catch (CoreException e) {
+					// no parameter list
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.eclipse.jdt.internal.corext.util.TypeNameIndex;
+
+import org.eclipse.jdt.internal.ui.util.PatternMatcher;
+
+/**
+ * Measures the latency of Open Type queries against the {@link TypeNameIndex}: warm queries on
+ * a loaded index, cold queries that first read the index from its persisted form, and a linear
+ * scan over all names for comparison.
+ * <p>
+ * The index contains <code>types</code> generated CamelCase type names in 2000 archives.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class TypeNameIndexBenchmark {
+
+	private static final String[] WORDS= { "Abstract", "Action", "Array", "Buffer", "Builder", "Cache", "Content", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
+			"Default", "Element", "Event", "Exception", "Factory", "File", "Handler", "Hash", "Input", "Java", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$
+			"Label", "List", "Listener", "Manager", "Map", "Model", "Node", "Null", "Output", "Pointer", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$
+			"Provider", "Reader", "Resource", "Selection", "Stream", "Tree", "Type", "Util", "View", "Writer" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$
+
+	private static final int ROOTS= 2000;
+
+	@Param({ "100000", "400000" })
+	public int types;
+
+	@Param({ "Arr", "NPE", "Hash*Map", "*Listener" })
+	public String pattern;
+
+	private TypeNameIndex fIndex;
+	private String[] fNames;
+	private byte[] fPersisted;
+	private PatternMatcher fMatcher;
+
+	@Setup
+	public void setUp() throws IOException {
+		Random random= new Random(types);
+		fIndex= new TypeNameIndex();
+		for (int i= 0; i < ROOTS; i++)
+			fIndex.putRoot("/lib" + i + ".jar", "=P/lib" + i + ".jar", i); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		fNames= new String[types];
+		StringBuilder buf= new StringBuilder();
+		for (int i= 0; i < types; i++) {
+			buf.setLength(0);
+			int parts= 1 + random.nextInt(4);
+			for (int j= 0; j < parts; j++)
+				buf.append(WORDS[random.nextInt(WORDS.length)]);
+			buf.append(i % 10);
+			String name= buf.toString();
+			fNames[i]= name;
+			fIndex.add("/lib" + i % ROOTS + ".jar", "org.example.p" + i % 500, name + ".class", "", name, 1); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+		}
+		ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+		try (DataOutputStream out= new DataOutputStream(bytes)) {
+			fIndex.write(out);
+		}
+		fPersisted= bytes.toByteArray();
+		fMatcher= new PatternMatcher(pattern);
+	}
+
+	@Benchmark
+	public void warmQuery(Blackhole blackhole) {
+		query(fIndex, blackhole);
+	}
+
+	@Benchmark
+	public void coldQuery(Blackhole blackhole) throws IOException {
+		TypeNameIndex index;
+		try (DataInputStream in= new DataInputStream(new ByteArrayInputStream(fPersisted))) {
+			index= TypeNameIndex.read(in);
+		}
+		query(index, blackhole);
+	}
+
+	@Benchmark
+	public void linearScan(Blackhole blackhole) {
+		for (int i= 0; i < fNames.length; i++) {
+			if (fMatcher.matches(fNames[i]))
+				blackhole.consume(fNames[i]);
+		}
+	}
+
+	private void query(final TypeNameIndex index, final Blackhole blackhole) {
+		index.query(fMatcher, new TypeNameIndex.IEntryRequestor() {
+			@Override
+			public boolean acceptEntry(int entry) {
+				blackhole.consume(index.getSimpleName(entry));
+				return true;
+			}
+		});
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,8 @@ package org.eclipse.jdt.ui.tests.refactoring;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 
 import junit.framework.Test;
@@ -86,6 +88,14 @@ public class RippleMethodFinderTests extends AbstractCUTestCase {
 		}
 
 		IMethod[] result= RippleMethodFinder2.getRelatedMethods(target, new NullProgressMonitor(), null);
+
+		// concurrently created hierarchies, reused by a second computation, must give the same result
+		RippleMethodFinder2.HierarchyCache hierarchyCache= new RippleMethodFinder2.HierarchyCache(null, 4);
+		for (int i= 0; i < 2; i++) {
+			IMethod[] parallelResult= RippleMethodFinder2.getRelatedMethods(target, true, hierarchyCache, new NullProgressMonitor());
+			assertEquals(new HashSet<>(Arrays.asList(result)), new HashSet<>(Arrays.asList(parallelResult)));
+		}
+
 		for (int i= 0; i < result.length; i++) {
 			IMethod method= result[i];
 			assertTrue("method not found: " + method, rippleMethods.remove(method));
@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.performance.views;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.jdt.testplugin.JavaTestPlugin;
+import org.eclipse.test.OrderedTestSuite;
+import org.eclipse.test.performance.Dimension;
+
+import org.eclipse.jface.viewers.StyledString;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IParent;
+import org.eclipse.jdt.core.JavaModelException;
+
+import org.eclipse.jdt.ui.JavaElementLabels;
+import org.eclipse.jdt.ui.tests.performance.JdtPerformanceTestCase;
+
+import org.eclipse.jdt.internal.ui.viewsupport.JavaElementLabelCache;
+import org.eclipse.jdt.internal.ui.viewsupport.JavaElementLabelComposer;
+
+/**
+ * Measures the labels of the elements of the JUnit sources, rendered with the flags of the
+ * Package Explorer, the Outline and the hovers.
+ */
+public class JavaElementLabelsPerfTest extends JdtPerformanceTestCase {
+
+	private static final int REPEAT= 10;
+
+	private static final long[] FLAGS= {
+			JavaElementLabels.ALL_DEFAULT,
+			JavaElementLabels.ALL_DEFAULT | JavaElementLabels.COLORIZE,
+			JavaElementLabels.DEFAULT_QUALIFIED | JavaElementLabels.COLORIZE,
+			JavaElementLabels.ALL_FULLY_QUALIFIED | JavaElementLabels.M_PRE_RETURNTYPE | JavaElementLabels.M_PARAMETER_NAMES,
+	};
+
+	private static class MyTestSetup extends TestSetup {
+		public static final String SRC_CONTAINER= "src";
+
+		public static IJavaProject fJProject1;
+		public static List<IJavaElement> fElements;
+
+		public MyTestSetup(Test test) {
+			super(test);
+		}
+
+		@Override
+		protected void setUp() throws Exception {
+			fJProject1= JavaProjectHelper.createJavaProject("TestProject1", "bin");
+			assertTrue("rt not found", JavaProjectHelper.addRTJar(fJProject1) != null);
+			File junitSrcArchive= JavaTestPlugin.getDefault().getFileInPlugin(JavaProjectHelper.JUNIT_SRC_381);
+			IPackageFragmentRoot root= JavaProjectHelper.addSourceContainerWithImport(fJProject1, SRC_CONTAINER, junitSrcArchive, JavaProjectHelper.JUNIT_SRC_ENCODING);
+
+			fElements= new ArrayList<>();
+			IJavaElement[] packages= root.getChildren();
+			for (int i= 0; i < packages.length; i++) {
+				fElements.add(packages[i]);
+				ICompilationUnit[] units= ((IPackageFragment) packages[i]).getCompilationUnits();
+				for (int k= 0; k < units.length; k++)
+					collectElements(units[k], fElements);
+			}
+		}
+
+		private static void collectElements(IJavaElement element, List<IJavaElement> result) throws JavaModelException {
+			result.add(element);
+			if (element instanceof IParent) {
+				IJavaElement[] children= ((IParent) element).getChildren();
+				for (int i= 0; i < children.length; i++)
+					collectElements(children[i], result);
+			}
+		}
+
+		@Override
+		protected void tearDown() throws Exception {
+			if (fJProject1 != null && fJProject1.exists())
+				JavaProjectHelper.delete(fJProject1);
+			fElements= null;
+		}
+	}
+
+	public static Test suite() {
+		OrderedTestSuite testSuite= new OrderedTestSuite(
+				JavaElementLabelsPerfTest.class,
+				new String[] {
+					"testComposerLabels",
+					"testElementLabels",
+					"testCachedLabels",
+				});
+		return new MyTestSetup(testSuite);
+	}
+
+	public static Test setUpTest(Test someTest) {
+		return new MyTestSetup(someTest);
+	}
+
+	public JavaElementLabelsPerfTest(String name) {
+		super(name);
+	}
+
+	/**
+	 * Baseline: a new composer and buffer for every label.
+	 *
+	 * @throws Exception if the measurement fails
+	 */
+	public void testComposerLabels() throws Exception {
+		measureLabels(new LabelRenderer() {
+			@Override
+			public int render(IJavaElement element, long flags) {
+				if ((flags & JavaElementLabels.COLORIZE) != 0) {
+					StyledString result= new StyledString();
+					new JavaElementLabelComposer(result).appendElementLabel(element, flags);
+					return result.length();
+				}
+				StringBuffer result= new StringBuffer();
+				new JavaElementLabelComposer(result).appendElementLabel(element, flags);
+				return result.length();
+			}
+		});
+	}
+
+	public void testElementLabels() throws Exception {
+		tagAsSummary("Java element labels", Dimension.ELAPSED_PROCESS);
+		measureLabels(new LabelRenderer() {
+			@Override
+			public int render(IJavaElement element, long flags) {
+				if ((flags & JavaElementLabels.COLORIZE) != 0)
+					return JavaElementLabels.getStyledElementLabel(element, flags).length();
+				return JavaElementLabels.getElementLabel(element, flags).length();
+			}
+		});
+	}
+
+	public void testCachedLabels() throws Exception {
+		JavaElementLabelCache.getDefault().clear();
+		measureLabels(new LabelRenderer() {
+			@Override
+			public int render(IJavaElement element, long flags) {
+				if ((flags & JavaElementLabels.COLORIZE) != 0)
+					return JavaElementLabelCache.getDefault().getStyledTextLabel(element, flags).length();
+				return JavaElementLabelCache.getDefault().getTextLabel(element, flags).length();
+			}
+		});
+	}
+
+	private interface LabelRenderer {
+		int render(IJavaElement element, long flags);
+	}
+
+	private void measureLabels(LabelRenderer renderer) throws Exception {
+		List<IJavaElement> elements= MyTestSetup.fElements;
+		assertTrue(elements.size() > 100);
+
+		int length= 0;
+		for (int i= 0; i < REPEAT; i++) {
+			joinBackgroudActivities();
+			startMeasuring();
+			for (int k= 0; k < REPEAT; k++) {
+				for (int e= 0; e < elements.size(); e++) {
+					for (int f= 0; f < FLAGS.length; f++)
+						length+= renderer.render(elements.get(e), FLAGS[f]);
+				}
+			}
+			stopMeasuring();
+		}
+		assertTrue(length > 0);
+
+		commitMeasurements();
+		assertPerformance();
+	}
+}
@@ -102,6 +102,7 @@ public class JavaProjectHelper {
 	public static final IPath MYLIB= new Path("testresources/mylib.jar");
 	public static final IPath MYLIB_STDOUT= new Path("testresources/mylib_stdout.jar");
 	public static final IPath MYLIB_SIG= new Path("testresources/mylib_sig.jar");
+	public static final IPath MYLIB_SIG_SHA256= new Path("testresources/mylib_sig_sha256.jar");
 	public static final IPath NLS_LIB= new Path("testresources/nls.jar");
 
 	private static final int MAX_RETRY= 5;
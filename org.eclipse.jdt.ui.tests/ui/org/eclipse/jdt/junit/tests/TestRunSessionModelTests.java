@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.junit.tests;
+
+import org.eclipse.jdt.junit.model.ITestElement;
+import org.eclipse.jdt.junit.model.ITestElement.FailureTrace;
+
+import org.eclipse.jdt.internal.junit.model.TestCaseElement;
+import org.eclipse.jdt.internal.junit.model.TestElement;
+import org.eclipse.jdt.internal.junit.model.TestElement.Status;
+import org.eclipse.jdt.internal.junit.model.TestRunSession;
+import org.eclipse.jdt.internal.junit.model.TestSuiteElement;
+
+import junit.framework.TestCase;
+
+public class TestRunSessionModelTests extends TestCase {
+
+	private static String createTrace(int test) {
+		StringBuilder trace= new StringBuilder("java.lang.AssertionError: test ").append(test).append('\n');
+		for (int i= 0; i < 400; i++)
+			trace.append("\tat org.example.Sample.method").append(i).append("(Sample.java:").append(i).append(")\n");
+		return trace.toString();
+	}
+
+	private TestRunSession fSession;
+	private TestSuiteElement fSuite;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fSession= new TestRunSession("TestRunSessionModelTests", null);
+		fSuite= (TestSuiteElement) fSession.createTestElement(fSession.getTestRoot(), "1", "org.example.Sample", true, 0, false, null, null, null);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fSession.removeSwapFile();
+		super.tearDown();
+	}
+
+	private TestCaseElement createTest(int test) {
+		return (TestCaseElement) fSession.createTestElement(fSuite, String.valueOf(test + 2), "test" + test + "(org.example.Sample)", false, 1, false, null, null, null);
+	}
+
+	public void testManyFailures() throws Exception {
+		int count= 1000; // more failure data than kept in memory
+		for (int i= 0; i < count; i++) {
+			TestCaseElement test= createTest(i);
+			test.setStatus(Status.RUNNING);
+			fSession.registerTestFailureStatus(test, Status.FAILURE, createTrace(i), i % 2 == 0 ? "expected" + i : null, i % 2 == 0 ? "actual" + i : null);
+		}
+		assertEquals(count, fSession.getFailureCount());
+		assertEquals(count, fSuite.getChildren().length);
+		for (int i= 0; i < count; i++) {
+			TestElement test= fSession.getTestElement(String.valueOf(i + 2));
+			assertEquals("test" + i + "(org.example.Sample)", test.getTestName());
+			assertEquals(createTrace(i), test.getTrace());
+			assertEquals(i % 2 == 0, test.isComparisonFailure());
+			FailureTrace failureTrace= test.getFailureTrace();
+			assertEquals(createTrace(i), failureTrace.getTrace());
+			assertEquals(i % 2 == 0 ? "expected" + i : null, failureTrace.getExpected());
+			assertEquals(i % 2 == 0 ? "actual" + i : null, failureTrace.getActual());
+		}
+	}
+
+	public void testAppendTrace() throws Exception {
+		for (int i= 0; i < 1000; i++) {
+			TestCaseElement test= createTest(i);
+			fSession.registerTestFailureStatus(test, Status.FAILURE, createTrace(i), "expected", "actual");
+		}
+		TestElement first= fSession.getTestElement("2");
+		fSession.registerTestFailureStatus(first, Status.ERROR, "second error", null, null);
+		assertEquals(createTrace(0) + "second error", first.getTrace());
+		assertEquals("expected", first.getExpected());
+		assertEquals("actual", first.getActual());
+	}
+
+	public void testFailuresAfterDispose() throws Exception {
+		int count= 1000; // more failure data than kept in memory
+		TestElement[] tests= new TestElement[count];
+		for (int i= 0; i < count; i++) {
+			tests[i]= createTest(i);
+			fSession.registerTestFailureStatus(tests[i], Status.FAILURE, createTrace(i), "expected" + i, "actual" + i);
+		}
+
+		// listeners can keep the elements of a removed session
+		fSession.removeSwapFile();
+		for (int i= 0; i < count; i++) {
+			assertEquals(createTrace(i), tests[i].getTrace());
+			assertEquals("expected" + i, tests[i].getExpected());
+			assertEquals("actual" + i, tests[i].getActual());
+		}
+	}
+
+	public void testRemoveChild() throws Exception {
+		TestCaseElement[] tests= new TestCaseElement[5];
+		for (int i= 0; i < tests.length; i++)
+			tests[i]= createTest(i);
+		fSuite.removeChild(tests[4]);
+		fSuite.removeChild(tests[1]);
+
+		ITestElement[] children= fSuite.getChildren();
+		assertEquals(3, children.length);
+		assertSame(tests[0], children[0]);
+		assertSame(tests[2], children[1]);
+		assertSame(tests[3], children[2]);
+	}
+
+	public void testSharedParameterTypes() throws Exception {
+		TestElement first= fSession.createTestElement(fSuite, "2", "test[0]", false, 1, false, null, new String[] { "int", " java.lang.String" }, null);
+		TestElement second= fSession.createTestElement(fSuite, "3", "test[1]", false, 1, false, null, new String[] { " int", "java.lang.String " }, null);
+		assertEquals("java.lang.String", first.getParameterTypes()[1]);
+		assertSame(first.getParameterTypes(), second.getParameterTypes());
+	}
+
+	public void testTestIds() throws Exception {
+		TestElement numeric= fSession.createTestElement(fSuite, "100000", "test(org.example.Sample)", false, 1, false, null, null, null);
+		TestElement named= fSession.createTestElement(fSuite, "org.example.Sample.test2", "test2(org.example.Sample)", false, 1, false, null, null, null);
+		assertSame(numeric, fSession.getTestElement("100000"));
+		assertSame(named, fSession.getTestElement("org.example.Sample.test2"));
+		assertNull(fSession.getTestElement("0100000"));
+		assertNull(fSession.getTestElement("99999"));
+	}
+}
@@ -0,0 +1,251 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.junit.tests;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.internal.junit.model.ITestRunListener2;
+import org.eclipse.jdt.internal.junit.model.RemoteTestRunnerClient;
+import org.eclipse.jdt.internal.junit.runner.BinaryMessageWriter;
+import org.eclipse.jdt.internal.junit.runner.MessageIds;
+
+import junit.framework.TestCase;
+
+/**
+ * Sends the messages of a test run to a {@link RemoteTestRunnerClient} with the text protocol
+ * and with the binary protocol written by {@link BinaryMessageWriter}, and compares the
+ * notifications of the client.
+ */
+public class TestRunnerProtocolTests extends TestCase {
+
+	private static final String[] MESSAGES= {
+		MessageIds.TEST_RUN_START + "3 v2",
+		MessageIds.TEST_TREE + "1,pack.Sample,true,3,false,-1,pack.Sample,,",
+		MessageIds.TEST_TREE + "2,test1(pack.Sample),false,1,false,1,test1,,",
+		MessageIds.TEST_TREE + "3,test2(pack.Sample),false,1,false,1,test2,,",
+		MessageIds.TEST_TREE + "4,t\u00EBst3(pack.Sample),false,1,false,1,t\u00EBst3,,",
+		MessageIds.TEST_START + "2,test1(pack.Sample)",
+		MessageIds.TEST_END + "2,test1(pack.Sample)",
+		MessageIds.TEST_START + "3,test2(pack.Sample)",
+		MessageIds.TEST_FAILED + "3,test2(pack.Sample)",
+		MessageIds.EXPECTED_START,
+		"expected",
+		MessageIds.EXPECTED_END,
+		MessageIds.ACTUAL_START,
+		"actual",
+		MessageIds.ACTUAL_END,
+		MessageIds.TRACE_START,
+		"org.junit.ComparisonFailure: expected:<[expected]> but was:<[actual]>",
+		"\tat pack.Sample.test2(Sample.java:10)",
+		MessageIds.TRACE_END,
+		MessageIds.TEST_END + "3,test2(pack.Sample)",
+		MessageIds.TEST_START + "4,t\u00EBst3(pack.Sample)",
+		MessageIds.TEST_ERROR + "4,t\u00EBst3(pack.Sample)",
+		MessageIds.TRACE_START,
+		"java.lang.IllegalStateException: \u00FCnexpected",
+		"\tat pack.Sample.t\u00EBst3(Sample.java:20)",
+		MessageIds.TRACE_END,
+		MessageIds.TEST_END + "4,t\u00EBst3(pack.Sample)",
+		MessageIds.TEST_RUN_END + "123",
+	};
+
+	/**
+	 * Records the notifications of the client until the end of the run.
+	 */
+	private static class RecordingListener implements ITestRunListener2 {
+		final List<String> fEvents= new ArrayList<>();
+		final CountDownLatch fEnded= new CountDownLatch(1);
+
+		@Override
+		public void testRunStarted(int testCount) {
+			fEvents.add("runStarted " + testCount);
+		}
+
+		@Override
+		public void testRunEnded(long elapsedTime) {
+			fEvents.add("runEnded " + elapsedTime);
+			fEnded.countDown();
+		}
+
+		@Override
+		public void testRunStopped(long elapsedTime) {
+			fEvents.add("runStopped " + elapsedTime);
+			fEnded.countDown();
+		}
+
+		@Override
+		public void testStarted(String testId, String testName) {
+			fEvents.add("started " + testId + " " + testName);
+		}
+
+		@Override
+		public void testEnded(String testId, String testName) {
+			fEvents.add("ended " + testId + " " + testName);
+		}
+
+		@Override
+		public void testRunTerminated() {
+			fEnded.countDown();
+		}
+
+		@Override
+		public void testTreeEntry(String description) {
+			fEvents.add("tree " + description);
+		}
+
+		@Override
+		public void testFailed(int status, String testId, String testName, String trace, String expected, String actual) {
+			fEvents.add("failed " + status + " " + testId + " " + testName + " " + trace + " " + expected + " " + actual);
+		}
+
+		@Override
+		public void testReran(String testId, String testClass, String testName, int status, String trace, String expected, String actual) {
+			fEvents.add("reran " + testId);
+		}
+	}
+
+	private RemoteTestRunnerClient fClient;
+	private Socket fSocket;
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (fSocket != null)
+			fSocket.close();
+		if (fClient != null)
+			fClient.stopWaiting();
+		super.tearDown();
+	}
+
+	private RecordingListener connect(boolean binaryProtocolEnabled) throws Exception {
+		int port;
+		try (ServerSocket socket= new ServerSocket(0)) {
+			port= socket.getLocalPort();
+		}
+		RecordingListener listener= new RecordingListener();
+		fClient= new RemoteTestRunnerClient();
+		fClient.setBinaryProtocolEnabled(binaryProtocolEnabled);
+		fClient.startListening(new ITestRunListener2[] { listener }, port);
+
+		long deadline= System.currentTimeMillis() + 10000;
+		while (fSocket == null) {
+			try {
+				fSocket= new Socket("127.0.0.1", port);
+			} catch (ConnectException e) {
+				if (System.currentTimeMillis() > deadline)
+					throw e;
+				Thread.sleep(20);
+			}
+		}
+		return listener;
+	}
+
+	private static String readLine(InputStream in) throws IOException {
+		StringBuilder line= new StringBuilder();
+		int ch;
+		while ((ch= in.read()) != -1 && ch != '\n')
+			line.append((char) ch);
+		return ch == -1 && line.length() == 0 ? null : line.toString();
+	}
+
+	private static List<String> awaitEvents(RecordingListener listener) throws InterruptedException {
+		assertTrue("run did not end", listener.fEnded.await(20, TimeUnit.SECONDS));
+		return listener.fEvents;
+	}
+
+	private List<String> runTextProtocol() throws Exception {
+		RecordingListener listener= connect(true);
+		PrintWriter writer= new PrintWriter(new OutputStreamWriter(fSocket.getOutputStream(), StandardCharsets.UTF_8));
+		for (String message : MESSAGES)
+			writer.print(message + "\n");
+		writer.flush();
+		List<String> events= awaitEvents(listener);
+		fSocket.close();
+		fSocket= null;
+		return events;
+	}
+
+	public void testBinaryProtocolRoundTrip() throws Exception {
+		List<String> expected= runTextProtocol();
+		assertEquals(14, expected.size());
+
+		RecordingListener listener= connect(true);
+		OutputStream out= fSocket.getOutputStream();
+		out.write((MessageIds.PROTOCOL_REQUEST + MessageIds.PROTOCOL_BINARY + "\n").getBytes(StandardCharsets.UTF_8));
+		out.flush();
+		assertEquals(MessageIds.PROTOCOL_REPLY + MessageIds.PROTOCOL_BINARY, readLine(fSocket.getInputStream()));
+
+		out.write((MessageIds.PROTOCOL_SWITCH + "\n").getBytes(StandardCharsets.UTF_8));
+		BinaryMessageWriter writer= new BinaryMessageWriter(out);
+		for (String message : MESSAGES) {
+			writer.sendMessage(message);
+			writer.flush();
+		}
+		writer.close();
+
+		assertEquals(expected, awaitEvents(listener));
+	}
+
+	public void testBinaryProtocolLargeFrames() throws Exception {
+		// more messages than fit into one frame, with repeated identifiers
+		List<String> messages= new ArrayList<>();
+		messages.add(MessageIds.TEST_RUN_START + "2000 v2");
+		for (int i= 0; i < 2000; i++) {
+			String test= (i + 2) + ",test" + i + "(pack.Sample)";
+			messages.add(MessageIds.TEST_START + test);
+			messages.add(MessageIds.TEST_END + test);
+		}
+		messages.add(MessageIds.TEST_RUN_END + "1");
+
+		RecordingListener listener= connect(true);
+		OutputStream out= fSocket.getOutputStream();
+		out.write((MessageIds.PROTOCOL_REQUEST + MessageIds.PROTOCOL_BINARY + "\n").getBytes(StandardCharsets.UTF_8));
+		out.flush();
+		assertEquals(MessageIds.PROTOCOL_REPLY + MessageIds.PROTOCOL_BINARY, readLine(fSocket.getInputStream()));
+		out.write((MessageIds.PROTOCOL_SWITCH + "\n").getBytes(StandardCharsets.UTF_8));
+		BinaryMessageWriter writer= new BinaryMessageWriter(out);
+		for (String message : messages)
+			writer.sendMessage(message);
+		writer.close();
+
+		List<String> events= awaitEvents(listener);
+		assertEquals(messages.size(), events.size());
+		assertEquals("started 2001 test1999(pack.Sample)", events.get(events.size() - 3));
+		assertEquals("ended 2001 test1999(pack.Sample)", events.get(events.size() - 2));
+	}
+
+	public void testBinaryProtocolDisabled() throws Exception {
+		List<String> expected= runTextProtocol();
+
+		RecordingListener listener= connect(false);
+		PrintWriter writer= new PrintWriter(new OutputStreamWriter(fSocket.getOutputStream(), StandardCharsets.UTF_8));
+		// the runner keeps the text protocol when the offer is not accepted
+		writer.print(MessageIds.PROTOCOL_REQUEST + MessageIds.PROTOCOL_BINARY + "\n");
+		for (String message : MESSAGES)
+			writer.print(message + "\n");
+		writer.flush();
+
+		assertEquals(expected, awaitEvents(listener));
+		fSocket.shutdownOutput();
+		assertNull(readLine(fSocket.getInputStream()));
+	}
+}
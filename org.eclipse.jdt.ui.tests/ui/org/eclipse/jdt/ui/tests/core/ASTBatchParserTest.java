@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.text.tests.Accessor;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTRequestor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import org.eclipse.jdt.internal.corext.dom.ASTBatchParser;
+
+public class ASTBatchParserTest extends TestCase {
+
+	private static final Class<ASTBatchParserTest> THIS= ASTBatchParserTest.class;
+
+	private static final int PROJECT_COUNT= 3;
+	private static final int UNIT_COUNT= 10;
+
+	private IJavaProject[] fProjects;
+	private ICompilationUnit[] fUnits;
+
+	public ASTBatchParserTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		// every project is parsed as a subset of its own
+		fProjects= new IJavaProject[PROJECT_COUNT];
+		fProjects[0]= ProjectTestSetup.getProject();
+		for (int i= 1; i < PROJECT_COUNT; i++) {
+			fProjects[i]= JavaProjectHelper.createJavaProject("ASTBatchParserTest" + i, "bin");
+			JavaProjectHelper.addRTJar(fProjects[i]);
+		}
+		IPackageFragment[] packs= new IPackageFragment[PROJECT_COUNT];
+		for (int i= 0; i < PROJECT_COUNT; i++) {
+			IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fProjects[i], "src");
+			packs[i]= root.createPackageFragment("pack", true, null);
+		}
+		// the units of the projects are mixed
+		List<ICompilationUnit> units= new ArrayList<>();
+		for (int i= 0; i < UNIT_COUNT; i++) {
+			for (int k= 0; k < PROJECT_COUNT; k++) {
+				units.add(packs[k].createCompilationUnit("E" + i + ".java", "package pack;\npublic class E" + i + " {\n}\n", true, null));
+			}
+		}
+		fUnits= units.toArray(new ICompilationUnit[units.size()]);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.clear(fProjects[0], ProjectTestSetup.getDefaultClasspath());
+		for (int i= 1; i < PROJECT_COUNT; i++) {
+			JavaProjectHelper.delete(fProjects[i]);
+		}
+	}
+
+	public void testRequestorInCallingThread() throws Exception {
+		final Thread caller= Thread.currentThread();
+		final List<ICompilationUnit> accepted= new ArrayList<>();
+		new ASTBatchParser(4).createASTs(fUnits, new String[0], new ASTRequestor() {
+			@Override
+			public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+				assertSame(caller, Thread.currentThread());
+				assertNotNull(ast.getAST());
+				accepted.add(source);
+			}
+		}, null);
+
+		assertEquals(fUnits.length, accepted.size());
+		assertEquals(fUnits.length, new HashSet<>(accepted).size());
+
+		// the units of a subset are passed before the ones of the next subset
+		Set<IJavaProject> done= new HashSet<>();
+		IJavaProject current= null;
+		for (int i= 0; i < accepted.size(); i++) {
+			IJavaProject project= accepted.get(i).getJavaProject();
+			if (!project.equals(current)) {
+				assertTrue("units of " + project.getElementName() + " interleaved", done.add(project));
+				current= project;
+			}
+		}
+		assertEquals(PROJECT_COUNT, done.size());
+	}
+
+	public void testCancellation() throws Exception {
+		final NullProgressMonitor monitor= new NullProgressMonitor();
+		final int[] count= { 0 };
+		try {
+			new ASTBatchParser(4).createASTs(fUnits, new String[0], new ASTRequestor() {
+				@Override
+				public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+					count[0]++;
+					monitor.setCanceled(true);
+				}
+			}, monitor);
+			fail("not canceled");
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+		assertEquals(1, count[0]);
+	}
+
+	public void testWorkerException() throws Exception {
+		final IJavaProject failing= fProjects[1];
+		ASTBatchParser parser= new ASTBatchParser(4) {
+			@Override
+			protected ASTParser createParser(IJavaProject project) {
+				if (project.equals(failing))
+					throw new IllegalStateException(project.getElementName());
+				return super.createParser(project);
+			}
+		};
+		try {
+			parser.createASTs(fUnits, new String[0], new ASTRequestor() {
+				// ignore the ASTs
+			}, null);
+			fail("no exception");
+		} catch (IllegalStateException e) {
+			assertEquals(failing.getElementName(), e.getMessage());
+		}
+	}
+
+	public void testRequestorException() throws Exception {
+		try {
+			new ASTBatchParser(4).createASTs(fUnits, new String[0], new ASTRequestor() {
+				@Override
+				public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+					throw new IllegalStateException(source.getElementName());
+				}
+			}, null);
+			fail("no exception");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	public void testChunkSize() throws Exception {
+		Accessor parser= new Accessor(ASTBatchParser.class.getName(), ASTBatchParser.class.getClassLoader());
+		int min= parser.getInt("MIN_AT_ONCE");
+		int max= parser.getInt("MAX_AT_ONCE");
+
+		int single= getChunkSize(parser, 1);
+		assertTrue(single >= min && single <= max);
+		int shared= getChunkSize(parser, 4);
+		assertTrue(shared >= min && shared <= single);
+
+		// the heap is never enough for that many parsers
+		assertEquals(min, getChunkSize(parser, Integer.MAX_VALUE / 8));
+	}
+
+	private static int getChunkSize(Accessor parser, int parallelism) {
+		return ((Integer) parser.invoke("getChunkSize", new Class[] { int.class }, new Object[] { Integer.valueOf(parallelism) })).intValue();
+	}
+}
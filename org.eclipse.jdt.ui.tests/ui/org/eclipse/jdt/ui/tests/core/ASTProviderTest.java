@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2011 IBM Corporation and others.
+ * Copyright (c) 2007, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -38,6 +38,10 @@ import org.eclipse.jdt.core.refactoring.CompilationUnitChange;
 import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jdt.ui.SharedASTProvider;
 
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.javaeditor.ASTProvider;
+import org.eclipse.jdt.internal.ui.javaeditor.EditorUtility;
+
 
 /**
  * Tests the AST provider.
@@ -144,6 +148,50 @@ public class ASTProviderTest extends CoreTests {
 		cu.getBuffer().save(null, true);
 	}
 
+	public void testInactiveEditorAST() throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class E1 {\n");
+		buf.append("    void foo() {\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		ICompilationUnit cu1= pack1.createCompilationUnit("E1.java", buf.toString(), false, null);
+		buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class E2 {\n");
+		buf.append("}\n");
+		ICompilationUnit cu2= pack1.createCompilationUnit("E2.java", buf.toString(), false, null);
+
+		ASTProvider provider= ASTProvider.getASTProvider();
+		try {
+			JavaUI.openInEditor(cu1);
+			JavaUI.openInEditor(cu2);
+			ICompilationUnit workingCopy= (ICompilationUnit) EditorUtility.getEditorInputJavaElement(EditorUtility.isOpenInEditor(cu1), false);
+			assertNotNull(workingCopy);
+
+			assertNull(SharedASTProvider.getAST(workingCopy, SharedASTProvider.WAIT_ACTIVE_ONLY, null));
+
+			int created= provider.getCreatedASTCount();
+			CompilationUnit ast= SharedASTProvider.getAST(workingCopy, SharedASTProvider.WAIT_YES, null);
+			assertNotNull(ast);
+			assertTrue(provider.isCached(ast));
+			assertSame(ast, SharedASTProvider.getAST(workingCopy, SharedASTProvider.WAIT_YES, null));
+			assertTrue(provider.getCreatedASTCount() - created <= 1);
+
+			// a change of the working copy invalidates the cached AST
+			workingCopy.getBuffer().replace(workingCopy.getSource().indexOf("    }"), 0, "int i= 0;");
+			workingCopy.reconcile(ICompilationUnit.NO_AST, false, null, null);
+			CompilationUnit newAST= SharedASTProvider.getAST(workingCopy, SharedASTProvider.WAIT_YES, null);
+			assertNotNull(newAST);
+			assertNotSame(ast, newAST);
+			assertEquals(workingCopy.getBuffer().getContents(), newAST.toString());
+		} finally {
+			JavaPlugin.getActivePage().closeAllEditors(false);
+		}
+		assertEquals(0, provider.getInactiveCacheSize());
+	}
+
 	private static String getNormalizeNumber(int number) {
 		if (number < 10) {
 			return "000" + number;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -21,9 +21,12 @@ import junit.framework.TestSuite;
 import org.eclipse.core.runtime.NullProgressMonitor;
 
 import org.eclipse.jdt.core.IInitializer;
+import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IMember;
 import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.search.SearchEngine;
 
 import org.eclipse.jdt.internal.corext.callhierarchy.CallHierarchy;
 import org.eclipse.jdt.internal.corext.callhierarchy.MethodWrapper;
@@ -108,6 +111,85 @@ public class CallHierarchyTest extends TestCase {
         helper.assertCalls(expectedMethods, cachedCalls);
     }
 
+    public void testCallersAfterChange() throws Exception {
+        helper.createSimpleClasses();
+
+        IMethod method= helper.getMethod4();
+
+        MethodWrapper wrapper= getSingleCallerRoot(method);
+        helper.assertCalls(new ArrayList<IMember>(), wrapper.getCalls(new NullProgressMonitor()));
+
+        IMethod method5= helper.getType2().createMethod("public void method5() { method4(); }\n", null, true, null);
+
+        Collection<IMember> expectedMethods= new ArrayList<>();
+        expectedMethods.add(method5);
+
+        MethodWrapper[] calls= getSingleCallerRoot(method).getCalls(new NullProgressMonitor());
+        helper.assertCalls(expectedMethods, calls);
+
+        // the callees of method5 are computed once and shared by all hierarchies
+        MethodWrapper[] callees= getSingleCalleeRoot(method5).getCalls(new NullProgressMonitor());
+        Collection<IMember> expectedCallees= new ArrayList<>();
+        expectedCallees.add(method);
+        helper.assertCalls(expectedCallees, callees);
+        assertSame(callees[0].getMethodCall(), getSingleCalleeRoot(method5).getCalls(new NullProgressMonitor())[0].getMethodCall());
+    }
+
+    public void testCallersAfterSearchScopeChange() throws Exception {
+        helper.createSimpleClasses();
+
+        IMethod method= helper.getMethod4();
+        IMethod method5= helper.getType2().createMethod("public void method5() { method4(); }\n", null, true, null);
+        Collection<IMember> expectedMethods= new ArrayList<>();
+        expectedMethods.add(method5);
+
+        CallHierarchy callHierarchy= CallHierarchy.getDefault();
+        IJavaElement[] projects= new IJavaElement[] { helper.getJavaProject2() };
+        try {
+            callHierarchy.setSearchScope(SearchEngine.createJavaSearchScope(projects), "project");
+            MethodWrapper[] calls= getSingleCallerRoot(method).getCalls(new NullProgressMonitor());
+            helper.assertCalls(expectedMethods, calls);
+
+            // an equivalent scope keeps the computed callers
+            callHierarchy.setSearchScope(SearchEngine.createJavaSearchScope(projects), "project");
+            MethodWrapper[] cachedCalls= getSingleCallerRoot(method).getCalls(new NullProgressMonitor());
+            assertSame(calls[0].getMethodCall(), cachedCalls[0].getMethodCall());
+
+            callHierarchy.setSearchScope(SearchEngine.createJavaSearchScope(projects), "project, sources only");
+            MethodWrapper[] newCalls= getSingleCallerRoot(method).getCalls(new NullProgressMonitor());
+            helper.assertCalls(expectedMethods, newCalls);
+            assertNotSame(calls[0].getMethodCall(), newCalls[0].getMethodCall());
+        } finally {
+            callHierarchy.setSearchScope(SearchEngine.createWorkspaceScope());
+        }
+    }
+
+    public void testCalleesAfterNewImplementor() throws Exception {
+        helper.createPackages();
+
+        IPackageFragment pack= helper.getPackage1();
+        IType service= pack.createCompilationUnit("Service.java", "package pack1;\npublic interface Service {\n    void run();\n}\n", true, null).getType("Service");
+        IType client= pack.createCompilationUnit("Client.java", "package pack1;\npublic class Client {\n    void call(Service service) {\n        service.run();\n    }\n}\n", true, null).getType("Client");
+        IMethod call= client.getMethod("call", new String[] { "QService;" });
+
+        CallHierarchy callHierarchy= CallHierarchy.getDefault();
+        boolean implementors= callHierarchy.isSearchUsingImplementorsEnabled();
+        callHierarchy.setSearchUsingImplementorsEnabled(true);
+        try {
+            Collection<IMember> expectedMethods= new ArrayList<>();
+            expectedMethods.add(service.getMethod("run", EMPTY));
+            helper.assertCalls(expectedMethods, getSingleCalleeRoot(call).getCalls(new NullProgressMonitor()));
+
+            // the only implementor replaces the interface method in the callees
+            IType serviceImpl= pack.createCompilationUnit("ServiceImpl.java", "package pack1;\npublic class ServiceImpl implements Service {\n    public void run() {\n    }\n}\n", true, null).getType("ServiceImpl");
+            expectedMethods.clear();
+            expectedMethods.add(serviceImpl.getMethod("run", EMPTY));
+            helper.assertCalls(expectedMethods, getSingleCalleeRoot(call).getCalls(new NullProgressMonitor()));
+        } finally {
+            callHierarchy.setSearchUsingImplementorsEnabled(implementors);
+        }
+    }
+
     public void testCallees() throws Exception {
         helper.createSimpleClasses();
 
@@ -35,6 +35,7 @@ public class CoreTests extends TestCase {
 
 		TestSuite suite= new TestSuite(CoreTests.class.getName());
 		suite.addTest(AddImportTest.suite());
+		suite.addTest(ASTBatchParserTest.suite());
 		suite.addTest(SourceActionTests.suite());
 		suite.addTest(ASTNodesInsertTest.suite());
 		suite.addTest(BindingsNameTest.suite());
@@ -48,6 +49,7 @@ public class CoreTests extends TestCase {
 		suite.addTest(ImportOrganizeTest18.suite());
 		suite.addTest(JavaElementLabelsTest.suite());
 		suite.addTest(JavaElementLabelsTest18.suite());
+		suite.addTest(JavaElementLabelCacheTest.suite());
 		suite.addTest(BindingLabelsTest.suite());
 		suite.addTest(BindingLabels18Test.suite());
 		suite.addTest(JavaElementPropertyTesterTest.suite());
@@ -60,6 +62,8 @@ public class CoreTests extends TestCase {
 		suite.addTest(ScopeAnalyzerTest.suite());
 		suite.addTest(TemplateStoreTest.suite());
 		suite.addTest(TypeHierarchyTest.suite());
+		suite.addTest(SuperTypeHierarchyCacheTest.suite());
+		suite.addTest(JavadocContentCacheTest.suite());
 		suite.addTest(TypeRulesTest.suite());
 		suite.addTest(TypeInfoTest.suite());
 		suite.addTest(StringsTest.suite());
@@ -12,7 +12,11 @@
 package org.eclipse.jdt.ui.tests.core;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 import org.eclipse.jdt.testplugin.JavaProjectHelper;
 import org.eclipse.jdt.testplugin.JavaTestPlugin;
@@ -34,6 +38,7 @@ import org.eclipse.jdt.core.Signature;
 import org.eclipse.jdt.core.formatter.DefaultCodeFormatterConstants;
 import org.eclipse.jdt.core.search.TypeNameMatch;
 
+import org.eclipse.jdt.internal.corext.codemanipulation.OrganizeImportsBatch;
 import org.eclipse.jdt.internal.corext.codemanipulation.OrganizeImportsOperation;
 import org.eclipse.jdt.internal.corext.codemanipulation.OrganizeImportsOperation.IChooseImportQuery;
 
@@ -455,6 +460,107 @@ public class ImportOrganizeTest extends CoreTests {
 		assertEqualString(cu.getSource(), buf.toString());
 	}
 
+	public void testBatch() throws Exception {
+		IPackageFragmentRoot sourceFolder= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+
+		IPackageFragment pack1= sourceFolder.createPackageFragment("test1", false, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class C extends Vector {\n");
+		buf.append("    ArrayList list;\n");
+		buf.append("}\n");
+		ICompilationUnit cu1= pack1.createCompilationUnit("C.java", buf.toString(), false, null);
+
+		buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class D extends Vector {\n");
+		buf.append("}\n");
+		ICompilationUnit cu2= pack1.createCompilationUnit("D.java", buf.toString(), false, null);
+
+		String[] order= new String[0];
+		IChooseImportQuery query= createQuery("C", new String[] {}, new int[] {});
+
+		OrganizeImportsBatch batch= new OrganizeImportsBatch(fJProject1);
+		OrganizeImportsOperation op= createOperation(cu1, order, 99, false, true, true, query);
+		op.setBatch(batch);
+		op.run(null);
+		op= createOperation(cu2, order, 99, false, true, true, query);
+		op.setBatch(batch);
+		op.run(null);
+
+		buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("\n");
+		buf.append("import java.util.ArrayList;\n");
+		buf.append("import java.util.Vector;\n");
+		buf.append("\n");
+		buf.append("public class C extends Vector {\n");
+		buf.append("    ArrayList list;\n");
+		buf.append("}\n");
+		assertEqualString(cu1.getSource(), buf.toString());
+
+		buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("\n");
+		buf.append("import java.util.Vector;\n");
+		buf.append("\n");
+		buf.append("public class D extends Vector {\n");
+		buf.append("}\n");
+		assertEqualString(cu2.getSource(), buf.toString());
+
+		// the second unit finds Vector in the table of the batch
+		assertEquals(1, batch.getSearchCount());
+		assertEquals(2, batch.getUnitCount());
+	}
+
+	public void testBatchConcurrentLookups() throws Exception {
+		OrganizeImportsBatch batch= new OrganizeImportsBatch(fJProject1);
+
+		List<TypeNameMatch>[] results= findTypesConcurrently(batch, Arrays.asList("Vector"), 8);
+		for (int i= 0; i < results.length; i++) {
+			assertEquals(1, results[i].size());
+			assertEquals("java.util.Vector", results[i].get(0).getFullyQualifiedName());
+		}
+		// the threads that asked for Vector while it was searched waited for the search
+		assertEquals(1, batch.getSearchCount());
+
+		results= findTypesConcurrently(batch, Arrays.asList("Vector", "ArrayList"), 8);
+		for (int i= 0; i < results.length; i++) {
+			assertEquals(2, results[i].size());
+		}
+		assertEquals(2, batch.getSearchCount());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<TypeNameMatch>[] findTypesConcurrently(final OrganizeImportsBatch batch, final Collection<String> names, int threadCount) throws Exception {
+		final List<TypeNameMatch>[] results= new List[threadCount];
+		final Exception[] failures= new Exception[threadCount];
+		final CountDownLatch start= new CountDownLatch(1);
+		Thread[] threads= new Thread[threadCount];
+		for (int i= 0; i < threadCount; i++) {
+			final int index= i;
+			threads[i]= new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						results[index]= batch.findTypes(names, null);
+					} catch (Exception e) {
+						failures[index]= e;
+					}
+				}
+			};
+			threads[i].start();
+		}
+		start.countDown();
+		for (int i= 0; i < threadCount; i++) {
+			threads[i].join();
+			if (failures[i] != null)
+				throw failures[i];
+		}
+		return results;
+	}
+
 	public void testReplaceImports() throws Exception {
 		IPackageFragmentRoot sourceFolder= JavaProjectHelper.addSourceContainer(fJProject1, "src");
 
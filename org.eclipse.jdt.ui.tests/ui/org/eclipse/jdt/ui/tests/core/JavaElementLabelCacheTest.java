@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.util.Arrays;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.jface.preference.IPreferenceStore;
+import org.eclipse.jface.viewers.StyledString;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IField;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+
+import org.eclipse.jdt.ui.JavaElementLabels;
+import org.eclipse.jdt.ui.PreferenceConstants;
+
+import org.eclipse.jdt.internal.ui.viewsupport.JavaElementLabelCache;
+import org.eclipse.jdt.internal.ui.viewsupport.JavaElementLabelComposer;
+
+/**
+ * Tests the labels composed in reusable buffers and the labels of the {@link JavaElementLabelCache}.
+ *
+ * @since 3.14
+ */
+public class JavaElementLabelCacheTest extends CoreTests {
+
+	private static final Class<JavaElementLabelCacheTest> THIS= JavaElementLabelCacheTest.class;
+
+	private IJavaProject fJProject1;
+
+	public JavaElementLabelCacheTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fJProject1= ProjectTestSetup.getProject();
+
+		IPreferenceStore store= PreferenceConstants.getPreferenceStore();
+		store.setValue(PreferenceConstants.APPEARANCE_COMPRESS_PACKAGE_NAMES, false);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.clear(fJProject1, ProjectTestSetup.getDefaultClasspath());
+	}
+
+	private static void assertEqualStyledString(StyledString expected, StyledString actual) {
+		assertEqualString(actual.getString(), expected.getString());
+		assertEquals(expected.getString(), Arrays.asList(expected.getStyleRanges()), Arrays.asList(actual.getStyleRanges()));
+	}
+
+	public void testStyledLabels() throws Exception {
+		IPackageFragmentRoot sourceFolder= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+
+		IPackageFragment pack1= sourceFolder.createPackageFragment("org.test", false, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package org.test;\n");
+		buf.append("import java.util.Vector;\n");
+		buf.append("public class Outer<T> {\n");
+		buf.append("    Vector<String> names;\n");
+		buf.append("    public <E extends Exception> T foo(E e, int... rest) throws Exception {\n");
+		buf.append("        return null;\n");
+		buf.append("    }\n");
+		buf.append("    public class Inner {\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		ICompilationUnit cu= pack1.createCompilationUnit("Outer.java", buf.toString(), false, null);
+		IType type= cu.getType("Outer");
+
+		IJavaElement[] elements= {
+				pack1,
+				cu,
+				type,
+				type.getTypeParameter("T"),
+				type.getField("names"),
+				type.getMethod("foo", new String[] { "QE;", "[I" }),
+				type.getType("Inner")
+		};
+		long[] flags= {
+				JavaElementLabels.ALL_DEFAULT,
+				JavaElementLabels.ALL_FULLY_QUALIFIED,
+				JavaElementLabels.ALL_POST_QUALIFIED | JavaElementLabels.APPEND_ROOT_PATH,
+				JavaElementLabels.M_PARAMETER_TYPES | JavaElementLabels.M_PARAMETER_NAMES | JavaElementLabels.M_APP_RETURNTYPE | JavaElementLabels.M_APP_TYPE_PARAMETERS | JavaElementLabels.M_EXCEPTIONS,
+				JavaElementLabels.F_APP_TYPE_SIGNATURE | JavaElementLabels.T_TYPE_PARAMETERS | JavaElementLabels.PREPEND_ROOT_PATH
+		};
+		for (int i= 0; i < elements.length; i++) {
+			for (int k= 0; k < flags.length; k++) {
+				long flag= flags[k] | JavaElementLabels.COLORIZE;
+				StyledString expected= new StyledString();
+				new JavaElementLabelComposer(expected).appendElementLabel(elements[i], flag);
+
+				assertEqualStyledString(expected, JavaElementLabelComposer.getStyledElementLabel(elements[i], flag));
+				assertEqualStyledString(expected, JavaElementLabelCache.getDefault().getStyledTextLabel(elements[i], flag));
+				assertEqualString(JavaElementLabelComposer.getElementLabel(elements[i], flag), expected.getString());
+			}
+		}
+	}
+
+	public void testLabelsFollowReconcile() throws Exception {
+		IPackageFragmentRoot sourceFolder= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+
+		IPackageFragment pack1= sourceFolder.createPackageFragment("org.test", false, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package org.test;\n");
+		buf.append("public class Outer {\n");
+		buf.append("    int count;\n");
+		buf.append("    public int foo(int a) {\n");
+		buf.append("        return a;\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		ICompilationUnit cu= pack1.createCompilationUnit("Outer.java", buf.toString(), false, null);
+		IType type= cu.getType("Outer");
+		IField field= type.getField("count");
+		IMethod method= type.getMethod("foo", new String[] { "I" });
+
+		JavaElementLabelCache cache= JavaElementLabelCache.getDefault();
+		long fieldFlags= JavaElementLabels.F_APP_TYPE_SIGNATURE;
+		long methodFlags= JavaElementLabels.M_PARAMETER_TYPES | JavaElementLabels.M_PARAMETER_NAMES | JavaElementLabels.M_APP_RETURNTYPE;
+		assertEqualString(cache.getTextLabel(field, fieldFlags), "count" + JavaElementLabels.DECL_STRING + "int");
+		assertEqualString(cache.getTextLabel(method, methodFlags), "foo(int a)" + JavaElementLabels.DECL_STRING + "int");
+
+		cu.becomeWorkingCopy(null);
+		try {
+			String source= cu.getBuffer().getContents();
+			source= source.replace("int count", "long count").replace("int foo(int a)", "long foo(int b)").replace("return a", "return b");
+			cu.getBuffer().setContents(source);
+			cu.reconcile(ICompilationUnit.NO_AST, false, null, null);
+
+			assertEqualString(cache.getTextLabel(field, fieldFlags), "count" + JavaElementLabels.DECL_STRING + "long");
+			assertEqualString(cache.getTextLabel(method, methodFlags), "foo(int b)" + JavaElementLabels.DECL_STRING + "long");
+		} finally {
+			cu.discardWorkingCopy();
+		}
+
+		// the changes were not saved
+		assertEqualString(cache.getTextLabel(field, fieldFlags), "count" + JavaElementLabels.DECL_STRING + "int");
+		assertEqualString(cache.getTextLabel(method, methodFlags), "foo(int a)" + JavaElementLabels.DECL_STRING + "int");
+	}
+
+	public void testLabelsFollowPreferences() throws Exception {
+		IPackageFragmentRoot sourceFolder= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+		IPackageFragment packOrgTest= sourceFolder.createPackageFragment("org.test", false, null);
+
+		JavaElementLabelCache cache= JavaElementLabelCache.getDefault();
+		assertEqualString(cache.getTextLabel(packOrgTest, JavaElementLabels.P_COMPRESSED), "org.test");
+
+		IPreferenceStore store= PreferenceConstants.getPreferenceStore();
+		store.setValue(PreferenceConstants.APPEARANCE_COMPRESS_PACKAGE_NAMES, true);
+		try {
+			store.setValue(PreferenceConstants.APPEARANCE_PKG_NAME_PATTERN_FOR_PKG_VIEW, "0");
+			assertEqualString(cache.getTextLabel(packOrgTest, JavaElementLabels.P_COMPRESSED), "test");
+
+			store.setValue(PreferenceConstants.APPEARANCE_PKG_NAME_PATTERN_FOR_PKG_VIEW, "1~.");
+			assertEqualString(cache.getTextLabel(packOrgTest, JavaElementLabels.P_COMPRESSED), "o~.test");
+
+			// the labels are composed again after the cache is cleared explicitly
+			cache.clear();
+			assertEqualString(cache.getTextLabel(packOrgTest, JavaElementLabels.P_COMPRESSED), "o~.test");
+		} finally {
+			store.setToDefault(PreferenceConstants.APPEARANCE_PKG_NAME_PATTERN_FOR_PKG_VIEW);
+			store.setValue(PreferenceConstants.APPEARANCE_COMPRESS_PACKAGE_NAMES, false);
+		}
+		assertEqualString(cache.getTextLabel(packOrgTest, JavaElementLabels.P_COMPRESSED), "org.test");
+	}
+}
@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.text.tests.Accessor;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+
+import org.eclipse.jdt.internal.ui.text.javadoc.JavadocContentAccess2;
+import org.eclipse.jdt.internal.ui.text.javadoc.JavadocContentCache;
+
+public class JavadocContentCacheTest extends TestCase {
+
+	private static final Class<JavadocContentCacheTest> THIS= JavadocContentCacheTest.class;
+
+	private IJavaProject fJavaProject;
+	private IPackageFragment fPackage;
+	private JavadocContentCache fCache;
+
+	public JavadocContentCacheTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fJavaProject= ProjectTestSetup.getProject();
+		IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJavaProject, "src");
+		fPackage= root.createPackageFragment("pack", true, null);
+		fCache= JavadocContentCache.getDefault();
+		fCache.clear();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fCache.clear();
+		JavaProjectHelper.clear(fJavaProject, ProjectTestSetup.getDefaultClasspath());
+	}
+
+	private IType createType(String name, String contents) throws Exception {
+		ICompilationUnit cu= fPackage.createCompilationUnit(name + ".java", "package pack;\n" + contents, true, null);
+		return cu.getType(name);
+	}
+
+	private static void setContents(IType type, String contents) throws Exception {
+		ICompilationUnit cu= type.getCompilationUnit();
+		cu.getBuffer().setContents("package pack;\n" + contents);
+		cu.save(null, true);
+	}
+
+	public void testHitsAndMisses() throws Exception {
+		IType type= createType("A", "public class A {\n/** Foo in A. */\npublic void foo() {}\n}\n");
+		IMethod method= type.getMethod("foo", new String[0]);
+		long hits= fCache.getHitCount();
+		long misses= fCache.getMissCount();
+
+		String content= JavadocContentAccess2.getHTMLContent(method, true);
+		assertTrue(content, content.contains("Foo in A."));
+		assertEquals(misses + 1, fCache.getMissCount());
+		assertEquals(hits, fCache.getHitCount());
+
+		assertEquals(content, JavadocContentAccess2.getHTMLContent(method, true));
+		assertEquals(misses + 1, fCache.getMissCount());
+		assertEquals(hits + 1, fCache.getHitCount());
+
+		// another element is not answered from the cache
+		JavadocContentAccess2.getHTMLContent(type, true);
+		assertEquals(misses + 2, fCache.getMissCount());
+	}
+
+	public void testSourceEntryAnswersAttachedRequest() throws Exception {
+		IType type= createType("A", "public class A {\n/** Foo in A. */\npublic void foo() {}\npublic void bar() {}\n}\n");
+		IMethod foo= type.getMethod("foo", new String[0]);
+		IMethod bar= type.getMethod("bar", new String[0]);
+		fCache.getHTMLContent(foo, false);
+		fCache.getHTMLContent(bar, false);
+		long hits= fCache.getHitCount();
+		long misses= fCache.getMissCount();
+
+		// a prefetch computes without attached Javadoc, which is only consulted if the source has none
+		fCache.getHTMLContent(foo, true);
+		assertEquals(hits + 1, fCache.getHitCount());
+		assertEquals(misses, fCache.getMissCount());
+
+		fCache.getHTMLContent(bar, true);
+		assertEquals(hits + 1, fCache.getHitCount());
+		assertEquals(misses + 1, fCache.getMissCount());
+	}
+
+	public void testStampInvalidation() throws Exception {
+		IType type= createType("A", "public class A {\n/** Foo in A. */\npublic void foo() {}\n}\n");
+		IMethod method= type.getMethod("foo", new String[0]);
+		JavadocContentAccess2.getHTMLContent(method, true);
+
+		// only the modification stamp tells that the entry is stale
+		IElementChangedListener listener= (IElementChangedListener) new Accessor(fCache, JavadocContentCache.class).get("fDeltaListener");
+		JavaCore.removeElementChangedListener(listener);
+		try {
+			long misses= fCache.getMissCount();
+			setContents(type, "public class A {\n/** Changed foo in A. */\npublic void foo() {}\n}\n");
+
+			String content= JavadocContentAccess2.getHTMLContent(method, true);
+			assertTrue(content, content.contains("Changed foo in A."));
+			assertEquals(misses + 1, fCache.getMissCount());
+		} finally {
+			JavaCore.addElementChangedListener(listener);
+		}
+	}
+
+	public void testDeltaInvalidation() throws Exception {
+		IType typeA= createType("A", "public class A {\n/** Foo in A. */\npublic void foo() {}\n}\n");
+		IType typeB= createType("B", "public class B extends A {\n@Override\npublic void foo() {}\n}\n");
+		IType typeC= createType("C", "public class C {\n/** Foo in C. */\npublic void foo() {}\n}\n");
+		IMethod method= typeB.getMethod("foo", new String[0]);
+
+		String content= JavadocContentAccess2.getHTMLContent(method, true);
+		assertTrue(content, content.contains("Foo in A."));
+
+		// a change to an unrelated compilation unit keeps the entry
+		long hits= fCache.getHitCount();
+		long misses= fCache.getMissCount();
+		setContents(typeC, "public class C {\n/** Changed foo in C. */\npublic void foo() {}\n}\n");
+		assertEquals(content, JavadocContentAccess2.getHTMLContent(method, true));
+		assertEquals(hits + 1, fCache.getHitCount());
+		assertEquals(misses, fCache.getMissCount());
+
+		// a change to the super type drops the entry that inherits its Javadoc
+		setContents(typeA, "public class A {\n/** Changed foo in A. */\npublic void foo() {}\n}\n");
+		content= JavadocContentAccess2.getHTMLContent(method, true);
+		assertTrue(content, content.contains("Changed foo in A."));
+		assertEquals(misses + 1, fCache.getMissCount());
+	}
+}
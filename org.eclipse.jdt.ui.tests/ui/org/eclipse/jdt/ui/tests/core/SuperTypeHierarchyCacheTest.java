@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeHierarchy;
+
+import org.eclipse.jdt.internal.corext.util.SuperTypeHierarchyCache;
+
+public class SuperTypeHierarchyCacheTest extends TestCase {
+
+	private static final Class<SuperTypeHierarchyCacheTest> THIS= SuperTypeHierarchyCacheTest.class;
+
+	private IJavaProject fJavaProject;
+	private IPackageFragment fPackage;
+
+	public SuperTypeHierarchyCacheTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fJavaProject= ProjectTestSetup.getProject();
+		IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJavaProject, "src");
+		fPackage= root.createPackageFragment("pack", true, null);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		System.getProperties().remove(SuperTypeHierarchyCache.MAXIMUM_WEIGHT_PROPERTY);
+		JavaProjectHelper.clear(fJavaProject, ProjectTestSetup.getDefaultClasspath());
+	}
+
+	private IType createType(String name, String declaration) throws Exception {
+		ICompilationUnit cu= fPackage.getCompilationUnit(name + ".java");
+		return cu.createType(declaration, null, true, null);
+	}
+
+	public void testEviction() throws Exception {
+		// every hierarchy contains the type and java.lang.Object
+		System.setProperty(SuperTypeHierarchyCache.MAXIMUM_WEIGHT_PROPERTY, "5");
+
+		IType[] types= new IType[4];
+		for (int i= 0; i < types.length; i++) {
+			types[i]= createType("E" + i, "public class E" + i + " {\n}\n");
+		}
+
+		int evictions= SuperTypeHierarchyCache.getCacheEvictions();
+		for (int i= 0; i < types.length; i++) {
+			SuperTypeHierarchyCache.getTypeHierarchy(types[i]);
+		}
+
+		assertTrue(SuperTypeHierarchyCache.getCacheEvictions() - evictions >= 2);
+		assertFalse(SuperTypeHierarchyCache.hasInCache(types[0]));
+		assertFalse(SuperTypeHierarchyCache.hasInCache(types[1]));
+		assertTrue(SuperTypeHierarchyCache.hasInCache(types[3]));
+	}
+
+	public void testLookupByContainedType() throws Exception {
+		IType typeA= createType("A", "public class A {\n}\n");
+		IType typeB= createType("B", "public class B extends A {\n}\n");
+
+		ITypeHierarchy hierarchy= SuperTypeHierarchyCache.getTypeHierarchy(typeB);
+		int misses= SuperTypeHierarchyCache.getCacheMisses();
+
+		assertTrue(SuperTypeHierarchyCache.hasInCache(typeA));
+		assertSame(hierarchy, SuperTypeHierarchyCache.getTypeHierarchy(typeA));
+		assertEquals(misses, SuperTypeHierarchyCache.getCacheMisses());
+	}
+
+	public void testConcurrentComputation() throws Exception {
+		final IType type= createType("C", "public class C extends java.util.ArrayList<String> {\n}\n");
+		assertFalse(SuperTypeHierarchyCache.hasInCache(type));
+
+		final int threadCount= 8;
+		final ITypeHierarchy[] results= new ITypeHierarchy[threadCount];
+		final Throwable[] errors= new Throwable[threadCount];
+		final CountDownLatch start= new CountDownLatch(1);
+		Thread[] threads= new Thread[threadCount];
+		for (int i= 0; i < threadCount; i++) {
+			final int index= i;
+			threads[i]= new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						results[index]= SuperTypeHierarchyCache.getTypeHierarchy(type);
+					} catch (Throwable e) {
+						errors[index]= e;
+					}
+				}
+			}, "SuperTypeHierarchyCacheTest " + i);
+			threads[i].start();
+		}
+
+		int misses= SuperTypeHierarchyCache.getCacheMisses();
+		start.countDown();
+		for (int i= 0; i < threadCount; i++) {
+			threads[i].join();
+		}
+
+		for (int i= 0; i < threadCount; i++) {
+			assertNull(errors[i]);
+			assertSame(results[0], results[i]);
+		}
+		assertEquals(misses + 1, SuperTypeHierarchyCache.getCacheMisses());
+	}
+
+	public void testInvalidationOnHierarchyChange() throws Exception {
+		createType("A", "public class A {\n}\n");
+		IType typeB= createType("B", "public class B extends A {\n}\n");
+
+		ITypeHierarchy hierarchy= SuperTypeHierarchyCache.getTypeHierarchy(typeB);
+		assertEquals("A", hierarchy.getSuperclass(typeB).getElementName());
+		assertTrue(SuperTypeHierarchyCache.hasInCache(typeB));
+
+		ICompilationUnit cu= typeB.getCompilationUnit();
+		cu.getBuffer().setContents("package pack;\npublic class B {\n}\n");
+		cu.save(null, true);
+
+		assertFalse(SuperTypeHierarchyCache.hasInCache(typeB));
+		hierarchy= SuperTypeHierarchyCache.getTypeHierarchy(typeB);
+		assertEquals("Object", hierarchy.getSuperclass(typeB).getElementName());
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,8 @@
  *******************************************************************************/
 package org.eclipse.jdt.ui.tests.core;
 
+import java.util.Collections;
+
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -20,7 +22,9 @@ import org.eclipse.jface.text.IDocument;
 
 import org.eclipse.ui.IEditorPart;
 
+import org.eclipse.jdt.core.Flags;
 import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
@@ -34,6 +38,7 @@ import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jdt.ui.SharedASTProvider;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.typehierarchy.IncrementalTypeHierarchy;
 
 
 public class TypeHierarchyTest extends TestCase {
@@ -291,7 +296,49 @@ public class TypeHierarchyTest extends TestCase {
 
 	}
 
-
-
+	public void testIncrementalHierarchy() throws Exception {
+		IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJavaProject1, "src");
+		IPackageFragment pack= root.createPackageFragment("pack", true, null);
+
+		ICompilationUnit cu1= pack.getCompilationUnit("A.java");
+		IType type1= cu1.createType("public class A {\n}\n", null, true, null);
+
+		IncrementalTypeHierarchy hierarchy= new IncrementalTypeHierarchy(type1.newTypeHierarchy(null));
+		assertEquals(0, hierarchy.getSubtypes(type1).length);
+
+		ICompilationUnit cu2= pack.getCompilationUnit("B.java");
+		IType type2= cu2.createType("public class B extends A {\n}\n", null, true, null);
+
+		IType[] changedTypes= hierarchy.update(Collections.<IJavaElement>singleton(cu2), null);
+		assertNotNull(changedTypes);
+		assertTrue(hierarchy.contains(type2));
+		assertEquals(type1, hierarchy.getSuperclass(type2));
+		assertEquals(1, hierarchy.getSubclasses(type1).length);
+		assertEquals(1, hierarchy.getAllSubtypes(type1).length);
+
+		// modifier-only change
+		cu2.getBuffer().setContents("package pack;\npublic abstract class B extends A {\n}\n");
+		cu2.save(null, true);
+
+		changedTypes= hierarchy.update(Collections.<IJavaElement>singleton(cu2), null);
+		assertNotNull(changedTypes);
+		assertEquals(1, changedTypes.length);
+		assertEquals(type2, changedTypes[0]);
+		assertTrue(Flags.isAbstract(hierarchy.getCachedFlags(type2)));
+		assertEquals(type1, hierarchy.getSuperclass(type2));
+		assertEquals(1, hierarchy.getSubclasses(type1).length);
+
+		changedTypes= hierarchy.update(Collections.<IJavaElement>singleton(cu2), null);
+		assertNotNull(changedTypes);
+		assertEquals(0, changedTypes.length);
+
+		cu2.getBuffer().setContents("package pack;\npublic class B {\n}\n");
+		cu2.save(null, true);
+
+		changedTypes= hierarchy.update(Collections.<IJavaElement>singleton(cu2), null);
+		assertNotNull(changedTypes);
+		assertFalse(hierarchy.contains(type2));
+		assertEquals(0, hierarchy.getSubtypes(type1).length);
+	}
 
 }
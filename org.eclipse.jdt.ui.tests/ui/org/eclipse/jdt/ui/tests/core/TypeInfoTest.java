@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,8 +10,14 @@
  *******************************************************************************/
 package org.eclipse.jdt.ui.tests.core;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import junit.framework.Test;
@@ -22,8 +28,11 @@ import org.eclipse.jdt.testplugin.JavaProjectHelper;
 import org.eclipse.jdt.testplugin.JavaTestPlugin;
 import org.eclipse.jdt.testplugin.StringAsserts;
 
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.jobs.Job;
 
+import org.eclipse.jdt.core.Flags;
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
@@ -37,8 +46,13 @@ import org.eclipse.jdt.core.search.SearchPattern;
 import org.eclipse.jdt.core.search.TypeNameMatch;
 import org.eclipse.jdt.core.search.TypeNameMatchRequestor;
 
+import org.eclipse.jdt.internal.corext.util.TypeInfoFilter;
+import org.eclipse.jdt.internal.corext.util.TypeNameCatalog;
+import org.eclipse.jdt.internal.corext.util.TypeNameIndex;
 import org.eclipse.jdt.internal.corext.util.TypeNameMatchCollector;
 
+import org.eclipse.jdt.internal.ui.util.PatternMatcher;
+
 
 public class TypeInfoTest extends TestCase {
 
@@ -229,4 +243,111 @@ public class TypeInfoTest extends TestCase {
 
 	}
 
+	public void testTypeNameIndex() throws Exception {
+		TypeNameIndex index= new TypeNameIndex();
+		index.putRoot("/lib.jar", "=TestProject1/lib.jar", 42);
+		index.putRoot("/TestProject1/src", "=TestProject1/src", -1);
+		index.add("/lib.jar", "java.util", "ArrayList.class", "", "ArrayList", Flags.AccPublic);
+		index.add("/lib.jar", "java.util", "AbstractList.class", "", "AbstractList", Flags.AccPublic | Flags.AccAbstract);
+		index.add("/lib.jar", "java.util", "Map$Entry.class", "Map", "Entry", Flags.AccPublic | Flags.AccInterface);
+		index.add("/lib.jar", "java.lang", "NullPointerException.class", "", "NullPointerException", Flags.AccPublic);
+		index.add("/TestProject1/src", "p", "A.java", "", "Arrays2", 0);
+		index.add("/TestProject1/src", "p", "A.java", "Arrays2", "Inner", 0);
+
+		assertQuery(index, "arr", new String[] { "ArrayList", "Arrays2" });
+		assertQuery(index, "NPE", new String[] { "NullPointerException" });
+		assertQuery(index, "AL", new String[] { "AbstractList", "ArrayList" });
+		assertQuery(index, "*List", new String[] { "AbstractList", "ArrayList" });
+		assertQuery(index, "Entry<", new String[] { "Entry" });
+
+		index.removeTypes("/TestProject1/src", "p", "A.java");
+		assertEquals(4, index.size());
+		assertQuery(index, "Arr", new String[] { "ArrayList" });
+
+		index.compact(true);
+		assertQuery(index, "arr", new String[] { "ArrayList" });
+		assertQuery(index, "NPE", new String[] { "NullPointerException" });
+		assertQuery(index, "AL", new String[] { "AbstractList", "ArrayList" });
+		assertQuery(index, "A*t", new String[] { "AbstractList", "ArrayList" });
+
+		ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+		index.write(new DataOutputStream(bytes));
+		TypeNameIndex read= TypeNameIndex.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		assertEquals(4, read.size());
+		assertEquals(42, read.getRootStamp("/lib.jar"));
+		assertEquals("=TestProject1/src", read.getRootHandle("/TestProject1/src"));
+		assertQuery(read, "Entry", new String[] { "Entry" });
+		assertQuery(read, "*Exception", new String[] { "NullPointerException" });
+
+		read.removeRoot("/lib.jar");
+		assertEquals(0, read.size());
+		assertFalse(read.containsRoot("/lib.jar"));
+		assertQuery(read, "A", new String[0]);
+	}
+
+	public void testTypeNameCatalogFollowsDeltas() throws Exception {
+		IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+		IPackageFragment pack= root.createPackageFragment("catalog", true, null);
+		ICompilationUnit cu= pack.createCompilationUnit("CatalogA.java", "package catalog;\npublic class CatalogA {\n}\n", true, null);
+		IJavaSearchScope scope= SearchEngine.createJavaSearchScope(new IJavaElement[] { fJProject1 });
+
+		assertCatalog(scope, "Catalog", new String[] { "CatalogA" });
+
+		cu.createType("class CatalogB {\n}\n", null, true, null);
+		assertCatalog(scope, "Catalog", new String[] { "CatalogA", "CatalogB" });
+
+		// types added in a working copy are gone after it is discarded
+		cu.becomeWorkingCopy(null);
+		try {
+			cu.getBuffer().append("class CatalogC {\n}\n");
+			cu.reconcile(ICompilationUnit.NO_AST, false, null, null);
+			assertCatalog(scope, "Catalog", new String[] { "CatalogA", "CatalogB", "CatalogC" });
+		} finally {
+			cu.discardWorkingCopy();
+		}
+		assertCatalog(scope, "Catalog", new String[] { "CatalogA", "CatalogB" });
+
+		// a working copy that has never been saved
+		ICompilationUnit newCu= pack.getCompilationUnit("CatalogD.java");
+		newCu.becomeWorkingCopy(null);
+		try {
+			newCu.getBuffer().setContents("package catalog;\npublic class CatalogD {\n}\n");
+			newCu.reconcile(ICompilationUnit.NO_AST, false, null, null);
+			assertCatalog(scope, "Catalog", new String[] { "CatalogA", "CatalogB", "CatalogD" });
+		} finally {
+			newCu.discardWorkingCopy();
+		}
+		assertCatalog(scope, "Catalog", new String[] { "CatalogA", "CatalogB" });
+
+		cu.delete(true, null);
+		assertCatalog(scope, "Catalog", new String[0]);
+	}
+
+	private static void assertCatalog(IJavaSearchScope scope, String pattern, String[] expected) throws Exception {
+		TypeNameCatalog catalog= TypeNameCatalog.getInstance();
+		Job.getJobManager().join("org.eclipse.jdt.internal.corext.util.TypeNameCatalog.UpdateJob", null);
+		assertTrue(catalog.isUpToDate());
+
+		ArrayList<TypeNameMatch> result= new ArrayList<>();
+		TypeInfoFilter filter= new TypeInfoFilter(pattern, scope, IJavaSearchConstants.TYPE, null);
+		assertTrue(catalog.search(filter, new TypeNameMatchCollector(result), new NullProgressMonitor()));
+		List<String> names= new ArrayList<>();
+		for (int i= 0; i < result.size(); i++)
+			names.add(result.get(i).getSimpleTypeName());
+		Collections.sort(names);
+		assertEquals(pattern, Arrays.asList(expected), names);
+	}
+
+	private static void assertQuery(final TypeNameIndex index, String pattern, String[] expected) {
+		final List<String> names= new ArrayList<>();
+		index.query(new PatternMatcher(pattern), new TypeNameIndex.IEntryRequestor() {
+			@Override
+			public boolean acceptEntry(int entry) {
+				names.add(index.getSimpleName(entry));
+				return true;
+			}
+		});
+		Collections.sort(names);
+		assertEquals(pattern, Arrays.asList(expected), names);
+	}
 }
@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.jarexport;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.jdt.internal.ui.jarpackagerfat.ArchiveEntryReader;
+import org.eclipse.jdt.internal.ui.jarpackagerfat.ArchiveEntryReader.IEntryRequestor;
+
+/**
+ * Tests the read-ahead of library entries for the Runnable JAR export.
+ */
+public class ArchiveEntryReaderTests extends TestCase {
+
+	private static final Class<ArchiveEntryReaderTests> THIS= ArchiveEntryReaderTests.class;
+
+	private static final int PARALLELISM= 4;
+
+	/**
+	 * An archive that counts the entries it has started to read, and fails to read the entries
+	 * with a given name.
+	 */
+	private static class TestZipFile extends ZipFile {
+		final AtomicInteger fStarted= new AtomicInteger();
+		final String fFailingName;
+
+		TestZipFile(File file, String failingName) throws IOException {
+			super(file);
+			fFailingName= failingName;
+		}
+
+		@Override
+		public InputStream getInputStream(ZipEntry entry) throws IOException {
+			fStarted.incrementAndGet();
+			if (entry.getName().equals(fFailingName))
+				throw new IOException("cannot read " + entry.getName());
+			return super.getInputStream(entry);
+		}
+	}
+
+	/**
+	 * Records the accepted entries and checks their content.
+	 */
+	private static class RecordingRequestor implements IEntryRequestor {
+		final List<String> fNames= new ArrayList<>();
+		final List<String> fNotRead= new ArrayList<>();
+
+		@Override
+		public void acceptEntry(ZipEntry entry, byte[] content, int length) throws IOException {
+			fNames.add(entry.getName());
+			if (content == null) {
+				assertEquals(entry.getName(), -1, length);
+				fNotRead.add(entry.getName());
+			} else {
+				assertEquals(entry.getName(), entry.getSize(), length);
+				assertTrue(entry.getName(), Arrays.equals(createContent(entry.getName(), length), Arrays.copyOf(content, length)));
+			}
+		}
+	}
+
+	private File fFile;
+	private ArchiveEntryReader fReader;
+
+	public ArchiveEntryReaderTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(THIS);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fFile= File.createTempFile(getName(), ".jar");
+		fReader= new ArchiveEntryReader(PARALLELISM, ArchiveEntryReader.DEFAULT_CAPACITY);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fReader.dispose();
+		fFile.delete();
+	}
+
+	static byte[] createContent(String name, int size) {
+		byte[] content= new byte[size];
+		int hash= name.hashCode();
+		for (int i= 0; i < size; i++) {
+			content[i]= (byte) (hash + i / 7);
+		}
+		return content;
+	}
+
+	private void writeArchive(String[] names, int[] sizes) throws IOException {
+		try (ZipOutputStream out= new ZipOutputStream(new FileOutputStream(fFile))) {
+			for (int i= 0; i < names.length; i++) {
+				out.putNextEntry(new ZipEntry(names[i]));
+				out.write(createContent(names[i], sizes[i]));
+				out.closeEntry();
+			}
+		}
+	}
+
+	private static List<ZipEntry> getEntries(ZipFile zipFile) {
+		List<ZipEntry> entries= new ArrayList<>();
+		for (Enumeration<? extends ZipEntry> e= zipFile.entries(); e.hasMoreElements();) {
+			entries.add(e.nextElement());
+		}
+		return entries;
+	}
+
+	public void testOrder() throws Exception {
+		int count= 200;
+		String[] names= new String[count];
+		int[] sizes= new int[count];
+		for (int i= 0; i < count; i++) {
+			names[i]= "p/Entry" + i + ".class";
+			// small and large entries, so that later entries can be done first
+			sizes[i]= (i % 3 == 0) ? 300000 : 17 * i;
+		}
+		writeArchive(names, sizes);
+
+		try (TestZipFile zipFile= new TestZipFile(fFile, null)) {
+			RecordingRequestor requestor= new RecordingRequestor();
+			fReader.read(zipFile, getEntries(zipFile), requestor, new NullProgressMonitor());
+
+			assertEquals(Arrays.asList(names), requestor.fNames);
+			assertEquals(Collections.emptyList(), requestor.fNotRead);
+		}
+	}
+
+	public void testCapacity() throws Exception {
+		int count= 16;
+		final int size= 1 << 20;
+		String[] names= new String[count];
+		int[] sizes= new int[count];
+		for (int i= 0; i < count; i++) {
+			names[i]= "p/Entry" + i + ".bin";
+			sizes[i]= size;
+		}
+		writeArchive(names, sizes);
+
+		// the smallest capacity holds 4 entries of 1 MB
+		fReader.dispose();
+		fReader= new ArchiveEntryReader(PARALLELISM, 0);
+		final int maxReadAhead= ArchiveEntryReader.MAX_PREFETCH_SIZE / size;
+
+		try (TestZipFile zipFile= new TestZipFile(fFile, null)) {
+			final int[] accepted= new int[1];
+			RecordingRequestor requestor= new RecordingRequestor() {
+				@Override
+				public void acceptEntry(ZipEntry entry, byte[] content, int length) throws IOException {
+					super.acceptEntry(entry, content, length);
+					accepted[0]++;
+					int started= zipFile.fStarted.get();
+					assertTrue("started " + started + " after " + accepted[0], started <= accepted[0] - 1 + maxReadAhead);
+					try {
+						// let the workers run ahead as far as they can
+						Thread.sleep(20);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			};
+			fReader.read(zipFile, getEntries(zipFile), requestor, new NullProgressMonitor());
+
+			assertEquals(Arrays.asList(names), requestor.fNames);
+			assertEquals(Collections.emptyList(), requestor.fNotRead);
+		}
+	}
+
+	public void testLargeEntry() throws Exception {
+		String[] names= { "p/Small.class", "p/Large.bin", "p/Last.class" };
+		int[] sizes= { 100, ArchiveEntryReader.MAX_PREFETCH_SIZE + 1, 200 };
+		writeArchive(names, sizes);
+
+		try (TestZipFile zipFile= new TestZipFile(fFile, null)) {
+			RecordingRequestor requestor= new RecordingRequestor();
+			fReader.read(zipFile, getEntries(zipFile), requestor, new NullProgressMonitor());
+
+			assertEquals(Arrays.asList(names), requestor.fNames);
+			assertEquals(Collections.singletonList("p/Large.bin"), requestor.fNotRead);
+			// the requestor reads the large entry itself
+			assertEquals(2, zipFile.fStarted.get());
+		}
+	}
+
+	public void testReadFailure() throws Exception {
+		String[] names= { "p/A.class", "p/Broken.class", "p/C.class" };
+		int[] sizes= { 100, 200, 300 };
+		writeArchive(names, sizes);
+
+		try (TestZipFile zipFile= new TestZipFile(fFile, "p/Broken.class")) {
+			RecordingRequestor requestor= new RecordingRequestor();
+			fReader.read(zipFile, getEntries(zipFile), requestor, new NullProgressMonitor());
+
+			assertEquals(Arrays.asList(names), requestor.fNames);
+			assertEquals(Collections.singletonList("p/Broken.class"), requestor.fNotRead);
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2012 IBM Corporation and others.
+ * Copyright (c) 2007, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,9 +17,14 @@
  *******************************************************************************/
 package org.eclipse.jdt.ui.tests.jarexport;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Enumeration;
 import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -391,6 +396,47 @@ public class FatJarExportTests extends TestCase {
 		return JarPackagerUtil.getArchiveFile(data.getJarLocation());
 	}
 
+	private static byte[] readContent(ZipFile zipFile, ZipEntry entry) throws IOException {
+		try (InputStream in= zipFile.getInputStream(entry)) {
+			ByteArrayOutputStream out= new ByteArrayOutputStream();
+			byte[] buffer= new byte[4096];
+			int count;
+			while ((count= in.read(buffer)) != -1)
+				out.write(buffer, 0, count);
+			return out.toByteArray();
+		}
+	}
+
+	private static void assertExtractedEntries(JarPackageData data, File lib, int method) throws Exception {
+		try (ZipFile library= new ZipFile(lib); ZipFile archive= JarPackagerUtil.getArchiveFile(data.getJarLocation())) {
+			int count= 0;
+			for (Enumeration<? extends ZipEntry> entries= library.entries(); entries.hasMoreElements();) {
+				ZipEntry entry= entries.nextElement();
+				String name= entry.getName();
+				if (!name.endsWith(".class")) //$NON-NLS-1$
+					continue;
+				ZipEntry extracted= archive.getEntry(name);
+				assertNotNull(name, extracted);
+				assertEquals(name, method, extracted.getMethod());
+				assertEquals(name, entry.getCrc(), extracted.getCrc());
+				assertTrue(name, Arrays.equals(readContent(library, entry), readContent(archive, extracted)));
+				count++;
+			}
+			assertTrue("no class files in " + lib, count > 0); //$NON-NLS-1$
+		}
+	}
+
+	private static void assertStoredLibrary(JarPackageData data, File lib) throws Exception {
+		try (ZipFile archive= JarPackagerUtil.getArchiveFile(data.getJarLocation())) {
+			ZipEntry nested= archive.getEntry(lib.getName());
+			assertNotNull(lib.getName(), nested);
+			assertEquals(ZipEntry.STORED, nested.getMethod());
+			assertEquals(lib.length(), nested.getSize());
+			assertEquals(nested.getSize(), nested.getCompressedSize());
+			assertTrue(Arrays.equals(Files.readAllBytes(lib.toPath()), readContent(archive, nested)));
+		}
+	}
+
 	private static String runJar(IJavaProject project, String jarPath) throws CoreException {
 
 		IVMInstall vmInstall= JavaRuntime.getVMInstall(project);
@@ -859,6 +905,38 @@ public class FatJarExportTests extends TestCase {
 		}
 	}
 
+	public void testExtractedLibraryEntries() throws Exception {
+		File lib= JavaTestPlugin.getDefault().getFileInPlugin(JavaProjectHelper.MYLIB_STDOUT);
+		IPackageFragmentRoot root= JavaProjectHelper.addLibraryWithImport(fProject, Path.fromOSString(lib.getPath()), null, null);
+
+		try {
+			// the entries are read ahead and written in the order of the library
+			JarPackageData data= createAndRunFatJar(fProject, getName(), true, new ExtractLibraryHandler());
+			assertExtractedEntries(data, lib, ZipEntry.DEFLATED);
+
+			data= createAndRunFatJar(fProject, getName() + "_Uncompressed", false, new ExtractLibraryHandler()); //$NON-NLS-1$
+			assertExtractedEntries(data, lib, ZipEntry.STORED);
+		} finally {
+			JavaProjectHelper.removeFromClasspath(fProject, root.getPath());
+		}
+	}
+
+	public void testNestedLibraryStored() throws Exception {
+		File lib= JavaTestPlugin.getDefault().getFileInPlugin(JavaProjectHelper.MYLIB_STDOUT);
+		IPackageFragmentRoot root= JavaProjectHelper.addLibraryWithImport(fProject, Path.fromOSString(lib.getPath()), null, null);
+
+		try {
+			// nested libraries are stored as they are, even in a compressed JAR
+			JarPackageData data= createAndRunFatJar(fProject, getName(), true, new PackageLibraryHandler());
+			assertStoredLibrary(data, lib);
+
+			data= createAndRunFatJar(fProject, getName() + "_Uncompressed", false, new PackageLibraryHandler()); //$NON-NLS-1$
+			assertStoredLibrary(data, lib);
+		} finally {
+			JavaProjectHelper.removeFromClasspath(fProject, root.getPath());
+		}
+	}
+
 	public void testExportExternalLib() throws Exception {
 		File lib= JavaTestPlugin.getDefault().getFileInPlugin(JavaProjectHelper.MYLIB_STDOUT);
 		IPackageFragmentRoot root= JavaProjectHelper.addLibrary(fProject, Path.fromOSString(lib.getPath()));
@@ -0,0 +1,321 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.jarexport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.URLConnection;
+import java.net.URLDecoder;
+import java.nio.file.Files;
+import java.security.cert.Certificate;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.url.AbstractURLStreamHandlerService;
+import org.osgi.service.url.URLConstants;
+import org.osgi.service.url.URLStreamHandlerService;
+import org.osgi.service.url.URLStreamHandlerSetter;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.jdt.testplugin.JavaTestPlugin;
+
+import org.eclipse.core.runtime.FileLocator;
+import org.eclipse.core.runtime.IPath;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.jarpackagerfat.FatJarRsrcUrlBuilder;
+import org.eclipse.jdt.internal.ui.jarpackagerfat.FatJarRsrcUrlIndex;
+
+/**
+ * Tests the <code>JarImage</code> and <code>RsrcClassLoader</code> of the jar-in-jar loader, as
+ * compiled into the <code>jar-in-jar-loader.zip</code> of org.eclipse.jdt.ui.
+ */
+public class JarInJarLoaderTests extends TestCase {
+
+	private static final Class<JarInJarLoaderTests> THIS= JarInJarLoaderTests.class;
+
+	private static final String LOADER_PACKAGE= "org.eclipse.jdt.internal.jarinjarloader.";
+
+	private static final String INDEX_NAME= "META-INF/JARINJAR.LIST";
+
+	/**
+	 * The loader of the runnable JAR under test, read by the <code>rsrc:</code> URL handler.
+	 */
+	static volatile ClassLoader fgOuterLoader;
+
+	/**
+	 * The <code>rsrc:</code> protocol of the jar-in-jar loader as a URL handler service, for the
+	 * OSGi framework that owns the stream handler factory. Parses URLs like
+	 * <code>RsrcURLStreamHandler</code>.
+	 */
+	private static class RsrcURLHandlerService extends AbstractURLStreamHandlerService {
+		@Override
+		public URLConnection openConnection(URL u) throws IOException {
+			return new URLConnection(u) {
+				@Override
+				public void connect() {
+					connected= true;
+				}
+
+				@Override
+				public InputStream getInputStream() throws IOException {
+					InputStream result= fgOuterLoader.getResourceAsStream(URLDecoder.decode(url.getFile(), "UTF-8"));
+					if (result == null)
+						throw new IOException("Could not open " + url);
+					return result;
+				}
+			};
+		}
+
+		@Override
+		public void parseURL(URLStreamHandlerSetter realHandler, URL url, String spec, int start, int limit) {
+			String file;
+			if (spec.startsWith("rsrc:"))
+				file= spec.substring(5);
+			else if (url.getFile().equals("./"))
+				file= spec;
+			else if (url.getFile().endsWith("/"))
+				file= url.getFile() + spec;
+			else if ("#runtime".equals(spec))
+				file= url.getFile();
+			else
+				file= spec;
+			realHandler.setURL(url, "rsrc", "", -1, null, null, file, null, null);
+		}
+	}
+
+	public static Test suite() {
+		return new TestSuite(THIS);
+	}
+
+	private File fDirectory;
+	private URLClassLoader fLoaderClasses;
+	private URLClassLoader fOuterLoader;
+	private ServiceRegistration<URLStreamHandlerService> fRegistration;
+
+	@Override
+	protected void setUp() throws Exception {
+		fDirectory= Files.createTempDirectory("jarinjar").toFile();
+		URL zip= FileLocator.toFileURL(JavaPlugin.getDefault().getBundle().getEntry(FatJarRsrcUrlBuilder.JAR_RSRC_LOADER_ZIP));
+		fLoaderClasses= new URLClassLoader(new URL[] { zip }, null);
+		Hashtable<String, Object> properties= new Hashtable<>();
+		properties.put(URLConstants.URL_HANDLER_PROTOCOL, new String[] { "rsrc" });
+		fRegistration= JavaTestPlugin.getDefault().getBundle().getBundleContext().registerService(URLStreamHandlerService.class, new RsrcURLHandlerService(), properties);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fRegistration.unregister();
+		fgOuterLoader= null;
+		if (fOuterLoader != null)
+			fOuterLoader.close();
+		fLoaderClasses.close();
+		File[] files= fDirectory.listFiles();
+		for (int i= 0; i < files.length; i++)
+			files[i].delete();
+		fDirectory.delete();
+	}
+
+	private static File getLibrary(IPath path) {
+		return JavaTestPlugin.getDefault().getFileInPlugin(path);
+	}
+
+	private static byte[] read(InputStream is) throws IOException {
+		try {
+			ByteArrayOutputStream out= new ByteArrayOutputStream();
+			byte[] buffer= new byte[4096];
+			int count;
+			while ((count= is.read(buffer)) != -1)
+				out.write(buffer, 0, count);
+			return out.toByteArray();
+		} finally {
+			is.close();
+		}
+	}
+
+	private static byte[] readEntry(File library, String name) throws IOException {
+		try (ZipFile zipFile= new ZipFile(library)) {
+			ZipEntry entry= zipFile.getEntry(name);
+			return entry != null ? read(zipFile.getInputStream(entry)) : null;
+		}
+	}
+
+	private Object invoke(Object target, String name, Class<?> parameterType, Object argument) throws Exception {
+		Method method= target.getClass().getDeclaredMethod(name, parameterType == null ? new Class[0] : new Class[] { parameterType });
+		method.setAccessible(true);
+		try {
+			return method.invoke(target, parameterType == null ? new Object[0] : new Object[] { argument });
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		}
+	}
+
+	private Object readImage(File library) throws Exception {
+		Method read= fLoaderClasses.loadClass(LOADER_PACKAGE + "JarImage").getDeclaredMethod("read", InputStream.class);
+		read.setAccessible(true);
+		return read.invoke(null, Files.newInputStream(library.toPath()));
+	}
+
+	/*
+	 * Nests the libraries in a runnable JAR, stored under names unique to the test, since the VM
+	 * caches the JARs of "jar:" URLs by name.
+	 */
+	private ClassLoader createLoader(File[] libraries, boolean indexed) throws Exception {
+		File jar= new File(fDirectory, "app.jar");
+		String[] classPath= new String[libraries.length];
+		FatJarRsrcUrlIndex index= new FatJarRsrcUrlIndex();
+		try (JarOutputStream out= new JarOutputStream(new FileOutputStream(jar))) {
+			for (int i= 0; i < libraries.length; i++) {
+				classPath[i]= getName() + "_" + libraries[i].getName();
+				try (ZipFile zipFile= new ZipFile(libraries[i])) {
+					index.addArchive(classPath[i], zipFile);
+				}
+				byte[] content= Files.readAllBytes(libraries[i].toPath());
+				CRC32 crc= new CRC32();
+				crc.update(content);
+				JarEntry entry= new JarEntry(classPath[i]);
+				entry.setMethod(ZipEntry.STORED);
+				entry.setSize(content.length);
+				entry.setCrc(crc.getValue());
+				out.putNextEntry(entry);
+				out.write(content);
+			}
+			if (indexed) {
+				out.putNextEntry(new JarEntry(INDEX_NAME));
+				index.write(out);
+			}
+		}
+		fOuterLoader= new URLClassLoader(new URL[] { jar.toURI().toURL() }, null);
+		fgOuterLoader= fOuterLoader;
+		Constructor<?> constructor= fLoaderClasses.loadClass(LOADER_PACKAGE + "RsrcClassLoader").getDeclaredConstructor(String[].class, ClassLoader.class);
+		constructor.setAccessible(true);
+		return (ClassLoader) constructor.newInstance(classPath, fOuterLoader);
+	}
+
+	private void assertLookup(ClassLoader loader, File library) throws Exception {
+		Class<?> foo= loader.loadClass("mylib.Foo");
+		assertSame("Wrong class loader", loader, foo.getClassLoader());
+		assertSame("Wrong nested class", foo, loader.loadClass("mylib.Foo$FooInner").getEnclosingClass());
+		assertEquals("Wrong package", "mylib", foo.getPackage().getName());
+
+		URL resource= loader.getResource("mylib/Foo.class");
+		assertNotNull("Resource not found", resource);
+		assertTrue("Wrong content", Arrays.equals(readEntry(library, "mylib/Foo.class"), read(resource.openStream())));
+		assertTrue("Wrong content of stream", Arrays.equals(readEntry(library, "mylib/Foo.class"), read(loader.getResourceAsStream("mylib/Foo.class"))));
+		assertTrue("Resources not found", loader.getResources("mylib/Foo.class").hasMoreElements());
+
+		assertNull("Unexpected resource", loader.getResource("mylib/Missing.class"));
+		assertNull("Unexpected resource in other package", loader.getResource("other/Foo.class"));
+		try {
+			loader.loadClass("mylib.Missing");
+			fail("Unexpected class");
+		} catch (ClassNotFoundException e) {
+			// expected
+		}
+	}
+
+	public void testJarImage() throws Exception {
+		File library= getLibrary(JavaProjectHelper.MYLIB);
+		Object image= readImage(library);
+		assertEquals("Entry expected", Boolean.TRUE, invoke(image, "hasEntry", String.class, "mylib/Foo.class"));
+		assertEquals("No entry expected", Boolean.FALSE, invoke(image, "hasEntry", String.class, "mylib/Missing.class"));
+		assertTrue("Wrong content", Arrays.equals(readEntry(library, "mylib/Foo.class"), (byte[]) invoke(image, "getEntry", String.class, "mylib/Foo.class")));
+		assertNull("Unexpected content", invoke(image, "getEntry", String.class, "mylib/Missing.class"));
+		assertEquals("Not signed", Boolean.FALSE, invoke(image, "isSigned", null, null));
+	}
+
+	public void testJarImageStored() throws Exception {
+		File library= new File(fDirectory, "stored.jar");
+		byte[] stored= "stored content".getBytes("UTF-8");
+		byte[] deflated= new byte[10000];
+		Arrays.fill(deflated, (byte) 'x');
+		try (JarOutputStream out= new JarOutputStream(new FileOutputStream(library))) {
+			CRC32 crc= new CRC32();
+			crc.update(stored);
+			JarEntry entry= new JarEntry("p/stored.txt");
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(stored.length);
+			entry.setCrc(crc.getValue());
+			out.putNextEntry(entry);
+			out.write(stored);
+			out.putNextEntry(new JarEntry("p/deflated.txt"));
+			out.write(deflated);
+		}
+		Object image= readImage(library);
+		assertTrue("Wrong stored content", Arrays.equals(stored, (byte[]) invoke(image, "getEntry", String.class, "p/stored.txt")));
+		assertTrue("Wrong deflated content", Arrays.equals(deflated, (byte[]) invoke(image, "getEntry", String.class, "p/deflated.txt")));
+		assertTrue("Wrong stream content", Arrays.equals(deflated, read((InputStream) invoke(image, "getInputStream", String.class, "p/deflated.txt"))));
+	}
+
+	public void testJarImageSigned() throws Exception {
+		Object image= readImage(getLibrary(JavaProjectHelper.MYLIB_SIG));
+		assertEquals("Signed", Boolean.TRUE, invoke(image, "isSigned", null, null));
+	}
+
+	public void testIndexedJar() throws Exception {
+		File library= getLibrary(JavaProjectHelper.MYLIB);
+		assertLookup(createLoader(new File[] { library }, true), library);
+	}
+
+	public void testUnindexedJar() throws Exception {
+		File library= getLibrary(JavaProjectHelper.MYLIB);
+		assertLookup(createLoader(new File[] { library }, false), library);
+	}
+
+	public void testClassPathOrder() throws Exception {
+		File first= getLibrary(JavaProjectHelper.MYLIB_STDOUT);
+		File second= getLibrary(JavaProjectHelper.MYLIB);
+		ClassLoader loader= createLoader(new File[] { first, second }, true);
+		assertTrue("Wrong library", Arrays.equals(readEntry(first, "mylib/Foo.class"), read(loader.getResourceAsStream("mylib/Foo.class"))));
+		int count= 0;
+		for (Enumeration<URL> resources= loader.getResources("mylib/Foo.class"); resources.hasMoreElements(); resources.nextElement())
+			count++;
+		assertEquals("Wrong number of resources", 2, count);
+	}
+
+	public void testSignedJar() throws Exception {
+		File library= getLibrary(JavaProjectHelper.MYLIB_SIG_SHA256);
+		ClassLoader loader= createLoader(new File[] { library }, true);
+		assertLookup(loader, library);
+		Class<?> foo= loader.loadClass("mylib.Foo");
+		Certificate[] certificates= foo.getProtectionDomain().getCodeSource().getCertificates();
+		assertNotNull("Certificates expected", certificates);
+		assertTrue("Certificates expected", certificates.length > 0);
+		assertNotNull("Signers expected", foo.getSigners());
+	}
+
+	public void testSignedJarUnindexed() throws Exception {
+		File library= getLibrary(JavaProjectHelper.MYLIB_SIG_SHA256);
+		Class<?> foo= createLoader(new File[] { library }, false).loadClass("mylib.Foo");
+		assertNotNull("Signers expected", foo.getSigners());
+	}
+}
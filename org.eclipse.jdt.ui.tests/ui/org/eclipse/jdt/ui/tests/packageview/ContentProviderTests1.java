@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,12 @@
  *******************************************************************************/
 package org.eclipse.jdt.ui.tests.packageview;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -26,6 +32,8 @@ import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.IWorkspaceDescription;
 import org.eclipse.core.resources.ResourcesPlugin;
 
+import org.eclipse.text.tests.Accessor;
+
 import org.eclipse.jface.viewers.ITreeContentProvider;
 
 import org.eclipse.ui.IViewPart;
@@ -43,6 +51,7 @@ import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
 
+import org.eclipse.jdt.internal.ui.packageview.PackageExplorerContentProvider;
 import org.eclipse.jdt.internal.ui.util.CoreUtility;
 import org.eclipse.jdt.internal.ui.wizards.buildpaths.CPListElement;
 
@@ -196,6 +205,170 @@ public class ContentProviderTests1 extends TestCase {
 		assertEquals("No refreshes", 0, fMyPart.getRefreshedObject().size());//$NON-NLS-1$
 	}
 
+	public void testTreeOperationCount() throws Exception {
+		PackageExplorerContentProvider provider= (PackageExplorerContentProvider) fProvider;
+		int deltas= provider.getProcessedDeltaCount();
+		int operations= provider.getTreeOperationCount();
+
+		IElementChangedListener listener= (IElementChangedListener) fProvider;
+		IJavaElementDelta delta= TestDelta.createDelta(fPack2, IJavaElementDelta.REMOVED);
+		listener.elementChanged(new ElementChangedEvent(delta, ElementChangedEvent.POST_CHANGE));
+
+		//force events from display
+		while(fMyPart.getTreeViewer().getControl().getDisplay().readAndDispatch()) {}
+
+		assertTrue("Deltas processed", provider.getProcessedDeltaCount() > deltas); //$NON-NLS-1$
+		assertEquals("One tree operation", operations + 1, provider.getTreeOperationCount()); //$NON-NLS-1$
+	}
+
+	private Accessor getProviderAccessor() {
+		return new Accessor(fProvider, PackageExplorerContentProvider.class);
+	}
+
+	private void postRefresh(Object element, Collection<Runnable> runnables) {
+		getProviderAccessor().invoke("postRefresh", new Class[] { List.class, boolean.class, Collection.class }, new Object[] { Collections.singletonList(element), Boolean.TRUE, runnables }); //$NON-NLS-1$
+	}
+
+	private void postAdd(Object parent, Object element, Collection<Runnable> runnables) {
+		getProviderAccessor().invoke("postAdd", new Class[] { Object.class, Object.class, Collection.class }, new Object[] { parent, element, runnables }); //$NON-NLS-1$
+	}
+
+	private void postRemove(Object element, Collection<Runnable> runnables) {
+		getProviderAccessor().invoke("postRemove", new Class[] { Object.class, Collection.class }, new Object[] { element, runnables }); //$NON-NLS-1$
+	}
+
+	/**
+	 * Creates an update that is not a tree operation, it only records that it has run.
+	 *
+	 * @param name the name of the update
+	 * @param sleep the time in milliseconds the update takes
+	 * @return the update
+	 */
+	private Runnable createUpdate(final String name, final long sleep) {
+		final List<String> operations= fMyPart.getOperations();
+		return new Runnable() {
+			@Override
+			public void run() {
+				operations.add("run " + name); //$NON-NLS-1$
+				if (sleep > 0) {
+					try {
+						Thread.sleep(sleep);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
+		};
+	}
+
+	private void runUpdates(Collection<Runnable> runnables) {
+		getProviderAccessor().set("fPendingUpdates", runnables); //$NON-NLS-1$
+		((PackageExplorerContentProvider) fProvider).runPendingUpdates();
+	}
+
+	public void testCoalesceAddAndRemove() throws Exception {
+		List<Runnable> runnables= new ArrayList<>();
+		postAdd("parent", "a", runnables); //$NON-NLS-1$ //$NON-NLS-2$
+		postRemove("a", runnables); //$NON-NLS-1$
+		postRemove("b", runnables); //$NON-NLS-1$
+		postAdd("parent", "b", runnables); //$NON-NLS-1$ //$NON-NLS-2$
+		runUpdates(runnables);
+
+		// the last operation on an element wins
+		assertEquals(Arrays.asList("remove a", "add b to parent"), fMyPart.getOperations()); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testCoalesceBelowRefresh() throws Exception {
+		List<Runnable> runnables= new ArrayList<>();
+		postRemove(fCUAllTests, runnables);
+		postRefresh(fPackJunitSamples, runnables);
+		postRefresh(fCUVectorTest, runnables);
+		postAdd(fPackJunitSamples, fCUSimpleTest, runnables);
+		postRefresh(fPackJunitSamples, runnables);
+		runUpdates(runnables);
+
+		// the refresh of the package covers the updates of its children
+		assertEquals(Collections.singletonList("refresh " + fPackJunitSamples), fMyPart.getOperations()); //$NON-NLS-1$
+	}
+
+	public void testCoalesceInArrivalOrder() throws Exception {
+		List<Runnable> runnables= new ArrayList<>();
+		postRemove("a", runnables); //$NON-NLS-1$
+		runnables.add(createUpdate("r1", 0)); //$NON-NLS-1$
+		postAdd("parent", "b", runnables); //$NON-NLS-1$ //$NON-NLS-2$
+		postAdd("parent", "c", runnables); //$NON-NLS-1$ //$NON-NLS-2$
+		postRefresh("d", runnables); //$NON-NLS-1$
+		postRemove("e", runnables); //$NON-NLS-1$
+		postRemove("f", runnables); //$NON-NLS-1$
+		runnables.add(createUpdate("r2", 0)); //$NON-NLS-1$
+		runUpdates(runnables);
+
+		// consecutive operations of the same kind are merged
+		List<String> expected= Arrays.asList(
+				"remove a", //$NON-NLS-1$
+				"run r1", //$NON-NLS-1$
+				"add [b, c] to parent", //$NON-NLS-1$
+				"refresh d", //$NON-NLS-1$
+				"remove [e, f]", //$NON-NLS-1$
+				"run r2"); //$NON-NLS-1$
+		assertEquals(expected, fMyPart.getOperations());
+	}
+
+	public void testStructuralRefreshThreshold() throws Exception {
+		int threshold= getProviderAccessor().getInt("STRUCTURAL_REFRESH_THRESHOLD"); //$NON-NLS-1$
+		Object input= fMyPart.getTreeViewer().getInput();
+
+		List<Runnable> runnables= new ArrayList<>();
+		runnables.add(createUpdate("first", 0)); //$NON-NLS-1$
+		for (int i= 0; i < threshold; i++)
+			postRemove("e" + i, runnables); //$NON-NLS-1$
+		runUpdates(runnables);
+
+		List<String> operations= fMyPart.getOperations();
+		assertEquals(2, operations.size());
+		assertEquals("run first", operations.get(0)); //$NON-NLS-1$
+		assertTrue(operations.get(1), operations.get(1).startsWith("remove [e0, ")); //$NON-NLS-1$
+		assertEquals(threshold, fMyPart.getRemovedObjects().size());
+
+		fMyPart.clear();
+		runnables= new ArrayList<>();
+		runnables.add(createUpdate("first", 0)); //$NON-NLS-1$
+		for (int i= 0; i <= threshold; i++)
+			postRemove("e" + i, runnables); //$NON-NLS-1$
+		runnables.add(createUpdate("last", 0)); //$NON-NLS-1$
+		runUpdates(runnables);
+
+		// above the threshold, the input is refreshed where the first tree operation was
+		assertEquals(Arrays.asList("run first", "refresh " + input, "run last"), fMyPart.getOperations()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	public void testUpdateTimeBudget() throws Exception {
+		Accessor accessor= getProviderAccessor();
+		long budget= ((Long) accessor.get("UPDATE_TIME_BUDGET")).longValue(); //$NON-NLS-1$
+		int count= 4;
+		List<Runnable> runnables= new ArrayList<>();
+		List<String> expected= new ArrayList<>();
+		for (int i= 0; i < count; i++) {
+			runnables.add(createUpdate("slow" + i, budget / 2 + 5)); //$NON-NLS-1$
+			expected.add("run slow" + i); //$NON-NLS-1$
+		}
+		accessor.set("fPendingUpdates", runnables); //$NON-NLS-1$
+		accessor.invoke("runPendingUpdates", new Class[] { long.class }, new Object[] { Long.valueOf(budget) }); //$NON-NLS-1$
+
+		// no update is started once the budget is used up, the others are pending
+		int run= fMyPart.getOperations().size();
+		assertTrue("run " + run, run >= 1 && run < count); //$NON-NLS-1$
+		@SuppressWarnings("unchecked")
+		Collection<Runnable> pending= (Collection<Runnable>) accessor.get("fPendingUpdates"); //$NON-NLS-1$
+		assertEquals(count - run, pending.size());
+
+		// updates that arrive in the meantime run after the remaining ones
+		pending.add(createUpdate("late", 0)); //$NON-NLS-1$
+		expected.add("run late"); //$NON-NLS-1$
+		((PackageExplorerContentProvider) fProvider).runPendingUpdates();
+		assertEquals(expected, fMyPart.getOperations());
+	}
+
 	public void testAddBottomLevelFragment() throws Exception {
 		IPackageFragment test= fRoot1.createPackageFragment("test", true, null);//$NON-NLS-1$
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,6 +12,7 @@
 package org.eclipse.jdt.ui.tests.packageview;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.eclipse.swt.SWT;
@@ -44,6 +45,7 @@ public class MockPluginView extends PackageExplorerPart {
 
 	private final List<Object> fRefreshedObjects;
 	private final List<Object> fRemovedObjects;
+	private final List<String> fOperations;
 
 	private Object fAddedObject;
 	private Object fAddedParentObject;
@@ -55,6 +57,7 @@ public class MockPluginView extends PackageExplorerPart {
 		super();
 		fRefreshedObjects= new ArrayList<>();
 		fRemovedObjects= new ArrayList<>();
+		fOperations= new ArrayList<>();
 	}
 
 	/**
@@ -114,18 +117,28 @@ public class MockPluginView extends PackageExplorerPart {
 		public void refresh(Object object){
 			fRefreshHappened= true;
 			fRefreshedObjects.add(object);
+			fOperations.add("refresh " + object); //$NON-NLS-1$
 		}
 
 		@Override
 		public void refresh(final Object element, final boolean updateLabels) {
 			fRefreshHappened= true;
 			fRefreshedObjects.add(element);
+			fOperations.add("refresh " + element); //$NON-NLS-1$
 		}
 
 		@Override
 		public void remove(Object object) {
 			fRemoveHappened= true;
 			fRemovedObjects.add(object);
+			fOperations.add("remove " + object); //$NON-NLS-1$
+		}
+
+		@Override
+		public void remove(Object... objects) {
+			fRemoveHappened= true;
+			fRemovedObjects.addAll(Arrays.asList(objects));
+			fOperations.add("remove " + Arrays.asList(objects)); //$NON-NLS-1$
 		}
 
 		@Override
@@ -133,6 +146,15 @@ public class MockPluginView extends PackageExplorerPart {
 			fAddHappened= true;
 			fAddedObject= object;
 			fAddedParentObject= parentObject;
+			fOperations.add("add " + object + " to " + parentObject); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		@Override
+		public void add(Object parentObject, Object... objects) {
+			fAddHappened= true;
+			fAddedObject= objects[objects.length - 1];
+			fAddedParentObject= parentObject;
+			fOperations.add("add " + Arrays.asList(objects) + " to " + parentObject); //$NON-NLS-1$ //$NON-NLS-2$
 		}
 		
 		@Override
@@ -202,6 +224,15 @@ public class MockPluginView extends PackageExplorerPart {
 		return fRefreshHappened;
 	}
 
+	/**
+	 * Returns the refreshes, additions and removals of the viewer, in the order they happened.
+	 *
+	 * @return the operations, as strings
+	 */
+	public List<String> getOperations() {
+		return fOperations;
+	}
+
 	/**
 	 * Sets the folding preference.
 	 * 
@@ -217,6 +248,7 @@ public class MockPluginView extends PackageExplorerPart {
 	public void clear() {
 		fRefreshedObjects.clear();
 		fRemovedObjects.clear();
+		fOperations.clear();
 		fAddHappened= false;
 		fRemoveHappened= false;
 		fRefreshHappened= false;
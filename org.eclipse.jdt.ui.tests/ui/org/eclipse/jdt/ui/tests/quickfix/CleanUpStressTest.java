@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -5254,6 +5254,14 @@ public class CleanUpStressTest extends CleanUpTestCase {
     }
 
 	public void testAllCleanUps() throws Exception {
+		performAllCleanUps(1);
+	}
+
+	public void testAllCleanUpsInParallel() throws Exception {
+		performAllCleanUps(4);
+	}
+
+	private void performAllCleanUps(int parallelism) throws Exception {
 		List<IJavaElement> cus= new ArrayList<>();
 		addAllCUs(fJProject1.getChildren(), cus);
 
@@ -5308,7 +5316,7 @@ public class CleanUpStressTest extends CleanUpTestCase {
 		enable(CleanUpConstants.SORT_MEMBERS_ALL);
 
 		ICompilationUnit[] units= cus.toArray(new ICompilationUnit[cus.size()]);
-		performRefactoring(units);
+		performRefactoring(units, parallelism);
 
 
 //		generateTable(units);
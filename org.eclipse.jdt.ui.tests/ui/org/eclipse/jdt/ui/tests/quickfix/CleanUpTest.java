@@ -19,10 +19,14 @@ import java.util.Map;
 import org.eclipse.jdt.testplugin.JavaProjectHelper;
 import org.eclipse.jdt.testplugin.TestOptions;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 
 import org.eclipse.core.resources.IncrementalProjectBuilder;
 
+import org.eclipse.text.tests.Accessor;
+
+import org.eclipse.ltk.core.refactoring.Change;
 import org.eclipse.ltk.core.refactoring.RefactoringStatus;
 import org.eclipse.ltk.core.refactoring.RefactoringStatusEntry;
 
@@ -39,13 +43,17 @@ import org.eclipse.jdt.core.formatter.DefaultCodeFormatterConstants;
 
 import org.eclipse.jdt.internal.corext.dom.IASTSharedValues;
 import org.eclipse.jdt.internal.corext.fix.CleanUpConstants;
+import org.eclipse.jdt.internal.corext.fix.CleanUpRefactoring;
+import org.eclipse.jdt.internal.corext.fix.CleanUpRefactoring.CleanUpTarget;
 import org.eclipse.jdt.internal.corext.refactoring.util.RefactoringASTParser;
 
 import org.eclipse.jdt.ui.PreferenceConstants;
 import org.eclipse.jdt.ui.cleanup.CleanUpOptions;
+import org.eclipse.jdt.ui.cleanup.ICleanUp;
 import org.eclipse.jdt.ui.tests.core.ProjectTestSetup;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.fix.CodeStyleCleanUp;
 import org.eclipse.jdt.internal.ui.fix.Java50CleanUp;
 import org.eclipse.jdt.internal.ui.fix.UnimplementedCodeCleanUp;
 import org.eclipse.jdt.internal.ui.text.correction.ProblemLocation;
@@ -9110,4 +9118,61 @@ public class CleanUpTest extends CleanUpTestCase {
 		assertRefactoringResultAsExpected(new ICompilationUnit[] { cu1, cu2 }, new String[] { expected1, expected2 });
 	}
 
+	public void testProgressWithParallelism() throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		// more than one batch of the AST batch parser, to parse in parallel
+		int count= 60;
+		CleanUpTarget[] targets= new CleanUpTarget[count];
+		for (int i= 0; i < count; i++) {
+			StringBuffer buf= new StringBuffer();
+			buf.append("package test1;\n");
+			buf.append("public class E" + i + " {\n");
+			buf.append("    public static int I;\n");
+			buf.append("    public void foo() {\n");
+			buf.append("        (new E" + i + "()).I= 10;\n");
+			buf.append("    }\n");
+			buf.append("}\n");
+			targets[i]= new CleanUpTarget(pack1.createCompilationUnit("E" + i + ".java", buf.toString(), false, null));
+		}
+
+		Map<String, String> options= new Hashtable<>();
+		options.put(CleanUpConstants.MEMBER_ACCESSES_STATIC_QUALIFY_WITH_DECLARING_CLASS, CleanUpOptions.TRUE);
+		options.put(CleanUpConstants.MEMBER_ACCESSES_STATIC_QUALIFY_WITH_DECLARING_CLASS_INSTANCE_ACCESS, CleanUpOptions.TRUE);
+		ICleanUp[] cleanUps= new ICleanUp[] { new CodeStyleCleanUp(options) };
+
+		CleanUpRefactoring refactoring= new CleanUpRefactoring();
+		refactoring.setParallelism(4);
+
+		class WorkCounter extends NullProgressMonitor {
+			private double fWork;
+
+			@Override
+			public synchronized void worked(int work) {
+				fWork+= work;
+			}
+
+			@Override
+			public synchronized void internalWorked(double work) {
+				fWork+= work;
+			}
+
+			public synchronized double getWork() {
+				return fWork;
+			}
+		}
+		WorkCounter monitor= new WorkCounter();
+
+		// the iterator reports one unit of work per compilation unit to the given monitor
+		Accessor iterator= new Accessor(CleanUpRefactoring.class.getName() + "$CleanUpFixpointIterator", CleanUpRefactoring.class.getClassLoader(),
+				new Class[] { CleanUpRefactoring.class, CleanUpTarget[].class, ICleanUp[].class }, new Object[] { refactoring, targets, cleanUps });
+		try {
+			while (((Boolean) iterator.invoke("hasNext", new Object[0])).booleanValue())
+				iterator.invoke("next", new Class[] { IProgressMonitor.class }, new Object[] { monitor });
+			assertEquals(count, ((Change[]) iterator.invoke("getResult", new Object[0])).length);
+		} finally {
+			iterator.invoke("dispose", new Object[0]);
+		}
+		assertEquals(count, monitor.getWork(), 0.0001);
+	}
+
 }
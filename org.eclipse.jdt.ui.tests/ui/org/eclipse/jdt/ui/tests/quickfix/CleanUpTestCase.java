@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 IBM Corporation and others.
+ * Copyright (c) 2005, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -219,8 +219,13 @@ public class CleanUpTestCase extends QuickFixTest {
 	}
 
 	protected final RefactoringStatus performRefactoring(ICompilationUnit[] cus) throws CoreException {
+		return performRefactoring(cus, 1);
+	}
+
+	protected final RefactoringStatus performRefactoring(ICompilationUnit[] cus, int parallelism) throws CoreException {
 		final CleanUpRefactoring ref= new CleanUpRefactoring();
 		ref.setUseOptionsFromProfile(true);
+		ref.setParallelism(parallelism);
 		ICleanUp[] cleanUps= JavaPlugin.getDefault().getCleanUpRegistry().createCleanUps();
 
 		return performRefactoring(ref, cus, cleanUps);
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.quickfix;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.Platform;
+
+import org.eclipse.jdt.core.IJavaModelMarker;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.compiler.IProblem;
+
+import org.eclipse.jdt.ui.JavaUI;
+
+import org.eclipse.jdt.internal.ui.text.correction.ConfigureProblemSeveritySubProcessor;
+import org.eclipse.jdt.internal.ui.text.correction.ContributedProcessorDescriptor;
+import org.eclipse.jdt.internal.ui.text.correction.SuppressWarningsSubProcessor;
+import org.eclipse.jdt.internal.ui.text.spelling.JavaSpellingReconcileStrategy;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the remembered <code>hasCorrections</code> answers of the quick fix processors.
+ *
+ * @since 3.14
+ */
+public class ContributedProcessorDescriptorTest extends TestCase {
+
+	private static final Class<ContributedProcessorDescriptorTest> THIS= ContributedProcessorDescriptorTest.class;
+
+	private static final String SPELLING_MARKER= "org.eclipse.jdt.ui.internal.spelling";
+
+	public ContributedProcessorDescriptorTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(THIS);
+	}
+
+	private static ContributedProcessorDescriptor createDescriptor(String id) {
+		IConfigurationElement[] elements= Platform.getExtensionRegistry().getConfigurationElementsFor(JavaUI.ID_PLUGIN, "quickFixProcessors");
+		for (int i= 0; i < elements.length; i++) {
+			if (id.equals(elements[i].getAttribute("id")))
+				return new ContributedProcessorDescriptor(elements[i], true);
+		}
+		fail("no quick fix processor " + id);
+		return null;
+	}
+
+	public void testUnitIndependentAnswers() throws Exception {
+		ContributedProcessorDescriptor descriptor= createDescriptor("org.eclipse.jdt.ui.text.correction.spelling.QuickFixProcessor");
+		int problemId= JavaSpellingReconcileStrategy.SPELLING_PROBLEM_ID;
+
+		assertNull(descriptor.getHasCorrections(problemId, SPELLING_MARKER));
+		descriptor.setHasCorrections(problemId, SPELLING_MARKER, true);
+		descriptor.setHasCorrections(IProblem.UnusedImport, SPELLING_MARKER, false);
+		assertEquals(Boolean.TRUE, descriptor.getHasCorrections(problemId, SPELLING_MARKER));
+		assertEquals(Boolean.FALSE, descriptor.getHasCorrections(IProblem.UnusedImport, SPELLING_MARKER));
+
+		// the answers are kept per marker type
+		assertNull(descriptor.getHasCorrections(problemId, IJavaModelMarker.JAVA_MODEL_PROBLEM_MARKER));
+		assertNull(descriptor.getHasCorrections(problemId, null));
+		descriptor.setHasCorrections(problemId, null, false);
+		assertEquals(Boolean.FALSE, descriptor.getHasCorrections(problemId, null));
+		assertEquals(Boolean.TRUE, descriptor.getHasCorrections(problemId, SPELLING_MARKER));
+	}
+
+	public void testJdtProcessorAnswers() throws Exception {
+		ContributedProcessorDescriptor descriptor= createDescriptor("org.eclipse.jdt.ui.text.correction.QuickFixProcessor");
+
+		descriptor.setHasCorrections(IProblem.UnusedImport, IJavaModelMarker.JAVA_MODEL_PROBLEM_MARKER, true);
+		assertEquals(Boolean.TRUE, descriptor.getHasCorrections(IProblem.UnusedImport, IJavaModelMarker.JAVA_MODEL_PROBLEM_MARKER));
+	}
+
+	public void testJdtProcessorAnswersDoNotDependOnProject() throws Exception {
+		// the only project dependent answer of the JDT quick fix processor is implied by a
+		// configurable severity, which only depends on the problem id
+		IJavaProject project= JavaProjectHelper.createJavaProject("P", "bin");
+		try {
+			Map<String, String> options= project.getOptions(false);
+			JavaProjectHelper.set18CompilerOptions(options);
+			options.put(JavaCore.COMPILER_PB_SUPPRESS_OPTIONAL_ERRORS, JavaCore.ENABLED);
+			project.setOptions(options);
+
+			Field[] fields= IProblem.class.getFields();
+			for (int i= 0; i < fields.length; i++) {
+				if (fields[i].getType() != int.class || !Modifier.isStatic(fields[i].getModifiers()))
+					continue;
+				int problemId= fields[i].getInt(null);
+				if (SuppressWarningsSubProcessor.hasSuppressWarningsProposal(project, problemId))
+					assertTrue(fields[i].getName(), ConfigureProblemSeveritySubProcessor.hasConfigureProblemSeverityProposal(problemId));
+			}
+		} finally {
+			JavaProjectHelper.delete(project);
+		}
+	}
+
+	public void testUnitDependentAnswers() throws Exception {
+		// the example processor does not declare that its answers are independent of the unit
+		ContributedProcessorDescriptor descriptor= createDescriptor("org.eclipse.jdt.ui.examples.MyQuickFixProcessor");
+
+		descriptor.setHasCorrections(IProblem.UnusedImport, IJavaModelMarker.JAVA_MODEL_PROBLEM_MARKER, true);
+		assertNull(descriptor.getHasCorrections(IProblem.UnusedImport, IJavaModelMarker.JAVA_MODEL_PROBLEM_MARKER));
+	}
+}
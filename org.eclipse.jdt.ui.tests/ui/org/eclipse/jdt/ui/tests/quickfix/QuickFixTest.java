@@ -105,6 +105,7 @@ public class QuickFixTest extends TestCase {
 		suite.addTest(AdvancedQuickAssistTest18.suite());
 		suite.addTest(CleanUpTestCase.suite());
 		suite.addTest(QuickFixEnablementTest.suite());
+		suite.addTest(ContributedProcessorDescriptorTest.suite());
 		suite.addTest(SurroundWithTemplateTest.suite());
 		suite.addTest(TypeParameterMismatchTest.suite());
 		suite.addTest(PropertiesFileQuickAssistTest.suite());
@@ -0,0 +1,514 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.callhierarchy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+
+import org.eclipse.jdt.internal.corext.dom.ASTBatchParser;
+
+/**
+ * A workspace wide cache of the callers and callees found for the members shown in call
+ * hierarchies. All {@link MethodWrapper}s share the cache, so expanding the same member in
+ * another branch or in a new hierarchy does not search again.
+ * <p>
+ * Entries are keyed by the handle identifier of the member. Concurrent requests for the same
+ * member wait for a single computation. The children of an expanded node can be prefetched on a
+ * bounded pool, so siblings fill in concurrently while the user looks at the first one.
+ * </p>
+ * <p>
+ * The cache follows the Java element deltas. A changed compilation unit or class file invalidates
+ * the entries with results in it, and the caller entries of all members whose name occurs in its
+ * new source. If the implementor search is enabled, it also invalidates the callee entries with a
+ * result whose name occurs in its new source, since the type root can declare a new implementor.
+ * Changes to projects, roots and packages invalidate the whole cache.
+ * </p>
+ *
+ * @since 3.14
+ */
+public final class CallGraphCache {
+
+	/**
+	 * Maximal number of entries per direction. The cache is emptied when it grows beyond.
+	 */
+	private static final int MAX_ENTRIES= 5000;
+
+	/**
+	 * Maximal number of siblings prefetched for one expanded node. Each prefetch is a search, so
+	 * the limit is kept well below the number of siblings a user typically expands.
+	 */
+	private static final int PREFETCH_LIMIT= 8;
+
+	/**
+	 * Interval in milliseconds in which a thread waiting for another computation checks its
+	 * progress monitor for cancellation.
+	 */
+	private static final long WAIT_INTERVAL= 100;
+
+	private static CallGraphCache fgInstance;
+
+	private final ConcurrentHashMap<String, Entry> fCallers= new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Entry> fCallees= new ConcurrentHashMap<>();
+	private final AtomicInteger fGeneration= new AtomicInteger();
+	private final AtomicInteger fPrefetchGeneration= new AtomicInteger();
+	private final Set<Entry> fPrefetches= ConcurrentHashMap.newKeySet();
+	private final IElementChangedListener fDeltaListener= new CacheDeltaListener();
+	private ThreadPoolExecutor fExecutor;
+	private boolean fDisposed;
+
+	/**
+	 * A cached or running computation of the children of a member.
+	 */
+	private static final class Entry {
+		private final String fKey;
+		private final String fName;
+		private final String fTypeRoot;
+		private final FutureTask<Map<String, MethodCall>> fTask;
+		/**
+		 * Handle identifiers of the type roots the result was found in, computed lazily by the
+		 * delta listener.
+		 */
+		private volatile Set<String> fDependencies;
+		/**
+		 * Names of the members in the result, computed with {@link #fDependencies}.
+		 */
+		private volatile Set<String> fResultNames;
+
+		Entry(final MethodWrapper wrapper, final IProgressMonitor monitor) {
+			fKey= wrapper.getCacheKey();
+			fName= wrapper.getMember().getElementName();
+			ITypeRoot typeRoot= wrapper.getMember().getTypeRoot();
+			fTypeRoot= typeRoot != null ? typeRoot.getHandleIdentifier() : null;
+			fTask= new FutureTask<>(new Callable<Map<String, MethodCall>>() {
+				@Override
+				public Map<String, MethodCall> call() {
+					return Collections.unmodifiableMap(wrapper.findChildren(monitor));
+				}
+			});
+		}
+
+		/**
+		 * Tells whether the entry has to be dropped after the given type root changed.
+		 *
+		 * @param typeRoot the handle identifier of the changed type root
+		 * @param identifiers the identifiers in the new source of the type root, or
+		 *            <code>null</code> if unknown
+		 * @param callers <code>true</code> if the entry holds callers
+		 * @param implementors <code>true</code> if callee entries contain implementors
+		 * @return <code>true</code> if the entry is affected
+		 */
+		boolean isAffectedBy(String typeRoot, Set<String> identifiers, boolean callers, boolean implementors) {
+			if (!fTask.isDone())
+				return true;
+			if (callers && (identifiers == null || identifiers.contains(fName)))
+				return true;
+			Set<String> dependencies= getDependencies();
+			if (dependencies == null || dependencies.contains(typeRoot))
+				return true;
+			// the type root can declare a new implementor of a called method
+			return !callers && implementors && (identifiers == null || !Collections.disjoint(fResultNames, identifiers));
+		}
+
+		private Set<String> getDependencies() {
+			if (fDependencies == null) {
+				Map<String, MethodCall> result;
+				try {
+					result= fTask.get();
+				} catch (ExecutionException e) {
+					return null;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return null;
+				}
+				Set<String> dependencies= new HashSet<>();
+				Set<String> resultNames= new HashSet<>();
+				if (fTypeRoot != null)
+					dependencies.add(fTypeRoot);
+				for (Iterator<MethodCall> iter= result.values().iterator(); iter.hasNext();) {
+					IMember member= iter.next().getMember();
+					resultNames.add(member.getElementName());
+					ITypeRoot typeRoot= member.getTypeRoot();
+					if (typeRoot != null)
+						dependencies.add(typeRoot.getHandleIdentifier());
+				}
+				fResultNames= resultNames;
+				fDependencies= dependencies;
+			}
+			return fDependencies;
+		}
+	}
+
+	/**
+	 * Progress monitor of prefetch computations. It is canceled when the cache is cleared or
+	 * the prefetches are canceled.
+	 */
+	private final class PrefetchMonitor extends NullProgressMonitor {
+		private final int fStartGeneration= fGeneration.get();
+		private final int fStartPrefetchGeneration= fPrefetchGeneration.get();
+
+		@Override
+		public boolean isCanceled() {
+			return fStartGeneration != fGeneration.get() || fStartPrefetchGeneration != fPrefetchGeneration.get();
+		}
+	}
+
+	private class CacheDeltaListener implements IElementChangedListener {
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			List<IJavaElement> changed= new ArrayList<>();
+			if (collectChanges(event.getDelta(), changed)) {
+				clear();
+			} else {
+				for (int i= 0; i < changed.size(); i++)
+					invalidate(changed.get(i));
+			}
+		}
+
+		/**
+		 * Collects the changed compilation units and class files.
+		 *
+		 * @param delta the Java element delta
+		 * @param changed the list to add the changed type roots to
+		 * @return <code>true</code> if the whole cache has to be cleared
+		 */
+		private boolean collectChanges(IJavaElementDelta delta, List<IJavaElement> changed) {
+			IJavaElement element= delta.getElement();
+			int flags= delta.getFlags();
+			boolean isChanged= delta.getKind() == IJavaElementDelta.CHANGED;
+
+			switch (element.getElementType()) {
+				case IJavaElement.JAVA_MODEL:
+					return collectChildrenChanges(delta, changed);
+				case IJavaElement.JAVA_PROJECT:
+					if (!isChanged || (flags & (IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED
+							| IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED)) != 0)
+						return true;
+					return collectChildrenChanges(delta, changed);
+				case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+					if (!isChanged || (flags & (IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+							| IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED)) != 0)
+						return true;
+					return collectChildrenChanges(delta, changed);
+				case IJavaElement.PACKAGE_FRAGMENT:
+					if (!isChanged)
+						return true;
+					return collectChildrenChanges(delta, changed);
+				case IJavaElement.COMPILATION_UNIT:
+				case IJavaElement.CLASS_FILE:
+					if (!isChanged || (flags & (IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_CHILDREN)) != 0)
+						changed.add(element);
+					return false;
+				default:
+					return false;
+			}
+		}
+
+		private boolean collectChildrenChanges(IJavaElementDelta delta, List<IJavaElement> changed) {
+			IJavaElementDelta[] children= delta.getAffectedChildren();
+			for (int i= 0; i < children.length; i++) {
+				if (collectChanges(children[i], changed))
+					return true;
+			}
+			return false;
+		}
+	}
+
+	private CallGraphCache() {
+		JavaCore.addElementChangedListener(fDeltaListener, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+	}
+
+	/**
+	 * Returns the shared call graph cache.
+	 *
+	 * @return the call graph cache
+	 */
+	public static synchronized CallGraphCache getDefault() {
+		if (fgInstance == null)
+			fgInstance= new CallGraphCache();
+		return fgInstance;
+	}
+
+	/**
+	 * Disposes the shared cache if it has been created.
+	 */
+	public static synchronized void shutdown() {
+		if (fgInstance == null)
+			return;
+		JavaCore.removeElementChangedListener(fgInstance.fDeltaListener);
+		fgInstance.dispose();
+		fgInstance= null;
+	}
+
+	private synchronized void dispose() {
+		fDisposed= true;
+		clear();
+		if (fExecutor != null)
+			fExecutor.shutdownNow();
+	}
+
+	/**
+	 * Removes all entries and cancels the running prefetch computations.
+	 */
+	public void clear() {
+		fGeneration.incrementAndGet();
+		fCallers.clear();
+		fCallees.clear();
+	}
+
+	/**
+	 * Removes the caller entries. Used when the search scope or the filters change.
+	 */
+	void clearCallers() {
+		fGeneration.incrementAndGet();
+		fCallers.clear();
+	}
+
+	/**
+	 * Removes the callee entries. Used when the implementor search is switched on or off.
+	 */
+	void clearCallees() {
+		fGeneration.incrementAndGet();
+		fCallees.clear();
+	}
+
+	/**
+	 * Removes the entry of the given method wrapper.
+	 *
+	 * @param wrapper the method wrapper
+	 */
+	void remove(MethodWrapper wrapper) {
+		getEntries(wrapper).remove(wrapper.getCacheKey());
+	}
+
+	/**
+	 * Returns the children of the given method wrapper. Uses the cached result if there is one,
+	 * waits for a computation started by another thread, or computes the children in the calling
+	 * thread.
+	 *
+	 * @param wrapper the method wrapper
+	 * @param monitor the progress monitor, can be <code>null</code>
+	 * @return an unmodifiable map from handle identifier to {@link MethodCall}
+	 * @throws OperationCanceledException if the monitor has been canceled
+	 */
+	Map<String, MethodCall> getCalls(MethodWrapper wrapper, IProgressMonitor monitor) {
+		ConcurrentHashMap<String, Entry> entries= getEntries(wrapper);
+		String key= wrapper.getCacheKey();
+		while (true) {
+			Entry created= null;
+			Entry entry= entries.get(key);
+			if (entry == null) {
+				if (entries.size() >= MAX_ENTRIES)
+					entries.clear();
+				created= new Entry(wrapper, monitor);
+				entry= entries.putIfAbsent(key, created);
+				if (entry == null) {
+					entry= created;
+					created.fTask.run();
+				}
+			}
+			try {
+				return waitFor(entry, monitor);
+			} catch (OperationCanceledException e) {
+				entries.remove(key, entry);
+				if (entry == created || (monitor != null && monitor.isCanceled()))
+					throw e;
+				// the computation of another requester has been canceled: compute again
+			} catch (RuntimeException e) {
+				entries.remove(key, entry);
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Computes the children of the given method wrappers in the background, so that expanding
+	 * them later finds the cached result.
+	 *
+	 * @param wrappers the method wrappers, typically the siblings of an expanded node
+	 * @param maxLevel the deepest level of the wrappers to prefetch
+	 */
+	public void prefetch(MethodWrapper[] wrappers, int maxLevel) {
+		for (Iterator<Entry> iter= fPrefetches.iterator(); iter.hasNext();) {
+			if (iter.next().fTask.isDone())
+				iter.remove();
+		}
+		int count= 0;
+		for (int i= 0; i < wrappers.length && count < PREFETCH_LIMIT; i++) {
+			MethodWrapper wrapper= wrappers[i];
+			if (wrapper.getLevel() > maxLevel || !wrapper.canHaveChildren() || wrapper.isRecursive())
+				continue;
+			ConcurrentHashMap<String, Entry> entries= getEntries(wrapper);
+			String key= wrapper.getCacheKey();
+			if (entries.containsKey(key) || entries.size() >= MAX_ENTRIES)
+				continue;
+			Entry entry= new Entry(wrapper, new PrefetchMonitor());
+			if (entries.putIfAbsent(key, entry) == null) {
+				ThreadPoolExecutor executor= getExecutor();
+				if (executor == null) {
+					entries.remove(key, entry);
+					return;
+				}
+				fPrefetches.add(entry);
+				executor.execute(entry.fTask);
+				count++;
+			}
+		}
+	}
+
+	/**
+	 * Cancels the prefetch computations. Running searches are canceled through their progress
+	 * monitor, the entries of prefetches that have not finished are removed.
+	 */
+	public void cancelPrefetches() {
+		fPrefetchGeneration.incrementAndGet();
+		for (Iterator<Entry> iter= fPrefetches.iterator(); iter.hasNext();) {
+			Entry entry= iter.next();
+			iter.remove();
+			if (!entry.fTask.isDone()) {
+				entry.fTask.cancel(false);
+				fCallers.remove(entry.fKey, entry);
+				fCallees.remove(entry.fKey, entry);
+			}
+		}
+		synchronized (this) {
+			if (fExecutor != null)
+				fExecutor.purge();
+		}
+	}
+
+	private synchronized ThreadPoolExecutor getExecutor() {
+		if (fDisposed)
+			return null;
+		if (fExecutor == null) {
+			int parallelism= ASTBatchParser.getDefaultParallelism();
+			fExecutor= new ThreadPoolExecutor(parallelism, parallelism, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				private final AtomicInteger fCount= new AtomicInteger();
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread= new Thread(runnable, "Call Hierarchy worker " + fCount.incrementAndGet()); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			fExecutor.allowCoreThreadTimeOut(true);
+		}
+		return fExecutor;
+	}
+
+	private ConcurrentHashMap<String, Entry> getEntries(MethodWrapper wrapper) {
+		return wrapper instanceof CallerMethodWrapper ? fCallers : fCallees;
+	}
+
+	private static Map<String, MethodCall> waitFor(Entry entry, IProgressMonitor monitor) {
+		while (true) {
+			try {
+				return entry.fTask.get(WAIT_INTERVAL, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				if (monitor != null && monitor.isCanceled())
+					throw new OperationCanceledException();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new OperationCanceledException();
+			} catch (CancellationException e) {
+				// a prefetch has been canceled before it started
+				throw new OperationCanceledException();
+			} catch (ExecutionException e) {
+				Throwable cause= e.getCause();
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				if (cause instanceof Error)
+					throw (Error) cause;
+				throw new IllegalStateException(cause);
+			}
+		}
+	}
+
+	private void invalidate(IJavaElement typeRoot) {
+		String handle= typeRoot.getHandleIdentifier();
+		Set<String> identifiers= null;
+		if (typeRoot instanceof ICompilationUnit && typeRoot.exists()) {
+			try {
+				String source= ((ICompilationUnit) typeRoot).getSource();
+				if (source != null)
+					identifiers= collectIdentifiers(source);
+			} catch (JavaModelException e) {
+				// unknown source: invalidate all callers
+			}
+		} else if (!typeRoot.exists()) {
+			// a removed type root can only have removed references
+			identifiers= Collections.emptySet();
+		}
+		boolean implementors= CallHierarchy.getDefault().isSearchUsingImplementorsEnabled();
+		invalidate(fCallers, handle, identifiers, true, implementors);
+		invalidate(fCallees, handle, identifiers, false, implementors);
+	}
+
+	private static void invalidate(ConcurrentHashMap<String, Entry> entries, String typeRoot, Set<String> identifiers, boolean callers, boolean implementors) {
+		for (Iterator<Entry> iter= entries.values().iterator(); iter.hasNext();) {
+			if (iter.next().isAffectedBy(typeRoot, identifiers, callers, implementors))
+				iter.remove();
+		}
+	}
+
+	/**
+	 * Collects the Java identifiers in the given source, so that each entry can be checked
+	 * without scanning the source again.
+	 *
+	 * @param source the source
+	 * @return the identifiers, including keywords and identifiers in comments
+	 */
+	static Set<String> collectIdentifiers(String source) {
+		Set<String> identifiers= new HashSet<>();
+		int length= source.length();
+		int i= 0;
+		while (i < length) {
+			if (Character.isJavaIdentifierStart(source.charAt(i))) {
+				int start= i++;
+				while (i < length && Character.isJavaIdentifierPart(source.charAt(i)))
+					i++;
+				identifiers.add(source.substring(start, i));
+			} else {
+				i++;
+			}
+		}
+		return identifiers;
+	}
+}
@@ -16,10 +16,12 @@ package org.eclipse.jdt.internal.corext.callhierarchy;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.StringTokenizer;
 
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.NullProgressMonitor;
 
 import org.eclipse.jface.preference.IPreferenceStore;
@@ -50,6 +52,7 @@ public class CallHierarchy {
     private static final String DEFAULT_IGNORE_FILTERS = "java.*,javax.*"; //$NON-NLS-1$
     private static CallHierarchy fgInstance;
     private IJavaSearchScope fSearchScope;
+    private String fSearchScopeDescription;
     private StringMatcher[] fFilters;
 
     public static CallHierarchy getDefault() {
@@ -70,6 +73,7 @@ public class CallHierarchy {
         IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
 
         settings.setValue(PREF_USE_IMPLEMENTORS, enabled);
+        CallGraphCache.getDefault().clearCallees();
     }
 
     public Collection<IJavaElement> getImplementingMethods(IMethod method) {
@@ -175,7 +179,41 @@ public class CallHierarchy {
     }
 
     public void setSearchScope(IJavaSearchScope searchScope) {
+        setSearchScope(searchScope, null);
+    }
+
+    /**
+     * Sets the search scope for callers. The cached callers are kept if the new scope is equal to
+     * the current one, or if both have the same description and enclose the same projects and
+     * archives. Search scopes created from elements do not implement <code>equals</code>.
+     *
+     * @param searchScope the search scope
+     * @param description the description of the scope, including its include mask, or
+     *            <code>null</code> if not known
+     * @since 3.14
+     */
+    public void setSearchScope(IJavaSearchScope searchScope, String description) {
+        IJavaSearchScope oldScope= getSearchScope();
+        boolean unchanged= oldScope.equals(searchScope)
+                || (description != null && searchScope != null && description.equals(fSearchScopeDescription)
+                        && Arrays.equals(getEnclosingPaths(oldScope), getEnclosingPaths(searchScope)));
+        if (!unchanged) {
+            // cached callers were searched in the old scope
+            CallGraphCache.getDefault().clearCallers();
+        }
         this.fSearchScope = searchScope;
+        this.fSearchScopeDescription= description;
+    }
+
+    private static IPath[] getEnclosingPaths(IJavaSearchScope searchScope) {
+        IPath[] paths= searchScope.enclosingProjectsAndJars().clone();
+        Arrays.sort(paths, new Comparator<IPath>() {
+            @Override
+            public int compare(IPath path1, IPath path2) {
+                return path1.toString().compareTo(path2.toString());
+            }
+        });
+        return paths;
     }
 
 	/**
@@ -207,6 +245,7 @@ public class CallHierarchy {
     public void setFilterEnabled(boolean filterEnabled) {
         IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
         settings.setValue(PREF_USE_FILTERS, filterEnabled);
+        CallGraphCache.getDefault().clear();
     }
 
     /**
@@ -224,6 +263,7 @@ public class CallHierarchy {
 
         IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
         settings.setValue(PREF_FILTERS_LIST, filters);
+        CallGraphCache.getDefault().clear();
     }
 
     /**
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -38,12 +38,6 @@ import org.eclipse.jdt.internal.ui.callhierarchy.MethodWrapperWorkbenchAdapter;
 public abstract class MethodWrapper extends PlatformObject {
     private Map<String, MethodCall> fElements = null;
 
-    /*
-     * A cache of previously found methods. This cache should be searched
-     * before adding a "new" method object reference to the list of elements.
-     * This way previously found methods won't be searched again.
-     */
-    private Map<String, Map<String, MethodCall>> fMethodCache;
     private final MethodCall fMethodCall;
     private final MethodWrapper fParent;
     private int fLevel;
@@ -57,10 +51,8 @@ public abstract class MethodWrapper extends PlatformObject {
         Assert.isNotNull(methodCall);
 
         if (parent == null) {
-            setMethodCache(new HashMap<String, Map<String, MethodCall>>());
             fLevel = 1;
         } else {
-            setMethodCache(parent.getMethodCache());
             fLevel = parent.getLevel() + 1;
         }
 
@@ -197,17 +189,8 @@ public abstract class MethodWrapper extends PlatformObject {
         return result;
     }
 
-    private void setMethodCache(Map<String, Map<String, MethodCall>> methodCache) {
-        fMethodCache = methodCache;
-    }
-
     protected abstract String getTaskName();
 
-    private void addCallToCache(MethodCall methodCall) {
-        Map<String, MethodCall> cachedCalls = lookupMethod(this.getMethodCall());
-        cachedCalls.put(methodCall.getKey(), methodCall);
-    }
-
 	/**
 	 * Creates a method wrapper for the child of the receiver.
 	 * 
@@ -216,28 +199,25 @@ public abstract class MethodWrapper extends PlatformObject {
 	 */
     protected abstract MethodWrapper createMethodWrapper(MethodCall methodCall);
 
+    /**
+     * Finds the children in the shared {@link CallGraphCache}, which searches them only if no
+     * other method wrapper has done so for the same member.
+     *
+     * @param progressMonitor a progress monitor
+     */
     private void doFindChildren(IProgressMonitor progressMonitor) {
-        Map<String, MethodCall> existingResults = lookupMethod(getMethodCall());
-
-        if (existingResults != null && !existingResults.isEmpty()) {
-            fElements = new HashMap<>();
-            fElements.putAll(existingResults);
-        } else {
-            initCalls();
+        if (progressMonitor != null) {
+            progressMonitor.beginTask(getTaskName(), 100);
+        }
 
+        try {
+            fElements = new HashMap<>(CallGraphCache.getDefault().getCalls(this, progressMonitor));
+        } catch (OperationCanceledException e){
+        	fElements= null;
+        	throw e;
+        } finally {
             if (progressMonitor != null) {
-                progressMonitor.beginTask(getTaskName(), 100);
-            }
-
-            try {
-                performSearch(progressMonitor);
-            } catch (OperationCanceledException e){
-            	fElements= null;
-            	throw e;
-            } finally {
-                if (progressMonitor != null) {
-                    progressMonitor.done();
-                }
+                progressMonitor.done();
             }
         }
     }
@@ -279,45 +259,23 @@ public abstract class MethodWrapper extends PlatformObject {
      */
     protected abstract Map<String, MethodCall> findChildren(IProgressMonitor progressMonitor);
 
-    private Map<String, Map<String, MethodCall>> getMethodCache() {
-        return fMethodCache;
-    }
-
-    private void initCalls() {
-        this.fElements = new HashMap<>();
-
-        initCacheForMethod();
-    }
-
     /**
-     * Looks up a previously created search result in the "global" cache.
-     * @param methodCall the method call
-     * @return the List of previously found search results
+     * Returns the key of the children of this method wrapper in the {@link CallGraphCache}.
+     * Field accesses are cached per field search mode.
+     *
+     * @return the cache key
      */
-    private Map<String, MethodCall> lookupMethod(MethodCall methodCall) {
-        return getMethodCache().get(methodCall.getKey());
-    }
-
-    private void performSearch(IProgressMonitor progressMonitor) {
-        fElements = findChildren(progressMonitor);
-
-        for (Iterator<String> iter = fElements.keySet().iterator(); iter.hasNext();) {
-            checkCanceled(progressMonitor);
-
-            MethodCall methodCall = getMethodCallFromMap(fElements, iter.next());
-            addCallToCache(methodCall);
-        }
+    String getCacheKey() {
+        String key= getMethodCall().getKey();
+        if (getMember().getElementType() == IJavaElement.FIELD)
+            return key + '#' + getFieldSearchMode();
+        return key;
     }
 
     private MethodCall getMethodCallFromMap(Map<String, MethodCall> elements, String key) {
         return elements.get(key);
     }
 
-    private void initCacheForMethod() {
-        Map<String, MethodCall> cachedCalls = new HashMap<>();
-        getMethodCache().put(this.getMethodCall().getKey(), cachedCalls);
-    }
-
     /**
      * Checks with the progress monitor to see whether the creation of the type hierarchy
      * should be canceled. Should be regularly called
@@ -367,6 +325,6 @@ public abstract class MethodWrapper extends PlatformObject {
 	 */
 	public void removeFromCache() {
 		fElements= null;
-		fMethodCache.remove(getMethodCall().getKey());
+		CallGraphCache.getDefault().remove(this);
 	}
 }
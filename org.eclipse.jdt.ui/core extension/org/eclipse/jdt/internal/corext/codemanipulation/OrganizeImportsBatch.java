@@ -0,0 +1,287 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.codemanipulation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.TypeNameMatch;
+
+import org.eclipse.jdt.internal.corext.util.TypeNameMatchCollector;
+
+/**
+ * Shared state of organize imports on many compilation units of one project.
+ * <p>
+ * Without a batch, every compilation unit searches the index for its unresolved simple names.
+ * The units of a batch share one type name table instead: each simple name is searched at most
+ * once per batch, and a unit only queries the index for the names no other unit has asked for
+ * before. A unit that needs a name another unit is searching for waits for that search. The
+ * batch also adds up the time that the units spend in each phase of organize imports.
+ * </p>
+ * <p>
+ * A batch may be used by several threads at the same time. It does not follow changes to the Java
+ * model and should be discarded when the operation that created it is done.
+ * </p>
+ *
+ * @see OrganizeImportsOperation#setBatch(OrganizeImportsBatch)
+ * @since 3.14
+ */
+public class OrganizeImportsBatch {
+
+	/**
+	 * Phase that finds the type references of a compilation unit and the types they resolve to.
+	 */
+	public static final int PHASE_COLLECT= 0;
+
+	/**
+	 * Phase that looks up the unresolved simple names and adds the static imports.
+	 */
+	public static final int PHASE_RESOLVE= 1;
+
+	/**
+	 * Phase that computes the edit of the import declarations.
+	 */
+	public static final int PHASE_REWRITE= 2;
+
+	private static final String[] PHASE_NAMES= { "collect", "resolve", "rewrite" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+	/**
+	 * The interval in milliseconds in which a unit waiting for the search of another unit checks
+	 * its progress monitor for cancellation.
+	 */
+	private static final long CANCEL_CHECK_INTERVAL= 100;
+
+	private final IJavaProject fProject;
+	private final IJavaSearchScope fScope;
+
+	/**
+	 * The mapping from simple names to the search that looks them up. A search answers a mapping
+	 * from the names it was issued for to unmodifiable lists of the types found. Failed searches
+	 * are removed, so that their names are searched again.
+	 */
+	private final ConcurrentHashMap<String, FutureTask<Map<String, List<TypeNameMatch>>>> fTypes= new ConcurrentHashMap<>();
+
+	private final AtomicLong[] fPhaseTimes;
+	private final AtomicInteger fUnitCount= new AtomicInteger();
+	private final AtomicInteger fSearchCount= new AtomicInteger();
+
+	/**
+	 * Creates a new batch.
+	 *
+	 * @param project the project of all compilation units in the batch
+	 */
+	public OrganizeImportsBatch(IJavaProject project) {
+		fProject= project;
+		fScope= SearchEngine.createJavaSearchScope(new IJavaElement[] { project });
+		fPhaseTimes= new AtomicLong[PHASE_NAMES.length];
+		for (int i= 0; i < fPhaseTimes.length; i++) {
+			fPhaseTimes[i]= new AtomicLong();
+		}
+	}
+
+	public IJavaProject getProject() {
+		return fProject;
+	}
+
+	/**
+	 * Finds the types with the given simple names on the class path of the project. Names that
+	 * have been looked up before in this batch are answered from the table, all others are searched
+	 * with a single query. Names that another unit is searching for at the same time are not
+	 * searched again, but the result of that search is awaited.
+	 *
+	 * @param simpleNames the simple names
+	 * @param monitor the progress monitor
+	 * @return the types found, in no particular order
+	 * @throws JavaModelException if the search fails
+	 * @throws OperationCanceledException if the search or the waiting unit has been canceled
+	 */
+	public List<TypeNameMatch> findTypes(Collection<String> simpleNames, final IProgressMonitor monitor) throws JavaModelException {
+		final List<String> missing= new ArrayList<>();
+		FutureTask<Map<String, List<TypeNameMatch>>> search= new FutureTask<>(new Callable<Map<String, List<TypeNameMatch>>>() {
+			@Override
+			public Map<String, List<TypeNameMatch>> call() throws JavaModelException {
+				return searchTypes(missing, monitor);
+			}
+		});
+		Map<String, FutureTask<Map<String, List<TypeNameMatch>>>> searches= new LinkedHashMap<>();
+		for (Iterator<String> iter= simpleNames.iterator(); iter.hasNext();) {
+			String name= iter.next();
+			if (searches.containsKey(name))
+				continue;
+			FutureTask<Map<String, List<TypeNameMatch>>> pending= fTypes.putIfAbsent(name, search);
+			if (pending == null) {
+				missing.add(name);
+				searches.put(name, search);
+			} else {
+				searches.put(name, pending);
+			}
+		}
+
+		if (!missing.isEmpty()) {
+			search.run();
+			boolean succeeded= false;
+			try {
+				getResult(search, null);
+				succeeded= true;
+			} finally {
+				if (!succeeded) {
+					for (int i= 0; i < missing.size(); i++) {
+						fTypes.remove(missing.get(i), search);
+					}
+				}
+			}
+		}
+
+		List<TypeNameMatch> result= new ArrayList<>();
+		for (Iterator<Entry<String, FutureTask<Map<String, List<TypeNameMatch>>>>> iter= searches.entrySet().iterator(); iter.hasNext();) {
+			Entry<String, FutureTask<Map<String, List<TypeNameMatch>>>> entry= iter.next();
+			result.addAll(getResult(entry.getValue(), monitor).get(entry.getKey()));
+		}
+		return result;
+	}
+
+	private Map<String, List<TypeNameMatch>> searchTypes(List<String> simpleNames, IProgressMonitor monitor) throws JavaModelException {
+		char[][] allTypes= new char[simpleNames.size()][];
+		Map<String, List<TypeNameMatch>> found= new HashMap<>();
+		for (int i= 0; i < allTypes.length; i++) {
+			String name= simpleNames.get(i);
+			allTypes[i]= name.toCharArray();
+			found.put(name, new ArrayList<TypeNameMatch>(1));
+		}
+		List<TypeNameMatch> typesFound= new ArrayList<>();
+		new SearchEngine().searchAllTypeNames(null, allTypes, fScope, new TypeNameMatchCollector(typesFound), IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, monitor);
+		fSearchCount.incrementAndGet();
+
+		for (int i= 0; i < typesFound.size(); i++) {
+			TypeNameMatch curr= typesFound.get(i);
+			List<TypeNameMatch> types= found.get(curr.getSimpleTypeName());
+			if (types != null)
+				types.add(curr);
+		}
+		for (Iterator<Entry<String, List<TypeNameMatch>>> iter= found.entrySet().iterator(); iter.hasNext();) {
+			Entry<String, List<TypeNameMatch>> entry= iter.next();
+			entry.setValue(Collections.unmodifiableList(entry.getValue()));
+		}
+		return found;
+	}
+
+	/**
+	 * Waits for the result of a search.
+	 *
+	 * @param search the search
+	 * @param monitor the progress monitor of the waiting unit, or <code>null</code>
+	 * @return the types found by the search, by simple name
+	 * @throws JavaModelException if the search has failed
+	 * @throws OperationCanceledException if the search or the waiting unit has been canceled
+	 */
+	private static Map<String, List<TypeNameMatch>> getResult(FutureTask<Map<String, List<TypeNameMatch>>> search, IProgressMonitor monitor) throws JavaModelException {
+		boolean interrupted= false;
+		try {
+			while (true) {
+				if (monitor != null && monitor.isCanceled())
+					throw new OperationCanceledException();
+				try {
+					return search.get(CANCEL_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					// check for cancellation
+				} catch (InterruptedException e) {
+					interrupted= true;
+				}
+			}
+		} catch (ExecutionException e) {
+			Throwable cause= e.getCause();
+			if (cause instanceof JavaModelException)
+				throw (JavaModelException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException(cause);
+		} finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Records the times a compilation unit has spent in the phases of organize imports.
+	 *
+	 * @param collectTime the nanoseconds spent in {@link #PHASE_COLLECT}
+	 * @param resolveTime the nanoseconds spent in {@link #PHASE_RESOLVE}
+	 * @param rewriteTime the nanoseconds spent in {@link #PHASE_REWRITE}
+	 */
+	public void addUnit(long collectTime, long resolveTime, long rewriteTime) {
+		fPhaseTimes[PHASE_COLLECT].addAndGet(collectTime);
+		fPhaseTimes[PHASE_RESOLVE].addAndGet(resolveTime);
+		fPhaseTimes[PHASE_REWRITE].addAndGet(rewriteTime);
+		fUnitCount.incrementAndGet();
+	}
+
+	/**
+	 * Returns the time all compilation units have spent in a phase. If units are processed in
+	 * parallel, this is more than the elapsed time.
+	 *
+	 * @param phase one of the <code>PHASE_*</code> constants
+	 * @return the time in milliseconds
+	 */
+	public long getTime(int phase) {
+		return fPhaseTimes[phase].get() / 1000000;
+	}
+
+	/**
+	 * @return the number of compilation units recorded with {@link #addUnit(long, long, long)}
+	 */
+	public int getUnitCount() {
+		return fUnitCount.get();
+	}
+
+	/**
+	 * @return the number of index queries issued by {@link #findTypes(Collection, IProgressMonitor)}
+	 */
+	public int getSearchCount() {
+		return fSearchCount.get();
+	}
+
+	@Override
+	public String toString() {
+		StringBuffer buf= new StringBuffer();
+		buf.append("Organize imports of ").append(getUnitCount()).append(" compilation units in ").append(fProject.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
+		buf.append(", ").append(getSearchCount()).append(" searches for ").append(fTypes.size()).append(" names:"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for (int i= 0; i < PHASE_NAMES.length; i++) {
+			buf.append("\n\t").append(PHASE_NAMES[i]).append(": ").append(getTime(i)).append(" ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		return buf.toString();
+	}
+}
@@ -230,13 +230,16 @@ public class OrganizeImportsOperation implements IWorkspaceRunnable {
 		private TypeNameMatch[][] fOpenChoices;
 		private SourceRange[] fSourceRanges;
 
+		private final OrganizeImportsBatch fBatch;
 
-		public TypeReferenceProcessor(Set<String> oldSingleImports, Set<String> oldDemandImports, CompilationUnit root, ImportRewrite impStructure, boolean ignoreLowerCaseNames, UnresolvableImportMatcher unresolvableImportMatcher) {
+
+		public TypeReferenceProcessor(Set<String> oldSingleImports, Set<String> oldDemandImports, CompilationUnit root, ImportRewrite impStructure, boolean ignoreLowerCaseNames, UnresolvableImportMatcher unresolvableImportMatcher, OrganizeImportsBatch batch) {
 			fOldSingleImports= oldSingleImports;
 			fOldDemandImports= oldDemandImports;
 			fImpStructure= impStructure;
 			fDoIgnoreLowerCaseNames= ignoreLowerCaseNames;
 			fUnresolvableImportMatcher= unresolvableImportMatcher;
+			fBatch= batch;
 
 			ICompilationUnit cu= impStructure.getCompilationUnit();
 
@@ -342,20 +345,25 @@ public class OrganizeImportsOperation implements IWorkspaceRunnable {
 				if (nUnresolved == 0) {
 					return false;
 				}
-				char[][] allTypes= new char[nUnresolved][];
-				int i= 0;
-				for (Iterator<String> iter= fUnresolvedTypes.keySet().iterator(); iter.hasNext();) {
-					allTypes[i++]= iter.next().toCharArray();
-				}
-				final ArrayList<TypeNameMatch> typesFound= new ArrayList<>();
 				final IJavaProject project= fCurrPackage.getJavaProject();
-				IJavaSearchScope scope= SearchEngine.createJavaSearchScope(new IJavaElement[] { project });
-				TypeNameMatchCollector collector= new TypeNameMatchCollector(typesFound);
-				new SearchEngine().searchAllTypeNames(null, allTypes, scope, collector, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, monitor);
+				final List<TypeNameMatch> typesFound;
+				if (fBatch != null && fBatch.getProject().equals(project)) {
+					typesFound= fBatch.findTypes(fUnresolvedTypes.keySet(), monitor);
+				} else {
+					char[][] allTypes= new char[nUnresolved][];
+					int i= 0;
+					for (Iterator<String> iter= fUnresolvedTypes.keySet().iterator(); iter.hasNext();) {
+						allTypes[i++]= iter.next().toCharArray();
+					}
+					typesFound= new ArrayList<>();
+					IJavaSearchScope scope= SearchEngine.createJavaSearchScope(new IJavaElement[] { project });
+					TypeNameMatchCollector collector= new TypeNameMatchCollector(typesFound);
+					new SearchEngine().searchAllTypeNames(null, allTypes, scope, collector, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, monitor);
+				}
 
 				boolean is50OrHigher= JavaModelUtil.is50OrHigher(project);
 
-				for (i= 0; i < typesFound.size(); i++) {
+				for (int i= 0; i < typesFound.size(); i++) {
 					TypeNameMatch curr= typesFound.get(i);
 					UnresolvedTypeData data= fUnresolvedTypes.get(curr.getSimpleTypeName());
 					if (data != null && isVisible(curr) && isOfKind(curr, data.typeKinds, is50OrHigher)) {
@@ -504,6 +512,8 @@ public class OrganizeImportsOperation implements IWorkspaceRunnable {
 
 	private final boolean fAllowSyntaxErrors;
 
+	private OrganizeImportsBatch fBatch;
+
 	public OrganizeImportsOperation(ICompilationUnit cu, CompilationUnit astRoot, boolean ignoreLowerCaseNames, boolean save, boolean allowSyntaxErrors, IChooseImportQuery chooseImportQuery) {
 		fCompilationUnit= cu;
 		fASTRoot= astRoot;
@@ -519,6 +529,18 @@ public class OrganizeImportsOperation implements IWorkspaceRunnable {
 		fParsingError= null;
 	}
 
+	/**
+	 * Makes this operation share the type lookup of other operations on compilation units of the
+	 * same project, and record its phase times in the batch.
+	 *
+	 * @param batch the batch, or <code>null</code> to search the unresolved types of this
+	 *            compilation unit on its own
+	 * @since 3.14
+	 */
+	public void setBatch(OrganizeImportsBatch batch) {
+		fBatch= batch;
+	}
+
 	/**
 	 * Runs the operation.
 	 * @param monitor the progress monitor
@@ -553,6 +575,7 @@ public class OrganizeImportsOperation implements IWorkspaceRunnable {
 
 			monitor.beginTask(Messages.format(CodeGenerationMessages.OrganizeImportsOperation_description, BasicElementLabels.getFileName(fCompilationUnit)), 9);
 
+			long collectStart= System.nanoTime();
 			CompilationUnit astRoot= fASTRoot;
 			if (astRoot == null) {
 				astRoot= SharedASTProvider.getAST(fCompilationUnit, SharedASTProvider.WAIT_YES, new SubProgressMonitor(monitor, 2));
@@ -583,7 +606,8 @@ public class OrganizeImportsOperation implements IWorkspaceRunnable {
 					astRoot,
 					importsRewrite,
 					fIgnoreLowerCaseNames,
-					unresolvableImportMatcher);
+					unresolvableImportMatcher,
+					fBatch);
 
 			Iterator<SimpleName> refIterator= typeReferences.iterator();
 			while (refIterator.hasNext()) {
@@ -591,8 +615,10 @@ public class OrganizeImportsOperation implements IWorkspaceRunnable {
 				processor.add(typeRef);
 			}
 
+			long resolveStart= System.nanoTime();
 			boolean hasOpenChoices= processor.process(new SubProgressMonitor(monitor, 3));
 			addStaticImports(staticReferences, importsRewrite, unresolvableImportMatcher);
+			long resolveEnd= System.nanoTime();
 
 			if (hasOpenChoices && fChooseImportQuery != null) {
 				TypeNameMatch[][] choices= processor.getChoices();
@@ -619,10 +645,16 @@ public class OrganizeImportsOperation implements IWorkspaceRunnable {
 				}
 			}
 
+			long rewriteStart= System.nanoTime();
 			TextEdit result= importsRewrite.rewriteImports(new SubProgressMonitor(monitor, 3));
 
 			determineImportDifferences(importsRewrite, oldSingleImports, oldDemandImports);
 
+			if (fBatch != null) {
+				// the time spent in the choose import query is not counted
+				fBatch.addUnit(resolveStart - collectStart, resolveEnd - resolveStart, System.nanoTime() - rewriteStart);
+			}
+
 			return result;
 		} finally {
 			monitor.done();
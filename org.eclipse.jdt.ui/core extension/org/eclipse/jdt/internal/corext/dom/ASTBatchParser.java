@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 IBM Corporation and others.
+ * Copyright (c) 2007, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,35 +16,117 @@ import java.util.Collection;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SubProgressMonitor;
 
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.ASTRequestor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.IBinding;
 
 /**
  * Creates AST from a set of compilation units. Uses the
  * batch parser. Splits the set of compilation units in subsets
  * such that it is unlikely that a out of memory exception will occur.
+ * <p>
+ * The size of a subset is computed from the heap headroom that is available
+ * at the time the subset is parsed. If the parser is created with a parallelism
+ * greater than 1, subsets (of the same or of different projects) are parsed
+ * concurrently on a bounded set of worker threads. The requestor is nevertheless
+ * always called in the thread that invoked {@link #createASTs(ICompilationUnit[], String[], ASTRequestor, IProgressMonitor)},
+ * one AST at a time and subset after subset, while the worker that created the AST waits.
+ * Requestors therefore do not need to be thread safe, and at most one pending AST per
+ * worker is kept in memory.
+ * Thread safe requestors can instead be called directly in the worker threads, see
+ * {@link #ASTBatchParser(int, boolean)}.
+ * </p>
  *
  * @since 3.4
  */
 public class ASTBatchParser {
 
-	private static final int MAX_AT_ONCE;
-	static {
-		long maxMemory= Runtime.getRuntime().maxMemory() / (1 << 20); // in MiB
-		
-		if      (maxMemory >= 2000) MAX_AT_ONCE= 400;
-		else if (maxMemory >= 1500) MAX_AT_ONCE= 300;
-		else if (maxMemory >= 1000) MAX_AT_ONCE= 200;
-		else if (maxMemory >=  500) MAX_AT_ONCE= 100;
-		else                        MAX_AT_ONCE=  25;
+	/**
+	 * Estimated heap consumption per compilation unit in a batch (in MiB).
+	 */
+	private static final int MIB_PER_UNIT= 5;
+
+	private static final int MIN_AT_ONCE= 25;
+	private static final int MAX_AT_ONCE= 400;
+
+	/**
+	 * The worker threads shared by all parsers, created on first use.
+	 */
+	private static ThreadPoolExecutor fgExecutor;
+
+	private final int fParallelism;
+	private final boolean fConcurrentRequestor;
+
+	/**
+	 * Creates a batch parser that parses all compilation units in the calling thread.
+	 */
+	public ASTBatchParser() {
+		this(1);
+	}
+
+	/**
+	 * Creates a batch parser that parses up to <code>parallelism</code> subsets
+	 * of the compilation units at the same time.
+	 *
+	 * @param parallelism the maximal number of worker threads, values &lt; 2 parse in the calling thread
+	 * @since 3.14
+	 */
+	public ASTBatchParser(int parallelism) {
+		this(parallelism, false);
+	}
+
+	/**
+	 * Creates a batch parser that parses up to <code>parallelism</code> subsets
+	 * of the compilation units at the same time.
+	 *
+	 * @param parallelism the maximal number of worker threads, values &lt; 2 parse in the calling thread
+	 * @param concurrentRequestor <code>true</code> if the requestor is thread safe and can be called
+	 *   concurrently in the worker threads, <code>false</code> to call it in the calling thread only
+	 * @since 3.14
+	 */
+	public ASTBatchParser(int parallelism, boolean concurrentRequestor) {
+		fParallelism= Math.max(1, parallelism);
+		fConcurrentRequestor= concurrentRequestor;
+	}
+
+	/**
+	 * Returns the parallelism that is suitable for this machine, i.e. one worker
+	 * per available processor, leaving one processor for the UI.
+	 *
+	 * @return the default parallelism, at least 1
+	 * @since 3.14
+	 */
+	public static int getDefaultParallelism() {
+		return Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+	}
+
+	/**
+	 * Returns the parallelism of this parser.
+	 *
+	 * @return the maximal number of concurrently parsed subsets
+	 * @since 3.14
+	 */
+	public final int getParallelism() {
+		return fParallelism;
 	}
 
 	/**
@@ -52,6 +134,9 @@ public class ASTBatchParser {
 	 * <p>
 	 * <code>ASTRequestor.acceptAST</code> is called in no particular order to
 	 * pass the compilation unit and the corresponding AST to <code>requestor</code>.
+	 * Unless this parser has been created for a concurrent requestor, all calls to the
+	 * requestor happen in the calling thread, and the ASTs of a subset are passed before
+	 * the ones of the next subset.
 	 * </p>
 	 * <p>
 	 * The <code>bindingKeys</code> parameter specifies bindings keys
@@ -74,25 +159,23 @@ public class ASTBatchParser {
 
 		monitor.beginTask("", compilationUnits.length); //$NON-NLS-1$
 		try {
-
 			ICompilationUnit[][] splited= splitByProject(compilationUnits);
+			if (fParallelism > 1 && (splited.length > 1 || compilationUnits.length > MIN_AT_ONCE)) {
+				createASTsInParallel(splited, bindingKeys, requestor, monitor);
+				return;
+			}
+
 			for (int i= 0; i < splited.length; i++) {
 				ICompilationUnit[] units= splited[i];
+				List<ICompilationUnit> list= Arrays.asList(units);
+				int cursor= 0;
+				while (cursor < units.length) {
+					int end= Math.min(cursor + getChunkSize(1), units.length);
+					List<ICompilationUnit> toParse= list.subList(cursor, end);
 
-				if (units.length <= MAX_AT_ONCE) {
-					createParser(units[0].getJavaProject()).createASTs(units, bindingKeys, requestor, new SubProgressMonitor(monitor, units.length));
-				} else {
-					List<ICompilationUnit> list= Arrays.asList(units);
-					int end= 0;
-					int cursor= 0;
-					while (cursor < units.length) {
-						end= Math.min(end + MAX_AT_ONCE, units.length);
-						List<ICompilationUnit> toParse= list.subList(cursor, end);
-
-						createParser(units[0].getJavaProject()).createASTs(toParse.toArray(new ICompilationUnit[toParse.size()]), bindingKeys, requestor,
-								new SubProgressMonitor(monitor, toParse.size()));
-						cursor= end;
-					}
+					createParser(units[0].getJavaProject()).createASTs(toParse.toArray(new ICompilationUnit[toParse.size()]), bindingKeys, requestor,
+							new SubProgressMonitor(monitor, toParse.size()));
+					cursor= end;
 				}
 			}
 		} finally {
@@ -100,6 +183,394 @@ public class ASTBatchParser {
 		}
 	}
 
+	/**
+	 * Returns the number of compilation units that can be parsed at once by
+	 * one of <code>parallelism</code> concurrent parsers, based on the heap
+	 * that is currently available.
+	 *
+	 * @param parallelism the number of parsers that share the heap
+	 * @return the number of compilation units to parse at once
+	 */
+	private static int getChunkSize(int parallelism) {
+		Runtime runtime= Runtime.getRuntime();
+		long used= runtime.totalMemory() - runtime.freeMemory();
+		long headroom= (runtime.maxMemory() - used) / (1 << 20); // in MiB
+		long chunk= headroom / (MIB_PER_UNIT * parallelism);
+		return (int) Math.max(MIN_AT_ONCE, Math.min(MAX_AT_ONCE, chunk));
+	}
+
+	/**
+	 * Returns the worker threads shared by all parsers. Every parse bounds the number of its
+	 * own workers, so the threads are created on demand instead of queueing workers behind
+	 * the ones of another parse, and end after they have been idle for a while.
+	 *
+	 * @return the shared executor
+	 */
+	private static synchronized ThreadPoolExecutor getExecutor() {
+		if (fgExecutor == null) {
+			fgExecutor= new ThreadPoolExecutor(0, Integer.MAX_VALUE, 5, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+				private final AtomicInteger fCount= new AtomicInteger();
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread= new Thread(runnable, "ASTBatchParser worker " + fCount.incrementAndGet()); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return fgExecutor;
+	}
+
+	private void createASTsInParallel(ICompilationUnit[][] projects, String[] bindingKeys, ASTRequestor requestor, final IProgressMonitor monitor) {
+		final ParseState state= new ParseState(projects, fParallelism, monitor);
+		int workers= Math.min(fParallelism, state.estimateChunkCount());
+
+		ThreadPoolExecutor executor= getExecutor();
+		List<Future<?>> futures= new ArrayList<>(workers);
+		// results of later subsets, each of them holds up its worker
+		List<ParseResult> deferred= new ArrayList<>(workers);
+		try {
+			for (int i= 0; i < workers; i++) {
+				futures.add(executor.submit(new ParseWorker(state, bindingKeys, fConcurrentRequestor ? requestor : null)));
+			}
+
+			RuntimeException requestorException= null;
+			int chunk= 0;
+			while (!isDone(futures) || !state.fResults.isEmpty()) {
+				ParseResult result;
+				try {
+					result= state.fResults.poll(50, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					state.cancel();
+					Thread.currentThread().interrupt();
+					break;
+				}
+				if (monitor.isCanceled())
+					state.cancel();
+				int worked= state.fWorked.getAndSet(0);
+				if (worked > 0)
+					monitor.worked(worked);
+
+				if (result != null) {
+					if (result.fChunk != chunk && !state.isCanceled()) {
+						deferred.add(result);
+						continue;
+					}
+					try {
+						while (result != null && accept(result, requestor, state, monitor)) {
+							chunk++;
+							result= removeChunk(deferred, chunk);
+						}
+					} catch (RuntimeException e) {
+						requestorException= e;
+						state.cancel();
+					}
+				}
+				if (state.isCanceled())
+					release(deferred);
+			}
+
+			monitor.worked(state.fWorked.getAndSet(0));
+			if (requestorException != null)
+				throw requestorException;
+
+			for (Iterator<Future<?>> iterator= futures.iterator(); iterator.hasNext();) {
+				try {
+					iterator.next().get();
+				} catch (ExecutionException e) {
+					Throwable cause= e.getCause();
+					if (cause instanceof OperationCanceledException)
+						continue;
+					if (cause instanceof RuntimeException)
+						throw (RuntimeException) cause;
+					if (cause instanceof Error)
+						throw (Error) cause;
+					throw new IllegalStateException(cause);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new OperationCanceledException();
+				}
+			}
+			if (state.isCanceled())
+				throw new OperationCanceledException();
+		} finally {
+			state.close();
+			release(deferred);
+			ParseResult result;
+			while ((result= state.fResults.poll()) != null) {
+				result.fProcessed.countDown();
+			}
+		}
+	}
+
+	/**
+	 * Passes a result to the requestor and lets its worker continue.
+	 *
+	 * @param result the result
+	 * @param requestor the requestor
+	 * @param state the state of the parse
+	 * @param monitor the progress monitor
+	 * @return <code>true</code> if the result marks the end of its subset
+	 */
+	private static boolean accept(ParseResult result, ASTRequestor requestor, ParseState state, IProgressMonitor monitor) {
+		try {
+			if (!state.isCanceled()) {
+				if (result.fSource != null) {
+					requestor.acceptAST(result.fSource, result.fAST);
+					monitor.worked(1);
+				} else if (result.fBindingKey != null) {
+					requestor.acceptBinding(result.fBindingKey, result.fBinding);
+				}
+			}
+		} finally {
+			result.fProcessed.countDown();
+		}
+		return result.fSource == null && result.fBindingKey == null;
+	}
+
+	private static ParseResult removeChunk(List<ParseResult> results, int chunk) {
+		for (Iterator<ParseResult> iterator= results.iterator(); iterator.hasNext();) {
+			ParseResult result= iterator.next();
+			if (result.fChunk == chunk) {
+				iterator.remove();
+				return result;
+			}
+		}
+		return null;
+	}
+
+	private static void release(List<ParseResult> results) {
+		for (Iterator<ParseResult> iterator= results.iterator(); iterator.hasNext();) {
+			iterator.next().fProcessed.countDown();
+		}
+		results.clear();
+	}
+
+	private static boolean isDone(List<Future<?>> futures) {
+		for (Iterator<Future<?>> iterator= futures.iterator(); iterator.hasNext();) {
+			if (!iterator.next().isDone())
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * State shared between the calling thread and the workers of a parallel
+	 * {@link ASTBatchParser#createASTs(ICompilationUnit[], String[], ASTRequestor, IProgressMonitor)}.
+	 */
+	private static final class ParseState {
+
+		private final ICompilationUnit[][] fProjects;
+		private final int fParallelism;
+		private final IProgressMonitor fMonitor;
+		/**
+		 * Hands the created ASTs over to the calling thread. Bounded so that
+		 * workers block instead of piling up ASTs.
+		 */
+		final BlockingQueue<ParseResult> fResults;
+		/**
+		 * Number of ASTs a concurrent requestor has accepted in the workers
+		 * and that have not been reported to the progress monitor yet.
+		 */
+		final AtomicInteger fWorked= new AtomicInteger();
+
+		private int fProject;
+		private int fCursor;
+		private int fChunkCount;
+		private volatile boolean fCanceled;
+		private volatile boolean fClosed;
+
+		ParseState(ICompilationUnit[][] projects, int parallelism, IProgressMonitor monitor) {
+			fProjects= projects;
+			fParallelism= parallelism;
+			fMonitor= monitor;
+			fResults= new ArrayBlockingQueue<>(parallelism);
+		}
+
+		int estimateChunkCount() {
+			int count= 0;
+			int chunkSize= getChunkSize(fParallelism);
+			for (int i= 0; i < fProjects.length; i++) {
+				count+= (fProjects[i].length + chunkSize - 1) / chunkSize;
+			}
+			return count;
+		}
+
+		/**
+		 * Returns the next subset of compilation units to parse. All units in
+		 * a subset belong to the same project.
+		 *
+		 * @return the next subset or <code>null</code> if all units have been handed out
+		 */
+		synchronized Chunk nextChunk() {
+			while (fProject < fProjects.length && fCursor >= fProjects[fProject].length) {
+				fProject++;
+				fCursor= 0;
+			}
+			if (fCanceled || fProject == fProjects.length)
+				return null;
+
+			ICompilationUnit[] units= fProjects[fProject];
+			int end= Math.min(fCursor + getChunkSize(fParallelism), units.length);
+			Chunk chunk= new Chunk(fChunkCount++, Arrays.copyOfRange(units, fCursor, end));
+			fCursor= end;
+			return chunk;
+		}
+
+		void cancel() {
+			fCanceled= true;
+		}
+
+		boolean isCanceled() {
+			return fCanceled || fMonitor.isCanceled();
+		}
+
+		/**
+		 * Marks that the calling thread does not take any results anymore.
+		 */
+		void close() {
+			fCanceled= true;
+			fClosed= true;
+		}
+
+		boolean isClosed() {
+			return fClosed;
+		}
+	}
+
+	/**
+	 * A subset of the compilation units, numbered in the order the subsets are handed out.
+	 */
+	private static final class Chunk {
+
+		final int fIndex;
+		final ICompilationUnit[] fUnits;
+
+		Chunk(int index, ICompilationUnit[] units) {
+			fIndex= index;
+			fUnits= units;
+		}
+	}
+
+	/**
+	 * An AST or a binding created by a worker, or the end of a subset if neither is set.
+	 */
+	private static final class ParseResult {
+
+		final int fChunk;
+		final ICompilationUnit fSource;
+		final CompilationUnit fAST;
+		final String fBindingKey;
+		final IBinding fBinding;
+		final CountDownLatch fProcessed= new CountDownLatch(1);
+
+		ParseResult(int chunk) {
+			this(chunk, null, null, null, null);
+		}
+
+		ParseResult(int chunk, ICompilationUnit source, CompilationUnit ast) {
+			this(chunk, source, ast, null, null);
+		}
+
+		ParseResult(int chunk, String bindingKey, IBinding binding) {
+			this(chunk, null, null, bindingKey, binding);
+		}
+
+		private ParseResult(int chunk, ICompilationUnit source, CompilationUnit ast, String bindingKey, IBinding binding) {
+			fChunk= chunk;
+			fSource= source;
+			fAST= ast;
+			fBindingKey= bindingKey;
+			fBinding= binding;
+		}
+	}
+
+	private final class ParseWorker implements Runnable {
+
+		private final ParseState fState;
+		private final String[] fBindingKeys;
+		private final ASTRequestor fConcurrentRequestor;
+		private int fChunk;
+
+		ParseWorker(ParseState state, String[] bindingKeys, ASTRequestor concurrentRequestor) {
+			fState= state;
+			fBindingKeys= bindingKeys;
+			fConcurrentRequestor= concurrentRequestor;
+		}
+
+		@Override
+		public void run() {
+			IProgressMonitor monitor= new NullProgressMonitor() {
+				@Override
+				public boolean isCanceled() {
+					return fState.isCanceled();
+				}
+			};
+			ASTRequestor requestor;
+			if (fConcurrentRequestor != null) {
+				requestor= new ASTRequestor() {
+					@Override
+					public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+						fConcurrentRequestor.acceptAST(source, ast);
+						fState.fWorked.incrementAndGet();
+					}
+
+					@Override
+					public void acceptBinding(String bindingKey, IBinding binding) {
+						fConcurrentRequestor.acceptBinding(bindingKey, binding);
+					}
+				};
+			} else {
+				requestor= new ASTRequestor() {
+					@Override
+					public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+						handOver(new ParseResult(fChunk, source, ast));
+					}
+
+					@Override
+					public void acceptBinding(String bindingKey, IBinding binding) {
+						handOver(new ParseResult(fChunk, bindingKey, binding));
+					}
+				};
+			}
+
+			try {
+				Chunk chunk;
+				while ((chunk= fState.nextChunk()) != null) {
+					fChunk= chunk.fIndex;
+					createParser(chunk.fUnits[0].getJavaProject()).createASTs(chunk.fUnits, fBindingKeys, requestor, monitor);
+					if (fConcurrentRequestor == null)
+						handOver(new ParseResult(fChunk));
+				}
+			} catch (RuntimeException | Error e) {
+				fState.cancel(); // stop the other workers
+				throw e;
+			}
+		}
+
+		/*
+		 * The AST is only fully usable (e.g. for resolving bindings) while the
+		 * batch parser is still inside createASTs, hence wait until the calling
+		 * thread has processed it.
+		 */
+		private void handOver(ParseResult result) {
+			try {
+				while (!fState.fResults.offer(result, 50, TimeUnit.MILLISECONDS)) {
+					if (fState.isCanceled())
+						throw new OperationCanceledException();
+				}
+				while (!result.fProcessed.await(50, TimeUnit.MILLISECONDS)) {
+					if (fState.isClosed())
+						throw new OperationCanceledException();
+				}
+			} catch (InterruptedException e) {
+				fState.cancel();
+				Thread.currentThread().interrupt();
+				throw new OperationCanceledException();
+			}
+		}
+	}
+
 	/**
 	 * Creates a new parser which can be used to create ASTs
 	 * for compilation units in <code>project</code>
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,12 +11,17 @@
 package org.eclipse.jdt.internal.corext.fix;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.swt.widgets.Display;
 
@@ -25,6 +30,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.ProgressMonitorWrapper;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
@@ -203,39 +209,51 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		}
 	}
 
-	private final class CleanUpRefactoringProgressMonitor extends SubProgressMonitor {
+	/**
+	 * Reports one unit of work to the wrapped monitor for each compilation unit that is done.
+	 * The work reported by the batch parser is ignored: with a concurrent requestor it cannot be
+	 * attributed to a compilation unit, and the work of a compilation unit that needs another
+	 * round must not be reported before that round.
+	 */
+	private final class CleanUpRefactoringProgressMonitor extends ProgressMonitorWrapper {
 
-		private double fRealWork;
 		private int fFlushCount;
 		private final int fSize;
 		private final int fIndex;
 
-		private CleanUpRefactoringProgressMonitor(IProgressMonitor monitor, int ticks, int size, int index) {
-			super(monitor, ticks);
+		private CleanUpRefactoringProgressMonitor(IProgressMonitor monitor, int size, int index) {
+			super(monitor);
 			fFlushCount= 0;
 			fSize= size;
 			fIndex= index;
 		}
 
 		@Override
-		public void internalWorked(double work) {
-			fRealWork+= work;
-		}
+		public void beginTask(String name, int totalWork) {}
 
-		public void flush() {
-			super.internalWorked(fRealWork);
-			reset();
-			fFlushCount++;
-		}
+		@Override
+		public void internalWorked(double work) {}
 
-		public void reset() {
-			fRealWork= 0.0;
+		@Override
+		public void worked(int work) {}
+
+		/**
+		 * Reports the work of a compilation unit for which all clean ups are done.
+		 */
+		public synchronized void flush() {
+			getWrappedProgressMonitor().worked(1);
+			fFlushCount++;
 		}
 
 		@Override
 		public void done() {}
 
-		public int getIndex() {
+		@Override
+		public synchronized void subTask(String name) {
+			super.subTask(name);
+		}
+
+		public synchronized int getIndex() {
 			return fIndex + fFlushCount;
 		}
 
@@ -245,21 +263,31 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		}
 	}
 
+	/**
+	 * Calculates the solutions for the accepted compilation units. The requestor is
+	 * thread safe, it can be called concurrently for different compilation units.
+	 */
 	private static class CleanUpASTRequestor extends ASTRequestor {
 
 		private final List<ParseListElement> fUndoneElements;
 		private final Hashtable<ICompilationUnit, List<CleanUpChange>> fSolutions;
 		private final Hashtable<ICompilationUnit, ParseListElement> fCompilationUnitParseElementMap;
+		private final Map<ICompilationUnit, Integer> fOrder;
 		private final CleanUpRefactoringProgressMonitor fMonitor;
+		private final Map<ICleanUp, AtomicLong> fCleanUpTimes;
 
-		public CleanUpASTRequestor(List<ParseListElement> parseList, Hashtable<ICompilationUnit, List<CleanUpChange>> solutions, CleanUpRefactoringProgressMonitor monitor) {
+		public CleanUpASTRequestor(List<ParseListElement> parseList, Hashtable<ICompilationUnit, List<CleanUpChange>> solutions, CleanUpRefactoringProgressMonitor monitor, Map<ICleanUp, AtomicLong> cleanUpTimes) {
 			fSolutions= solutions;
 			fMonitor= monitor;
-			fUndoneElements= new ArrayList<>();
+			fCleanUpTimes= cleanUpTimes;
+			fUndoneElements= Collections.synchronizedList(new ArrayList<ParseListElement>());
 			fCompilationUnitParseElementMap= new Hashtable<>(parseList.size());
+			fOrder= new Hashtable<>(parseList.size());
 			for (Iterator<ParseListElement> iter= parseList.iterator(); iter.hasNext();) {
 				ParseListElement element= iter.next();
-				fCompilationUnitParseElementMap.put(element.getTarget().getCompilationUnit(), element);
+				ICompilationUnit unit= element.getTarget().getCompilationUnit();
+				fCompilationUnitParseElementMap.put(unit, element);
+				fOrder.put(unit, Integer.valueOf(fOrder.size()));
 			}
 		}
 
@@ -282,7 +310,6 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 
 			if (rejectedCleanUps.length > 0) {
 				fUndoneElements.add(new ParseListElement(target, rejectedCleanUps));
-				fMonitor.reset();
 			} else {
 				fMonitor.flush();
 			}
@@ -292,15 +319,28 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 			acceptAST(source, null);
 		}
 
+		/**
+		 * Returns the elements that need another round, in the order of the parse list
+		 * independent of the order in which the compilation units have been accepted.
+		 *
+		 * @return the undone elements
+		 */
 		public List<ParseListElement> getUndoneElements() {
-			return fUndoneElements;
+			List<ParseListElement> result= new ArrayList<>(fUndoneElements);
+			Collections.sort(result, new Comparator<ParseListElement>() {
+				@Override
+				public int compare(ParseListElement e1, ParseListElement e2) {
+					return fOrder.get(e1.getTarget().getCompilationUnit()).compareTo(fOrder.get(e2.getTarget().getCompilationUnit()));
+				}
+			});
+			return result;
 		}
 
 		private ICleanUp[] calculateSolutions(CleanUpContext context, ICleanUp[] cleanUps) {
 			List<ICleanUp>result= new ArrayList<>();
 			CleanUpChange solution;
 			try {
-				solution= calculateChange(context, cleanUps, result, null);
+				solution= calculateChange(context, cleanUps, result, null, fCleanUpTimes);
 			} catch (CoreException e) {
 				throw new FixCalculationException(e);
 			}
@@ -315,18 +355,21 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		private void integrateSolution(CleanUpChange solution, ICompilationUnit source) {
 			ICompilationUnit primary= source.getPrimary();
 
-			List<CleanUpChange> changes= fSolutions.get(primary);
-			if (changes == null) {
-				changes= new ArrayList<>();
-				fSolutions.put(primary, changes);
+			synchronized (fSolutions) {
+				List<CleanUpChange> changes= fSolutions.get(primary);
+				if (changes == null) {
+					changes= new ArrayList<>();
+					fSolutions.put(primary, changes);
+				}
+				changes.add(solution);
 			}
-			changes.add(solution);
 		}
 	}
 
 	private class CleanUpFixpointIterator {
 
 		private List<ParseListElement> fParseList;
+		private final List<ICompilationUnit> fTargetUnits;
 		private final Hashtable<ICompilationUnit, List<CleanUpChange>> fSolutions;
 		private final Hashtable<ICompilationUnit, ICompilationUnit> fWorkingCopies; // map from primary to working copy
 		private final Map<String, String> fCleanUpOptions;
@@ -338,8 +381,10 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 			fWorkingCopies= new Hashtable<>();
 
 			fParseList= new ArrayList<>(targets.length);
+			fTargetUnits= new ArrayList<>(targets.length);
 			for (int i= 0; i < targets.length; i++) {
 				fParseList.add(new ParseListElement(targets[i], cleanUps));
+				fTargetUnits.add(targets[i].getCompilationUnit());
 			}
 
 			fCleanUpOptions= new Hashtable<>();
@@ -384,10 +429,10 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 					}
 				}
 
-				CleanUpRefactoringProgressMonitor cuMonitor= new CleanUpRefactoringProgressMonitor(monitor, parseList.size() + sourceList.size(), fSize, fIndex);
-				CleanUpASTRequestor requestor= new CleanUpASTRequestor(fParseList, fSolutions, cuMonitor);
+				CleanUpRefactoringProgressMonitor cuMonitor= new CleanUpRefactoringProgressMonitor(monitor, fSize, fIndex);
+				CleanUpASTRequestor requestor= new CleanUpASTRequestor(fParseList, fSolutions, cuMonitor, fCleanUpTimes);
 				if (parseList.size() > 0) {
-					ASTBatchParser parser= new ASTBatchParser() {
+					ASTBatchParser parser= new ASTBatchParser(fParallelism, true) {
 						@Override
 						protected ASTParser createParser(IJavaProject project) {
 							ASTParser result= createCleanUpASTParser();
@@ -410,8 +455,6 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 				for (Iterator<ICompilationUnit> iterator= sourceList.iterator(); iterator.hasNext();) {
 					ICompilationUnit cu= iterator.next();
 
-					monitor.worked(1);
-
 					requestor.acceptSource(cu);
 
 					if (monitor.isCanceled())
@@ -448,7 +491,7 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 
 			Change[] result= new Change[fSolutions.size()];
 			int i=0;
-			for (Iterator<Entry<ICompilationUnit, List<CleanUpChange>>> iterator= fSolutions.entrySet().iterator(); iterator.hasNext();) {
+			for (Iterator<Entry<ICompilationUnit, List<CleanUpChange>>> iterator= getSolutionsInTargetOrder().entrySet().iterator(); iterator.hasNext();) {
 				Entry<ICompilationUnit, List<CleanUpChange>>  entry= iterator.next();
 
 				List<CleanUpChange> changes= entry.getValue();
@@ -480,6 +523,21 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 			return result;
 		}
 
+		/*
+		 * The solutions may have been calculated in parallel, return them
+		 * in the order of the clean up targets to get a deterministic change.
+		 */
+		private Map<ICompilationUnit, List<CleanUpChange>> getSolutionsInTargetOrder() {
+			Map<ICompilationUnit, List<CleanUpChange>> result= new LinkedHashMap<>(fSolutions.size());
+			for (Iterator<ICompilationUnit> iterator= fTargetUnits.iterator(); iterator.hasNext();) {
+				ICompilationUnit unit= iterator.next();
+				List<CleanUpChange> changes= fSolutions.get(unit);
+				if (changes != null)
+					result.put(unit, changes);
+			}
+			return result;
+		}
+
 		private TextChange createGroupFreeChange(CleanUpChange change) {
 			CleanUpChange result= new CleanUpChange(change.getName(), change.getCompilationUnit());
 			result.setEdit(change.getEdit());
@@ -513,6 +571,12 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 	 */
 	private static final int SLOW_CLEAN_UP_THRESHOLD= 2000;
 
+	/**
+	 * Preference key for the number of compilation units that are cleaned up in parallel,
+	 * see {@link #setParallelism(int)}.
+	 */
+	public static final String PARALLELISM_PREFERENCE= "org.eclipse.jdt.ui.cleanup.parallelism"; //$NON-NLS-1$
+
 	private final List<ICleanUp> fCleanUps;
 	private final Hashtable<IJavaProject, List<CleanUpTarget>> fProjects;
 	private Change fChange;
@@ -521,6 +585,9 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 
 	private boolean fUseOptionsFromProfile;
 
+	private int fParallelism;
+	private final Map<ICleanUp, AtomicLong> fCleanUpTimes;
+
 	public CleanUpRefactoring() {
 		this(FixMessages.CleanUpRefactoring_Refactoring_name);
 	}
@@ -530,6 +597,8 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		fCleanUps= new ArrayList<>();
 		fProjects= new Hashtable<>();
 		fUseOptionsFromProfile= false;
+		fParallelism= 1;
+		fCleanUpTimes= new ConcurrentHashMap<>();
 	}
 
 	public void setUseOptionsFromProfile(boolean enabled) {
@@ -592,6 +661,43 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		fLeaveFilesDirty= leaveFilesDirty;
 	}
 
+	/**
+	 * Sets the number of compilation units for which the fixes are calculated in parallel.
+	 * The clean ups must be able to create fixes for different compilation units concurrently
+	 * if the parallelism is greater than 1. The resulting change does not depend on the parallelism.
+	 *
+	 * @param parallelism the number of worker threads, values &lt; 2 calculate all fixes in the calling thread
+	 */
+	public void setParallelism(int parallelism) {
+		fParallelism= Math.max(1, parallelism);
+	}
+
+	public int getParallelism() {
+		return fParallelism;
+	}
+
+	/**
+	 * Returns the time each clean up has spent creating fixes during the last
+	 * {@link #checkFinalConditions(IProgressMonitor)}.
+	 *
+	 * @return a map from clean up to milliseconds, ordered by decreasing time
+	 */
+	public Map<ICleanUp, Long> getCleanUpTimes() {
+		List<Entry<ICleanUp, AtomicLong>> entries= new ArrayList<>(fCleanUpTimes.entrySet());
+		Collections.sort(entries, new Comparator<Entry<ICleanUp, AtomicLong>>() {
+			@Override
+			public int compare(Entry<ICleanUp, AtomicLong> e1, Entry<ICleanUp, AtomicLong> e2) {
+				return Long.compare(e2.getValue().get(), e1.getValue().get());
+			}
+		});
+		Map<ICleanUp, Long> result= new LinkedHashMap<>();
+		for (Iterator<Entry<ICleanUp, AtomicLong>> iterator= entries.iterator(); iterator.hasNext();) {
+			Entry<ICleanUp, AtomicLong> entry= iterator.next();
+			result.put(entry.getKey(), Long.valueOf(entry.getValue().get() / 1000000));
+		}
+		return result;
+	}
+
 	@Override
 	public String getName() {
 		return fName;
@@ -637,6 +743,7 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		RefactoringStatus result= new RefactoringStatus();
 
 		ICleanUp[] cleanUps= getCleanUps();
+		fCleanUpTimes.clear();
 		pm.beginTask("", cuCount * 2 * fCleanUps.size() + 4 * cleanUps.length); //$NON-NLS-1$
 		try {
 			DynamicValidationStateChange change= new DynamicValidationStateChange(getName());
@@ -674,11 +781,21 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 			result.merge(Checks.validateModifiesFiles(files.toArray(new IFile[files.size()]), getValidationContext()));
 		} finally {
 			pm.done();
+			if (JavaPlugin.DEBUG_CLEAN_UP)
+				printCleanUpTimes(cuCount);
 		}
 
 		return result;
 	}
 
+	private void printCleanUpTimes(int cuCount) {
+		System.out.println("Clean up of " + cuCount + " compilation units, parallelism " + fParallelism + ":"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for (Iterator<Entry<ICleanUp, Long>> iterator= getCleanUpTimes().entrySet().iterator(); iterator.hasNext();) {
+			Entry<ICleanUp, Long> entry= iterator.next();
+			System.out.println("\t" + entry.getKey().getClass().getName() + ": " + entry.getValue() + " ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+	}
+
 	private void findFilesToBeModified(CompositeChange change, List<IResource> result) throws JavaModelException {
 		Change[] children= change.getChildren();
 		for (int i= 0; i < children.length; i++) {
@@ -776,6 +893,10 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 	}
 
 	public static CleanUpChange calculateChange(CleanUpContext context, ICleanUp[] cleanUps, List<ICleanUp> undoneCleanUps, HashSet<ICleanUp> slowCleanUps) throws CoreException {
+		return calculateChange(context, cleanUps, undoneCleanUps, slowCleanUps, null);
+	}
+
+	private static CleanUpChange calculateChange(CleanUpContext context, ICleanUp[] cleanUps, List<ICleanUp> undoneCleanUps, HashSet<ICleanUp> slowCleanUps, Map<ICleanUp, AtomicLong> cleanUpTimes) throws CoreException {
 		if (cleanUps.length == 0)
 			return null;
 
@@ -784,11 +905,14 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		do {
 			ICleanUp cleanUp= cleanUps[i];
 			ICleanUpFix fix;
-			if (slowCleanUps != null) {
-				long timeBefore= System.currentTimeMillis();
+			if (slowCleanUps != null || cleanUpTimes != null) {
+				long timeBefore= System.nanoTime();
 				fix= cleanUp.createFix(context);
-				if (System.currentTimeMillis() - timeBefore > SLOW_CLEAN_UP_THRESHOLD)
+				long time= System.nanoTime() - timeBefore;
+				if (slowCleanUps != null && time / 1000000 > SLOW_CLEAN_UP_THRESHOLD)
 					slowCleanUps.add(cleanUp);
+				if (cleanUpTimes != null)
+					addTime(cleanUpTimes, cleanUp, time);
 			} else {
 				fix= cleanUp.createFix(context);
 			}
@@ -824,6 +948,17 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		return solution;
 	}
 
+	private static void addTime(Map<ICleanUp, AtomicLong> cleanUpTimes, ICleanUp cleanUp, long time) {
+		AtomicLong total= cleanUpTimes.get(cleanUp);
+		if (total == null) {
+			AtomicLong newTotal= new AtomicLong();
+			total= cleanUpTimes.putIfAbsent(cleanUp, newTotal);
+			if (total == null)
+				total= newTotal;
+		}
+		total.addAndGet(time);
+	}
+
 	private static void copyChangeGroups(CompilationUnitChange target, CompilationUnitChange source) {
 		TextEditBasedChangeGroup[] changeGroups= source.getChangeGroups();
 		for (int i= 0; i < changeGroups.length; i++) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -129,6 +129,16 @@ public class TypeInfoFilter {
 		return fNameMatcher.getMatchKind();
 	}
 
+	/**
+	 * Returns the matcher for the simple type names.
+	 *
+	 * @return the name matcher
+	 * @since 3.14
+	 */
+	public PatternMatcher getNameMatcher() {
+		return fNameMatcher;
+	}
+
 	public int getElementKind() {
 		return fElementKind;
 	}
@@ -160,6 +170,35 @@ public class TypeInfoFilter {
 		return matchesName(type);
 	}
 
+	/**
+	 * Tells whether a type that has not been resolved yet passes the name, package and modifier
+	 * checks that the search engine applies to its results.
+	 *
+	 * @param typeContainerName the package name, followed by the enclosing type names
+	 * @param simpleTypeName the simple name of the type
+	 * @param modifiers the modifiers of the type
+	 * @return <code>true</code> if the type matches
+	 * @since 3.14
+	 */
+	public boolean matchesTypeName(String typeContainerName, String simpleTypeName, int modifiers) {
+		if (!(matchesPackage(typeContainerName) && matchesModifiers(modifiers)))
+			return false;
+		return fText.length() == 0 || fNameMatcher.matches(simpleTypeName);
+	}
+
+	/**
+	 * Tells whether a type is enclosed in the search scope of this filter.
+	 *
+	 * @param type the type
+	 * @return <code>true</code> if the scope encloses the type
+	 * @since 3.14
+	 */
+	public boolean matchesScope(TypeNameMatch type) {
+		if (fIsWorkspaceScope)
+			return true;
+		return fSearchScope.encloses(type.getType());
+	}
+
 	public boolean matchesFilterExtension(TypeNameMatch type) {
 		if (fFilterExtension == null)
 			return true;
@@ -175,21 +214,23 @@ public class TypeInfoFilter {
 	}
 
 	private boolean matchesPackage(TypeNameMatch type) {
-		if (fPackageMatcher == null)
-			return true;
-		return fPackageMatcher.matches(type.getTypeContainerName());
+		return matchesPackage(type.getTypeContainerName());
 	}
 
-	private boolean matchesScope(TypeNameMatch type) {
-		if (fIsWorkspaceScope)
+	private boolean matchesPackage(String typeContainerName) {
+		if (fPackageMatcher == null)
 			return true;
-		return fSearchScope.encloses(type.getType());
+		return fPackageMatcher.matches(typeContainerName);
 	}
 
 	private boolean matchesModifiers(TypeNameMatch type) {
+		return matchesModifiers(type.getModifiers());
+	}
+
+	private boolean matchesModifiers(int typeModifiers) {
 		if (fElementKind == IJavaSearchConstants.TYPE)
 			return true;
-		int modifiers= type.getModifiers() & TYPE_MODIFIERS;
+		int modifiers= typeModifiers & TYPE_MODIFIERS;
 		switch (fElementKind) {
 			case IJavaSearchConstants.CLASS:
 				return modifiers == 0;
@@ -0,0 +1,637 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IOrdinaryClassFile;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.TypeNameMatch;
+import org.eclipse.jdt.core.search.TypeNameMatchRequestor;
+
+import org.eclipse.jdt.internal.corext.CorextMessages;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * A persistent catalog of the names of all types in the workspace. The Open Type dialog queries
+ * the catalog instead of asking the search engine to scan its index for every pattern.
+ * <p>
+ * The catalog is saved in the state location of the plug-in when the plug-in stops, and loaded
+ * in the background when it starts again. Archives with an unchanged time stamp are not read
+ * again, source and class folders are rescanned after loading. While the workbench runs, the
+ * catalog follows the Java element deltas: compilation units and class files with structural
+ * changes are rescanned on their own, so are compilation units whose working copy is created or
+ * discarded, roots that are added, removed or changed are rescanned as
+ * a whole.
+ * </p>
+ * <p>
+ * Queries are only answered while the catalog is up to date. Otherwise
+ * {@link #search(TypeInfoFilter, TypeNameMatchRequestor, IProgressMonitor)} returns
+ * <code>false</code> and the caller has to fall back to the search engine.
+ * </p>
+ *
+ * @since 3.14
+ */
+public class TypeNameCatalog {
+
+	private class CatalogDeltaListener implements IElementChangedListener {
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			if (processDelta(event.getDelta()))
+				fUpdateJob.schedule(UPDATE_DELAY);
+		}
+
+		/**
+		 * Queues the roots and containers that need to be rescanned.
+		 *
+		 * @param delta the Java element delta
+		 * @return <code>true</code> if something was queued
+		 */
+		private boolean processDelta(IJavaElementDelta delta) {
+			IJavaElement element= delta.getElement();
+			int flags= delta.getFlags();
+			boolean isChanged= delta.getKind() == IJavaElementDelta.CHANGED;
+
+			switch (element.getElementType()) {
+				case IJavaElement.JAVA_MODEL:
+					return processChildrenDelta(delta);
+				case IJavaElement.JAVA_PROJECT:
+					if (!isChanged || (flags & (IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED
+							| IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED)) != 0) {
+						queueRoot(null);
+						return true;
+					}
+					return processChildrenDelta(delta);
+				case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+					if (!isChanged || (flags & (IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+							| IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED)) != 0) {
+						queueRoot(getKey((IPackageFragmentRoot) element));
+						return true;
+					}
+					return processChildrenDelta(delta);
+				case IJavaElement.PACKAGE_FRAGMENT:
+					if (!isChanged) {
+						queueRoot(getKey((IPackageFragmentRoot) element.getParent()));
+						return true;
+					}
+					return processChildrenDelta(delta);
+				case IJavaElement.COMPILATION_UNIT:
+					if (!JavaModelUtil.isPrimary((ICompilationUnit) element))
+						return false;
+					// a discarded working copy leaves its types behind unless the unit is read again
+					if (!isChanged || (flags & IJavaElementDelta.F_PRIMARY_WORKING_COPY) != 0 || isStructuralChange(delta)) {
+						queueContainer(element);
+						return true;
+					}
+					return false;
+				case IJavaElement.CLASS_FILE:
+					if (element instanceof IOrdinaryClassFile) {
+						queueContainer(element);
+						return true;
+					}
+					return false;
+				default:
+					return false;
+			}
+		}
+
+		private boolean isStructuralChange(IJavaElementDelta delta) {
+			int flags= delta.getFlags();
+			if ((flags & IJavaElementDelta.F_CONTENT) != 0 && (flags & IJavaElementDelta.F_FINE_GRAINED) == 0)
+				return true;
+			IJavaElementDelta[] children= delta.getAffectedChildren();
+			for (int i= 0; i < children.length; i++) {
+				IJavaElementDelta child= children[i];
+				if (child.getElement().getElementType() != IJavaElement.TYPE)
+					continue;
+				if (child.getKind() != IJavaElementDelta.CHANGED || (child.getFlags() & IJavaElementDelta.F_MODIFIERS) != 0)
+					return true;
+				if (isStructuralChange(child))
+					return true;
+			}
+			return false;
+		}
+
+		private boolean processChildrenDelta(IJavaElementDelta delta) {
+			boolean queued= false;
+			IJavaElementDelta[] children= delta.getAffectedChildren();
+			for (int i= 0; i < children.length; i++) {
+				if (processDelta(children[i]))
+					queued= true;
+			}
+			return queued;
+		}
+	}
+
+	private class UpdateJob extends Job {
+		public static final String FAMILY= "org.eclipse.jdt.internal.corext.util.TypeNameCatalog.UpdateJob"; //$NON-NLS-1$
+		public UpdateJob() {
+			super(CorextMessages.TypeNameCatalog_update);
+		}
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			try {
+				update(monitor);
+			} catch (OperationCanceledException e) {
+				return Status.CANCEL_STATUS;
+			} catch (CoreException e) {
+				JavaPlugin.log(e);
+			}
+			return Status.OK_STATUS;
+		}
+		@Override
+		public boolean belongsTo(Object family) {
+			return FAMILY.equals(family);
+		}
+	}
+
+	private static class MatchCollector implements TypeNameIndex.IEntryRequestor {
+
+		private final TypeNameIndex fIndex;
+		private final TypeInfoFilter fFilter;
+		private final IProgressMonitor fMonitor;
+		private final Map<String, IPackageFragmentRoot> fRoots= new HashMap<>();
+		private final List<TypeNameMatch> fMatches= new ArrayList<>();
+		private int fVisited;
+
+		public MatchCollector(TypeNameIndex index, TypeInfoFilter filter, IProgressMonitor monitor) {
+			fIndex= index;
+			fFilter= filter;
+			fMonitor= monitor;
+		}
+
+		@Override
+		public boolean acceptEntry(int entry) {
+			if ((++fVisited & 0xff) == 0 && fMonitor.isCanceled())
+				throw new OperationCanceledException();
+			String packageName= fIndex.getPackageName(entry);
+			String enclosingTypeNames= fIndex.getEnclosingTypeNames(entry);
+			String containerName;
+			if (enclosingTypeNames.length() == 0)
+				containerName= packageName;
+			else if (packageName.length() == 0)
+				containerName= enclosingTypeNames;
+			else
+				containerName= packageName + '.' + enclosingTypeNames;
+			String simpleName= fIndex.getSimpleName(entry);
+			int modifiers= fIndex.getModifiers(entry);
+			if (!fFilter.matchesTypeName(containerName, simpleName, modifiers))
+				return true;
+
+			String handle= fIndex.getRootHandle(entry);
+			IPackageFragmentRoot root= fRoots.get(handle);
+			if (root == null) {
+				IJavaElement element= JavaCore.create(handle);
+				if (!(element instanceof IPackageFragmentRoot))
+					return true;
+				root= (IPackageFragmentRoot) element;
+				fRoots.put(handle, root);
+			}
+			IType type= createType(root.getPackageFragment(packageName), fIndex.getContainerName(entry), enclosingTypeNames, simpleName);
+			if (type != null)
+				fMatches.add(SearchEngine.createTypeNameMatch(type, modifiers));
+			return true;
+		}
+
+		public List<TypeNameMatch> getMatches() {
+			return fMatches;
+		}
+	}
+
+	private static final String FILENAME= "TypeNameCatalog.dat"; //$NON-NLS-1$
+
+	private static final int UPDATE_DELAY= 200;
+
+	private static TypeNameCatalog fgInstance;
+
+	private final Object fLock= new Object();
+
+	// all fields below are guarded by fLock
+	private TypeNameIndex fIndex= new TypeNameIndex();
+	private boolean fUpToDate;
+	private boolean fLoaded;
+	private boolean fDirty;
+	private boolean fRefreshRoots= true;
+	private final Set<String> fRootsToScan= new LinkedHashSet<>();
+	private final Set<IJavaElement> fContainersToScan= new LinkedHashSet<>();
+
+	private final IElementChangedListener fDeltaListener;
+	private final UpdateJob fUpdateJob;
+
+	public static synchronized TypeNameCatalog getInstance() {
+		if (fgInstance == null)
+			fgInstance= new TypeNameCatalog();
+		return fgInstance;
+	}
+
+	/**
+	 * Starts loading the catalog in the background, if it has been saved before. The catalog is
+	 * only built from scratch the first time it is queried.
+	 */
+	public static void startup() {
+		if (getFile().isFile())
+			getInstance();
+	}
+
+	public static synchronized void shutdown() {
+		if (fgInstance == null)
+			return;
+		fgInstance.doShutdown();
+		fgInstance= null;
+	}
+
+	private TypeNameCatalog() {
+		fDeltaListener= new CatalogDeltaListener();
+		JavaCore.addElementChangedListener(fDeltaListener, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+		fUpdateJob= new UpdateJob();
+		fUpdateJob.setSystem(true);
+		fUpdateJob.setPriority(Job.DECORATE);
+		fUpdateJob.schedule();
+	}
+
+	private void doShutdown() {
+		JavaCore.removeElementChangedListener(fDeltaListener);
+		fUpdateJob.cancel();
+		try {
+			fUpdateJob.join();
+		} catch (InterruptedException e) {
+			// save what has been collected so far
+		}
+		save();
+	}
+
+	/**
+	 * Tells whether the catalog reflects all changes it has been notified of.
+	 *
+	 * @return <code>true</code> if queries are answered
+	 */
+	public boolean isUpToDate() {
+		synchronized (fLock) {
+			return fUpToDate;
+		}
+	}
+
+	/**
+	 * Reports the types that match a filter. The name, package and modifiers are checked before
+	 * the types are resolved, the search scope afterwards.
+	 *
+	 * @param filter the filter
+	 * @param requestor the requestor that receives the matching types
+	 * @param monitor the progress monitor
+	 * @return <code>true</code> if the catalog answered the query, <code>false</code> if it is
+	 *         not up to date or cannot answer the given filter
+	 * @throws OperationCanceledException if the monitor was canceled
+	 */
+	public boolean search(TypeInfoFilter filter, TypeNameMatchRequestor requestor, IProgressMonitor monitor) throws OperationCanceledException {
+		if (filter.getText().length() == 0)
+			return false;
+		MatchCollector collector;
+		synchronized (fLock) {
+			if (!fUpToDate)
+				return false;
+			collector= new MatchCollector(fIndex, filter, monitor);
+			fIndex.query(filter.getNameMatcher(), collector);
+		}
+		List<TypeNameMatch> matches= collector.getMatches();
+		for (int i= 0; i < matches.size(); i++) {
+			if (monitor.isCanceled())
+				throw new OperationCanceledException();
+			TypeNameMatch match= matches.get(i);
+			if (filter.matchesScope(match))
+				requestor.acceptTypeNameMatch(match);
+		}
+		return true;
+	}
+
+	private void queueRoot(String key) {
+		synchronized (fLock) {
+			fRefreshRoots= true;
+			if (key != null)
+				fRootsToScan.add(key);
+			fUpToDate= false;
+		}
+	}
+
+	private void queueContainer(IJavaElement container) {
+		synchronized (fLock) {
+			fContainersToScan.add(container);
+			fUpToDate= false;
+		}
+	}
+
+	private void update(IProgressMonitor monitor) throws CoreException {
+		boolean rescanFolders= false;
+		if (!isLoaded()) {
+			load();
+			rescanFolders= true;
+		}
+		while (true) {
+			boolean refreshRoots;
+			Set<String> rootsToScan;
+			List<IJavaElement> containersToScan;
+			synchronized (fLock) {
+				if (!fRefreshRoots && fRootsToScan.isEmpty() && fContainersToScan.isEmpty()) {
+					fUpToDate= true;
+					return;
+				}
+				refreshRoots= fRefreshRoots || !fRootsToScan.isEmpty();
+				rootsToScan= new LinkedHashSet<>(fRootsToScan);
+				containersToScan= new ArrayList<>(fContainersToScan);
+				fRefreshRoots= false;
+				fRootsToScan.clear();
+				fContainersToScan.clear();
+			}
+			try {
+				if (refreshRoots)
+					scanRoots(refreshRoots(rootsToScan, rescanFolders), rootsToScan, monitor);
+				rescanFolders= false;
+				scanContainers(containersToScan);
+			} catch (OperationCanceledException e) {
+				requeue(refreshRoots, rootsToScan, containersToScan);
+				throw e;
+			} catch (CoreException e) {
+				requeue(refreshRoots, rootsToScan, containersToScan);
+				throw e;
+			}
+		}
+	}
+
+	private void requeue(boolean refreshRoots, Set<String> rootsToScan, List<IJavaElement> containersToScan) {
+		synchronized (fLock) {
+			fRefreshRoots|= refreshRoots;
+			fRootsToScan.addAll(rootsToScan);
+			fContainersToScan.addAll(containersToScan);
+		}
+	}
+
+	private boolean isLoaded() {
+		synchronized (fLock) {
+			return fLoaded;
+		}
+	}
+
+	/**
+	 * Computes the roots of all Java projects, removes the roots that are gone from the catalog
+	 * and adds the roots that need to be scanned to <code>rootsToScan</code>.
+	 *
+	 * @param rootsToScan the keys of the roots to scan
+	 * @param rescanFolders whether to scan all roots that are not archives
+	 * @return the current roots by key
+	 * @throws JavaModelException if the Java projects cannot be accessed
+	 */
+	private Map<String, IPackageFragmentRoot> refreshRoots(Set<String> rootsToScan, boolean rescanFolders) throws JavaModelException {
+		Map<String, IPackageFragmentRoot> roots= new LinkedHashMap<>();
+		IJavaProject[] projects= JavaCore.create(ResourcesPlugin.getWorkspace().getRoot()).getJavaProjects();
+		for (int i= 0; i < projects.length; i++) {
+			IJavaProject project= projects[i];
+			if (!project.getProject().isOpen())
+				continue;
+			try {
+				IPackageFragmentRoot[] projectRoots= project.getPackageFragmentRoots();
+				for (int j= 0; j < projectRoots.length; j++) {
+					String key= getKey(projectRoots[j]);
+					if (!roots.containsKey(key))
+						roots.put(key, projectRoots[j]);
+				}
+			} catch (JavaModelException e) {
+				// the project does not have a valid class path, it has no types then
+			}
+		}
+		Map<String, Long> stamps= new HashMap<>();
+		for (Iterator<Map.Entry<String, IPackageFragmentRoot>> iter= roots.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<String, IPackageFragmentRoot> entry= iter.next();
+			stamps.put(entry.getKey(), Long.valueOf(getStamp(entry.getValue())));
+		}
+
+		synchronized (fLock) {
+			String[] keys= fIndex.getRootKeys();
+			for (int i= 0; i < keys.length; i++) {
+				if (!roots.containsKey(keys[i])) {
+					fIndex.removeRoot(keys[i]);
+					fDirty= true;
+				}
+			}
+			for (Iterator<Map.Entry<String, IPackageFragmentRoot>> iter= roots.entrySet().iterator(); iter.hasNext();) {
+				Map.Entry<String, IPackageFragmentRoot> entry= iter.next();
+				String key= entry.getKey();
+				long stamp= stamps.get(key).longValue();
+				if (!fIndex.containsRoot(key) || fIndex.getRootStamp(key) != stamp || rescanFolders && stamp == -1) {
+					rootsToScan.add(key);
+				} else {
+					String handle= entry.getValue().getHandleIdentifier();
+					if (!handle.equals(fIndex.getRootHandle(key))) {
+						fIndex.putRoot(key, handle, stamp);
+						fDirty= true;
+					}
+				}
+			}
+		}
+		return roots;
+	}
+
+	private void scanRoots(Map<String, IPackageFragmentRoot> roots, Set<String> rootsToScan, IProgressMonitor monitor) throws CoreException {
+		List<IJavaElement> elements= new ArrayList<>();
+		for (Iterator<String> iter= rootsToScan.iterator(); iter.hasNext();) {
+			IPackageFragmentRoot root= roots.get(iter.next());
+			if (root != null)
+				elements.add(root);
+		}
+		if (elements.isEmpty())
+			return;
+
+		final List<TypeNameMatch> matches= new ArrayList<>();
+		TypeNameMatchRequestor requestor= new TypeNameMatchRequestor() {
+			@Override
+			public void acceptTypeNameMatch(TypeNameMatch match) {
+				matches.add(match);
+			}
+		};
+		new SearchEngine().searchAllTypeNames(null, SearchPattern.R_PREFIX_MATCH, null, SearchPattern.R_PREFIX_MATCH, IJavaSearchConstants.TYPE,
+				SearchEngine.createJavaSearchScope(elements.toArray(new IJavaElement[elements.size()])), requestor,
+				IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, monitor);
+
+		Map<String, Long> stamps= new HashMap<>();
+		for (int i= 0; i < elements.size(); i++) {
+			IPackageFragmentRoot root= (IPackageFragmentRoot) elements.get(i);
+			stamps.put(getKey(root), Long.valueOf(getStamp(root)));
+		}
+		synchronized (fLock) {
+			for (int i= 0; i < elements.size(); i++) {
+				IPackageFragmentRoot root= (IPackageFragmentRoot) elements.get(i);
+				String key= getKey(root);
+				fIndex.removeTypes(key);
+				fIndex.putRoot(key, root.getHandleIdentifier(), stamps.get(key).longValue());
+			}
+			addTypes(matches);
+		}
+	}
+
+	private void scanContainers(List<IJavaElement> containers) throws JavaModelException {
+		for (int i= 0; i < containers.size(); i++) {
+			IJavaElement container= containers.get(i);
+			List<TypeNameMatch> matches= new ArrayList<>();
+			if (container.exists()) {
+				if (container instanceof ICompilationUnit) {
+					IType[] types= ((ICompilationUnit) container).getAllTypes();
+					for (int j= 0; j < types.length; j++)
+						matches.add(SearchEngine.createTypeNameMatch(types[j], types[j].getFlags()));
+				} else {
+					IType type= ((IOrdinaryClassFile) container).getType();
+					if (!type.isAnonymous() && !type.isLocal())
+						matches.add(SearchEngine.createTypeNameMatch(type, type.getFlags()));
+				}
+			}
+			String key= getKey((IPackageFragmentRoot) container.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT));
+			synchronized (fLock) {
+				fIndex.removeTypes(key, container.getParent().getElementName(), container.getElementName());
+				addTypes(matches);
+			}
+		}
+	}
+
+	/*
+	 * Must be called while holding fLock.
+	 */
+	private void addTypes(List<TypeNameMatch> matches) {
+		for (int i= 0; i < matches.size(); i++) {
+			TypeNameMatch match= matches.get(i);
+			String key= getKey(match.getPackageFragmentRoot());
+			if (!fIndex.containsRoot(key))
+				continue;
+			IType type= match.getType();
+			String simpleName= match.getSimpleTypeName();
+			String qualifiedName= match.getTypeQualifiedName();
+			String enclosingTypeNames= qualifiedName.length() > simpleName.length() ? qualifiedName.substring(0, qualifiedName.length() - simpleName.length() - 1) : ""; //$NON-NLS-1$
+			fIndex.add(key, match.getPackageName(), type.getTypeRoot().getElementName(), enclosingTypeNames, simpleName, match.getModifiers());
+		}
+		fDirty= true;
+	}
+
+	private static IType createType(IPackageFragment fragment, String containerName, String enclosingTypeNames, String simpleName) {
+		if (!JavaCore.isJavaLikeFileName(containerName))
+			return fragment.getOrdinaryClassFile(containerName).getType();
+
+		ICompilationUnit unit= fragment.getCompilationUnit(containerName);
+		if (enclosingTypeNames.length() == 0)
+			return unit.getType(simpleName);
+		IType type= null;
+		int start= 0;
+		while (start <= enclosingTypeNames.length()) {
+			int end= enclosingTypeNames.indexOf('.', start);
+			if (end == -1)
+				end= enclosingTypeNames.length();
+			String name= enclosingTypeNames.substring(start, end);
+			type= type == null ? unit.getType(name) : type.getType(name);
+			start= end + 1;
+		}
+		return type.getType(simpleName);
+	}
+
+	/*
+	 * Archives that are referenced by several projects are stored once, under their path.
+	 */
+	private static String getKey(IPackageFragmentRoot root) {
+		return root.getPath().toString();
+	}
+
+	private static long getStamp(IPackageFragmentRoot root) {
+		if (!root.isArchive())
+			return -1;
+		IResource resource= root.getResource();
+		IPath location= resource != null ? resource.getLocation() : root.getPath();
+		if (location == null)
+			return -1;
+		File file= location.toFile();
+		return file.isFile() ? file.lastModified() : -1;
+	}
+
+	private static File getFile() {
+		return JavaPlugin.getDefault().getStateLocation().append(FILENAME).toFile();
+	}
+
+	private void load() {
+		TypeNameIndex index= null;
+		File file= getFile();
+		if (file.isFile()) {
+			try (DataInputStream in= new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+				index= TypeNameIndex.read(in);
+			} catch (IOException e) {
+				JavaPlugin.log(e);
+				file.delete();
+			}
+		}
+		synchronized (fLock) {
+			if (index != null)
+				fIndex= index;
+			fLoaded= true;
+		}
+	}
+
+	private void save() {
+		synchronized (fLock) {
+			if (!fLoaded || !fDirty)
+				return;
+			File file= getFile();
+			File tempFile= new File(file.getParentFile(), FILENAME + ".tmp"); //$NON-NLS-1$
+			try {
+				try (DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+					fIndex.write(out);
+				}
+				if (file.exists() && !file.delete() || !tempFile.renameTo(file))
+					throw new IOException("Cannot replace " + file); //$NON-NLS-1$
+				fDirty= false;
+			} catch (IOException e) {
+				JavaPlugin.log(e);
+				tempFile.delete();
+			}
+		}
+	}
+}
@@ -0,0 +1,601 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.Assert;
+
+import org.eclipse.jdt.core.search.SearchPattern;
+
+import org.eclipse.jdt.internal.core.manipulation.util.Strings;
+
+import org.eclipse.jdt.internal.ui.util.PatternMatcher;
+
+/**
+ * An in-memory index of type names, grouped by the package fragment roots that contain them.
+ * <p>
+ * Types are looked up by their simple name. Two sorted permutations of the types turn prefix,
+ * exact and CamelCase patterns into binary searches: one orders the simple names ignoring case,
+ * the other orders the initials of the CamelCase parts of the names. Types added after the last
+ * sort are kept in an unsorted tail that is scanned linearly, and removed types are only marked.
+ * Both are merged into the sorted permutations once they exceed a fraction of the index.
+ * </p>
+ * <p>
+ * The index does not depend on the Java model: roots are identified by a key and a handle
+ * identifier, and types by their package, container and enclosing type names. Entry numbers are
+ * only valid until the index is modified or queried again. The index is not thread safe.
+ * </p>
+ *
+ * @since 3.14
+ */
+public final class TypeNameIndex {
+
+	/**
+	 * Receives the entries found by {@link TypeNameIndex#query(PatternMatcher, IEntryRequestor)}.
+	 */
+	public interface IEntryRequestor {
+
+		/**
+		 * Accepts an entry whose simple name matches the pattern.
+		 *
+		 * @param entry the entry number
+		 * @return <code>false</code> to stop the query
+		 */
+		boolean acceptEntry(int entry);
+	}
+
+	private static final int FILE_MAGIC= 0x4a544e49; // 'JTNI'
+	private static final int FILE_VERSION= 1;
+
+	private static final int MIN_UNSORTED= 1024;
+
+	private final List<String> fRootKeys= new ArrayList<>();
+	private final List<String> fRootHandles= new ArrayList<>();
+	private long[] fRootStamps= new long[16];
+	private final Map<String, Integer> fRootIds= new HashMap<>();
+
+	private int fSize;
+	private int fRemovedCount;
+	private int[] fRoots= new int[0];
+	private String[] fPackages= new String[0];
+	private String[] fContainers= new String[0];
+	private String[] fEnclosingNames= new String[0];
+	private String[] fNames= new String[0];
+	private String[] fInitials= new String[0];
+	private int[] fModifiers= new int[0];
+	private boolean[] fRemoved= new boolean[0];
+	private final Map<String, String> fStrings= new HashMap<>();
+
+	/* Sorted permutations of the entries [0, fSortedSize) */
+	private int fSortedSize;
+	private int[] fByName= new int[0];
+	private int[] fByInitials= new int[0];
+
+	/**
+	 * Returns the number of types in the index.
+	 *
+	 * @return the number of types
+	 */
+	public int size() {
+		return fSize - fRemovedCount;
+	}
+
+	/**
+	 * Returns the keys of all roots in the index.
+	 *
+	 * @return the root keys
+	 */
+	public String[] getRootKeys() {
+		return fRootIds.keySet().toArray(new String[fRootIds.size()]);
+	}
+
+	/**
+	 * Tells whether the index contains a root.
+	 *
+	 * @param key the root key
+	 * @return <code>true</code> if the root is known
+	 */
+	public boolean containsRoot(String key) {
+		return fRootIds.containsKey(key);
+	}
+
+	/**
+	 * Returns the handle identifier of a root.
+	 *
+	 * @param key the root key
+	 * @return the handle identifier, or <code>null</code> if the root is not known
+	 */
+	public String getRootHandle(String key) {
+		Integer id= fRootIds.get(key);
+		return id != null ? fRootHandles.get(id.intValue()) : null;
+	}
+
+	/**
+	 * Returns the stamp of a root.
+	 *
+	 * @param key the root key
+	 * @return the stamp that was passed to {@link #putRoot(String, String, long)}, or
+	 *         <code>-1</code> if the root is not known
+	 */
+	public long getRootStamp(String key) {
+		Integer id= fRootIds.get(key);
+		return id != null ? fRootStamps[id.intValue()] : -1;
+	}
+
+	/**
+	 * Adds a root, or updates the handle identifier and stamp of a known root.
+	 *
+	 * @param key the root key
+	 * @param handle the handle identifier of the root
+	 * @param stamp the stamp of the root
+	 */
+	public void putRoot(String key, String handle, long stamp) {
+		Integer id= fRootIds.get(key);
+		int root;
+		if (id == null) {
+			root= fRootKeys.size();
+			fRootKeys.add(key);
+			fRootHandles.add(handle);
+			if (root == fRootStamps.length)
+				fRootStamps= Arrays.copyOf(fRootStamps, root * 2);
+			fRootIds.put(key, Integer.valueOf(root));
+		} else {
+			root= id.intValue();
+			fRootHandles.set(root, handle);
+		}
+		fRootStamps[root]= stamp;
+	}
+
+	/**
+	 * Removes a root and all its types.
+	 *
+	 * @param key the root key
+	 */
+	public void removeRoot(String key) {
+		Integer id= fRootIds.remove(key);
+		if (id != null) {
+			int root= id.intValue();
+			removeEntries(root, null, null);
+			fRootKeys.set(root, null);
+			fRootHandles.set(root, null);
+		}
+	}
+
+	/**
+	 * Removes all types of a root, but keeps the root.
+	 *
+	 * @param key the root key
+	 */
+	public void removeTypes(String key) {
+		Integer id= fRootIds.get(key);
+		if (id != null)
+			removeEntries(id.intValue(), null, null);
+	}
+
+	/**
+	 * Removes the types declared in a compilation unit or class file.
+	 *
+	 * @param key the root key
+	 * @param packageName the package name
+	 * @param containerName the file name of the compilation unit or class file
+	 */
+	public void removeTypes(String key, String packageName, String containerName) {
+		Integer id= fRootIds.get(key);
+		if (id != null)
+			removeEntries(id.intValue(), packageName, containerName);
+	}
+
+	private void removeEntries(int root, String packageName, String containerName) {
+		for (int entry= 0; entry < fSize; entry++) {
+			if (fRoots[entry] == root && !fRemoved[entry]
+					&& (packageName == null || packageName.equals(fPackages[entry]) && containerName.equals(fContainers[entry]))) {
+				fRemoved[entry]= true;
+				fRemovedCount++;
+			}
+		}
+	}
+
+	/**
+	 * Adds a type. The root must have been added before.
+	 *
+	 * @param key the root key
+	 * @param packageName the package name
+	 * @param containerName the file name of the compilation unit or class file
+	 * @param enclosingTypeNames the dot-separated names of the enclosing types, or the empty string
+	 * @param simpleName the simple name of the type
+	 * @param modifiers the modifiers of the type
+	 */
+	public void add(String key, String packageName, String containerName, String enclosingTypeNames, String simpleName, int modifiers) {
+		Integer id= fRootIds.get(key);
+		Assert.isNotNull(id);
+		if (fSize == fNames.length)
+			grow(Math.max(16, fSize * 2));
+		int entry= fSize++;
+		fRoots[entry]= id.intValue();
+		fPackages[entry]= intern(packageName);
+		fContainers[entry]= intern(containerName);
+		fEnclosingNames[entry]= intern(enclosingTypeNames);
+		fNames[entry]= simpleName;
+		fInitials[entry]= getInitials(simpleName);
+		fModifiers[entry]= modifiers;
+		fRemoved[entry]= false;
+	}
+
+	private String intern(String string) {
+		String interned= fStrings.get(string);
+		if (interned == null) {
+			fStrings.put(string, string);
+			interned= string;
+		}
+		return interned;
+	}
+
+	private void grow(int capacity) {
+		fRoots= Arrays.copyOf(fRoots, capacity);
+		fPackages= Arrays.copyOf(fPackages, capacity);
+		fContainers= Arrays.copyOf(fContainers, capacity);
+		fEnclosingNames= Arrays.copyOf(fEnclosingNames, capacity);
+		fNames= Arrays.copyOf(fNames, capacity);
+		fInitials= Arrays.copyOf(fInitials, capacity);
+		fModifiers= Arrays.copyOf(fModifiers, capacity);
+		fRemoved= Arrays.copyOf(fRemoved, capacity);
+	}
+
+	public String getRootHandle(int entry) {
+		return fRootHandles.get(fRoots[entry]);
+	}
+
+	public String getPackageName(int entry) {
+		return fPackages[entry];
+	}
+
+	public String getContainerName(int entry) {
+		return fContainers[entry];
+	}
+
+	public String getEnclosingTypeNames(int entry) {
+		return fEnclosingNames[entry];
+	}
+
+	public String getSimpleName(int entry) {
+		return fNames[entry];
+	}
+
+	public int getModifiers(int entry) {
+		return fModifiers[entry];
+	}
+
+	/**
+	 * Reports all types whose simple name matches the given matcher. Prefix, exact and CamelCase
+	 * patterns and patterns that start with a literal prefix are answered from the sorted
+	 * permutations, other patterns scan all names.
+	 *
+	 * @param matcher the matcher for the simple names
+	 * @param requestor the requestor that receives the matching entries
+	 */
+	public void query(PatternMatcher matcher, IEntryRequestor requestor) {
+		compact(false);
+		String pattern= matcher.getPattern();
+		switch (matcher.getMatchKind()) {
+			case SearchPattern.R_EXACT_MATCH:
+			case SearchPattern.R_PREFIX_MATCH:
+				if (!queryRange(fByName, fNames, pattern, matcher, null, requestor))
+					return;
+				break;
+			case SearchPattern.R_CAMELCASE_MATCH:
+			case SearchPattern.R_CAMELCASE_SAME_PART_COUNT_MATCH:
+				String initials= getPatternInitials(pattern);
+				if (initials == null) {
+					if (!queryRange(fByName, fNames, "", matcher, null, requestor)) //$NON-NLS-1$
+						return;
+					break;
+				}
+				String reported= null;
+				if (matcher.getMatchKind() == SearchPattern.R_CAMELCASE_MATCH) {
+					// the matcher falls back to a prefix match
+					if (!queryRange(fByName, fNames, pattern, matcher, null, requestor))
+						return;
+					reported= pattern;
+				}
+				if (!queryRange(fByInitials, fInitials, initials, matcher, reported, requestor))
+					return;
+				break;
+			case SearchPattern.R_PATTERN_MATCH:
+				if (!queryRange(fByName, fNames, getLiteralPrefix(pattern), matcher, null, requestor))
+					return;
+				break;
+			default:
+				if (!queryRange(fByName, fNames, "", matcher, null, requestor)) //$NON-NLS-1$
+					return;
+				break;
+		}
+		for (int entry= fSortedSize; entry < fSize; entry++) {
+			if (!fRemoved[entry] && matcher.matches(fNames[entry]) && !requestor.acceptEntry(entry))
+				return;
+		}
+	}
+
+	private boolean queryRange(int[] permutation, String[] keys, String prefix, PatternMatcher matcher, String reportedPrefix, IEntryRequestor requestor) {
+		for (int i= lowerBound(permutation, keys, prefix); i < fSortedSize; i++) {
+			int entry= permutation[i];
+			if (!Strings.startsWithIgnoreCase(keys[entry], prefix))
+				break;
+			if (fRemoved[entry] || !matcher.matches(fNames[entry]))
+				continue;
+			if (reportedPrefix != null && Strings.startsWithIgnoreCase(fNames[entry], reportedPrefix))
+				continue;
+			if (!requestor.acceptEntry(entry))
+				return false;
+		}
+		return true;
+	}
+
+	private int lowerBound(int[] permutation, String[] keys, String prefix) {
+		int low= 0;
+		int high= fSortedSize;
+		while (low < high) {
+			int mid= (low + high) >>> 1;
+			if (String.CASE_INSENSITIVE_ORDER.compare(keys[permutation[mid]], prefix) < 0)
+				low= mid + 1;
+			else
+				high= mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the upper case letters that start the CamelCase parts of a name. The first
+	 * character always starts a part.
+	 *
+	 * @param name a type name
+	 * @return the initials of the name
+	 */
+	static String getInitials(String name) {
+		int length= name.length();
+		if (length == 0)
+			return name;
+		StringBuilder buf= new StringBuilder(4);
+		buf.append(Character.toUpperCase(name.charAt(0)));
+		for (int i= 1; i < length; i++) {
+			char ch= name.charAt(i);
+			if (Character.isUpperCase(ch))
+				buf.append(ch);
+		}
+		return buf.toString();
+	}
+
+	/*
+	 * Names matching a CamelCase pattern of letters have the initials of the pattern as prefix
+	 * of their initials. For other patterns, the parts cannot be derived from the letter case.
+	 */
+	private static String getPatternInitials(String pattern) {
+		for (int i= 0; i < pattern.length(); i++) {
+			if (!Character.isLetter(pattern.charAt(i)))
+				return null;
+		}
+		return getInitials(pattern);
+	}
+
+	private static String getLiteralPrefix(String pattern) {
+		for (int i= 0; i < pattern.length(); i++) {
+			char ch= pattern.charAt(i);
+			if (ch == '*' || ch == '?' || ch == '\\')
+				return pattern.substring(0, i);
+		}
+		return pattern;
+	}
+
+	/**
+	 * Drops the removed entries and sorts all entries, if the unsorted tail or the removed
+	 * entries have grown too large, or if <code>force</code> is set.
+	 *
+	 * @param force whether to compact the index in any case
+	 */
+	public void compact(boolean force) {
+		int unsorted= fSize - fSortedSize;
+		int threshold= Math.max(MIN_UNSORTED, fSize / 8);
+		if (!force && unsorted <= threshold && fRemovedCount <= threshold)
+			return;
+
+		int[] rootIds= new int[fRootKeys.size()];
+		int roots= 0;
+		for (int root= 0; root < rootIds.length; root++) {
+			String key= fRootKeys.get(root);
+			if (key != null) {
+				rootIds[root]= roots;
+				fRootKeys.set(roots, key);
+				fRootHandles.set(roots, fRootHandles.get(root));
+				fRootStamps[roots]= fRootStamps[root];
+				fRootIds.put(key, Integer.valueOf(roots));
+				roots++;
+			}
+		}
+		fRootKeys.subList(roots, fRootKeys.size()).clear();
+		fRootHandles.subList(roots, fRootHandles.size()).clear();
+
+		int size= 0;
+		for (int entry= 0; entry < fSize; entry++) {
+			if (fRemoved[entry])
+				continue;
+			fRoots[size]= rootIds[fRoots[entry]];
+			fPackages[size]= fPackages[entry];
+			fContainers[size]= fContainers[entry];
+			fEnclosingNames[size]= fEnclosingNames[entry];
+			fNames[size]= fNames[entry];
+			fInitials[size]= fInitials[entry];
+			fModifiers[size]= fModifiers[entry];
+			fRemoved[size]= false;
+			size++;
+		}
+		Arrays.fill(fPackages, size, fSize, null);
+		Arrays.fill(fContainers, size, fSize, null);
+		Arrays.fill(fEnclosingNames, size, fSize, null);
+		Arrays.fill(fNames, size, fSize, null);
+		Arrays.fill(fInitials, size, fSize, null);
+		fSize= size;
+		fRemovedCount= 0;
+
+		fByName= sort(fNames, size);
+		fByInitials= sort(fInitials, size);
+		fSortedSize= size;
+	}
+
+	private static int[] sort(String[] keys, int size) {
+		int[] permutation= new int[size];
+		for (int i= 0; i < size; i++)
+			permutation[i]= i;
+		mergeSort(permutation.clone(), permutation, 0, size, keys);
+		return permutation;
+	}
+
+	private static void mergeSort(int[] src, int[] dest, int low, int high, String[] keys) {
+		int length= high - low;
+		if (length < 7) {
+			for (int i= low; i < high; i++) {
+				for (int j= i; j > low && String.CASE_INSENSITIVE_ORDER.compare(keys[dest[j - 1]], keys[dest[j]]) > 0; j--) {
+					int swap= dest[j];
+					dest[j]= dest[j - 1];
+					dest[j - 1]= swap;
+				}
+			}
+			return;
+		}
+		int mid= (low + high) >>> 1;
+		mergeSort(dest, src, low, mid, keys);
+		mergeSort(dest, src, mid, high, keys);
+		if (String.CASE_INSENSITIVE_ORDER.compare(keys[src[mid - 1]], keys[src[mid]]) <= 0) {
+			System.arraycopy(src, low, dest, low, length);
+			return;
+		}
+		for (int i= low, p= low, q= mid; i < high; i++) {
+			if (q >= high || p < mid && String.CASE_INSENSITIVE_ORDER.compare(keys[src[p]], keys[src[q]]) <= 0)
+				dest[i]= src[p++];
+			else
+				dest[i]= src[q++];
+		}
+	}
+
+	/**
+	 * Writes the index to a stream. The index is compacted first, so that reading it back does
+	 * not need to sort.
+	 *
+	 * @param out the stream to write to
+	 * @throws IOException if writing fails
+	 */
+	public void write(DataOutputStream out) throws IOException {
+		compact(true);
+		out.writeInt(FILE_MAGIC);
+		out.writeInt(FILE_VERSION);
+
+		int roots= fRootKeys.size();
+		out.writeInt(roots);
+		for (int root= 0; root < roots; root++) {
+			out.writeUTF(fRootKeys.get(root));
+			out.writeUTF(fRootHandles.get(root));
+			out.writeLong(fRootStamps[root]);
+		}
+
+		Map<String, Integer> stringIds= new HashMap<>();
+		List<String> strings= new ArrayList<>();
+		for (int entry= 0; entry < fSize; entry++) {
+			addString(fPackages[entry], stringIds, strings);
+			addString(fContainers[entry], stringIds, strings);
+		}
+		out.writeInt(strings.size());
+		for (int i= 0; i < strings.size(); i++)
+			out.writeUTF(strings.get(i));
+
+		out.writeInt(fSize);
+		for (int entry= 0; entry < fSize; entry++) {
+			out.writeInt(fRoots[entry]);
+			out.writeInt(stringIds.get(fPackages[entry]).intValue());
+			out.writeInt(stringIds.get(fContainers[entry]).intValue());
+			out.writeUTF(fEnclosingNames[entry]);
+			out.writeUTF(fNames[entry]);
+			out.writeInt(fModifiers[entry]);
+		}
+		for (int i= 0; i < fSize; i++)
+			out.writeInt(fByName[i]);
+		for (int i= 0; i < fSize; i++)
+			out.writeInt(fByInitials[i]);
+	}
+
+	private static void addString(String string, Map<String, Integer> stringIds, List<String> strings) {
+		if (!stringIds.containsKey(string)) {
+			stringIds.put(string, Integer.valueOf(strings.size()));
+			strings.add(string);
+		}
+	}
+
+	/**
+	 * Reads an index that was written with {@link #write(DataOutputStream)}.
+	 *
+	 * @param in the stream to read from
+	 * @return the index
+	 * @throws IOException if reading fails or the stream does not contain an index
+	 */
+	public static TypeNameIndex read(DataInputStream in) throws IOException {
+		if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION)
+			throw new IOException("Unsupported type name index format"); //$NON-NLS-1$
+
+		TypeNameIndex index= new TypeNameIndex();
+		int roots= in.readInt();
+		for (int root= 0; root < roots; root++) {
+			String key= in.readUTF();
+			String handle= in.readUTF();
+			index.putRoot(key, handle, in.readLong());
+		}
+
+		String[] strings= new String[in.readInt()];
+		for (int i= 0; i < strings.length; i++)
+			strings[i]= index.intern(in.readUTF());
+
+		int size= in.readInt();
+		index.grow(size);
+		for (int entry= 0; entry < size; entry++) {
+			int root= in.readInt();
+			if (root < 0 || root >= roots)
+				throw new IOException("Invalid root in type name index"); //$NON-NLS-1$
+			index.fRoots[entry]= root;
+			index.fPackages[entry]= strings[in.readInt()];
+			index.fContainers[entry]= strings[in.readInt()];
+			index.fEnclosingNames[entry]= index.intern(in.readUTF());
+			String name= in.readUTF();
+			index.fNames[entry]= name;
+			index.fInitials[entry]= getInitials(name);
+			index.fModifiers[entry]= in.readInt();
+		}
+		index.fSize= size;
+		index.fByName= readPermutation(in, size);
+		index.fByInitials= readPermutation(in, size);
+		index.fSortedSize= size;
+		return index;
+	}
+
+	private static int[] readPermutation(DataInputStream in, int size) throws IOException {
+		int[] permutation= new int[size];
+		for (int i= 0; i < size; i++) {
+			int entry= in.readInt();
+			if (entry < 0 || entry >= size)
+				throw new IOException("Invalid entry in type name index"); //$NON-NLS-1$
+			permutation[i]= entry;
+		}
+		return permutation;
+	}
+}
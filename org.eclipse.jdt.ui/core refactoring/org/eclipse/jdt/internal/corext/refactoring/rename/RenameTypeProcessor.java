@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -86,6 +86,7 @@ import org.eclipse.jdt.core.search.SearchPattern;
 import org.eclipse.jdt.core.search.TypeReferenceMatch;
 
 import org.eclipse.jdt.internal.core.refactoring.descriptors.RefactoringSignatureDescriptorFactory;
+import org.eclipse.jdt.internal.corext.dom.ASTBatchParser;
 import org.eclipse.jdt.internal.corext.refactoring.Checks;
 import org.eclipse.jdt.internal.corext.refactoring.JDTRefactoringDescriptorComment;
 import org.eclipse.jdt.internal.corext.refactoring.JavaRefactoringArguments;
@@ -1294,6 +1295,8 @@ public class RenameTypeProcessor extends JavaRenameProcessor implements ITextUpd
 
 		final RefactoringStatus status= new RefactoringStatus();
 		final Set<IMethod> handledTopLevelMethods= new HashSet<>();
+		// similarly named methods often share their hierarchies
+		final RippleMethodFinder2.HierarchyCache hierarchyCache= new RippleMethodFinder2.HierarchyCache(null, ASTBatchParser.getDefaultParallelism());
 		final Set<Warning> warnings= new HashSet<>();
 		final List<RefactoringProcessor> processors= new ArrayList<>();
 		fFinalSimilarElementToName= new HashMap<>();
@@ -1379,7 +1382,7 @@ public class RenameTypeProcessor extends JavaRenameProcessor implements ITextUpd
 					if (handledTopLevelMethods.contains(currentMethod))
 						continue;
 					handledTopLevelMethods.add(currentMethod);
-					final IMethod[] ripples= RippleMethodFinder2.getRelatedMethods(currentMethod, new NullProgressMonitor(), null);
+					final IMethod[] ripples= RippleMethodFinder2.getRelatedMethods(currentMethod, true, hierarchyCache, new NullProgressMonitor());
 
 					if (checkForWarnings(warnings, newName, ripples))
 						continue;
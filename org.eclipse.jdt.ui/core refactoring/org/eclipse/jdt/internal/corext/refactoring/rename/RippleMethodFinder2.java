@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -19,10 +19,22 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SubProgressMonitor;
 
@@ -42,6 +54,7 @@ import org.eclipse.jdt.core.search.SearchParticipant;
 import org.eclipse.jdt.core.search.SearchPattern;
 import org.eclipse.jdt.core.search.SearchRequestor;
 
+import org.eclipse.jdt.internal.corext.dom.ASTBatchParser;
 import org.eclipse.jdt.internal.corext.refactoring.RefactoringScopeFactory;
 import org.eclipse.jdt.internal.corext.refactoring.base.ReferencesInBinaryContext;
 import org.eclipse.jdt.internal.corext.util.JavaModelUtil;
@@ -55,7 +68,7 @@ public class RippleMethodFinder2 {
 	private Map<IType, IMethod> fTypeToMethod;
 	private Set<IType> fRootTypes;
 	private MultiMap<IType, IType> fRootReps;
-	private Map<IType, ITypeHierarchy> fRootHierarchies;
+	private final HierarchyCache fHierarchyCache;
 	private UnionFind fUnionFind;
 
 	private final boolean fExcludeBinaries;
@@ -77,88 +90,341 @@ public class RippleMethodFinder2 {
 		public Collection<V> get(K key) {
 			return fImplementation.get(key);
 		}
+
+		public Collection<Collection<V>> values() {
+			return fImplementation.values();
+		}
 	}
+	/**
+	 * Union-find over the types declaring the method. The types are indexed in the order
+	 * of {@link #init(IType)}, the partitions are kept in arrays with path compression
+	 * and union by rank.
+	 */
 	private static class UnionFind {
-		HashMap<IType, IType> fElementToRepresentative= new HashMap<>();
+		private final HashMap<IType, Integer> fTypeToIndex;
+		private final IType[] fTypes;
+		private final int[] fParents;
+		private final int[] fRanks;
+		private int fSize;
+
+		public UnionFind(int capacity) {
+			fTypeToIndex= new HashMap<>(capacity * 2);
+			fTypes= new IType[capacity];
+			fParents= new int[capacity];
+			fRanks= new int[capacity];
+		}
 
 		public void init(IType type) {
-			fElementToRepresentative.put(type, type);
+			if (fTypeToIndex.containsKey(type))
+				return;
+			fTypeToIndex.put(type, Integer.valueOf(fSize));
+			fTypes[fSize]= type;
+			fParents[fSize]= fSize;
+			fSize++;
 		}
 
-		//path compression:
+		/**
+		 * Returns the representative of the given type.
+		 *
+		 * @param element the type
+		 * @return the representative, or <code>null</code> if the type does not declare the method
+		 */
 		public IType find(IType element) {
-			IType root= element;
-			IType rep= fElementToRepresentative.get(root);
-			while (rep != null && ! rep.equals(root)) {
-				root= rep;
-				rep= fElementToRepresentative.get(root);
-			}
-			if (rep == null)
+			Integer index= fTypeToIndex.get(element);
+			if (index == null)
 				return null;
+			return fTypes[findRoot(index.intValue())];
+		}
 
-			rep= fElementToRepresentative.get(element);
-			while (! rep.equals(root)) {
-				IType temp= element;
-				element= rep;
-				fElementToRepresentative.put(temp, root);
-				rep= fElementToRepresentative.get(element);
+		//path compression:
+		private int findRoot(int index) {
+			int root= index;
+			while (fParents[root] != root)
+				root= fParents[root];
+			while (fParents[index] != root) {
+				int next= fParents[index];
+				fParents[index]= root;
+				index= next;
 			}
 			return root;
 		}
 
-//		//straightforward:
-//		public IType find(IType element) {
-//			IType current= element;
-//			IType rep= (IType) fElementToRepresentative.get(current);
-//			while (rep != null && ! rep.equals(current)) {
-//				current= rep;
-//				rep= (IType) fElementToRepresentative.get(current);
-//			}
-//			if (rep == null)
-//				return null;
-//			else
-//				return current;
-//		}
-
 		public void union(IType rep1, IType rep2) {
-			fElementToRepresentative.put(rep1, rep2);
+			int root1= findRoot(fTypeToIndex.get(rep1).intValue());
+			int root2= findRoot(fTypeToIndex.get(rep2).intValue());
+			if (root1 == root2)
+				return;
+			if (fRanks[root1] < fRanks[root2]) {
+				fParents[root1]= root2;
+			} else if (fRanks[root1] > fRanks[root2]) {
+				fParents[root2]= root1;
+			} else {
+				fParents[root1]= root2;
+				fRanks[root2]++;
+			}
 		}
 	}
 
+	/**
+	 * Type hierarchies of root types that can be shared by several ripple method computations
+	 * of the same refactoring, e.g. for the similarly named methods of a renamed type.
+	 * <p>
+	 * With a parallelism greater than 1, the hierarchies that the check for types inheriting the
+	 * method from two unrelated declarations needs are created concurrently, in a thread pool that
+	 * is shared by all caches. A hierarchy is created only once, also if several workers need it.
+	 * </p>
+	 * <p>
+	 * The hierarchies are not updated when the Java model changes. A cache must therefore not be
+	 * used beyond a single condition checking pass.
+	 * </p>
+	 *
+	 * @since 3.14
+	 */
+	public static final class HierarchyCache {
+
+		private static ThreadPoolExecutor fgExecutor;
+
+		private final WorkingCopyOwner fOwner;
+		private final int fParallelism;
+		private final ConcurrentHashMap<IType, FutureTask<ITypeHierarchy>> fHierarchies= new ConcurrentHashMap<>();
+
+		/**
+		 * Creates a new hierarchy cache.
+		 *
+		 * @param owner the working copy owner, or <code>null</code> to use the primary owner
+		 * @param parallelism the maximal number of hierarchies created concurrently, values &lt; 2
+		 *            create all hierarchies in the calling thread
+		 */
+		public HierarchyCache(WorkingCopyOwner owner, int parallelism) {
+			fOwner= owner;
+			fParallelism= Math.max(1, parallelism);
+		}
+
+		/**
+		 * Returns the hierarchy of the given type if it has been requested before. Waits if
+		 * another worker is still creating it.
+		 *
+		 * @param type the type
+		 * @return the hierarchy, or <code>null</code> if it has not been requested
+		 * @throws JavaModelException if creating the hierarchy failed
+		 */
+		ITypeHierarchy get(IType type) throws JavaModelException {
+			FutureTask<ITypeHierarchy> task= fHierarchies.get(type);
+			if (task == null)
+				return null;
+			return getResult(type, task);
+		}
+
+		ITypeHierarchy getHierarchy(final IType type, final IProgressMonitor monitor) throws JavaModelException {
+			FutureTask<ITypeHierarchy> task= fHierarchies.get(type);
+			if (task == null) {
+				FutureTask<ITypeHierarchy> newTask= new FutureTask<>(new Callable<ITypeHierarchy>() {
+					@Override
+					public ITypeHierarchy call() throws JavaModelException {
+						return type.newTypeHierarchy(fOwner, monitor);
+					}
+				});
+				task= fHierarchies.putIfAbsent(type, newTask);
+				if (task == null) {
+					task= newTask;
+					task.run();
+				}
+			}
+			return getResult(type, task);
+		}
+
+		/**
+		 * Returns a hierarchy that contains the given type: the hierarchy of the type if it has
+		 * been requested before, otherwise the first hierarchy of the given roots that contains
+		 * the type, or a new hierarchy of the type.
+		 *
+		 * @param type the type
+		 * @param roots the root types of the partition of the type, or <code>null</code>
+		 * @param monitor the progress monitor
+		 * @return the hierarchy
+		 * @throws JavaModelException if a hierarchy cannot be created
+		 */
+		ITypeHierarchy findHierarchy(IType type, Collection<IType> roots, IProgressMonitor monitor) throws JavaModelException {
+			ITypeHierarchy hierarchy= get(type);
+			if (hierarchy != null)
+				return hierarchy;
+			if (roots != null) {
+				for (Iterator<IType> iter= roots.iterator(); iter.hasNext();) {
+					hierarchy= getHierarchy(iter.next(), new SubProgressMonitor(monitor, 1));
+					if (hierarchy.contains(type))
+						return hierarchy;
+				}
+			}
+			return getHierarchy(type, new SubProgressMonitor(monitor, 1));
+		}
 
-	private RippleMethodFinder2(IMethod method, boolean excludeBinaries){
+		/**
+		 * Finds the hierarchies of the given types concurrently, see
+		 * {@link #findHierarchy(IType, Collection, IProgressMonitor)}. Does nothing if the
+		 * parallelism of this cache is 1.
+		 *
+		 * @param typeToRoots the types with the root types of their partitions
+		 * @param pm the progress monitor, only checked for cancellation
+		 * @throws JavaModelException if a hierarchy cannot be created
+		 */
+		void prefetch(final Map<IType, Collection<IType>> typeToRoots, final IProgressMonitor pm) throws JavaModelException {
+			if (fParallelism < 2 || typeToRoots.size() < 2)
+				return;
+
+			final List<IType> types= new ArrayList<>(typeToRoots.keySet());
+			final AtomicInteger next= new AtomicInteger();
+			final AtomicBoolean stopped= new AtomicBoolean();
+			final IProgressMonitor workerMonitor= new NullProgressMonitor() {
+				@Override
+				public boolean isCanceled() {
+					return stopped.get() || pm.isCanceled();
+				}
+			};
+			Callable<Object> worker= new Callable<Object>() {
+				@Override
+				public Object call() throws JavaModelException {
+					int index;
+					while ((index= next.getAndIncrement()) < types.size()) {
+						if (workerMonitor.isCanceled())
+							throw new OperationCanceledException();
+						IType type= types.get(index);
+						findHierarchy(type, typeToRoots.get(type), workerMonitor);
+					}
+					return null;
+				}
+			};
+			ThreadPoolExecutor executor= getExecutor();
+			int workers= Math.min(fParallelism, types.size());
+			List<Future<Object>> futures= new ArrayList<>(workers);
+			try {
+				for (int i= 0; i < workers; i++)
+					futures.add(executor.submit(worker));
+				for (Iterator<Future<Object>> iter= futures.iterator(); iter.hasNext();) {
+					try {
+						iter.next().get();
+					} catch (ExecutionException e) {
+						throw rethrow(e);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new OperationCanceledException();
+					}
+				}
+			} finally {
+				// let the remaining workers stop at the next type, don't interrupt the Java model
+				stopped.set(true);
+			}
+		}
+
+		private ITypeHierarchy getResult(IType type, FutureTask<ITypeHierarchy> task) throws JavaModelException {
+			try {
+				return task.get();
+			} catch (ExecutionException e) {
+				// the next request tries again, e.g. after a canceled worker
+				fHierarchies.remove(type, task);
+				throw rethrow(e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new OperationCanceledException();
+			}
+		}
+
+		private static RuntimeException rethrow(ExecutionException e) throws JavaModelException {
+			Throwable cause= e.getCause();
+			if (cause instanceof JavaModelException)
+				throw (JavaModelException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException(cause);
+		}
+
+		private static synchronized ThreadPoolExecutor getExecutor() {
+			if (fgExecutor == null) {
+				int parallelism= ASTBatchParser.getDefaultParallelism();
+				fgExecutor= new ThreadPoolExecutor(parallelism, parallelism, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					private final AtomicInteger fCount= new AtomicInteger();
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread= new Thread(runnable, "RippleMethodFinder worker " + fCount.incrementAndGet()); //$NON-NLS-1$
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+				fgExecutor.allowCoreThreadTimeOut(true);
+			}
+			return fgExecutor;
+		}
+	}
+
+
+	private RippleMethodFinder2(IMethod method, boolean excludeBinaries, HierarchyCache hierarchyCache){
 		fMethod= method;
 		fExcludeBinaries= excludeBinaries;
 		fBinaryRefs= null;
+		fHierarchyCache= hierarchyCache;
 	}
 
-	private RippleMethodFinder2(IMethod method, ReferencesInBinaryContext binaryRefs) {
+	private RippleMethodFinder2(IMethod method, ReferencesInBinaryContext binaryRefs, HierarchyCache hierarchyCache) {
 		fMethod= method;
 		fExcludeBinaries= true;
 		fDeclarationToMatch= new HashMap<>();
 		fBinaryRefs= binaryRefs;
+		fHierarchyCache= hierarchyCache;
 	}
 
 	public static IMethod[] getRelatedMethods(IMethod method, boolean excludeBinaries, IProgressMonitor pm, WorkingCopyOwner owner) throws CoreException {
+		return getRelatedMethods(method, excludeBinaries, new HierarchyCache(owner, 1), pm);
+	}
+
+	/**
+	 * Finds the methods related to the given method, sharing the hierarchies of the given cache.
+	 *
+	 * @param method the method
+	 * @param excludeBinaries <code>true</code> to exclude binary methods from the result
+	 * @param hierarchyCache the hierarchy cache, which also determines the working copy owner
+	 * @param pm the progress monitor
+	 * @return the related methods
+	 * @throws CoreException if the search or a type hierarchy fails
+	 * @since 3.14
+	 */
+	public static IMethod[] getRelatedMethods(IMethod method, boolean excludeBinaries, HierarchyCache hierarchyCache, IProgressMonitor pm) throws CoreException {
 		try{
 			if (! MethodChecks.isVirtual(method))
 				return new IMethod[]{ method };
 
-			return new RippleMethodFinder2(method, excludeBinaries).getAllRippleMethods(pm, owner);
+			return new RippleMethodFinder2(method, excludeBinaries, hierarchyCache).getAllRippleMethods(pm, hierarchyCache.fOwner);
 		} finally{
 			pm.done();
 		}
 	}
+
 	public static IMethod[] getRelatedMethods(IMethod method, IProgressMonitor pm, WorkingCopyOwner owner) throws CoreException {
 		return getRelatedMethods(method, true, pm, owner);
 	}
 
 	public static IMethod[] getRelatedMethods(IMethod method, ReferencesInBinaryContext binaryRefs, IProgressMonitor pm, WorkingCopyOwner owner) throws CoreException {
+		return getRelatedMethods(method, binaryRefs, new HierarchyCache(owner, 1), pm);
+	}
+
+	/**
+	 * Finds the methods related to the given method, sharing the hierarchies of the given cache.
+	 * Binary methods are reported to <code>binaryRefs</code> instead of being returned.
+	 *
+	 * @param method the method
+	 * @param binaryRefs the context collecting binary references
+	 * @param hierarchyCache the hierarchy cache, which also determines the working copy owner
+	 * @param pm the progress monitor
+	 * @return the related source methods
+	 * @throws CoreException if the search or a type hierarchy fails
+	 * @since 3.14
+	 */
+	public static IMethod[] getRelatedMethods(IMethod method, ReferencesInBinaryContext binaryRefs, HierarchyCache hierarchyCache, IProgressMonitor pm) throws CoreException {
 		try {
 			if (! MethodChecks.isVirtual(method))
 				return new IMethod[]{ method };
 
-			return new RippleMethodFinder2(method, binaryRefs).getAllRippleMethods(pm, owner);
+			return new RippleMethodFinder2(method, binaryRefs, hierarchyCache).getAllRippleMethods(pm, hierarchyCache.fOwner);
 		} finally{
 			pm.done();
 		}
@@ -247,6 +513,18 @@ public class RippleMethodFinder2 {
 		if (! hasRelatedInterfaces && ! hasAlienInterfaces) //no nasty marriage scenarios without interfaces...
 			return relatedMethods.toArray(new IMethod[relatedMethods.size()]);
 
+		//the marriage check needs a hierarchy of each related and alien type:
+		Map<IType, Collection<IType>> typeToRoots= new HashMap<>();
+		for (Iterator<IType> iter= relatedTypes.iterator(); iter.hasNext();) {
+			IType relatedType= iter.next();
+			typeToRoots.put(relatedType, getRoots(relatedType));
+		}
+		for (Iterator<IType> iter= alienTypes.iterator(); iter.hasNext();) {
+			IType alienType= iter.next();
+			typeToRoots.put(alienType, getRoots(alienType));
+		}
+		fHierarchyCache.prefetch(typeToRoots, pm);
+
 		//find all subtypes of related types:
 		HashSet<IType> relatedSubTypes= new HashSet<>();
 		List<IType> relatedTypesToProcess= new ArrayList<>(relatedTypes);
@@ -256,9 +534,7 @@ public class RippleMethodFinder2 {
 				if (pm.isCanceled())
 					throw new OperationCanceledException();
 				IType relatedType= iter.next();
-				ITypeHierarchy hierarchy= getCachedHierarchy(relatedType, owner, new SubProgressMonitor(pm, 1));
-				if (hierarchy == null)
-					hierarchy= relatedType.newTypeHierarchy(owner, new SubProgressMonitor(pm, 1));
+				ITypeHierarchy hierarchy= fHierarchyCache.findHierarchy(relatedType, getRoots(relatedType), new SubProgressMonitor(pm, 1));
 				IType[] allSubTypes= hierarchy.getAllSubtypes(relatedType);
 				for (int i= 0; i < allSubTypes.length; i++)
 					relatedSubTypes.add(allSubTypes[i]);
@@ -271,9 +547,7 @@ public class RippleMethodFinder2 {
 					throw new OperationCanceledException();
 				IType alienType= iter.next();
 				IMethod alienMethod= fTypeToMethod.get(alienType);
-				ITypeHierarchy hierarchy= getCachedHierarchy(alienType, owner, new SubProgressMonitor(pm, 1));
-				if (hierarchy == null)
-					hierarchy= alienType.newTypeHierarchy(owner, new SubProgressMonitor(pm, 1));
+				ITypeHierarchy hierarchy= fHierarchyCache.findHierarchy(alienType, getRoots(alienType), new SubProgressMonitor(pm, 1));
 				IType[] allSubtypes= hierarchy.getAllSubtypes(alienType);
 				for (int i= 0; i < allSubtypes.length; i++) {
 					IType subtype= allSubtypes[i];
@@ -303,29 +577,15 @@ public class RippleMethodFinder2 {
 		}
 
 		fRootReps= null;
-		fRootHierarchies= null;
 		fTypeToMethod= null;
 		fUnionFind= null;
 
 		return relatedMethods.toArray(new IMethod[relatedMethods.size()]);
 	}
 
-	private ITypeHierarchy getCachedHierarchy(IType type, WorkingCopyOwner owner, IProgressMonitor monitor) throws JavaModelException {
+	private Collection<IType> getRoots(IType type) {
 		IType rep= fUnionFind.find(type);
-		if (rep != null) {
-			Collection<IType> collection= fRootReps.get(rep);
-			for (Iterator<IType> iter= collection.iterator(); iter.hasNext();) {
-				IType root= iter.next();
-				ITypeHierarchy hierarchy= fRootHierarchies.get(root);
-				if (hierarchy == null) {
-					hierarchy= root.newTypeHierarchy(owner, new SubProgressMonitor(monitor, 1));
-					fRootHierarchies.put(root, hierarchy);
-				}
-				if (hierarchy.contains(type))
-					return hierarchy;
-			}
-		}
-		return null;
+		return rep != null ? fRootReps.get(rep) : null;
 	}
 
 	private void findAllDeclarations(IProgressMonitor monitor, WorkingCopyOwner owner) throws CoreException {
@@ -375,7 +635,7 @@ public class RippleMethodFinder2 {
 
 	private void createUnionFind() throws JavaModelException {
 		fRootTypes= new HashSet<>(fTypeToMethod.keySet());
-		fUnionFind= new UnionFind();
+		fUnionFind= new UnionFind(fTypeToMethod.size());
 		for (Iterator<IType> iter= fTypeToMethod.keySet().iterator(); iter.hasNext();) {
 			IType type= iter.next();
 			fUnionFind.init(type);
@@ -391,7 +651,6 @@ public class RippleMethodFinder2 {
 			if (rep != null)
 				fRootReps.put(rep, type);
 		}
-		fRootHierarchies= new HashMap<>();
 	}
 
 	private void uniteWithSupertypes(IType anchor, IType type) throws JavaModelException {
@@ -33,4 +33,6 @@ final class JIJConstants {
 	static final String CURRENT_DIR                          = "./";  //$NON-NLS-1$
 	static final String UTF8_ENCODING                        = "UTF-8";  //$NON-NLS-1$
 	static final String RUNTIME                              = "#runtime";  //$NON-NLS-1$
+	static final String INDEX_NAME                           = "META-INF/JARINJAR.LIST";  //$NON-NLS-1$
+	static final String INDEX_VERSION_NAME                   = "JarInJarIndex-Version:";  //$NON-NLS-1$
 }
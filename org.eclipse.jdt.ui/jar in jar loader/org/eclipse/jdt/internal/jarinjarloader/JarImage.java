@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.jarinjarloader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * This class will be compiled into the binary jar-in-jar-loader.zip. This ZIP is used for the
+ * "Runnable JAR File Exporter"
+ *
+ * The image of a nested JAR in memory. The central directory is read once, so entries are found
+ * without scanning the archive; an entry is inflated when it is read.
+ *
+ * @since 3.14
+ */
+final class JarImage {
+
+	private static final int LOCAL_HEADER_SIGNATURE= 0x04034b50;
+	private static final int CENTRAL_HEADER_SIGNATURE= 0x02014b50;
+	private static final int END_SIGNATURE= 0x06054b50;
+	private static final int END_LENGTH= 22;
+	private static final int ZIP64_MARKER= 0xffffffff;
+
+	/**
+	 * Location of an entry in the image.
+	 */
+	private static final class Entry {
+		int method;
+		int compressedSize;
+		int size;
+		int headerOffset;
+	}
+
+	private final byte[] bytes;
+	private final Hashtable entries; // String -> Entry
+	private boolean signed;
+	private Manifest manifest;
+	private boolean manifestRead;
+
+	private JarImage(byte[] bytes) throws IOException {
+		this.bytes= bytes;
+		this.entries= new Hashtable();
+		readCentralDirectory();
+	}
+
+	/**
+	 * Reads the image of a JAR.
+	 *
+	 * @param is the content of the JAR, closed by this method
+	 * @return the image
+	 * @throws IOException if the JAR cannot be read, or is not supported (ZIP64)
+	 */
+	static JarImage read(InputStream is) throws IOException {
+		try {
+			ByteArrayOutputStream out= new ByteArrayOutputStream(64 * 1024);
+			byte[] buffer= new byte[64 * 1024];
+			int count;
+			while ((count= is.read(buffer)) != -1)
+				out.write(buffer, 0, count);
+			return new JarImage(out.toByteArray());
+		} finally {
+			is.close();
+		}
+	}
+
+	private void readCentralDirectory() throws IOException {
+		int end= bytes.length - END_LENGTH;
+		int stop= Math.max(0, end - 0xffff); // the comment has at most 64 KB
+		while (end >= stop && getInt(end) != END_SIGNATURE)
+			end--;
+		if (end < stop)
+			throw new IOException("No ZIP archive"); //$NON-NLS-1$
+		int count= getShort(end + 10);
+		int offset= getInt(end + 16);
+		if (count == 0xffff || offset == ZIP64_MARKER)
+			throw new IOException("ZIP64 archives are not supported"); //$NON-NLS-1$
+		for (int i= 0; i < count; i++) {
+			if (offset + 46 > bytes.length || getInt(offset) != CENTRAL_HEADER_SIGNATURE)
+				throw new IOException("Invalid central directory"); //$NON-NLS-1$
+			Entry entry= new Entry();
+			entry.method= getShort(offset + 10);
+			entry.compressedSize= getInt(offset + 20);
+			entry.size= getInt(offset + 24);
+			int nameLength= getShort(offset + 28);
+			int extraLength= getShort(offset + 30);
+			int commentLength= getShort(offset + 32);
+			entry.headerOffset= getInt(offset + 42);
+			if (entry.compressedSize == ZIP64_MARKER || entry.size == ZIP64_MARKER || entry.headerOffset == ZIP64_MARKER)
+				throw new IOException("ZIP64 archives are not supported"); //$NON-NLS-1$
+			String name= new String(bytes, offset + 46, nameLength, JIJConstants.UTF8_ENCODING);
+			if (!entries.containsKey(name))
+				entries.put(name, entry);
+			String upperCase= name.toUpperCase();
+			if (upperCase.startsWith("META-INF/") && upperCase.endsWith(".SF")) //$NON-NLS-1$ //$NON-NLS-2$
+				signed= true;
+			offset+= 46 + nameLength + extraLength + commentLength;
+		}
+	}
+
+	/**
+	 * @param name the name of an entry
+	 * @return <code>true</code> if the JAR has an entry of this name
+	 */
+	boolean hasEntry(String name) {
+		return entries.containsKey(name);
+	}
+
+	/**
+	 * @return <code>true</code> if the JAR has a signature file; its entries must be verified when
+	 *         they are read, which this image does not do
+	 */
+	boolean isSigned() {
+		return signed;
+	}
+
+	/**
+	 * @return the names of all entries
+	 */
+	Enumeration getEntryNames() {
+		return entries.keys();
+	}
+
+	/**
+	 * Reads an entry.
+	 *
+	 * @param name the name of the entry
+	 * @return the content of the entry, or <code>null</code> if there is no such entry
+	 * @throws IOException if the entry cannot be read
+	 */
+	byte[] getEntry(String name) throws IOException {
+		Entry entry= (Entry) entries.get(name);
+		if (entry == null)
+			return null;
+		int offset= entry.headerOffset;
+		if (offset + 30 > bytes.length || getInt(offset) != LOCAL_HEADER_SIGNATURE)
+			throw new IOException("Invalid local header of " + name); //$NON-NLS-1$
+		int data= offset + 30 + getShort(offset + 26) + getShort(offset + 28);
+		if (data + entry.compressedSize > bytes.length)
+			throw new IOException("Truncated entry " + name); //$NON-NLS-1$
+		byte[] result= new byte[entry.size];
+		if (entry.method == ZipEntry.STORED) {
+			System.arraycopy(bytes, data, result, 0, entry.size);
+			return result;
+		}
+		if (entry.method != ZipEntry.DEFLATED)
+			throw new IOException("Unsupported compression method of " + name); //$NON-NLS-1$
+		Inflater inflater= new Inflater(true);
+		try {
+			// the extra byte is required by the inflater with nowrap
+			byte[] input= new byte[entry.compressedSize + 1];
+			System.arraycopy(bytes, data, input, 0, entry.compressedSize);
+			inflater.setInput(input);
+			int length= 0;
+			while (length < result.length) {
+				int count= inflater.inflate(result, length, result.length - length);
+				if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+					throw new IOException("Corrupt entry " + name); //$NON-NLS-1$
+				length+= count;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupt entry " + name + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+		} finally {
+			inflater.end();
+		}
+		return result;
+	}
+
+	/**
+	 * Opens an entry.
+	 *
+	 * @param name the name of the entry
+	 * @return the content of the entry, or <code>null</code> if there is no such entry
+	 * @throws IOException if the entry cannot be read
+	 */
+	InputStream getInputStream(String name) throws IOException {
+		byte[] content= getEntry(name);
+		return content != null ? new ByteArrayInputStream(content) : null;
+	}
+
+	/**
+	 * @return the manifest of the JAR, or <code>null</code> if it has none
+	 */
+	synchronized Manifest getManifest() {
+		if (!manifestRead) {
+			manifestRead= true;
+			try {
+				InputStream is= getInputStream(JarFile.MANIFEST_NAME);
+				if (is != null)
+					manifest= new Manifest(is);
+			} catch (IOException e) {
+				// no manifest
+			}
+		}
+		return manifest;
+	}
+
+	private int getShort(int offset) {
+		return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8;
+	}
+
+	private int getInt(int offset) {
+		return getShort(offset) | getShort(offset + 2) << 16;
+	}
+}
@@ -0,0 +1,438 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.jarinjarloader;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Method;
+import java.net.JarURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.security.CodeSource;
+import java.security.SecureClassLoader;
+import java.security.cert.Certificate;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Vector;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+/**
+ * This class will be compiled into the binary jar-in-jar-loader.zip. This ZIP is used for the
+ * "Runnable JAR File Exporter"
+ *
+ * Loads classes and resources from the Rsrc-Class-Path of a runnable JAR: nested JARs and folders
+ * of the runnable JAR.
+ * <p>
+ * Every name is looked up in an index from packages to class path entries, so only the entries
+ * that contain the package are searched. The index is read from {@link JIJConstants#INDEX_NAME},
+ * written by the exporter; nested JARs that are missing from it are read at startup and indexed
+ * here. A nested JAR is kept as a {@link JarImage} in memory once it is used.
+ * </p>
+ * <p>
+ * Signed nested JARs, and nested JARs that cannot be read into an image, are read through their
+ * <code>jar:rsrc:</code> URLs instead, so that the entries are verified and classes keep the
+ * certificates of their signers.
+ * </p>
+ * <p>
+ * The loader is parallel capable when the VM supports it (1.7 or later).
+ * </p>
+ *
+ * @since 3.14
+ */
+final class RsrcClassLoader extends SecureClassLoader {
+
+	static {
+		try {
+			// ClassLoader.registerAsParallelCapable() is not available in 1.3
+			Method method= ClassLoader.class.getDeclaredMethod("registerAsParallelCapable", new Class[0]); //$NON-NLS-1$
+			method.setAccessible(true);
+			method.invoke(null, new Object[0]);
+		} catch (Exception e) {
+			// loading is serialized by the VM
+		}
+	}
+
+	private final ClassLoader outerLoader;
+	private final String[] classPath;
+	private final URL[] urls;
+	private final CodeSource[] codeSources;
+	private final JarImage[] images;
+	private final ClassLoader[] fallbackLoaders; // for signed nested JARs, and those that cannot be read into an image
+	private final Object[] locks;
+	private final Hashtable positions; // String (nested JAR) -> Integer
+	private final Hashtable index; // String (package) -> int[] (ascending positions)
+	private final int[] searchedAlways; // folders and nested JARs without image, searched for every name
+	private final URLStreamHandler handler;
+
+	/**
+	 * Creates a loader for the given class path.
+	 *
+	 * @param classPath the Rsrc-Class-Path: names of nested JARs, and folders ending with '/'
+	 * @param outerLoader the loader of the runnable JAR
+	 * @throws MalformedURLException if the rsrc protocol is not installed
+	 */
+	RsrcClassLoader(String[] classPath, ClassLoader outerLoader) throws MalformedURLException {
+		super(null);
+		this.outerLoader= outerLoader;
+		this.classPath= classPath;
+		this.urls= new URL[classPath.length];
+		this.codeSources= new CodeSource[classPath.length];
+		this.images= new JarImage[classPath.length];
+		this.fallbackLoaders= new ClassLoader[classPath.length];
+		this.locks= new Object[classPath.length];
+		this.positions= new Hashtable();
+		this.handler= new NestedJarURLStreamHandler();
+
+		Hashtable exportedIndex= readIndex(outerLoader);
+		Hashtable packages= new Hashtable(); // String -> Vector of Integer
+		Vector searched= new Vector();
+		for (int i= 0; i < classPath.length; i++) {
+			String entry= classPath[i];
+			locks[i]= new Object();
+			if (isFolder(i)) {
+				urls[i]= new URL(JIJConstants.INTERNAL_URL_PROTOCOL_WITH_COLON + entry);
+				searched.addElement(new Integer(i));
+			} else {
+				urls[i]= new URL(JIJConstants.JAR_INTERNAL_URL_PROTOCOL_WITH_COLON + entry + JIJConstants.JAR_INTERNAL_SEPARATOR);
+				if (!positions.containsKey(entry))
+					positions.put(entry, new Integer(i));
+				Vector keys= (Vector) exportedIndex.get(entry);
+				if (keys != null) {
+					for (int k= 0; k < keys.size(); k++)
+						addPosition(packages, (String) keys.elementAt(k), i);
+				} else {
+					JarImage image= getImage(i);
+					if (image != null) {
+						for (Enumeration names= image.getEntryNames(); names.hasMoreElements();) {
+							String name= (String) names.nextElement();
+							if (!name.endsWith(JIJConstants.PATH_SEPARATOR))
+								addPosition(packages, getKey(name), i);
+						}
+					} else {
+						searched.addElement(new Integer(i));
+					}
+				}
+			}
+			codeSources[i]= new CodeSource(urls[i], (Certificate[]) null);
+		}
+		this.index= new Hashtable(packages.size() * 2);
+		for (Enumeration keys= packages.keys(); keys.hasMoreElements();) {
+			String key= (String) keys.nextElement();
+			index.put(key, toArray((Vector) packages.get(key)));
+		}
+		this.searchedAlways= toArray(searched);
+	}
+
+	/*
+	 * Reads the index written by the exporter: sections of a nested JAR name followed by the
+	 * packages and root files in this JAR, separated by empty lines.
+	 */
+	private static Hashtable readIndex(ClassLoader outerLoader) {
+		Hashtable result= new Hashtable();
+		InputStream is= outerLoader.getResourceAsStream(JIJConstants.INDEX_NAME);
+		if (is == null)
+			return result;
+		try {
+			BufferedReader reader= new BufferedReader(new InputStreamReader(is, JIJConstants.UTF8_ENCODING));
+			try {
+				String line= reader.readLine();
+				if (line == null || !line.startsWith(JIJConstants.INDEX_VERSION_NAME))
+					return result;
+				Vector keys= null;
+				while ((line= reader.readLine()) != null) {
+					if (line.length() == 0) {
+						keys= null;
+					} else if (keys == null) {
+						keys= new Vector();
+						result.put(line, keys);
+					} else {
+						keys.addElement(line);
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			result.clear(); // index the nested JARs here
+		}
+		return result;
+	}
+
+	private static void addPosition(Hashtable packages, String key, int position) {
+		Vector list= (Vector) packages.get(key);
+		if (list == null) {
+			list= new Vector(1);
+			packages.put(key, list);
+		}
+		// positions are added in ascending order
+		if (list.isEmpty() || ((Integer) list.lastElement()).intValue() != position)
+			list.addElement(new Integer(position));
+	}
+
+	private static int[] toArray(Vector list) {
+		int[] result= new int[list.size()];
+		for (int i= 0; i < result.length; i++)
+			result[i]= ((Integer) list.elementAt(i)).intValue();
+		return result;
+	}
+
+	/**
+	 * @param name the name of an entry
+	 * @return the key of the entry in the index: the folder of a file, or the name of a file at
+	 *         the root
+	 */
+	static String getKey(String name) {
+		int separator= name.lastIndexOf('/');
+		return separator > 0 ? name.substring(0, separator) : name;
+	}
+
+	private boolean isFolder(int position) {
+		return classPath[position].endsWith(JIJConstants.PATH_SEPARATOR);
+	}
+
+	private int[] getPositions(String name) {
+		int[] indexed= (int[]) index.get(getKey(name));
+		if (indexed == null)
+			return searchedAlways;
+		if (searchedAlways.length == 0)
+			return indexed;
+		int[] result= new int[indexed.length + searchedAlways.length];
+		int i= 0, k= 0, n= 0;
+		while (i < indexed.length || k < searchedAlways.length) {
+			if (k == searchedAlways.length || (i < indexed.length && indexed[i] < searchedAlways[k]))
+				result[n++]= indexed[i++];
+			else
+				result[n++]= searchedAlways[k++];
+		}
+		return result;
+	}
+
+	private JarImage getImage(int position) {
+		synchronized (locks[position]) {
+			if (images[position] == null && fallbackLoaders[position] == null) {
+				try {
+					InputStream is= outerLoader.getResourceAsStream(classPath[position]);
+					if (is == null)
+						throw new IOException("Missing " + classPath[position]); //$NON-NLS-1$
+					JarImage image= JarImage.read(is);
+					if (image.isSigned())
+						throw new IOException("Signed " + classPath[position]); //$NON-NLS-1$
+					images[position]= image;
+				} catch (IOException e) {
+					fallbackLoaders[position]= new URLClassLoader(new URL[] { urls[position] }, null);
+				}
+			}
+			return images[position];
+		}
+	}
+
+	private String getFolderName(int position, String name) {
+		String folder= classPath[position];
+		return JIJConstants.CURRENT_DIR.equals(folder) ? name : folder + name;
+	}
+
+	private boolean hasEntry(int position, String name) {
+		if (isFolder(position))
+			return outerLoader.getResource(getFolderName(position, name)) != null;
+		JarImage image= getImage(position);
+		if (image != null)
+			return image.hasEntry(name);
+		return fallbackLoaders[position].getResource(name) != null;
+	}
+
+	private InputStream getInputStream(int position, String name) throws IOException {
+		if (isFolder(position))
+			return outerLoader.getResourceAsStream(getFolderName(position, name));
+		JarImage image= getImage(position);
+		if (image != null)
+			return image.getInputStream(name);
+		return fallbackLoaders[position].getResourceAsStream(name);
+	}
+
+	private byte[] getEntry(int position, String name) throws IOException {
+		if (!isFolder(position)) {
+			JarImage image= getImage(position);
+			if (image != null)
+				return image.getEntry(name);
+		}
+		InputStream is= getInputStream(position, name);
+		if (is == null)
+			return null;
+		return readFully(is);
+	}
+
+	private static byte[] readFully(InputStream is) throws IOException {
+		try {
+			ByteArrayOutputStream out= new ByteArrayOutputStream();
+			byte[] buffer= new byte[8192];
+			int count;
+			while ((count= is.read(buffer)) != -1)
+				out.write(buffer, 0, count);
+			return out.toByteArray();
+		} finally {
+			is.close();
+		}
+	}
+
+	protected Class findClass(String name) throws ClassNotFoundException {
+		String path= name.replace('.', '/').concat(".class"); //$NON-NLS-1$
+		int[] candidates= getPositions(path);
+		for (int i= 0; i < candidates.length; i++) {
+			int position= candidates[i];
+			if (!isFolder(position) && getImage(position) == null) {
+				Class result= findVerifiedClass(name, path, position);
+				if (result != null)
+					return result;
+				continue;
+			}
+			byte[] content;
+			try {
+				content= getEntry(position, path);
+			} catch (IOException e) {
+				throw new ClassNotFoundException(name, e);
+			}
+			if (content != null) {
+				definePackage(name, position);
+				return defineClass(name, content, 0, content.length, codeSources[position]);
+			}
+		}
+		throw new ClassNotFoundException(name);
+	}
+
+	/*
+	 * Reads a class of a nested JAR without image through its "jar:rsrc:" URL, which verifies the
+	 * entry, and defines it with the certificates of the entry.
+	 */
+	private Class findVerifiedClass(String name, String path, int position) throws ClassNotFoundException {
+		URL url= fallbackLoaders[position].getResource(path);
+		if (url == null)
+			return null;
+		try {
+			URLConnection connection= url.openConnection();
+			byte[] content= readFully(connection.getInputStream());
+			// the certificates are known once the entry has been read completely
+			Certificate[] certificates= connection instanceof JarURLConnection ? ((JarURLConnection) connection).getCertificates() : null;
+			CodeSource codeSource= certificates != null ? new CodeSource(urls[position], certificates) : codeSources[position];
+			definePackage(name, position);
+			return defineClass(name, content, 0, content.length, codeSource);
+		} catch (IOException e) {
+			throw new ClassNotFoundException(name, e);
+		}
+	}
+
+	private void definePackage(String className, int position) {
+		int dot= className.lastIndexOf('.');
+		if (dot <= 0)
+			return;
+		String packageName= className.substring(0, dot);
+		if (getPackage(packageName) != null)
+			return;
+		Manifest manifest= images[position] != null ? images[position].getManifest() : null;
+		try {
+			if (manifest == null) {
+				definePackage(packageName, null, null, null, null, null, null, null);
+				return;
+			}
+			Attributes section= manifest.getAttributes(packageName.replace('.', '/').concat(JIJConstants.PATH_SEPARATOR));
+			Attributes main= manifest.getMainAttributes();
+			boolean sealed= "true".equalsIgnoreCase(getAttribute(section, main, Attributes.Name.SEALED)); //$NON-NLS-1$
+			definePackage(packageName,
+					getAttribute(section, main, Attributes.Name.SPECIFICATION_TITLE),
+					getAttribute(section, main, Attributes.Name.SPECIFICATION_VERSION),
+					getAttribute(section, main, Attributes.Name.SPECIFICATION_VENDOR),
+					getAttribute(section, main, Attributes.Name.IMPLEMENTATION_TITLE),
+					getAttribute(section, main, Attributes.Name.IMPLEMENTATION_VERSION),
+					getAttribute(section, main, Attributes.Name.IMPLEMENTATION_VENDOR),
+					sealed ? urls[position] : null);
+		} catch (IllegalArgumentException e) {
+			// defined by another thread
+		}
+	}
+
+	private static String getAttribute(Attributes section, Attributes main, Attributes.Name name) {
+		String value= section != null ? section.getValue(name) : null;
+		return value != null ? value : main.getValue(name);
+	}
+
+	private URL getURL(int position, String name) {
+		if (!hasEntry(position, name))
+			return null;
+		try {
+			if (isFolder(position))
+				return new URL(urls[position], name);
+			return new URL(null, JIJConstants.JAR_INTERNAL_URL_PROTOCOL_WITH_COLON + classPath[position] + JIJConstants.JAR_INTERNAL_SEPARATOR + name, handler);
+		} catch (MalformedURLException e) {
+			return null;
+		}
+	}
+
+	protected URL findResource(String name) {
+		int[] candidates= getPositions(name);
+		for (int i= 0; i < candidates.length; i++) {
+			URL url= getURL(candidates[i], name);
+			if (url != null)
+				return url;
+		}
+		return null;
+	}
+
+	protected Enumeration findResources(String name) {
+		Vector result= new Vector();
+		int[] candidates= getPositions(name);
+		for (int i= 0; i < candidates.length; i++) {
+			URL url= getURL(candidates[i], name);
+			if (url != null)
+				result.addElement(url);
+		}
+		return result.elements();
+	}
+
+	/**
+	 * Opens "jar:rsrc:nested.jar!/path/file.ext" URLs from the images of the nested JARs.
+	 */
+	private final class NestedJarURLStreamHandler extends URLStreamHandler {
+
+		protected void parseURL(URL url, String spec, int start, int limit) {
+			setURL(url, "jar", "", -1, null, null, spec.substring(start, limit), null, null); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		protected URLConnection openConnection(URL url) throws IOException {
+			String file= url.getFile();
+			int separator= file.indexOf(JIJConstants.JAR_INTERNAL_SEPARATOR);
+			if (!file.startsWith(JIJConstants.INTERNAL_URL_PROTOCOL_WITH_COLON) || separator == -1)
+				throw new MalformedURLException(url.toString());
+			Integer position= (Integer) positions.get(file.substring(JIJConstants.INTERNAL_URL_PROTOCOL_WITH_COLON.length(), separator));
+			if (position == null)
+				throw new MalformedURLException(url.toString());
+			final int jar= position.intValue();
+			final String name= file.substring(separator + JIJConstants.JAR_INTERNAL_SEPARATOR.length());
+			return new URLConnection(url) {
+				public void connect() {
+					connected= true;
+				}
+
+				public InputStream getInputStream() throws IOException {
+					InputStream result= RsrcClassLoader.this.getInputStream(jar, name);
+					if (result == null)
+						throw new IOException("Could not open InputStream for URL '" + url + "'"); //$NON-NLS-1$ //$NON-NLS-2$
+					return result;
+				}
+			};
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -30,6 +30,7 @@ import org.eclipse.jdt.core.IMethod;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.JavaModelException;
 
+import org.eclipse.jdt.internal.corext.callhierarchy.CallGraphCache;
 import org.eclipse.jdt.internal.corext.callhierarchy.CallerMethodWrapper;
 import org.eclipse.jdt.internal.corext.callhierarchy.MethodCall;
 import org.eclipse.jdt.internal.corext.callhierarchy.MethodWrapper;
@@ -74,6 +75,7 @@ public class CallHierarchyContentProvider implements ITreeContentProvider {
         @Override
 		public void run(IProgressMonitor pm) {
         	fCalls= fMethodWrapper.getCalls(pm);
+        	prefetchChildren(fCalls);
         }
 
         MethodWrapper[] getCalls() {
@@ -316,6 +318,17 @@ public class CallHierarchyContentProvider implements ITreeContentProvider {
     }
 
 
+    /**
+     * Starts computing the children of the given nodes in the background, so that expanding
+     * the siblings of a node does not have to wait for a search each.
+     *
+     * @param calls the children of an expanded node
+     * @since 3.14
+     */
+    void prefetchChildren(MethodWrapper[] calls) {
+    	CallGraphCache.getDefault().prefetch(calls, CallHierarchyUI.getDefault().getMaxCallDepth());
+    }
+
     /**
      * Returns whether the given element is an "Expand witch Constructors" node.
      * 
@@ -397,7 +410,7 @@ public class CallHierarchyContentProvider implements ITreeContentProvider {
      */
     @Override
 	public void dispose() {
-        // Nothing to dispose
+        CallGraphCache.getDefault().cancelPrefetches();
     }
 
     /**
@@ -451,6 +464,7 @@ public class CallHierarchyContentProvider implements ITreeContentProvider {
      * @param wrappers the parents to cancel jobs for
      */
     void cancelJobs(MethodWrapper[] wrappers) {
+        CallGraphCache.getDefault().cancelPrefetches();
         if (fManager != null && wrappers != null) {
         	for (int i= 0; i < wrappers.length; i++) {
 				MethodWrapper wrapper= wrappers[i];
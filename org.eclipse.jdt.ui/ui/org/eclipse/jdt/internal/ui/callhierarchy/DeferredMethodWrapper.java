@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -64,7 +64,9 @@ public class DeferredMethodWrapper extends MethodWrapperWorkbenchAdapter impleme
     }
 
     private Object getCalls(IProgressMonitor monitor) {
-        return getMethodWrapper().getCalls(monitor);
+        MethodWrapper[] calls= getMethodWrapper().getCalls(monitor);
+        fProvider.prefetchChildren(calls);
+        return calls;
     }
 
     @Override
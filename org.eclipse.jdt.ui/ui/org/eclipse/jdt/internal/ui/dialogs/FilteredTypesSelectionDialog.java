@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -96,6 +96,7 @@ import org.eclipse.jdt.internal.corext.util.Strings;
 import org.eclipse.jdt.internal.corext.util.TypeFilter;
 import org.eclipse.jdt.internal.corext.util.TypeInfoFilter;
 import org.eclipse.jdt.internal.corext.util.TypeInfoRequestorAdapter;
+import org.eclipse.jdt.internal.corext.util.TypeNameCatalog;
 
 import org.eclipse.jdt.launching.IVMInstall;
 import org.eclipse.jdt.launching.IVMInstallType;
@@ -516,6 +517,9 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 		typeSearchFilter.setMatchEverythingMode(true);
 
 		try {
+			// the catalog answers without scanning the search index, as long as it is up to date
+			if (TypeNameCatalog.getInstance().search(typeSearchFilter.getTypeInfoFilter(), requestor, progressMonitor))
+				return;
 			engine.searchAllTypeNames(packPattern == null ? null : packPattern.toCharArray(),
 					typeSearchFilter.getPackageFlags(),
 					typePattern.toCharArray(),
@@ -600,6 +604,9 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 			return fgFirstTime || history.isEmpty() || history.needConsistencyCheck();
 		}
 		private void refreshSearchIndices(IProgressMonitor monitor) throws InvocationTargetException {
+			// an up to date catalog answers the queries without waiting for the indexer
+			if (TypeNameCatalog.getInstance().isUpToDate())
+				return;
 			try {
 				new SearchEngine().searchAllTypeNames(
 						null,
@@ -1046,6 +1053,10 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 			return fTypeInfoFilter.getNamePattern();
 		}
 
+		public TypeInfoFilter getTypeInfoFilter() {
+			return fTypeInfoFilter;
+		}
+
 		public String getPackagePattern() {
 			return fTypeInfoFilter.getPackagePattern();
 		}
@@ -0,0 +1,289 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.jarpackagerfat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * Reads the entries of a library ahead of the writer of a Runnable JAR.
+ * <p>
+ * The entries are inflated on worker threads into pooled buffers, while the calling thread
+ * passes them to the requestor in the order of the given list. The bytes that have been read
+ * but not yet consumed are limited by the capacity of the reader. Entries that are larger than
+ * {@link #MAX_PREFETCH_SIZE}, have an unknown size or cannot be read are passed without content;
+ * the requestor reads them from the archive itself.
+ * </p>
+ * <p>
+ * A reader is used by one thread at a time and must be disposed when the export is done.
+ * </p>
+ *
+ * @since 3.14
+ */
+public class ArchiveEntryReader {
+
+	/**
+	 * Receives the entries read by an {@link ArchiveEntryReader}.
+	 */
+	public interface IEntryRequestor {
+
+		/**
+		 * Accepts an entry. The content is only valid during this call.
+		 *
+		 * @param entry the entry
+		 * @param content the uncompressed content of the entry, or <code>null</code> if the
+		 *            entry has not been read and has to be read from the archive
+		 * @param length the length of the content, or <code>-1</code>
+		 * @throws IOException if the entry cannot be written
+		 */
+		void acceptEntry(ZipEntry entry, byte[] content, int length) throws IOException;
+	}
+
+	/**
+	 * The size of the largest entry that is read ahead.
+	 */
+	public static final int MAX_PREFETCH_SIZE= 4 << 20;
+
+	/**
+	 * The default number of bytes that can be read ahead.
+	 */
+	public static final int DEFAULT_CAPACITY= 32 << 20;
+
+	private static final int MIN_BUFFER_SIZE= 1 << 12;
+
+	private static class Content {
+		final ZipEntry fEntry;
+		final byte[] fBuffer;
+		final int fLength;
+		final int fReserved;
+
+		Content(ZipEntry entry, byte[] buffer, int length, int reserved) {
+			fEntry= entry;
+			fBuffer= buffer;
+			fLength= length;
+			fReserved= reserved;
+		}
+	}
+
+	private final int fParallelism;
+	private final int fCapacity;
+	private ExecutorService fExecutor;
+
+	/** Free buffers by size class, the buffers of class <code>i</code> have <code>MIN_BUFFER_SIZE &lt;&lt; i</code> bytes */
+	private final Deque<byte[]>[] fPool;
+
+	/**
+	 * Creates a reader.
+	 *
+	 * @param parallelism the number of worker threads; with <code>1</code> or less the entries
+	 *            are read on the calling thread
+	 * @param capacity the maximal number of bytes that are read ahead
+	 */
+	@SuppressWarnings("unchecked")
+	public ArchiveEntryReader(int parallelism, int capacity) {
+		fParallelism= Math.max(1, parallelism);
+		fCapacity= Math.max(capacity, MAX_PREFETCH_SIZE);
+		fPool= new Deque[getSizeClass(MAX_PREFETCH_SIZE) + 1];
+		for (int i= 0; i < fPool.length; i++) {
+			fPool[i]= new ArrayDeque<>();
+		}
+	}
+
+	/**
+	 * Reads the given entries and passes them to the requestor, in order. Reports one unit of work
+	 * per entry.
+	 *
+	 * @param zipFile the archive
+	 * @param entries the entries to read, no directories
+	 * @param requestor the requestor
+	 * @param monitor the progress monitor
+	 * @throws IOException if the requestor fails
+	 * @throws OperationCanceledException if the monitor is canceled
+	 */
+	public void read(ZipFile zipFile, List<ZipEntry> entries, IEntryRequestor requestor, IProgressMonitor monitor) throws IOException {
+		Deque<Future<Content>> pending= new ArrayDeque<>();
+		int reserved= 0;
+		try {
+			for (int i= 0; i < entries.size(); i++) {
+				ZipEntry entry= entries.get(i);
+				long size= entry.getSize();
+				if (fParallelism == 1 || size < 0 || size > MAX_PREFETCH_SIZE) {
+					pending.add(CompletableFuture.completedFuture(new Content(entry, null, -1, 0)));
+				} else {
+					int bufferSize= getBufferSize((int) size);
+					while (reserved + bufferSize > fCapacity) {
+						reserved-= accept(pending.removeFirst(), requestor, monitor);
+					}
+					reserved+= bufferSize;
+					pending.add(getExecutor().submit(createTask(zipFile, entry, bufferSize)));
+				}
+				if (fParallelism == 1) {
+					reserved-= accept(pending.removeFirst(), requestor, monitor);
+				}
+			}
+			while (!pending.isEmpty()) {
+				reserved-= accept(pending.removeFirst(), requestor, monitor);
+			}
+		} finally {
+			while (!pending.isEmpty()) {
+				Future<Content> future= pending.removeFirst();
+				if (!future.cancel(false) && future.isDone()) {
+					try {
+						release(getContent(future).fBuffer);
+					} catch (RuntimeException e) {
+						// already failed
+					}
+				}
+			}
+		}
+	}
+
+	private int accept(Future<Content> future, IEntryRequestor requestor, IProgressMonitor monitor) throws IOException {
+		Content content= getContent(future);
+		try {
+			if (monitor.isCanceled())
+				throw new OperationCanceledException();
+			requestor.acceptEntry(content.fEntry, content.fBuffer, content.fLength);
+		} finally {
+			release(content.fBuffer);
+		}
+		monitor.worked(1);
+		return content.fReserved;
+	}
+
+	private static Content getContent(Future<Content> future) {
+		boolean interrupted= false;
+		try {
+			while (true) {
+				try {
+					return future.get();
+				} catch (InterruptedException e) {
+					interrupted= true;
+				} catch (ExecutionException e) {
+					Throwable cause= e.getCause();
+					if (cause instanceof RuntimeException)
+						throw (RuntimeException) cause;
+					if (cause instanceof Error)
+						throw (Error) cause;
+					throw new IllegalStateException(cause);
+				}
+			}
+		} finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	private Callable<Content> createTask(final ZipFile zipFile, final ZipEntry entry, final int bufferSize) {
+		return new Callable<Content>() {
+			@Override
+			public Content call() {
+				byte[] buffer= acquire(bufferSize);
+				int length= 0;
+				try (InputStream is= zipFile.getInputStream(entry)) {
+					int count;
+					while (length < buffer.length && (count= is.read(buffer, length, buffer.length - length)) != -1) {
+						length+= count;
+					}
+					if (length == buffer.length && is.read() != -1) {
+						// the entry is larger than announced
+						release(buffer);
+						return new Content(entry, null, -1, bufferSize);
+					}
+				} catch (IOException e) {
+					// the requestor reads the entry again and reports the problem
+					release(buffer);
+					return new Content(entry, null, -1, bufferSize);
+				}
+				return new Content(entry, buffer, length, bufferSize);
+			}
+		};
+	}
+
+	private synchronized ExecutorService getExecutor() {
+		if (fExecutor == null) {
+			fExecutor= Executors.newFixedThreadPool(fParallelism, new ThreadFactory() {
+				private final AtomicInteger fCount= new AtomicInteger();
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread= new Thread(runnable, "ArchiveEntryReader worker " + fCount.incrementAndGet()); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return fExecutor;
+	}
+
+	private static int getSizeClass(int size) {
+		int sizeClass= 0;
+		while ((MIN_BUFFER_SIZE << sizeClass) < size) {
+			sizeClass++;
+		}
+		return sizeClass;
+	}
+
+	private static int getBufferSize(int size) {
+		return MIN_BUFFER_SIZE << getSizeClass(size);
+	}
+
+	private byte[] acquire(int bufferSize) {
+		Deque<byte[]> free= fPool[getSizeClass(bufferSize)];
+		synchronized (free) {
+			byte[] buffer= free.pollFirst();
+			if (buffer != null)
+				return buffer;
+		}
+		return new byte[bufferSize];
+	}
+
+	private void release(byte[] buffer) {
+		if (buffer == null)
+			return;
+		Deque<byte[]> free= fPool[getSizeClass(buffer.length)];
+		synchronized (free) {
+			// the capacity bounds the number of buffers in use, keep as many for reuse
+			if ((free.size() + 1) * (long) buffer.length <= fCapacity)
+				free.addFirst(buffer);
+		}
+	}
+
+	/**
+	 * Stops the worker threads and frees the buffers.
+	 */
+	public synchronized void dispose() {
+		if (fExecutor != null) {
+			fExecutor.shutdownNow();
+			fExecutor= null;
+		}
+		for (int i= 0; i < fPool.length; i++) {
+			synchronized (fPool[i]) {
+				fPool[i].clear();
+			}
+		}
+	}
+}
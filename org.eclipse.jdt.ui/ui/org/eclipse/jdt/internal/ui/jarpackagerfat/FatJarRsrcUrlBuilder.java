@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2011 IBM Corporation and others.
+ * Copyright (c) 2008, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,9 +14,9 @@
 package org.eclipse.jdt.internal.ui.jarpackagerfat;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashSet;
@@ -53,7 +53,7 @@ public class FatJarRsrcUrlBuilder extends FatJarBuilder {
 	public static final String JAR_RSRC_LOADER_ZIP= "jar-in-jar-loader.zip"; //$NON-NLS-1$
 	
 	private Set<String> jarNames;
-	private JarPackageData fJarPackage;
+	private FatJarRsrcUrlIndex fIndex;
 
 	@Override
 	public String getId() {
@@ -91,8 +91,8 @@ public class FatJarRsrcUrlBuilder extends FatJarBuilder {
 	@Override
 	public void open(JarPackageData jarPackage, Shell displayShell, MultiStatus status) throws CoreException {
 		super.open(jarPackage, displayShell, status);
-		fJarPackage= jarPackage;
 		jarNames= new HashSet<>();
+		fIndex= new FatJarRsrcUrlIndex();
 		try {
 			writeRsrcUrlClasses();
 		} catch (IOException e) {
@@ -108,20 +108,51 @@ public class FatJarRsrcUrlBuilder extends FatJarBuilder {
 			jarName= FatJarPackagerUtil.nextNumberedFileName(jarName);
 		}
 		jarNames.add(jarName);
+		fIndex.addArchive(jarName, jarFile);
 		JarEntry newEntry = new JarEntry(jarName);
 		newEntry.setMethod(ZipEntry.STORED);
-		byte[] readBuffer= new byte[4096];             
+		byte[] readBuffer= new byte[64 * 1024];
 		try {
-			if (!fJarPackage.isCompressed())
-				JarPackagerUtil.calculateCrcAndSize(newEntry, new FileInputStream(jarPathFile), readBuffer);
-			getJarWriter().addZipEntryStream(newEntry, new FileInputStream(jarPathFile), jarName);
-		} catch (FileNotFoundException e) {
-			throw new RuntimeException(e);
+			// libraries are compressed already, store them as they are
+			// a stored entry needs its size and CRC before the content: read the library twice
+			// instead of holding it in memory, libraries can be arbitrarily large
+			JarPackagerUtil.calculateCrcAndSize(newEntry, new FileInputStream(jarPathFile), readBuffer);
+			try (InputStream in= new FileInputStream(jarPathFile)) {
+				getJarWriter().addStoredEntryStream(newEntry, in, jarName);
+			}
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	@Override
+	public void close() throws CoreException {
+		try {
+			if (getJarWriter() != null && fIndex != null && !fIndex.isEmpty())
+				writeIndex();
+		} catch (IOException e) {
+			throw new CoreException(new Status(IStatus.ERROR, JavaUI.ID_PLUGIN, e.getMessage(), e));
+		} finally {
+			fIndex= null;
+			super.close();
+		}
+	}
+
+	/**
+	 * Writes the index of the nested libraries for the jar-in-jar loader.
+	 *
+	 * @throws IOException if the index cannot be written
+	 * @since 3.14
+	 */
+	private void writeIndex() throws IOException {
+		ByteArrayOutputStream out= new ByteArrayOutputStream();
+		fIndex.write(out);
+		byte[] content= out.toByteArray();
+		JarEntry newEntry= new JarEntry(JIJConstants.INDEX_NAME);
+		JarPackagerUtil.calculateCrcAndSize(newEntry, new ByteArrayInputStream(content), new byte[4096]);
+		getJarWriter().addZipEntryStream(newEntry, new ByteArrayInputStream(content), JIJConstants.INDEX_NAME);
+	}
+
 	public void writeRsrcUrlClasses() throws IOException {
 		InputStream is= JavaPlugin.getDefault().getBundle().getEntry(JAR_RSRC_LOADER_ZIP).openStream();
 		ZipInputStream zis= new ZipInputStream(is);
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.jarpackagerfat;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The index of the libraries nested in a runnable JAR by the {@link FatJarRsrcUrlBuilder}. For
+ * each library, the index lists the folders that contain files, and the files at the root. The
+ * jar-in-jar loader reads the index from {@link JIJConstants#INDEX_NAME}, so that it only opens
+ * the libraries that can contain a class or resource.
+ * <p>
+ * The format follows the <code>META-INF/INDEX.LIST</code> of the JAR specification: a version
+ * line, then one section per library, each starting with an empty line and the name of the
+ * library.
+ * </p>
+ *
+ * @since 3.14
+ */
+public class FatJarRsrcUrlIndex {
+
+	private final Map<String, Set<String>> fArchives= new LinkedHashMap<>();
+
+	/**
+	 * Adds a library to the index.
+	 *
+	 * @param name the name of the library in the runnable JAR
+	 * @param archive the library
+	 */
+	public void addArchive(String name, ZipFile archive) {
+		Set<String> keys= new TreeSet<>();
+		Enumeration<? extends ZipEntry> entries= archive.entries();
+		while (entries.hasMoreElements()) {
+			ZipEntry entry= entries.nextElement();
+			if (!entry.isDirectory())
+				keys.add(getKey(entry.getName()));
+		}
+		fArchives.put(name, keys);
+	}
+
+	/**
+	 * @return <code>true</code> if no library has been added
+	 */
+	public boolean isEmpty() {
+		return fArchives.isEmpty();
+	}
+
+	/**
+	 * Writes the index.
+	 *
+	 * @param out the output stream, not closed by this method
+	 * @throws IOException if the index cannot be written
+	 */
+	public void write(OutputStream out) throws IOException {
+		Writer writer= new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		writer.write(JIJConstants.INDEX_VERSION);
+		writer.write('\n');
+		for (Iterator<Entry<String, Set<String>>> iter= fArchives.entrySet().iterator(); iter.hasNext();) {
+			Entry<String, Set<String>> archive= iter.next();
+			writer.write('\n');
+			writer.write(archive.getKey());
+			writer.write('\n');
+			for (Iterator<String> keys= archive.getValue().iterator(); keys.hasNext();) {
+				writer.write(keys.next());
+				writer.write('\n');
+			}
+		}
+		writer.flush();
+	}
+
+	/*
+	 * Same as RsrcClassLoader.getKey(String) of the jar-in-jar loader.
+	 */
+	private static String getKey(String name) {
+		int separator= name.lastIndexOf('/');
+		return separator > 0 ? name.substring(0, separator) : name;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 IBM Corporation and others.
+ * Copyright (c) 2007, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,6 +14,7 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.ui.jarpackagerfat;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -73,6 +74,37 @@ public class JarWriter4 extends JarWriter3 {
 		addEntry(newEntry, zipFile.getInputStream(zipEntry));
 	}
 
+	/**
+	 * Adds an entry of a library whose content has already been read.
+	 *
+	 * @param zipEntry the entry of the library
+	 * @param content the uncompressed content of the entry
+	 * @param length the length of the content
+	 * @param path the path of the new entry
+	 * @throws IOException if the entry cannot be written
+	 * @see ArchiveEntryReader
+	 * @since 3.14
+	 */
+	public void addZipEntry(ZipEntry zipEntry, byte[] content, int length, String path) throws IOException {
+		if (fJarPackage.areDirectoryEntriesIncluded())
+			addDirectories(path);
+
+		JarEntry newEntry= new JarEntry(path.replace(File.separatorChar, '/'));
+
+		if (fJarPackage.isCompressed())
+			newEntry.setMethod(ZipEntry.DEFLATED);
+			// Entry is filled automatically.
+		else {
+			newEntry.setMethod(ZipEntry.STORED);
+			newEntry.setSize(length);
+			newEntry.setCrc(zipEntry.getCrc());
+		}
+
+		newEntry.setTime(System.currentTimeMillis());
+
+		addEntry(newEntry, new ByteArrayInputStream(content, 0, length));
+	}
+
 	public void addZipEntryStream(ZipEntry zipEntry, InputStream is, String path) throws IOException {
 		if (fJarPackage.areDirectoryEntriesIncluded())
 			addDirectories(path);
@@ -91,6 +123,28 @@ public class JarWriter4 extends JarWriter3 {
 		addEntry(newEntry, is);
 	}
 
+	/**
+	 * Adds an entry whose content is already compressed, like a nested archive. The entry is
+	 * stored even if the JAR is compressed, since deflating it again takes time and hardly
+	 * reduces its size.
+	 *
+	 * @param zipEntry the entry, with size and CRC of the content
+	 * @param is the content
+	 * @param path the path of the new entry
+	 * @throws IOException if the entry cannot be written
+	 * @since 3.14
+	 */
+	public void addStoredEntryStream(ZipEntry zipEntry, InputStream is, String path) throws IOException {
+		if (fJarPackage.areDirectoryEntriesIncluded())
+			addDirectories(path);
+		JarEntry newEntry= new JarEntry(path.replace(File.separatorChar, '/'));
+		newEntry.setMethod(ZipEntry.STORED);
+		newEntry.setSize(zipEntry.getSize());
+		newEntry.setCrc(zipEntry.getCrc());
+		newEntry.setTime(System.currentTimeMillis());
+		addEntry(newEntry, is);
+	}
+
 	public void write(File file, IPath destinationPath) throws CoreException {
 		try {
 			addFile(file, destinationPath);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 IBM Corporation and others.
+ * Copyright (c) 2007, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,17 +13,25 @@
 package org.eclipse.jdt.internal.ui.jarpackagerfat;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 
+import org.eclipse.swt.widgets.Shell;
+
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
 
+import org.eclipse.jdt.internal.corext.dom.ASTBatchParser;
 import org.eclipse.jdt.internal.corext.util.Messages;
 
 import org.eclipse.jdt.ui.jarpackager.IManifestProvider;
+import org.eclipse.jdt.ui.jarpackager.JarPackageData;
 
 import org.eclipse.jdt.internal.core.manipulation.util.BasicElementLabels;
 
@@ -36,6 +44,8 @@ public class UnpackFatJarBuilder extends FatJarBuilder {
 
 	public static final String BUILDER_ID= "org.eclipse.jdt.ui.fat_jar_builder"; //$NON-NLS-1$
 
+	private ArchiveEntryReader fEntryReader;
+
 	@Override
 	public String getId() {
 		return BUILDER_ID;
@@ -62,28 +72,62 @@ public class UnpackFatJarBuilder extends FatJarBuilder {
 	}
 
 	@Override
-	public void writeArchive(ZipFile jarFile, IProgressMonitor progressMonitor) {
+	public void open(JarPackageData jarPackage, Shell displayShell, MultiStatus status) throws CoreException {
+		super.open(jarPackage, displayShell, status);
+		fEntryReader= new ArchiveEntryReader(ASTBatchParser.getDefaultParallelism(), ArchiveEntryReader.DEFAULT_CAPACITY);
+	}
+
+	@Override
+	public void writeArchive(final ZipFile jarFile, IProgressMonitor progressMonitor) {
+		List<ZipEntry> entries= new ArrayList<>();
 		Enumeration<? extends ZipEntry> jarEntriesEnum= jarFile.entries();
 		while (jarEntriesEnum.hasMoreElements()) {
 			ZipEntry jarEntry= jarEntriesEnum.nextElement();
-			if (!jarEntry.isDirectory()) {
-				String entryName= jarEntry.getName();
-				addFile(entryName, jarEntry, jarFile);
+			if (!jarEntry.isDirectory() && !isExcluded(jarEntry.getName())) {
+				entries.add(jarEntry);
+			} else {
+				progressMonitor.worked(1);
 			}
-			progressMonitor.worked(1);
-			if (progressMonitor.isCanceled())
-				throw new OperationCanceledException();
+		}
+		if (progressMonitor.isCanceled())
+			throw new OperationCanceledException();
+
+		// the entries are inflated in parallel, only the deflater of the JAR runs on this thread
+		try {
+			fEntryReader.read(jarFile, entries, new ArchiveEntryReader.IEntryRequestor() {
+				@Override
+				public void acceptEntry(ZipEntry entry, byte[] content, int length) {
+					addFile(entry.getName(), entry, jarFile, content, length);
+				}
+			}, progressMonitor);
+		} catch (IOException e) {
+			// not thrown, addFile reports problems as warnings
+			addWarning(Messages.format(FatJarPackagerMessages.FatJarBuilder_error_readingArchiveFile, new Object[] { BasicElementLabels.getResourceName(jarFile.getName()), e.getLocalizedMessage() }), e);
 		}
 	}
 
-	private void addFile(String destinationPath, ZipEntry jarEntry, ZipFile zipFile) {
-		// Handle META-INF/MANIFEST.MF
-		if (destinationPath.equalsIgnoreCase("META-INF/MANIFEST.MF") //$NON-NLS-1$
-				|| (isRemoveSigners() && destinationPath.startsWith("META-INF/") && destinationPath.endsWith(".SF"))) { //$NON-NLS-1$//$NON-NLS-2$
-			return;
+	@Override
+	public void close() throws CoreException {
+		if (fEntryReader != null) {
+			fEntryReader.dispose();
+			fEntryReader= null;
 		}
+		super.close();
+	}
+
+	private boolean isExcluded(String destinationPath) {
+		// Handle META-INF/MANIFEST.MF
+		return destinationPath.equalsIgnoreCase("META-INF/MANIFEST.MF") //$NON-NLS-1$
+				|| (isRemoveSigners() && destinationPath.startsWith("META-INF/") && destinationPath.endsWith(".SF")); //$NON-NLS-1$//$NON-NLS-2$
+	}
+
+	private void addFile(String destinationPath, ZipEntry jarEntry, ZipFile zipFile, byte[] content, int length) {
 		try {
-			getJarWriter().addZipEntry(jarEntry, zipFile, destinationPath);
+			if (content != null) {
+				getJarWriter().addZipEntry(jarEntry, content, length, destinationPath);
+			} else {
+				getJarWriter().addZipEntry(jarEntry, zipFile, destinationPath);
+			}
 		} catch (IOException ex) {
 			if (ex instanceof ZipException && ex.getMessage() != null && ex.getMessage().startsWith("duplicate entry:")) {//$NON-NLS-1$
 				// ignore duplicates in META-INF (*.SF, *.RSA)
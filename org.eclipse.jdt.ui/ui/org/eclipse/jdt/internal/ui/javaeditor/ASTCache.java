@@ -0,0 +1,287 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.javaeditor;
+
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+
+/**
+ * Bounded cache for the ASTs of Java editor inputs other than the active one.
+ * <p>
+ * Entries are kept in least recently used order and are limited both in number and in
+ * the accumulated length of their sources. The ASTs are softly referenced, so that they
+ * can be reclaimed under memory pressure.
+ * </p>
+ * <p>
+ * An entry is removed as soon as a Java element delta reports a change of its element.
+ * Changes that may affect the bindings of other compilation units (anything but a change
+ * confined to the bodies of methods and initializers) as well as classpath changes clear
+ * the whole cache.
+ * </p>
+ *
+ * @since 3.14
+ */
+final class ASTCache implements IElementChangedListener {
+
+	/**
+	 * The maximal number of cached ASTs.
+	 */
+	static final int MAX_ENTRIES= 8;
+
+	/**
+	 * The maximal accumulated source length of the cached ASTs.
+	 */
+	static final int MAX_SOURCE_LENGTH= 1000000;
+
+	/**
+	 * The delta flags of a compilation unit or type change which leaves the bindings of other
+	 * compilation units intact, provided the changes of its children do so as well.
+	 */
+	private static final int BODY_CHANGE_FLAGS= IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_FINE_GRAINED | IJavaElementDelta.F_AST_AFFECTED | IJavaElementDelta.F_PRIMARY_RESOURCE
+			| IJavaElementDelta.F_CHILDREN;
+
+	/**
+	 * The delta flags of a method or initializer change confined to its body.
+	 */
+	private static final int MEMBER_BODY_CHANGE_FLAGS= IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_FINE_GRAINED;
+
+	/**
+	 * The delta flags of a container change which invalidates all bindings.
+	 */
+	private static final int CLASSPATH_CHANGE_FLAGS= IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED | IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED
+			| IJavaElementDelta.F_CLOSED | IJavaElementDelta.F_OPENED | IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH;
+
+	private static final class Entry {
+
+		final SoftReference<CompilationUnit> fAST;
+		final int fLength;
+
+		Entry(CompilationUnit ast) {
+			fAST= new SoftReference<>(ast);
+			fLength= ast.getLength();
+		}
+	}
+
+	private final LinkedHashMap<ITypeRoot, Entry> fEntries= new LinkedHashMap<>(16, 0.75f, true);
+	private int fSourceLength;
+	private int fGeneration;
+
+	/**
+	 * Starts listening to Java element changes.
+	 */
+	void install() {
+		JavaCore.addElementChangedListener(this, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+	}
+
+	/**
+	 * Stops listening to Java element changes and clears this cache.
+	 */
+	void dispose() {
+		JavaCore.removeElementChangedListener(this);
+		clear();
+	}
+
+	/**
+	 * Returns the cached AST for the given element and marks it as most recently used.
+	 *
+	 * @param javaElement the Java element
+	 * @return the cached AST or <code>null</code> if none is available
+	 */
+	synchronized CompilationUnit get(ITypeRoot javaElement) {
+		Entry entry= fEntries.get(javaElement);
+		if (entry == null)
+			return null;
+		CompilationUnit ast= entry.fAST.get();
+		if (ast == null)
+			remove(javaElement);
+		return ast;
+	}
+
+	/**
+	 * Returns the current generation of this cache. The generation changes whenever
+	 * an element change invalidates cached ASTs.
+	 *
+	 * @return the generation
+	 */
+	synchronized int getGeneration() {
+		return fGeneration;
+	}
+
+	/**
+	 * Caches the given AST for the given element unless an element change has been
+	 * reported since the given generation.
+	 *
+	 * @param javaElement the Java element
+	 * @param ast the AST
+	 * @param generation the generation of this cache when the creation of the AST started
+	 */
+	synchronized void put(ITypeRoot javaElement, CompilationUnit ast, int generation) {
+		if (generation == fGeneration)
+			put(javaElement, ast);
+	}
+
+	/**
+	 * Caches the given AST for the given element, evicting the least recently used
+	 * entries if the cache exceeds its bounds.
+	 *
+	 * @param javaElement the Java element
+	 * @param ast the AST
+	 */
+	synchronized void put(ITypeRoot javaElement, CompilationUnit ast) {
+		remove(javaElement);
+		Entry entry= new Entry(ast);
+		if (entry.fLength > MAX_SOURCE_LENGTH)
+			return;
+		fEntries.put(javaElement, entry);
+		fSourceLength+= entry.fLength;
+
+		Iterator<Entry> iter= fEntries.values().iterator();
+		while (fEntries.size() > MAX_ENTRIES || fSourceLength > MAX_SOURCE_LENGTH) {
+			fSourceLength-= iter.next().fLength;
+			iter.remove();
+		}
+	}
+
+	/**
+	 * Removes the AST of the given element from this cache.
+	 *
+	 * @param javaElement the Java element
+	 * @return the removed AST or <code>null</code> if none was cached
+	 */
+	synchronized CompilationUnit remove(ITypeRoot javaElement) {
+		Entry entry= fEntries.remove(javaElement);
+		if (entry == null)
+			return null;
+		fSourceLength-= entry.fLength;
+		return entry.fAST.get();
+	}
+
+	/**
+	 * Tells whether the given AST is cached.
+	 *
+	 * @param ast the AST
+	 * @return <code>true</code> if the AST is cached
+	 */
+	synchronized boolean contains(CompilationUnit ast) {
+		for (Iterator<Entry> iter= fEntries.values().iterator(); iter.hasNext();) {
+			if (iter.next().fAST.get() == ast)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of cached ASTs, including ASTs that have been reclaimed but not yet removed.
+	 *
+	 * @return the number of entries
+	 */
+	synchronized int size() {
+		return fEntries.size();
+	}
+
+	/**
+	 * Removes all ASTs from this cache.
+	 */
+	synchronized void clear() {
+		fGeneration++;
+		fEntries.clear();
+		fSourceLength= 0;
+	}
+
+	/*
+	 * @see org.eclipse.jdt.core.IElementChangedListener#elementChanged(org.eclipse.jdt.core.ElementChangedEvent)
+	 */
+	@Override
+	public void elementChanged(ElementChangedEvent event) {
+		processDelta(event.getDelta());
+	}
+
+	private void processDelta(IJavaElementDelta delta) {
+		IJavaElement element= delta.getElement();
+		switch (element.getElementType()) {
+			case IJavaElement.COMPILATION_UNIT:
+			case IJavaElement.CLASS_FILE:
+				if (isStructuralChange(delta)) {
+					clear();
+				} else {
+					synchronized (this) {
+						fGeneration++;
+						for (Iterator<Map.Entry<ITypeRoot, Entry>> iter= fEntries.entrySet().iterator(); iter.hasNext();) {
+							Map.Entry<ITypeRoot, Entry> entry= iter.next();
+							if (element.equals(entry.getKey())) {
+								fSourceLength-= entry.getValue().fLength;
+								iter.remove();
+							}
+						}
+					}
+				}
+				return;
+			case IJavaElement.JAVA_MODEL:
+			case IJavaElement.JAVA_PROJECT:
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & CLASSPATH_CHANGE_FLAGS) != 0) {
+					clear();
+					return;
+				}
+				IJavaElementDelta[] children= delta.getAffectedChildren();
+				for (int i= 0; i < children.length; i++)
+					processDelta(children[i]);
+				return;
+			default:
+				// changes below the compilation unit are reported with the compilation unit delta
+				return;
+		}
+	}
+
+	/**
+	 * Tells whether the given delta of a compilation unit, class file or one of their members
+	 * may affect the bindings of other compilation units.
+	 *
+	 * @param delta the delta
+	 * @return <code>false</code> if the delta only reports changes of method or initializer
+	 *         bodies, <code>true</code> otherwise
+	 */
+	private static boolean isStructuralChange(IJavaElementDelta delta) {
+		if (delta.getKind() != IJavaElementDelta.CHANGED)
+			return true;
+		switch (delta.getElement().getElementType()) {
+			case IJavaElement.COMPILATION_UNIT:
+			case IJavaElement.CLASS_FILE:
+			case IJavaElement.TYPE:
+				if ((delta.getFlags() & ~BODY_CHANGE_FLAGS) != 0)
+					return true;
+				IJavaElementDelta[] children= delta.getAffectedChildren();
+				for (int i= 0; i < children.length; i++) {
+					if (isStructuralChange(children[i]))
+						return true;
+				}
+				return false;
+			case IJavaElement.METHOD:
+			case IJavaElement.INITIALIZER:
+				return (delta.getFlags() & ~MEMBER_BODY_CHANGE_FLAGS) != 0;
+			default:
+				// fields, imports and package declarations
+				return true;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,9 +16,13 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.PerformanceStats;
 import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.core.runtime.Status;
 
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+
 import org.eclipse.ui.IPartListener2;
 import org.eclipse.ui.IWindowListener;
 import org.eclipse.ui.IWorkbenchPart;
@@ -26,6 +30,9 @@ import org.eclipse.ui.IWorkbenchPartReference;
 import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.PlatformUI;
 
+import org.eclipse.ui.texteditor.IDocumentProvider;
+
+import org.eclipse.jdt.core.IClassFile;
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.ITypeRoot;
 import org.eclipse.jdt.core.JavaModelException;
@@ -47,6 +54,10 @@ import org.eclipse.jdt.internal.ui.JavaPlugin;
 /**
  * Provides a shared AST for clients. The shared AST is
  * the AST of the active Java editor's input element.
+ * <p>
+ * In addition, the ASTs of the other open Java editors' input elements
+ * are kept in a bounded cache, see {@link ASTCache}.
+ * </p>
  *
  * @since 3.0
  */
@@ -101,6 +112,14 @@ public final class ASTProvider implements IASTSharedValues {
 		 */
 		@Override
 		public void partClosed(IWorkbenchPartReference ref) {
+			if (isJavaEditor(ref)) {
+				IWorkbenchPart part= ref.getPart(false);
+				if (part instanceof JavaEditor) {
+					ITypeRoot javaElement= ((JavaEditor)part).getInputJavaElement();
+					if (javaElement != null)
+						fCache.remove(javaElement);
+				}
+			}
 			if (isActiveEditor(ref)) {
 				if (JavaPlugin.DEBUG_AST_PROVIDER)
 					System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "closed active editor: " + ref.getTitle()); //$NON-NLS-1$ //$NON-NLS-2$
@@ -210,14 +229,26 @@ public final class ASTProvider implements IASTSharedValues {
 
 	private static final String DEBUG_PREFIX= "ASTProvider > "; //$NON-NLS-1$
 
+	private static final String PERFORMANCE_EVENT= JavaPlugin.getPluginId() + "/perf/ast/create"; //$NON-NLS-1$
+
+	private static final boolean MEASURE_PERFORMANCE= PerformanceStats.isEnabled(PERFORMANCE_EVENT);
+
 	private volatile ITypeRoot fReconcilingJavaElement;
 	private ITypeRoot fActiveJavaElement;
 	private CompilationUnit fAST;
+	private long fASTModificationStamp= IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
 	private ActivationListener fActivationListener;
 	private Object fReconcileLock= new Object();
 	private Object fWaitLock= new Object();
 	private volatile boolean fIsReconciling;
+	private long fReconcilingModificationStamp= IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
 	private IWorkbenchPart fActiveEditor;
+	private final ASTCache fCache= new ASTCache();
+
+	private final Object fStatisticsLock= new Object();
+	private int fCacheHitCount;
+	private int fCreatedASTCount;
+	private long fCreationTime;
 
 
 	/**
@@ -245,6 +276,8 @@ public final class ASTProvider implements IASTSharedValues {
 		fActivationListener= new ActivationListener();
 		PlatformUI.getWorkbench().addWindowListener(fActivationListener);
 
+		fCache.install();
+
 		// Ensure existing windows get connected
 		IWorkbenchWindow[] windows= PlatformUI.getWorkbench().getWorkbenchWindows();
 		for (int i= 0, length= windows.length; i < length; i++)
@@ -258,9 +291,15 @@ public final class ASTProvider implements IASTSharedValues {
 			javaElement= ((JavaEditor)editor).getInputJavaElement();
 
 		synchronized (this) {
+			// keep the AST of the previously active editor, it is likely to be needed again
+			if (editor != null && fAST != null && fActiveJavaElement != null && !fActiveJavaElement.equals(javaElement)
+					&& fASTModificationStamp != IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP && fASTModificationStamp == getModificationStamp(fActiveEditor))
+				fCache.put(fActiveJavaElement, fAST);
+			CompilationUnit ast= javaElement != null ? fCache.remove(javaElement) : null;
 			fActiveEditor= editor;
 			fActiveJavaElement= javaElement;
-			cache(null, javaElement);
+			// entries of the AST cache are removed when their element changes
+			cache(ast, javaElement, ast != null ? getModificationStamp(editor) : IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP);
 		}
 
 		if (JavaPlugin.DEBUG_AST_PROVIDER)
@@ -282,10 +321,10 @@ public final class ASTProvider implements IASTSharedValues {
 	 * cached by this AST provided.
 	 *
 	 * @param ast the compilation unit AST
-	 * @return <code>true</code> if the given AST is the cached one
+	 * @return <code>true</code> if the given AST is one of the cached ones
 	 */
 	public boolean isCached(CompilationUnit ast) {
-		return ast != null && fAST == ast;
+		return ast != null && (fAST == ast || fCache.contains(ast));
 	}
 
 	/**
@@ -317,8 +356,28 @@ public final class ASTProvider implements IASTSharedValues {
 		synchronized (fReconcileLock) {
 			fReconcilingJavaElement= javaElement;
 			fIsReconciling= true;
+			synchronized (this) {
+				fReconcilingModificationStamp= javaElement.equals(fActiveJavaElement) ? getModificationStamp(fActiveEditor) : IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+			}
+		}
+		cache(null, javaElement, IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP);
+	}
+
+	/**
+	 * Returns the modification stamp of the given editor's document.
+	 *
+	 * @param editor the editor, or <code>null</code>
+	 * @return the modification stamp or {@link IDocumentExtension4#UNKNOWN_MODIFICATION_STAMP}
+	 * @since 3.14
+	 */
+	private static long getModificationStamp(IWorkbenchPart editor) {
+		if (editor instanceof JavaEditor) {
+			IDocumentProvider provider= ((JavaEditor)editor).getDocumentProvider();
+			IDocument document= provider != null ? provider.getDocument(((JavaEditor)editor).getEditorInput()) : null;
+			if (document instanceof IDocumentExtension4)
+				return ((IDocumentExtension4)document).getModificationStamp();
 		}
-		cache(null, javaElement);
+		return IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
 	}
 
 	/**
@@ -334,7 +393,7 @@ public final class ASTProvider implements IASTSharedValues {
 
 		fAST= null;
 
-		cache(null, null);
+		cache(null, null, IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP);
 	}
 
 	/**
@@ -373,8 +432,10 @@ public final class ASTProvider implements IASTSharedValues {
 	 *
 	 * @param ast the ast
 	 * @param javaElement the java element
+	 * @param modificationStamp the modification stamp of the active editor's document the AST
+	 *            has been created from, or {@link IDocumentExtension4#UNKNOWN_MODIFICATION_STAMP}
 	 */
-	private synchronized void cache(CompilationUnit ast, ITypeRoot javaElement) {
+	private synchronized void cache(CompilationUnit ast, ITypeRoot javaElement, long modificationStamp) {
 
 		if (fActiveJavaElement != null && !fActiveJavaElement.equals(javaElement)) {
 			if (JavaPlugin.DEBUG_AST_PROVIDER && javaElement != null) // don't report call from disposeAST()
@@ -389,6 +450,7 @@ public final class ASTProvider implements IASTSharedValues {
 			disposeAST();
 
 		fAST= ast;
+		fASTModificationStamp= ast != null ? modificationStamp : IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
 
 		// Signal AST change
 		synchronized (fWaitLock) {
@@ -423,6 +485,7 @@ public final class ASTProvider implements IASTSharedValues {
 					if (JavaPlugin.DEBUG_AST_PROVIDER)
 						System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "returning cached AST:" + toString(fAST) + " for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 
+					countCacheHit();
 					return fAST;
 				}
 				if (waitFlag == SharedASTProvider.WAIT_NO) {
@@ -475,7 +538,18 @@ public final class ASTProvider implements IASTSharedValues {
 		} else if (canReturnNull)
 			return null;
 
+		if (!isActiveElement) {
+			CompilationUnit ast= fCache.get(input);
+			if (ast != null) {
+				if (JavaPlugin.DEBUG_AST_PROVIDER)
+					System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "returning AST of inactive editor:" + toString(ast) + " for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+				countCacheHit();
+				return ast;
+			}
+		}
 
+		int generation= fCache.getGeneration();
 		CompilationUnit ast= null;
 		try {
 			ast= createAST(input, progressMonitor);
@@ -483,6 +557,8 @@ public final class ASTProvider implements IASTSharedValues {
 				ast= null;
 				if (JavaPlugin.DEBUG_AST_PROVIDER)
 					System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "Ignore created AST for: " + input.getElementName() + " - operation has been cancelled"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			} else if (ast != null && !isActiveElement && isEditorInput(input)) {
+				fCache.put(input, ast, generation);
 			}
 		} finally {
 			if (isActiveElement) {
@@ -510,6 +586,104 @@ public final class ASTProvider implements IASTSharedValues {
 		return javaElement != null && javaElement.equals(fReconcilingJavaElement) && fIsReconciling;
 	}
 
+	/**
+	 * Tells whether the given Java element is likely to be the input of an open Java editor,
+	 * i.e. whether it is a primary working copy or an open class file.
+	 *
+	 * @param javaElement the Java element
+	 * @return <code>true</code> if the AST of the element is worth caching
+	 * @since 3.14
+	 */
+	private static boolean isEditorInput(ITypeRoot javaElement) {
+		if (javaElement instanceof ICompilationUnit) {
+			ICompilationUnit cu= (ICompilationUnit)javaElement;
+			return cu.isWorkingCopy() && cu.getOwner() == null;
+		}
+		return javaElement instanceof IClassFile && javaElement.isOpen();
+	}
+
+	private void countCacheHit() {
+		synchronized (fStatisticsLock) {
+			fCacheHitCount++;
+		}
+	}
+
+	/**
+	 * Returns the number of AST requests which have been answered with a cached AST.
+	 *
+	 * @return the number of cache hits
+	 * @since 3.14
+	 */
+	public int getCacheHitCount() {
+		synchronized (fStatisticsLock) {
+			return fCacheHitCount;
+		}
+	}
+
+	/**
+	 * Returns the number of ASTs created by this AST provider.
+	 *
+	 * @return the number of created ASTs
+	 * @since 3.14
+	 */
+	public int getCreatedASTCount() {
+		synchronized (fStatisticsLock) {
+			return fCreatedASTCount;
+		}
+	}
+
+	/**
+	 * Returns the accumulated time spent creating ASTs.
+	 *
+	 * @return the time in milliseconds
+	 * @since 3.14
+	 */
+	public long getASTCreationTime() {
+		synchronized (fStatisticsLock) {
+			return fCreationTime / 1000000;
+		}
+	}
+
+	/**
+	 * Returns the number of ASTs kept for inactive Java editors.
+	 *
+	 * @return the number of cached ASTs of inactive editors
+	 * @since 3.14
+	 */
+	public int getInactiveCacheSize() {
+		return fCache.size();
+	}
+
+	/**
+	 * Creates a new compilation unit AST and records the time spent.
+	 *
+	 * @param input the Java element for which to create the AST
+	 * @param progressMonitor the progress monitor
+	 * @return AST
+	 * @since 3.14
+	 */
+	private CompilationUnit createAST(ITypeRoot input, IProgressMonitor progressMonitor) {
+		PerformanceStats stats= null;
+		if (MEASURE_PERFORMANCE) {
+			stats= PerformanceStats.getStats(PERFORMANCE_EVENT, this);
+			stats.startRun();
+		}
+		long start= System.nanoTime();
+		CompilationUnit ast= createNewAST(input, progressMonitor);
+		long time= System.nanoTime() - start;
+		if (stats != null)
+			stats.endRun();
+		if (ast != null) {
+			synchronized (fStatisticsLock) {
+				fCreatedASTCount++;
+				fCreationTime+= time;
+			}
+			if (JavaPlugin.DEBUG_AST_PROVIDER)
+				System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "created AST for: " + input.getElementName() + " in " + time / 1000000 + " ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		}
+		return ast;
+	}
+
 	/**
 	 * Creates a new compilation unit AST.
 	 *
@@ -517,7 +691,7 @@ public final class ASTProvider implements IASTSharedValues {
 	 * @param progressMonitor the progress monitor
 	 * @return AST
 	 */
-	private static CompilationUnit createAST(final ITypeRoot input, final IProgressMonitor progressMonitor) {
+	private static CompilationUnit createNewAST(final ITypeRoot input, final IProgressMonitor progressMonitor) {
 		if (!hasSource(input))
 			return null;
 
@@ -589,6 +763,7 @@ public final class ASTProvider implements IASTSharedValues {
 		PlatformUI.getWorkbench().removeWindowListener(fActivationListener);
 		fActivationListener= null;
 
+		fCache.dispose();
 		disposeAST();
 
 		synchronized (fWaitLock) {
@@ -624,7 +799,7 @@ public final class ASTProvider implements IASTSharedValues {
 
 				return;
 			}
-			cache(ast, javaElement);
+			cache(ast, javaElement, fReconcilingModificationStamp);
 		}
 	}
 
@@ -188,6 +188,7 @@ import org.eclipse.jdt.core.util.IModifierConstants;
 import org.eclipse.jdt.internal.core.manipulation.search.IOccurrencesFinder;
 import org.eclipse.jdt.internal.core.manipulation.search.IOccurrencesFinder.OccurrenceLocation;
 import org.eclipse.jdt.internal.core.manipulation.search.OccurrencesFinder;
+import org.eclipse.jdt.internal.core.manipulation.search.OccurrencesIndex;
 import org.eclipse.jdt.internal.corext.util.JavaModelUtil;
 
 import org.eclipse.jdt.ui.IContextMenuConstants;
@@ -231,6 +232,7 @@ import org.eclipse.jdt.internal.ui.text.JavaWordIterator;
 import org.eclipse.jdt.internal.ui.text.PreferencesAdapter;
 import org.eclipse.jdt.internal.ui.text.java.hover.JavaExpandHover;
 import org.eclipse.jdt.internal.ui.text.java.hover.SourceViewerInformationControl;
+import org.eclipse.jdt.internal.ui.text.javadoc.JavadocContentCache;
 import org.eclipse.jdt.internal.ui.util.ElementValidator;
 import org.eclipse.jdt.internal.ui.util.JavaUIHelp;
 import org.eclipse.jdt.internal.ui.viewsupport.ISelectionListenerWithAST;
@@ -1663,6 +1665,12 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 	 * @since 3.1
 	 */
 	private IRegion fMarkOccurrenceTargetRegion;
+	/**
+	 * The index of the occurrences in the most recent AST, reused for all selections until the
+	 * next reconcile.
+	 * @since 3.14
+	 */
+	private volatile OccurrencesIndex fOccurrencesIndex;
 
 	/**
 	 * The internal shell activation listener for updating occurrences.
@@ -1670,6 +1678,11 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 	 */
 	private ActivationListener fActivationListener= new ActivationListener();
 	private ISelectionListenerWithAST fPostSelectionListenerWithAST;
+	/**
+	 * The listener that prefetches the Javadoc of the elements near the caret.
+	 * @since 3.14
+	 */
+	private ISelectionListenerWithAST fJavadocPrefetchListener;
 	private OccurrencesFinderJob fOccurrencesFinderJob;
 	/** The occurrences finder job canceler */
 	private OccurrencesFinderJobCanceler fOccurrencesFinderJobCanceler;
@@ -2622,6 +2635,11 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 		fMarkOccurrenceAnnotations= false;
 		uninstallOccurrencesFinder();
 
+		if (fJavadocPrefetchListener != null) {
+			SelectionListenerWithASTManager.getDefault().removeListener(this, fJavadocPrefetchListener);
+			fJavadocPrefetchListener= null;
+		}
+
 		uninstallOverrideIndicator();
 
 		uninstallSemanticHighlighting();
@@ -3105,6 +3123,14 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 			showBreadcrumb();
 
 		PlatformUI.getWorkbench().addWindowListener(fActivationListener);
+
+		fJavadocPrefetchListener= new ISelectionListenerWithAST() {
+			@Override
+			public void selectionChanged(IEditorPart part, ITextSelection selection, CompilationUnit astRoot) {
+				JavadocContentCache.getDefault().prefetch(astRoot, selection);
+			}
+		};
+		SelectionListenerWithASTManager.getDefault().addListener(this, fJavadocPrefetchListener);
 	}
 
 	@Override
@@ -3333,9 +3359,14 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 		if (locations == null && selectedNode instanceof Name) {
 			IBinding binding= ((Name)selectedNode).resolveBinding();
 			if (binding != null && markOccurrencesOfType(binding)) {
-				OccurrencesFinder finder= new OccurrencesFinder();
+				OccurrencesIndex index= getOccurrencesIndex(astRoot);
+				OccurrencesFinder finder= new OccurrencesFinder(index);
 				if (finder.initialize(astRoot, selectedNode) == null) {
 					locations= finder.getOccurrences();
+					if (JavaPlugin.DEBUG_MARK_OCCURRENCES) {
+						System.out.println("JavaEditor: mark occurrences visited " + finder.getNodesVisited() + " nodes, index of the AST built with " //$NON-NLS-1$ //$NON-NLS-2$
+								+ index.getNodesVisited() + " nodes"); //$NON-NLS-1$
+					}
 				}
 			}
 		}
@@ -3355,6 +3386,23 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 		fOccurrencesFinderJob.run(new NullProgressMonitor());
 	}
 
+	/**
+	 * Returns the occurrences index of an AST. The index of the previous AST is dropped when a
+	 * new AST is passed.
+	 *
+	 * @param astRoot the compilation unit AST
+	 * @return the occurrences index of the AST
+	 * @since 3.14
+	 */
+	private OccurrencesIndex getOccurrencesIndex(CompilationUnit astRoot) {
+		OccurrencesIndex index= fOccurrencesIndex;
+		if (index == null || index.getASTRoot() != astRoot) {
+			index= new OccurrencesIndex(astRoot);
+			fOccurrencesIndex= index;
+		}
+		return index;
+	}
+
 	protected void installOccurrencesFinder(boolean forceUpdate) {
 		fMarkOccurrenceAnnotations= true;
 
@@ -3402,6 +3450,7 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 			fPostSelectionListenerWithAST= null;
 		}
 
+		fOccurrencesIndex= null;
 		removeOccurrenceAnnotations();
 	}
 
@@ -956,6 +956,7 @@ public class JavaOutlinePage extends Page implements IContentOutlinePage, IAdapt
 			AppearanceAwareLabelProvider.DEFAULT_TEXTFLAGS |  JavaElementLabels.F_APP_TYPE_SIGNATURE | JavaElementLabels.ALL_CATEGORY,
 			AppearanceAwareLabelProvider.DEFAULT_IMAGEFLAGS
 		);
+		lprovider.setUseLabelCache(true);
 
 		fOutlineViewer= new JavaOutlineViewer(tree);
 		initDragAndDrop();
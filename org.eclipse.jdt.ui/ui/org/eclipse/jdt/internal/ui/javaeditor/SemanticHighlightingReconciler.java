@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,7 +22,9 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 
+import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
 import org.eclipse.jface.text.ITextInputListener;
 import org.eclipse.jface.text.Position;
 import org.eclipse.jface.text.TextPresentation;
@@ -32,12 +34,16 @@ import org.eclipse.ui.IWorkbenchPartSite;
 
 import org.eclipse.jdt.core.ITypeRoot;
 import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.Block;
 import org.eclipse.jdt.core.dom.BooleanLiteral;
 import org.eclipse.jdt.core.dom.CharacterLiteral;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.ConstructorInvocation;
 import org.eclipse.jdt.core.dom.Expression;
 import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.Initializer;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.NodeFinder;
 import org.eclipse.jdt.core.dom.NumberLiteral;
 import org.eclipse.jdt.core.dom.SimpleName;
 import org.eclipse.jdt.core.dom.SuperConstructorInvocation;
@@ -68,6 +74,16 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		/** The semantic token */
 		private SemanticToken fToken= new SemanticToken();
 
+		/*
+		 * @see org.eclipse.jdt.core.dom.ASTVisitor#preVisit2(org.eclipse.jdt.core.dom.ASTNode)
+		 * @since 3.14
+		 */
+		@Override
+		public boolean preVisit2(ASTNode node) {
+			fVisitedNodeCount++;
+			return super.preVisit2(node);
+		}
+
 		/*
 		 * @see org.eclipse.jdt.internal.corext.dom.GenericVisitor#visitNode(org.eclipse.jdt.core.dom.ASTNode)
 		 */
@@ -186,8 +202,7 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		 */
 		private void addPosition(int offset, int length, Highlighting highlighting) {
 			boolean isExisting= false;
-			// TODO: use binary search
-			for (int i= 0, n= fRemovedPositions.size(); i < n; i++) {
+			for (int i= findFirstRemovedPosition(offset), n= fRemovedPositions.size(); i < n && fRemovedOffsets[i] == offset; i++) {
 				HighlightedPosition position= (HighlightedPosition) fRemovedPositions.get(i);
 				if (position == null)
 					continue;
@@ -211,8 +226,8 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		 * @param length The range length
 		 */
 		private void retainPositions(int offset, int length) {
-			// TODO: use binary search
-			for (int i= 0, n= fRemovedPositions.size(); i < n; i++) {
+			long end= (long) offset + length;
+			for (int i= findFirstRemovedPosition(offset), n= fRemovedPositions.size(); i < n && fRemovedOffsets[i] < end; i++) {
 				HighlightedPosition position= (HighlightedPosition) fRemovedPositions.get(i);
 				if (position != null && position.isContained(offset, length)) {
 					fRemovedPositions.set(i, null);
@@ -222,9 +237,108 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		}
 	}
 
+	/**
+	 * Tracks the region of the document that has been changed since the last reconcile.
+	 *
+	 * @since 3.14
+	 */
+	private class DirtyRegionTracker implements IDocumentListener, ITextInputListener {
+
+		/** The document this tracker is registered on */
+		private IDocument fDocument;
+
+		@Override
+		public void documentAboutToBeChanged(DocumentEvent event) {
+			// Do nothing
+		}
+
+		@Override
+		public void documentChanged(DocumentEvent event) {
+			String text= event.getText();
+			int offset= event.getOffset();
+			int replacedEnd= offset + event.getLength();
+			int insertedEnd= offset + (text == null ? 0 : text.length());
+			int delta= insertedEnd - replacedEnd;
+			synchronized (fDirtyRegionLock) {
+				if (fDirtyStart == -1) {
+					fDirtyStart= offset;
+					fDirtyEnd= insertedEnd;
+				} else {
+					int start= fDirtyStart < offset ? fDirtyStart : fDirtyStart >= replacedEnd ? fDirtyStart + delta : offset;
+					int end= fDirtyEnd <= offset ? fDirtyEnd : fDirtyEnd >= replacedEnd ? fDirtyEnd + delta : insertedEnd;
+					fDirtyStart= Math.min(start, offset);
+					fDirtyEnd= Math.max(end, insertedEnd);
+				}
+			}
+		}
+
+		@Override
+		public void inputDocumentAboutToBeChanged(IDocument oldInput, IDocument newInput) {
+			setDocument(null);
+		}
+
+		@Override
+		public void inputDocumentChanged(IDocument oldInput, IDocument newInput) {
+			setDocument(newInput);
+		}
+
+		void setDocument(IDocument document) {
+			if (fDocument != null)
+				fDocument.removeDocumentListener(this);
+			fDocument= document;
+			if (fDocument != null)
+				fDocument.addDocumentListener(this);
+			fFullReconcileNeeded= true;
+		}
+	}
+
 	/** Position collector */
 	private PositionCollector fCollector= new PositionCollector();
 
+	/**
+	 * Tracker for the changed document region.
+	 * @since 3.14
+	 */
+	private final DirtyRegionTracker fDirtyRegionTracker= new DirtyRegionTracker();
+	/**
+	 * Lock for the dirty region fields.
+	 * @since 3.14
+	 */
+	private final Object fDirtyRegionLock= new Object();
+	/**
+	 * Start and end of the document region changed since the last call to
+	 * {@link #aboutToBeReconciled()}, <code>-1</code> if there are no changes.
+	 * @since 3.14
+	 */
+	private int fDirtyStart= -1, fDirtyEnd= -1;
+	/**
+	 * Start and end of the document region changed before the current reconcile,
+	 * <code>-1</code> if there are no changes.
+	 * @since 3.14
+	 */
+	private int fReconcileStart= -1, fReconcileEnd= -1;
+	/**
+	 * <code>true</code> if the reconcile region has been set up by {@link #aboutToBeReconciled()}.
+	 * @since 3.14
+	 */
+	private boolean fHasReconcileRegion;
+	/**
+	 * <code>true</code> if the next reconcile must visit the whole AST, e.g. because
+	 * the previous reconcile has been canceled.
+	 * @since 3.14
+	 */
+	private volatile boolean fFullReconcileNeeded= true;
+	/**
+	 * Number of AST nodes visited by the last reconcile.
+	 * @since 3.14
+	 */
+	private int fVisitedNodeCount;
+	/**
+	 * Number of AST nodes visited by the last full reconcile.
+	 * @since 3.14
+	 */
+	private int fTotalNodeCount;
+
 	/** The Java editor this semantic highlighting reconciler is installed on */
 	private JavaEditor fEditor;
 	/** The source viewer this semantic highlighting reconciler is installed on */
@@ -242,6 +356,11 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	private List<Position> fRemovedPositions= new ArrayList<>();
 	/** Number of removed positions */
 	private int fNOfRemovedPositions;
+	/**
+	 * Offsets of {@link #fRemovedPositions} at the start of the reconcile, for binary search.
+	 * @since 3.14
+	 */
+	private int[] fRemovedOffsets= new int[0];
 
 	/** Background job */
 	private Job fJob;
@@ -277,7 +396,17 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 */
 	@Override
 	public void aboutToBeReconciled() {
-		// Do nothing
+		synchronized (fDirtyRegionLock) {
+			if (fHasReconcileRegion && fReconcileStart != -1) {
+				// previous reconcile has not been reported
+				fFullReconcileNeeded= true;
+			}
+			fReconcileStart= fDirtyStart;
+			fReconcileEnd= fDirtyEnd;
+			fHasReconcileRegion= true;
+			fDirtyStart= -1;
+			fDirtyEnd= -1;
+		}
 	}
 
 	/*
@@ -285,17 +414,32 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 */
 	@Override
 	public void reconciled(CompilationUnit ast, boolean forced, IProgressMonitor progressMonitor) {
+		int reconcileStart, reconcileEnd;
+		boolean hasReconcileRegion, hasConcurrentChanges;
+		synchronized (fDirtyRegionLock) {
+			reconcileStart= fReconcileStart;
+			reconcileEnd= fReconcileEnd;
+			hasReconcileRegion= fHasReconcileRegion;
+			hasConcurrentChanges= fDirtyStart != -1;
+			fReconcileStart= -1;
+			fReconcileEnd= -1;
+			fHasReconcileRegion= false;
+		}
+
 		// ensure at most one thread can be reconciling at any time
 		synchronized (fReconcileLock) {
-			if (fIsReconciling)
+			if (fIsReconciling) {
+				fFullReconcileNeeded= true;
 				return;
-			else
+			} else
 				fIsReconciling= true;
 		}
 		fJobPresenter= fPresenter;
 		fJobSemanticHighlightings= fSemanticHighlightings;
 		fJobHighlightings= fHighlightings;
 
+		boolean fullReconcileNeeded= fFullReconcileNeeded;
+		fFullReconcileNeeded= true; // until the presentation update is posted
 		try {
 			if (fJobPresenter == null || fJobSemanticHighlightings == null || fJobHighlightings == null)
 				return;
@@ -305,7 +449,8 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			if (ast == null || fJobPresenter.isCanceled())
 				return;
 
-			ASTNode[] subtrees= getAffectedSubtrees(ast);
+			boolean incremental= !forced && !fullReconcileNeeded && hasReconcileRegion && reconcileStart != -1 && !hasConcurrentChanges;
+			ASTNode[] subtrees= incremental ? getAffectedSubtrees(ast, reconcileStart, reconcileEnd) : new ASTNode[] { ast };
 			if (subtrees.length == 0)
 				return;
 
@@ -327,8 +472,15 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			if (!fJobPresenter.isCanceled())
 				textPresentation= fJobPresenter.createPresentation(fAddedPositions, fRemovedPositions);
 
-			if (!fJobPresenter.isCanceled())
+			if (!fJobPresenter.isCanceled()) {
 				updatePresentation(textPresentation, fAddedPositions, fRemovedPositions);
+				if (subtrees.length == 1 && subtrees[0] == ast)
+					fTotalNodeCount= fVisitedNodeCount;
+				if (JavaPlugin.DEBUG_SEMANTIC_HIGHLIGHTING) {
+					System.out.println("SemanticHighlightingReconciler: visited " + fVisitedNodeCount + " of " + fTotalNodeCount + " nodes" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+							+ (subtrees[0] == ast ? "" : " (incremental)")); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			}
 
 			stopReconcilingPositions();
 		} finally {
@@ -343,12 +495,35 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	}
 
 	/**
+	 * Returns the subtrees that may be affected by the document changes in the given range.
+	 * <p>
+	 * Changes inside the body of a method or initializer can only change the bindings of
+	 * names in that body, so it is enough to revisit the outermost such body that contains
+	 * the changes. All other changes (e.g. to declarations) can have distant effects and
+	 * require to revisit the whole AST.
+	 * </p>
+	 *
 	 * @param node Root node
+	 * @param start start offset of the changed range
+	 * @param end end offset of the changed range
 	 * @return Array of subtrees that may be affected by past document changes
 	 */
-	private ASTNode[] getAffectedSubtrees(ASTNode node) {
-		// TODO: only return nodes which are affected by document changes - would require an 'anchor' concept for taking distant effects into account
-		return new ASTNode[] { node };
+	private ASTNode[] getAffectedSubtrees(CompilationUnit node, int start, int end) {
+		ASTNode covering= NodeFinder.perform(node, start, end - start);
+		Block body= null;
+		for (ASTNode current= covering; current != null; current= current.getParent()) {
+			if ((current.getFlags() & (ASTNode.MALFORMED | ASTNode.RECOVERED)) != 0)
+				return new ASTNode[] { node };
+			if (current instanceof Block) {
+				ASTNode parent= current.getParent();
+				if (parent instanceof MethodDeclaration || parent instanceof Initializer)
+					body= (Block) current;
+			}
+		}
+		// changes must be strictly inside the braces
+		if (body == null || start <= body.getStartPosition() || end >= body.getStartPosition() + body.getLength())
+			return new ASTNode[] { node };
+		return new ASTNode[] { body };
 	}
 
 	/**
@@ -357,6 +532,32 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	private void startReconcilingPositions() {
 		fJobPresenter.addAllPositions(fRemovedPositions);
 		fNOfRemovedPositions= fRemovedPositions.size();
+		if (fRemovedOffsets.length < fNOfRemovedPositions)
+			fRemovedOffsets= new int[Math.max(fNOfRemovedPositions, 2 * fRemovedOffsets.length)];
+		for (int i= 0; i < fNOfRemovedPositions; i++)
+			fRemovedOffsets[i]= fRemovedPositions.get(i).getOffset();
+		fVisitedNodeCount= 0;
+	}
+
+	/**
+	 * Returns the index of the first removed position with an offset not smaller
+	 * than the given offset. The removed positions are sorted by offset.
+	 *
+	 * @param offset the offset
+	 * @return the index of the first removed position at or after the offset
+	 * @since 3.14
+	 */
+	private int findFirstRemovedPosition(int offset) {
+		int low= 0;
+		int high= fRemovedPositions.size();
+		while (low < high) {
+			int mid= (low + high) >>> 1;
+			if (fRemovedOffsets[mid] < offset)
+				low= mid + 1;
+			else
+				high= mid;
+		}
+		return low;
 	}
 
 	/**
@@ -365,12 +566,17 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 * @param subtrees the AST subtrees
 	 */
 	private void reconcilePositions(ASTNode[] subtrees) {
-		// FIXME: remove positions not covered by subtrees
-
-
-
-		for (int i= 0, n= subtrees.length; i < n; i++)
-			subtrees[i].accept(fCollector);
+		for (int i= 0, n= subtrees.length; i < n; i++) {
+			ASTNode subtree= subtrees[i];
+			subtree.accept(fCollector);
+			if (subtree.getParent() != null) {
+				// keep the positions outside of the revisited subtree
+				int start= subtree.getStartPosition();
+				int end= start + subtree.getLength();
+				fCollector.retainPositions(0, start);
+				fCollector.retainPositions(end, Integer.MAX_VALUE - end);
+			}
+		}
 		List<Position> oldPositions= fRemovedPositions;
 		List<Position> newPositions= new ArrayList<>(fNOfRemovedPositions);
 		for (int i= 0, n= oldPositions.size(); i < n; i ++) {
@@ -389,10 +595,21 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 * @param removedPositions the removed positions
 	 */
 	private void updatePresentation(TextPresentation textPresentation, List<Position> addedPositions, List<Position> removedPositions) {
-		Runnable runnable= fJobPresenter.createUpdateRunnable(textPresentation, addedPositions, removedPositions);
-		if (runnable == null)
+		final Runnable update= fJobPresenter.createUpdateRunnable(textPresentation, addedPositions, removedPositions);
+		if (update == null)
 			return;
 
+		final SemanticHighlightingPresenter presenter= fJobPresenter;
+		Runnable runnable= new Runnable() {
+			@Override
+			public void run() {
+				// the presenter drops updates canceled by a document change, so the next reconcile must not rely on them
+				if (presenter.isCanceled())
+					fFullReconcileNeeded= true;
+				update.run();
+			}
+		};
+
 		JavaEditor editor= fEditor;
 		if (editor == null)
 			return;
@@ -409,6 +626,7 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		if (display == null || display.isDisposed())
 			return;
 
+		fFullReconcileNeeded= false;
 		display.asyncExec(runnable);
 	}
 
@@ -439,6 +657,8 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 
 		if (fEditor instanceof CompilationUnitEditor) {
 			((CompilationUnitEditor)fEditor).addReconcileListener(this);
+			fSourceViewer.addTextInputListener(fDirtyRegionTracker);
+			fDirtyRegionTracker.setDocument(fSourceViewer.getDocument());
 		} else if (fEditor == null) {
 			fSourceViewer.addTextInputListener(this);
 			scheduleJob();
@@ -453,9 +673,11 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			fPresenter.setCanceled(true);
 
 		if (fEditor != null) {
-			if (fEditor instanceof CompilationUnitEditor)
+			if (fEditor instanceof CompilationUnitEditor) {
 				((CompilationUnitEditor)fEditor).removeReconcileListener(this);
-			else
+				fSourceViewer.removeTextInputListener(fDirtyRegionTracker);
+				fDirtyRegionTracker.setDocument(null);
+			} else
 				fSourceViewer.removeTextInputListener(this);
 			fEditor= null;
 		}
@@ -538,6 +760,28 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 * @since 3.2
 	 */
 	public void refresh() {
+		fFullReconcileNeeded= true;
 		scheduleJob();
 	}
+
+	/**
+	 * Returns the number of AST nodes visited by the last reconcile. Incremental reconciles
+	 * only visit the subtree affected by the document changes.
+	 *
+	 * @return the number of visited nodes
+	 * @since 3.14
+	 */
+	public int getVisitedNodeCount() {
+		return fVisitedNodeCount;
+	}
+
+	/**
+	 * Returns the number of AST nodes visited by the last full reconcile.
+	 *
+	 * @return the number of nodes of the last AST that has been visited completely
+	 * @since 3.14
+	 */
+	public int getTotalNodeCount() {
+		return fTotalNodeCount;
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,8 +12,14 @@ package org.eclipse.jdt.internal.ui.packageview;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Display;
@@ -79,6 +85,19 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 	protected static final int GRANT_PARENT= 1 << 1;
 	protected static final int PROJECT= 1 << 2;
 
+	/**
+	 * Number of tree operations in one batch of updates above which the whole tree is refreshed
+	 * instead of updating the affected elements one by one.
+	 */
+	private static final int STRUCTURAL_REFRESH_THRESHOLD= 500;
+
+	/**
+	 * Time in milliseconds that the update job may spend in the UI thread before it yields.
+	 */
+	private static final long UPDATE_TIME_BUDGET= 50;
+
+	private static final Object REMOVED= new Object();
+
 	private TreeViewer fViewer;
 	private Object fInput;
 	private boolean fIsFlatLayout;
@@ -89,6 +108,9 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 
 	private UIJob fUpdateJob;
 
+	private final AtomicInteger fProcessedDeltaCount= new AtomicInteger();
+	private int fTreeOperationCount;
+
 	/**
 	 * We use a cache to know whether a package has a single child for the hierarchical representation.
 	 * This avoids looping over all packages for each call to
@@ -151,7 +173,7 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 			}
 			//Are we in the UIThread? If so spin it until we are done
 			if (!hasPendingUpdates && ctrl.getDisplay().getThread() == Thread.currentThread() && !fViewer.isBusy()) {
-				runUpdates(runnables);
+				runUpdates(coalesce(runnables));
 			} else {
 				synchronized (this) {
 					if (fPendingUpdates == null) {
@@ -173,7 +195,7 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 					if (viewer != null && viewer.isBusy()) {
 						schedule(100); // reschedule when viewer is busy: bug 184991
 					} else {
-						runPendingUpdates();
+						runPendingUpdates(UPDATE_TIME_BUDGET);
 					}
 					return Status.OK_STATUS;
 				}
@@ -187,16 +209,46 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 	 * Run all of the runnables that are the widget updates. Must be called in the display thread.
 	 */
 	public void runPendingUpdates() {
+		runPendingUpdates(Long.MAX_VALUE);
+	}
+
+	/**
+	 * Coalesces the pending updates and runs them until the time budget is used up. The
+	 * remaining updates are run by the update job later. Must be called in the display thread.
+	 *
+	 * @param timeBudget the time in milliseconds after which no further update is started
+	 */
+	private void runPendingUpdates(long timeBudget) {
 		Collection<Runnable> pendingUpdates;
 		synchronized (this) {
 			pendingUpdates= fPendingUpdates;
 			fPendingUpdates= null;
 		}
-		if (pendingUpdates != null && fViewer != null) {
-			Control control = fViewer.getControl();
-			if (control != null && !control.isDisposed()) {
-				runUpdates(pendingUpdates);
+		if (pendingUpdates == null || fViewer == null)
+			return;
+		Control control = fViewer.getControl();
+		if (control == null || control.isDisposed())
+			return;
+
+		List<Runnable> updates= coalesce(pendingUpdates);
+		long start= System.currentTimeMillis();
+		int operations= fTreeOperationCount;
+		for (int i= 0; i < updates.size(); i++) {
+			if (i > 0 && System.currentTimeMillis() - start > timeBudget) {
+				synchronized (this) {
+					List<Runnable> remaining= new ArrayList<>(updates.subList(i, updates.size()));
+					if (fPendingUpdates != null)
+						remaining.addAll(fPendingUpdates);
+					fPendingUpdates= remaining;
+				}
+				postAsyncUpdate(control.getDisplay());
+				break;
 			}
+			updates.get(i).run();
+		}
+		if (JavaPlugin.DEBUG_PACKAGE_EXPLORER_UPDATES) {
+			System.out.println("PackageExplorerContentProvider: " + pendingUpdates.size() + " updates, " + (fTreeOperationCount - operations) + " tree operations in " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					+ (System.currentTimeMillis() - start) + " ms (" + fProcessedDeltaCount.get() + " deltas processed, " + fTreeOperationCount + " tree operations in total)"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 		}
 	}
 
@@ -207,6 +259,175 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 		}
 	}
 
+	/**
+	 * Merges the refreshes, additions and removals of a batch of updates:
+	 * <ul>
+	 * <li>If an element is added and removed in the same batch, only the last operation is
+	 * kept.</li>
+	 * <li>Refreshes, additions and removals below an element that is refreshed are dropped. An
+	 * element refreshed several times is refreshed once, where it was refreshed first.</li>
+	 * <li>Consecutive additions to the same parent, consecutive removals and consecutive
+	 * refreshes are done in one tree operation.</li>
+	 * <li>If the batch contains more than {@link #STRUCTURAL_REFRESH_THRESHOLD} tree operations,
+	 * they are replaced by a single refresh of the viewer input, where the first tree operation
+	 * was.</li>
+	 * </ul>
+	 * The remaining updates are kept in the order they were posted.
+	 *
+	 * @param runnables the updates in the order they were posted
+	 * @return the coalesced updates
+	 */
+	private List<Runnable> coalesce(Collection<Runnable> runnables) {
+		Map<Object, Boolean> refreshes= new HashMap<>();
+		Map<Object, Runnable> lastStructuralChanges= new HashMap<>(); // element -> last update that adds or removes it
+		int operations= 0;
+		for (Iterator<Runnable> iter= runnables.iterator(); iter.hasNext();) {
+			Runnable runnable= iter.next();
+			if (runnable instanceof RefreshUpdate) {
+				RefreshUpdate update= (RefreshUpdate) runnable;
+				for (int i= 0; i < update.fToRefresh.size(); i++) {
+					Object element= update.fToRefresh.get(i);
+					Boolean updateLabels= refreshes.get(element);
+					refreshes.put(element, Boolean.valueOf(update.fUpdateLabels || updateLabels != null && updateLabels.booleanValue()));
+				}
+				operations+= update.fToRefresh.size();
+			} else if (runnable instanceof AddUpdate) {
+				AddUpdate update= (AddUpdate) runnable;
+				for (int i= 0; i < update.fElements.size(); i++)
+					lastStructuralChanges.put(update.fElements.get(i), update);
+				operations+= update.fElements.size();
+			} else if (runnable instanceof RemoveUpdate) {
+				RemoveUpdate update= (RemoveUpdate) runnable;
+				for (int i= 0; i < update.fElements.size(); i++)
+					lastStructuralChanges.put(update.fElements.get(i), update);
+				operations+= update.fElements.size();
+			}
+		}
+
+		List<Runnable> result= new ArrayList<>();
+		if (operations > STRUCTURAL_REFRESH_THRESHOLD || refreshes.containsKey(null)) {
+			boolean refreshed= false;
+			for (Iterator<Runnable> iter= runnables.iterator(); iter.hasNext();) {
+				Runnable runnable= iter.next();
+				if (!(runnable instanceof RefreshUpdate || runnable instanceof AddUpdate || runnable instanceof RemoveUpdate)) {
+					result.add(runnable);
+				} else if (!refreshed) {
+					result.add(new RefreshUpdate(Collections.singletonList(fInput), true));
+					refreshed= true;
+				}
+			}
+			return result;
+		}
+
+		Set<Object> refreshed= new HashSet<>();
+		for (Iterator<Runnable> iter= runnables.iterator(); iter.hasNext();) {
+			Runnable runnable= iter.next();
+			if (runnable instanceof RefreshUpdate) {
+				RefreshUpdate update= (RefreshUpdate) runnable;
+				for (int i= 0; i < update.fToRefresh.size(); i++) {
+					Object element= update.fToRefresh.get(i);
+					boolean updateLabels= refreshes.get(element).booleanValue();
+					if (refreshed.add(element) && !isBelowRefresh(element, refreshes, updateLabels))
+						appendRefresh(result, element, updateLabels);
+				}
+			} else if (runnable instanceof AddUpdate) {
+				AddUpdate update= (AddUpdate) runnable;
+				if (refreshes.containsKey(update.fParent) || isBelowRefresh(update.fParent, refreshes, false))
+					continue;
+				for (int i= 0; i < update.fElements.size(); i++) {
+					Object element= update.fElements.get(i);
+					if (lastStructuralChanges.get(element) == update)
+						appendAdd(result, update.fParent, element);
+				}
+			} else if (runnable instanceof RemoveUpdate) {
+				RemoveUpdate update= (RemoveUpdate) runnable;
+				for (int i= 0; i < update.fElements.size(); i++) {
+					Object element= update.fElements.get(i);
+					if (lastStructuralChanges.get(element) == update && !isBelowRefresh(element, refreshes, false))
+						appendRemove(result, element);
+				}
+			} else {
+				result.add(runnable);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Appends a refresh to coalesced updates. The last update is extended if it is a refresh with
+	 * the same label update. The updates of the result are created by {@link #coalesce(Collection)},
+	 * so their lists can be extended.
+	 *
+	 * @param result the coalesced updates
+	 * @param element the element to refresh
+	 * @param updateLabels <code>true</code> to update the labels
+	 */
+	private void appendRefresh(List<Runnable> result, Object element, boolean updateLabels) {
+		Runnable last= result.isEmpty() ? null : result.get(result.size() - 1);
+		if (last instanceof RefreshUpdate && ((RefreshUpdate) last).fUpdateLabels == updateLabels) {
+			((RefreshUpdate) last).fToRefresh.add(element);
+		} else {
+			List<Object> toRefresh= new ArrayList<>();
+			toRefresh.add(element);
+			result.add(new RefreshUpdate(toRefresh, updateLabels));
+		}
+	}
+
+	private void appendAdd(List<Runnable> result, Object parent, Object element) {
+		Runnable last= result.isEmpty() ? null : result.get(result.size() - 1);
+		if (last instanceof AddUpdate && ((AddUpdate) last).fParent.equals(parent)) {
+			((AddUpdate) last).fElements.add(element);
+		} else {
+			List<Object> elements= new ArrayList<>();
+			elements.add(element);
+			result.add(new AddUpdate(parent, elements));
+		}
+	}
+
+	private void appendRemove(List<Runnable> result, Object element) {
+		Runnable last= result.isEmpty() ? null : result.get(result.size() - 1);
+		if (last instanceof RemoveUpdate) {
+			((RemoveUpdate) last).fElements.add(element);
+		} else {
+			List<Object> elements= new ArrayList<>();
+			elements.add(element);
+			result.add(new RemoveUpdate(elements));
+		}
+	}
+
+	private boolean isBelowRefresh(Object element, Map<Object, Boolean> refreshes, boolean updateLabels) {
+		Object parent= getParent(element);
+		while (parent != null) {
+			Boolean refreshLabels= refreshes.get(parent);
+			if (refreshLabels != null && (refreshLabels.booleanValue() || !updateLabels))
+				return true;
+			parent= getParent(parent);
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of Java element deltas that have been processed since this content
+	 * provider was created.
+	 *
+	 * @return the number of processed deltas
+	 * @since 3.14
+	 */
+	public int getProcessedDeltaCount() {
+		return fProcessedDeltaCount.get();
+	}
+
+	/**
+	 * Returns the number of refresh, add and remove operations that have been issued to the
+	 * viewer since this content provider was created.
+	 *
+	 * @return the number of tree operations
+	 * @since 3.14
+	 */
+	public int getTreeOperationCount() {
+		return fTreeOperationCount;
+	}
+
 
 	private boolean inputDeleted(Collection<Runnable> runnables) {
 		if (fInput == null)
@@ -569,6 +790,7 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 	 * @throws JavaModelException thrown when the access to an element failed
 	 */
 	private boolean processDelta(IJavaElementDelta delta, Collection<Runnable> runnables) throws JavaModelException {
+		fProcessedDeltaCount.incrementAndGet();
 
 		int kind= delta.getKind();
 		int flags= delta.getFlags();
@@ -973,48 +1195,112 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 	}
 
 	protected void postRefresh(final List<Object> toRefresh, final boolean updateLabels, Collection<Runnable> runnables) {
-		runnables.add(new Runnable() {
-			@Override
-			public void run() {
-				Object[] elements= toRefresh.toArray();
-				for (int i= 0; i < elements.length; i++) {
-					Object element= elements[i];
-					if (element == null || fViewer.testFindItems(element).length > 0) {
-						fViewer.refresh(element, updateLabels);
-					}
+		runnables.add(new RefreshUpdate(toRefresh, updateLabels));
+	}
+
+	protected void postAdd(final Object parent, final Object element, Collection<Runnable> runnables) {
+		runnables.add(new AddUpdate(parent, Collections.singletonList(element)));
+	}
+
+	protected void postRemove(final Object element, Collection<Runnable> runnables) {
+		runnables.add(new RemoveUpdate(Collections.singletonList(element)));
+	}
+
+	/**
+	 * Refreshes elements. Refreshes are recognized and merged by {@link #coalesce(Collection)}.
+	 */
+	private class RefreshUpdate implements Runnable {
+		final List<Object> fToRefresh;
+		final boolean fUpdateLabels;
+
+		RefreshUpdate(List<Object> toRefresh, boolean updateLabels) {
+			fToRefresh= toRefresh;
+			fUpdateLabels= updateLabels;
+		}
+
+		@Override
+		public void run() {
+			Object[] elements= fToRefresh.toArray();
+			for (int i= 0; i < elements.length; i++) {
+				Object element= elements[i];
+				if (element == null || fViewer.testFindItems(element).length > 0) {
+					fViewer.refresh(element, fUpdateLabels);
+					fTreeOperationCount++;
 				}
 			}
-		});
+		}
 	}
 
-	protected void postAdd(final Object parent, final Object element, Collection<Runnable> runnables) {
-		runnables.add(new Runnable() {
-			@Override
-			public void run() {
-				Widget[] items= fViewer.testFindItems(element);
-				for (int i= 0; i < items.length; i++) {
-					Widget item= items[i];
-					if (item instanceof TreeItem && !item.isDisposed()) {
-						TreeItem parentItem= ((TreeItem) item).getParentItem();
-						if (parentItem != null && !parentItem.isDisposed() && parent.equals(parentItem.getData())) {
-							return; // no add, element already added (most likely by a refresh)
-						}
+	/**
+	 * Adds elements to a parent. Additions are recognized and merged by {@link #coalesce(Collection)}.
+	 */
+	private class AddUpdate implements Runnable {
+		final Object fParent;
+		final List<Object> fElements;
+
+		AddUpdate(Object parent, List<Object> elements) {
+			fParent= parent;
+			fElements= elements;
+		}
+
+		@Override
+		public void run() {
+			List<Object> toAdd= new ArrayList<>(fElements.size());
+			for (int i= 0; i < fElements.size(); i++) {
+				Object element= fElements.get(i);
+				if (!isAdded(element))
+					toAdd.add(element);
+			}
+			if (toAdd.size() == 1) {
+				fViewer.add(fParent, toAdd.get(0));
+				fTreeOperationCount++;
+			} else if (!toAdd.isEmpty()) {
+				fViewer.add(fParent, toAdd.toArray());
+				fTreeOperationCount++;
+			}
+		}
+
+		private boolean isAdded(Object element) {
+			Widget[] items= fViewer.testFindItems(element);
+			for (int i= 0; i < items.length; i++) {
+				Widget item= items[i];
+				if (item instanceof TreeItem && !item.isDisposed()) {
+					TreeItem parentItem= ((TreeItem) item).getParentItem();
+					if (parentItem != null && !parentItem.isDisposed() && fParent.equals(parentItem.getData())) {
+						return true; // no add, element already added (most likely by a refresh)
 					}
 				}
-				fViewer.add(parent, element);
 			}
-		});
+			return false;
+		}
 	}
 
-	protected void postRemove(final Object element, Collection<Runnable> runnables) {
-		runnables.add(new Runnable() {
-			@Override
-			public void run() {
-				if (fViewer.testFindItems(element).length > 0) {
-					fViewer.remove(element);
-				}
+	/**
+	 * Removes elements. Removals are recognized and merged by {@link #coalesce(Collection)}.
+	 */
+	private class RemoveUpdate implements Runnable {
+		final List<Object> fElements;
+
+		RemoveUpdate(List<Object> elements) {
+			fElements= elements;
+		}
+
+		@Override
+		public void run() {
+			List<Object> toRemove= new ArrayList<>(fElements.size());
+			for (int i= 0; i < fElements.size(); i++) {
+				Object element= fElements.get(i);
+				if (fViewer.testFindItems(element).length > 0)
+					toRemove.add(element);
 			}
-		});
+			if (toRemove.size() == 1) {
+				fViewer.remove(toRemove.get(0));
+				fTreeOperationCount++;
+			} else if (!toRemove.isEmpty()) {
+				fViewer.remove(toRemove.toArray());
+				fTreeOperationCount++;
+			}
+		}
 	}
 
 	protected void postProjectStateChanged(final Object root, Collection<Runnable> runnables) {
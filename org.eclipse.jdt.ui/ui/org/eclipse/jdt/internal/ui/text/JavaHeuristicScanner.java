@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,6 +16,7 @@ import org.eclipse.core.runtime.Assert;
 
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITypedRegion;
 import org.eclipse.jface.text.Region;
@@ -29,6 +30,11 @@ import org.eclipse.jdt.ui.text.IJavaPartitions;
  *
  * <p>An instance holds some internal position in the document and is therefore not threadsafe.</p>
  *
+ * <p>The characters are read through a window that is copied in bulk from the document, and the
+ * partitions that have been looked up are kept until the document changes, so that repeated scans
+ * over the same range, e.g. by the {@link JavaIndenter}, do not query the document for each
+ * character.</p>
+ *
  * @since 3.0
  */
 public final class JavaHeuristicScanner implements Symbols {
@@ -114,7 +120,7 @@ public final class JavaHeuristicScanner implements Symbols {
 		 */
 		@Override
 		public boolean stop(char ch, int position, boolean forward) {
-			return super.stop(ch, position, true) && isDefaultPartition(position);
+			return super.stop(ch, position, true) && isDefault(position);
 		}
 
 		/*
@@ -163,7 +169,7 @@ public final class JavaHeuristicScanner implements Symbols {
 		 */
 		@Override
 		public boolean stop(char ch, int position, boolean forward) {
-			return super.stop(ch, position, true) || !isDefaultPartition(position);
+			return super.stop(ch, position, true) || !isDefault(position);
 		}
 
 		/*
@@ -218,7 +224,7 @@ public final class JavaHeuristicScanner implements Symbols {
 		 */
 		@Override
 		public boolean stop(char ch, int position, boolean forward) {
-			return Arrays.binarySearch(fChars, ch) >= 0 && isDefaultPartition(position);
+			return Arrays.binarySearch(fChars, ch) >= 0 && isDefault(position);
 		}
 
 		/*
@@ -243,6 +249,17 @@ public final class JavaHeuristicScanner implements Symbols {
 		}
 	}
 
+	/**
+	 * The number of characters copied from the document at once.
+	 * @since 3.14
+	 */
+	private static final int WINDOW_SIZE= 4096;
+	/**
+	 * The maximal number of cached partitions.
+	 * @since 3.14
+	 */
+	private static final int MAX_PARTITIONS= 256;
+
 	/** The document being scanned. */
 	private final IDocument fDocument;
 	/** The partitioning being used for scanning. */
@@ -261,6 +278,36 @@ public final class JavaHeuristicScanner implements Symbols {
 	 * @since 3.2
 	 */
 	private ITypedRegion fCachedPartition= new TypedRegion(-1, 0, "__no_partition_at_all"); //$NON-NLS-1$
+	/**
+	 * The partitions looked up since the last document change, sorted by offset.
+	 * @since 3.14
+	 */
+	private final ITypedRegion[] fPartitions= new ITypedRegion[MAX_PARTITIONS];
+	/**
+	 * The number of cached partitions.
+	 * @since 3.14
+	 */
+	private int fPartitionCount;
+	/**
+	 * The characters of the document in <code>[fWindowOffset, fWindowOffset + fWindowLength)</code>.
+	 * @since 3.14
+	 */
+	private final char[] fWindow= new char[WINDOW_SIZE];
+	/**
+	 * The document offset of the window.
+	 * @since 3.14
+	 */
+	private int fWindowOffset;
+	/**
+	 * The number of valid characters in the window.
+	 * @since 3.14
+	 */
+	private int fWindowLength;
+	/**
+	 * The modification stamp of the document when the window and the partitions were read.
+	 * @since 3.14
+	 */
+	private long fModificationStamp= IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
 
 	/* preset stop conditions */
 	private final StopCondition fNonWSDefaultPart= new NonWhitespaceDefaultPartition();
@@ -363,7 +410,7 @@ public final class JavaHeuristicScanner implements Symbols {
 
 			String identOrKeyword;
 			try {
-				identOrKeyword= fDocument.get(from, to - from);
+				identOrKeyword= getString(from, to - from);
 			} catch (BadLocationException e) {
 				return TokenEOF;
 			}
@@ -439,7 +486,7 @@ public final class JavaHeuristicScanner implements Symbols {
 
 			String identOrKeyword;
 			try {
-				identOrKeyword= fDocument.get(from, to - from);
+				identOrKeyword= getString(from, to - from);
 			} catch (BadLocationException e) {
 				return TokenEOF;
 			}
@@ -567,7 +614,7 @@ public final class JavaHeuristicScanner implements Symbols {
 				if (start == NOT_FOUND)
 					return NOT_FOUND;
 
-				if (fDocument.getChar(start) == openingPeer)
+				if (getChar(start, true) == openingPeer)
 					depth++;
 				else
 					depth--;
@@ -622,7 +669,7 @@ public final class JavaHeuristicScanner implements Symbols {
 				if (start == NOT_FOUND)
 					return NOT_FOUND;
 
-				if (fDocument.getChar(start) == closingPeer)
+				if (getChar(start, false) == closingPeer)
 					depth++;
 				else
 					depth--;
@@ -731,11 +778,12 @@ public final class JavaHeuristicScanner implements Symbols {
 
 		Assert.isLegal(bound <= fDocument.getLength());
 
+		validateCaches();
 		try {
 			fPos= start;
 			while (fPos < bound) {
 
-				fChar= fDocument.getChar(fPos);
+				fChar= getChar(fPos, true);
 				if (condition.stop(fChar, fPos, true))
 					return fPos;
 
@@ -791,11 +839,12 @@ public final class JavaHeuristicScanner implements Symbols {
 		Assert.isLegal(bound >= -1);
 		Assert.isLegal(start < fDocument.getLength() );
 
+		validateCaches();
 		try {
 			fPos= start;
 			while (fPos > bound) {
 
-				fChar= fDocument.getChar(fPos);
+				fChar= getChar(fPos, false);
 				if (condition.stop(fChar, fPos, false))
 					return fPos;
 
@@ -841,9 +890,84 @@ public final class JavaHeuristicScanner implements Symbols {
 	 * @return <code>true</code> if <code>position</code> is in the default partition of <code>fDocument</code>, <code>false</code> otherwise
 	 */
 	public boolean isDefaultPartition(int position) {
+		validateCaches();
+		return isDefault(position);
+	}
+
+	/**
+	 * Checks whether <code>position</code> resides in a default (Java) partition, without
+	 * validating the caches against the document.
+	 *
+	 * @param position the position to be checked
+	 * @return <code>true</code> if <code>position</code> is in the default partition
+	 * @since 3.14
+	 */
+	private boolean isDefault(int position) {
 		return fPartition.equals(getPartition(position).getType());
 	}
 
+	/**
+	 * Drops the character window and the cached partitions if the document has changed since they
+	 * were read. Documents without modification stamps are assumed to change between scans.
+	 *
+	 * @since 3.14
+	 */
+	private void validateCaches() {
+		long stamp= fDocument instanceof IDocumentExtension4 ? ((IDocumentExtension4) fDocument).getModificationStamp() : IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+		if (stamp != fModificationStamp || stamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP) {
+			fModificationStamp= stamp;
+			fWindowLength= 0;
+			fPartitionCount= 0;
+			fCachedPartition= new TypedRegion(-1, 0, "__no_partition_at_all"); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Returns the character at <code>position</code>, refilling the window if the position is
+	 * outside of it. The window is placed so that it extends in the scan direction. Documents
+	 * without modification stamps are read character by character, since the window would be
+	 * dropped and copied again on every scan.
+	 *
+	 * @param position the position of the character
+	 * @param forward <code>true</code> if the scan continues after <code>position</code>
+	 * @return the character at <code>position</code>
+	 * @throws BadLocationException if <code>position</code> is not a position of the document
+	 * @since 3.14
+	 */
+	private char getChar(int position, boolean forward) throws BadLocationException {
+		if (fModificationStamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP)
+			return fDocument.getChar(position);
+		int index= position - fWindowOffset;
+		if (index < 0 || index >= fWindowLength) {
+			int length= fDocument.getLength();
+			if (position < 0 || position >= length)
+				throw new BadLocationException();
+			int offset= forward ? position : Math.max(0, position + 1 - WINDOW_SIZE);
+			int windowLength= Math.min(WINDOW_SIZE, length - offset);
+			fDocument.get(offset, windowLength).getChars(0, windowLength, fWindow, 0);
+			fWindowOffset= offset;
+			fWindowLength= windowLength;
+			index= position - offset;
+		}
+		return fWindow[index];
+	}
+
+	/**
+	 * Returns the text in the given range, from the window if it contains the range.
+	 *
+	 * @param offset the offset of the text
+	 * @param length the length of the text
+	 * @return the text
+	 * @throws BadLocationException if the range is not in the document
+	 * @since 3.14
+	 */
+	private String getString(int offset, int length) throws BadLocationException {
+		int index= offset - fWindowOffset;
+		if (index >= 0 && length >= 0 && index + length <= fWindowLength)
+			return new String(fWindow, index, length);
+		return fDocument.get(offset, length);
+	}
+
 	/**
 	 * Returns the partition at <code>position</code>.
 	 *
@@ -856,16 +980,66 @@ public final class JavaHeuristicScanner implements Symbols {
 			Assert.isTrue(position >= 0);
 			Assert.isTrue(position <= fDocument.getLength());
 
-			try {
-				fCachedPartition= TextUtilities.getPartition(fDocument, fPartitioning, position, false);
-			} catch (BadLocationException e) {
-				fCachedPartition= new TypedRegion(position, 0, "__no_partition_at_all"); //$NON-NLS-1$
+			int index= findPartition(position);
+			if (index >= 0) {
+				fCachedPartition= fPartitions[index];
+			} else {
+				try {
+					fCachedPartition= TextUtilities.getPartition(fDocument, fPartitioning, position, false);
+					addPartition(-(index + 1), fCachedPartition);
+				} catch (BadLocationException e) {
+					fCachedPartition= new TypedRegion(position, 0, "__no_partition_at_all"); //$NON-NLS-1$
+				}
 			}
 		}
 
 		return fCachedPartition;
 	}
 
+	/**
+	 * Searches the cached partitions for the one containing <code>position</code>.
+	 *
+	 * @param position an offset
+	 * @return the index of the partition containing <code>position</code>, or
+	 *         <code>-(insertion index + 1)</code> if no cached partition contains it
+	 * @since 3.14
+	 */
+	private int findPartition(int position) {
+		int low= 0;
+		int high= fPartitionCount - 1;
+		while (low <= high) {
+			int mid= (low + high) >>> 1;
+			ITypedRegion partition= fPartitions[mid];
+			if (position < partition.getOffset())
+				high= mid - 1;
+			else if (position >= partition.getOffset() + partition.getLength())
+				low= mid + 1;
+			else
+				return mid;
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * Inserts a partition into the sorted cache, unless it is empty or the cache is full.
+	 *
+	 * @param index the insertion index, as returned by {@link #findPartition(int)}
+	 * @param partition the partition to cache
+	 * @since 3.14
+	 */
+	private void addPartition(int index, ITypedRegion partition) {
+		if (partition.getLength() == 0 || fPartitionCount == MAX_PARTITIONS)
+			return;
+		// the partition at the lookup position may start before an adjacent cached partition
+		if (index > 0 && contains(fPartitions[index - 1], partition.getOffset()))
+			return;
+		if (index < fPartitionCount && fPartitions[index].getOffset() < partition.getOffset() + partition.getLength())
+			return;
+		System.arraycopy(fPartitions, index, fPartitions, index + 1, fPartitionCount - index);
+		fPartitions[index]= partition;
+		fPartitionCount++;
+	}
+
 	/**
 	 * Returns <code>true</code> if <code>region</code> contains <code>position</code>.
 	 *
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,7 +12,9 @@ package org.eclipse.jdt.internal.ui.text.correction;
 
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.expressions.EvaluationContext;
 import org.eclipse.core.expressions.EvaluationResult;
@@ -23,6 +25,7 @@ import org.eclipse.core.expressions.ExpressionTagNames;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.PerformanceStats;
 import org.eclipse.core.runtime.Status;
 
 import org.eclipse.jdt.core.ICompilationUnit;
@@ -40,10 +43,22 @@ import org.eclipse.jdt.internal.ui.dialogs.StatusInfo;
 public final class ContributedProcessorDescriptor {
 
 	private final IConfigurationElement fConfigurationElement;
+	/**
+	 * The id of the processor.
+	 * @since 3.14
+	 */
+	private final String fId;
 	private Object fProcessorInstance;
 	private Boolean fStatus;
 	private String fRequiredSourceLevel;
 	private final Set<String> fHandledMarkerTypes;
+	/**
+	 * The answers of {@link org.eclipse.jdt.ui.text.java.IQuickFixProcessor#hasCorrections(ICompilationUnit, int)}
+	 * by problem id and marker type, or <code>null</code> if the answers of the processor depend on
+	 * the compilation unit.
+	 * @since 3.14
+	 */
+	private final Map<String, Boolean> fHasCorrections;
 
 	private static final String ID= "id"; //$NON-NLS-1$
 	private static final String CLASS= "class"; //$NON-NLS-1$
@@ -53,8 +68,23 @@ public final class ContributedProcessorDescriptor {
 	private static final String HANDLED_MARKER_TYPES= "handledMarkerTypes"; //$NON-NLS-1$
 	private static final String MARKER_TYPE= "markerType"; //$NON-NLS-1$
 
+	private static final String HAS_CORRECTIONS_DEPENDS_ON_UNIT= "hasCorrectionsDependsOnUnit"; //$NON-NLS-1$
+
+	/**
+	 * The performance event of the calls of the processors, with the processor id as blame.
+	 * @since 3.14
+	 */
+	private static final String PERFORMANCE_EVENT= JavaPlugin.getPluginId() + "/perf/quick_fix/processors"; //$NON-NLS-1$
+	/**
+	 * If <code>true</code>, the calls of the processors are forwarded to core's
+	 * {@link PerformanceStats} service.
+	 * @since 3.14
+	 */
+	private static final boolean MEASURE_PERFORMANCE= PerformanceStats.isEnabled(PERFORMANCE_EVENT);
+
 	public ContributedProcessorDescriptor(IConfigurationElement element, boolean testMarkerTypes) {
 		fConfigurationElement= element;
+		fId= element.getAttribute(ID);
 		fProcessorInstance= null;
 		fStatus= null; // undefined
 		if (fConfigurationElement.getChildren(ExpressionTagNames.ENABLEMENT).length == 0) {
@@ -62,6 +92,8 @@ public final class ContributedProcessorDescriptor {
 		}
 		fRequiredSourceLevel= element.getAttribute(REQUIRED_SOURCE_LEVEL);
 		fHandledMarkerTypes= testMarkerTypes ? getHandledMarkerTypes(element) : null;
+		boolean dependsOnUnit= !Boolean.FALSE.toString().equals(element.getAttribute(HAS_CORRECTIONS_DEPENDS_ON_UNIT));
+		fHasCorrections= dependsOnUnit ? null : new ConcurrentHashMap<String, Boolean>();
 	}
 
 	private Set<String> getHandledMarkerTypes(IConfigurationElement element) {
@@ -126,7 +158,7 @@ public final class ContributedProcessorDescriptor {
 		return false;
 	}
 
-	public Object getProcessor(ICompilationUnit cunit, Class<?> expectedType) {
+	public synchronized Object getProcessor(ICompilationUnit cunit, Class<?> expectedType) {
 		if (matches(cunit)) {
 			if (fProcessorInstance == null) {
 				try {
@@ -155,4 +187,51 @@ public final class ContributedProcessorDescriptor {
 		return fHandledMarkerTypes == null || fHandledMarkerTypes.contains(markerType);
 	}
 
+	/**
+	 * Returns the remembered answer of the processor for a problem. Only the answers of processors
+	 * that declare <code>hasCorrectionsDependsOnUnit="false"</code> are remembered.
+	 *
+	 * @param problemId the problem id
+	 * @param markerType the marker type of the problem
+	 * @return whether the processor has corrections for the problem, or <code>null</code> if the
+	 *         processor has to be asked
+	 * @since 3.14
+	 */
+	public Boolean getHasCorrections(int problemId, String markerType) {
+		if (fHasCorrections == null)
+			return null;
+		return fHasCorrections.get(getHasCorrectionsKey(problemId, markerType));
+	}
+
+	/**
+	 * Remembers the answer of the processor for a problem, if the answers of the processor do not
+	 * depend on the compilation unit. The answers are dropped with the descriptor when the
+	 * processor registry changes.
+	 *
+	 * @param problemId the problem id
+	 * @param markerType the marker type of the problem
+	 * @param hasCorrections whether the processor has corrections for the problem
+	 * @since 3.14
+	 */
+	public void setHasCorrections(int problemId, String markerType, boolean hasCorrections) {
+		if (fHasCorrections != null)
+			fHasCorrections.put(getHasCorrectionsKey(problemId, markerType), Boolean.valueOf(hasCorrections));
+	}
+
+	private static String getHasCorrectionsKey(int problemId, String markerType) {
+		return String.valueOf(problemId) + ':' + markerType;
+	}
+
+	/**
+	 * Reports a call of the processor to core's {@link PerformanceStats} service, if enabled.
+	 *
+	 * @param operation the name of the called method
+	 * @param start the start time of the call, in milliseconds
+	 * @since 3.14
+	 */
+	public void reportCall(String operation, long start) {
+		if (MEASURE_PERFORMANCE)
+			PerformanceStats.getStats(PERFORMANCE_EVENT, fId).addRun(System.currentTimeMillis() - start, operation);
+	}
+
 }
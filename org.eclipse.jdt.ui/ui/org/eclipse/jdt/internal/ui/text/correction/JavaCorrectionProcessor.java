@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,6 +16,9 @@ import java.util.Arrays;
 import java.util.Collection;
 
 import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExtension;
+import org.eclipse.core.runtime.IExtensionPoint;
+import org.eclipse.core.runtime.IRegistryEventListener;
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.MultiStatus;
@@ -69,10 +72,48 @@ public class JavaCorrectionProcessor implements org.eclipse.jface.text.quickassi
 	private static final String QUICKFIX_PROCESSOR_CONTRIBUTION_ID= "quickFixProcessors"; //$NON-NLS-1$
 	private static final String QUICKASSIST_PROCESSOR_CONTRIBUTION_ID= "quickAssistProcessors"; //$NON-NLS-1$
 
-	private static ContributedProcessorDescriptor[] fgContributedAssistProcessors= null;
-	private static ContributedProcessorDescriptor[] fgContributedCorrectionProcessors= null;
+	/* operations reported to the performance stats */
+	private static final String GET_CORRECTIONS= "getCorrections()"; //$NON-NLS-1$
+	private static final String GET_ASSISTS= "getAssists()"; //$NON-NLS-1$
+	private static final String HAS_CORRECTIONS= "hasCorrections()"; //$NON-NLS-1$
+
+	private static volatile ContributedProcessorDescriptor[] fgContributedAssistProcessors= null;
+	private static volatile ContributedProcessorDescriptor[] fgContributedCorrectionProcessors= null;
+
+	private static boolean fgIsRegistryListenerAdded;
+
+	/**
+	 * Drops the processor descriptors, and with them the remembered answers of the processors,
+	 * when processors are added or removed.
+	 * @since 3.14
+	 */
+	private static final IRegistryEventListener fgRegistryListener= new IRegistryEventListener() {
+		@Override
+		public void added(IExtension[] extensions) {
+			reset();
+		}
+
+		@Override
+		public void removed(IExtension[] extensions) {
+			reset();
+		}
+
+		@Override
+		public void added(IExtensionPoint[] extensionPoints) {
+		}
+
+		@Override
+		public void removed(IExtensionPoint[] extensionPoints) {
+		}
+
+		private void reset() {
+			fgContributedCorrectionProcessors= null;
+			fgContributedAssistProcessors= null;
+		}
+	};
 
 	private static ContributedProcessorDescriptor[] getProcessorDescriptors(String contributionId, boolean testMarkerTypes) {
+		addRegistryListener();
 		IConfigurationElement[] elements= Platform.getExtensionRegistry().getConfigurationElementsFor(JavaUI.ID_PLUGIN, contributionId);
 		ArrayList<ContributedProcessorDescriptor> res= new ArrayList<>(elements.length);
 
@@ -88,23 +129,35 @@ public class JavaCorrectionProcessor implements org.eclipse.jface.text.quickassi
 		return res.toArray(new ContributedProcessorDescriptor[res.size()]);
 	}
 
+	private static synchronized void addRegistryListener() {
+		if (!fgIsRegistryListenerAdded) {
+			fgIsRegistryListenerAdded= true;
+			Platform.getExtensionRegistry().addListener(fgRegistryListener, JavaUI.ID_PLUGIN + '.' + QUICKFIX_PROCESSOR_CONTRIBUTION_ID);
+			Platform.getExtensionRegistry().addListener(fgRegistryListener, JavaUI.ID_PLUGIN + '.' + QUICKASSIST_PROCESSOR_CONTRIBUTION_ID);
+		}
+	}
+
 	private static ContributedProcessorDescriptor[] getCorrectionProcessors() {
-		if (fgContributedCorrectionProcessors == null) {
-			fgContributedCorrectionProcessors= getProcessorDescriptors(QUICKFIX_PROCESSOR_CONTRIBUTION_ID, true);
+		ContributedProcessorDescriptor[] processors= fgContributedCorrectionProcessors;
+		if (processors == null) {
+			processors= getProcessorDescriptors(QUICKFIX_PROCESSOR_CONTRIBUTION_ID, true);
+			fgContributedCorrectionProcessors= processors;
 		}
-		return fgContributedCorrectionProcessors;
+		return processors;
 	}
 
 	private static ContributedProcessorDescriptor[] getAssistProcessors() {
-		if (fgContributedAssistProcessors == null) {
-			fgContributedAssistProcessors= getProcessorDescriptors(QUICKASSIST_PROCESSOR_CONTRIBUTION_ID, false);
+		ContributedProcessorDescriptor[] processors= fgContributedAssistProcessors;
+		if (processors == null) {
+			processors= getProcessorDescriptors(QUICKASSIST_PROCESSOR_CONTRIBUTION_ID, false);
+			fgContributedAssistProcessors= processors;
 		}
-		return fgContributedAssistProcessors;
+		return processors;
 	}
 
 	public static boolean hasCorrections(ICompilationUnit cu, int problemId, String markerType) {
 		ContributedProcessorDescriptor[] processors= getCorrectionProcessors();
-		SafeHasCorrections collector= new SafeHasCorrections(cu, problemId);
+		SafeHasCorrections collector= new SafeHasCorrections(cu, problemId, markerType);
 		for (int i= 0; i < processors.length; i++) {
 			if (processors[i].canHandleMarkerType(markerType)) {
 				collector.process(processors[i]);
@@ -381,7 +434,9 @@ public class JavaCorrectionProcessor implements org.eclipse.jface.text.quickassi
 		public void safeRun(ContributedProcessorDescriptor desc) throws Exception {
 			IQuickFixProcessor curr= (IQuickFixProcessor) desc.getProcessor(fContext.getCompilationUnit(), IQuickFixProcessor.class);
 			if (curr != null) {
+				long start= System.currentTimeMillis();
 				IJavaCompletionProposal[] res= curr.getCorrections(fContext, fLocations);
+				desc.reportCall(GET_CORRECTIONS, start);
 				if (res != null) {
 					for (int k= 0; k < res.length; k++) {
 						fProposals.add(res[k]);
@@ -406,7 +461,9 @@ public class JavaCorrectionProcessor implements org.eclipse.jface.text.quickassi
 		public void safeRun(ContributedProcessorDescriptor desc) throws Exception {
 			IQuickAssistProcessor curr= (IQuickAssistProcessor) desc.getProcessor(fContext.getCompilationUnit(), IQuickAssistProcessor.class);
 			if (curr != null) {
+				long start= System.currentTimeMillis();
 				IJavaCompletionProposal[] res= curr.getAssists(fContext, fLocations);
+				desc.reportCall(GET_ASSISTS, start);
 				if (res != null) {
 					for (int k= 0; k < res.length; k++) {
 						fProposals.add(res[k]);
@@ -441,11 +498,13 @@ public class JavaCorrectionProcessor implements org.eclipse.jface.text.quickassi
 	private static class SafeHasCorrections extends SafeCorrectionProcessorAccess {
 		private final ICompilationUnit fCu;
 		private final int fProblemId;
+		private final String fMarkerType;
 		private boolean fHasCorrections;
 
-		public SafeHasCorrections(ICompilationUnit cu, int problemId) {
+		public SafeHasCorrections(ICompilationUnit cu, int problemId, String markerType) {
 			fCu= cu;
 			fProblemId= problemId;
+			fMarkerType= markerType;
 			fHasCorrections= false;
 		}
 
@@ -456,8 +515,16 @@ public class JavaCorrectionProcessor implements org.eclipse.jface.text.quickassi
 		@Override
 		public void safeRun(ContributedProcessorDescriptor desc) throws Exception {
 			IQuickFixProcessor processor= (IQuickFixProcessor) desc.getProcessor(fCu, IQuickFixProcessor.class);
-			if (processor != null && processor.hasCorrections(fCu, fProblemId)) {
-				fHasCorrections= true;
+			if (processor != null) {
+				Boolean hasCorrections= desc.getHasCorrections(fProblemId, fMarkerType);
+				if (hasCorrections == null) {
+					long start= System.currentTimeMillis();
+					hasCorrections= Boolean.valueOf(processor.hasCorrections(fCu, fProblemId));
+					desc.reportCall(HAS_CORRECTIONS, start);
+					desc.setHasCorrections(fProblemId, fMarkerType, hasCorrections.booleanValue());
+				}
+				if (hasCorrections.booleanValue())
+					fHasCorrections= true;
 			}
 		}
 	}
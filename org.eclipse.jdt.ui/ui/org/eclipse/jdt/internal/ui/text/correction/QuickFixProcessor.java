@@ -287,6 +287,8 @@ public class QuickFixProcessor implements IQuickFixProcessor {
 			case IProblem.MissingNonNullByDefaultAnnotationOnPackage:
 				return true;
 			default:
+				// a suppress warnings proposal implies a configurable severity, so the answer only
+				// depends on the problem id and can be remembered (see hasCorrectionsDependsOnUnit)
 				return SuppressWarningsSubProcessor.hasSuppressWarningsProposal(cu.getJavaProject(), problemId)
 						|| ConfigureProblemSeveritySubProcessor.hasConfigureProblemSeverityProposal(problemId);
 		}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2012 IBM Corporation and others.
+ * Copyright (c) 2005, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -64,6 +64,8 @@ final class CompletionProposalComputerDescriptor {
 	private static final String ACTIVATE= "activate"; //$NON-NLS-1$
 	/** The extension schema name of the needsSortingAfterFiltering attribute. */
 	private static final String NEEDS_SORTING_AFTER_FILTERING= "needsSortingAfterFiltering"; //$NON-NLS-1$
+	/** The extension schema name of the requiresUIThread attribute. */
+	private static final String REQUIRES_UI_THREAD= "requiresUIThread"; //$NON-NLS-1$
 	/** The extension schema name of the partition child elements. */
 	private static final String PARTITION= "partition"; //$NON-NLS-1$
 	/** Set of Java partition types. */
@@ -75,6 +77,16 @@ final class CompletionProposalComputerDescriptor {
 	 * core's {@link PerformanceStats} service.
 	 */
 	private static final boolean MEASURE_PERFORMANCE= PerformanceStats.isEnabled(PERFORMANCE_EVENT);
+	/**
+	 * The name of the performance event used to report the latency histograms of extensions. The
+	 * blame of the event is the extension and the latency bucket, see {@link #getLatencyBlame(int)}.
+	 */
+	private static final String LATENCY_EVENT= JavaPlugin.getPluginId() + "/perf/content_assist/latency"; //$NON-NLS-1$
+	/**
+	 * If <code>true</code>, the latencies of {@link #computeCompletionProposals(ContentAssistInvocationContext, IProgressMonitor)}
+	 * are forwarded to core's {@link PerformanceStats} service.
+	 */
+	private static final boolean MEASURE_LATENCY= PerformanceStats.isEnabled(LATENCY_EVENT);
 	/**
 	 * Independently of the {@link PerformanceStats} service, any operation that takes longer than
 	 * {@value} milliseconds will be flagged as an violation. This timeout does not apply to the
@@ -109,6 +121,11 @@ final class CompletionProposalComputerDescriptor {
 	private final String fClass;
 	/** The activate attribute value. */
 	private final boolean fActivate;
+	/**
+	 * The requiresUIThread attribute value.
+	 * @since 3.14
+	 */
+	private final boolean fRequiresUIThread;
 	/** The partition of the extension (element type: {@link String}). */
 	private final Set<String> fPartitions;
 	/** The configuration element of this extension. */
@@ -144,6 +161,22 @@ final class CompletionProposalComputerDescriptor {
 	 */
 	private boolean fNeedsSortingAfterFiltering;
 
+	/**
+	 * The lock that serializes the computations of proposals. Context information is always
+	 * computed in the UI thread and does not take this lock, so that it never waits for a
+	 * computation of proposals in the background.
+	 *
+	 * @since 3.14
+	 */
+	private final Object fProposalComputationLock= new Object();
+
+	/**
+	 * The blames of the latency buckets reported to {@link PerformanceStats}, created on demand.
+	 *
+	 * @since 3.14
+	 */
+	private String[] fLatencyBlames;
+
 
 	/**
 	 * Creates a new descriptor.
@@ -189,6 +222,9 @@ final class CompletionProposalComputerDescriptor {
 		String needsSortingAfterFilteringAttribute= element.getAttribute(NEEDS_SORTING_AFTER_FILTERING);
 		fNeedsSortingAfterFiltering= Boolean.valueOf(needsSortingAfterFilteringAttribute).booleanValue();
 
+		String requiresUIThreadAttribute= element.getAttribute(REQUIRES_UI_THREAD);
+		fRequiresUIThread= requiresUIThreadAttribute == null || Boolean.valueOf(requiresUIThreadAttribute).booleanValue();
+
 		fClass= element.getAttribute(CLASS);
 		checkNotNull(fClass, CLASS);
 
@@ -313,12 +349,25 @@ final class CompletionProposalComputerDescriptor {
 	 * is disabled, throws an exception or otherwise does not adhere to the contract described in
 	 * {@link IJavaCompletionProposalComputer}, an empty list is returned.
 	 *
+	 * <p>
+	 * Extensions that do not require the UI thread may be called from a background thread. The
+	 * calls of this method are serialized, so that the extension never computes proposals
+	 * concurrently with itself. It may compute context information in the UI thread meanwhile.
+	 * </p>
+	 *
 	 * @param context the invocation context passed on to the extension
 	 * @param monitor the progress monitor passed on to the extension
 	 * @return the list of computed completion proposals (element type:
 	 *         {@link org.eclipse.jface.text.contentassist.ICompletionProposal})
+	 * @see #requiresUIThread()
 	 */
 	public List<ICompletionProposal> computeCompletionProposals(ContentAssistInvocationContext context, IProgressMonitor monitor) {
+		synchronized (fProposalComputationLock) {
+			return internalComputeCompletionProposals(context, monitor);
+		}
+	}
+
+	private List<ICompletionProposal> internalComputeCompletionProposals(ContentAssistInvocationContext context, IProgressMonitor monitor) {
 		if (!isEnabled())
 			return Collections.emptyList();
 
@@ -330,7 +379,9 @@ final class CompletionProposalComputerDescriptor {
 
 			try {
 				PerformanceStats stats= startMeter(context, computer);
+				long start= System.currentTimeMillis();
 				List<ICompletionProposal> proposals= computer.computeCompletionProposals(context, monitor);
+				recordLatency(System.currentTimeMillis() - start, context);
 				stopMeter(stats, COMPUTE_COMPLETION_PROPOSALS);
 
 				if (proposals != null) {
@@ -503,6 +554,28 @@ final class CompletionProposalComputerDescriptor {
 		}
 	}
 
+	private void recordLatency(long elapsed, ContentAssistInvocationContext context) {
+		if (MEASURE_LATENCY)
+			PerformanceStats.getStats(LATENCY_EVENT, getLatencyBlame(LatencyHistogram.getBucket(elapsed))).addRun(elapsed, context.toString());
+	}
+
+	/**
+	 * Returns the blame of a latency bucket, like
+	 * <code>org.eclipse.jdt.ui.JavaAllCompletionProposalComputer [20, 50) ms</code>. The stats of
+	 * the {@link #LATENCY_EVENT} are kept per blame, so the run counts of the blames of an extension
+	 * form its latency histogram.
+	 *
+	 * @param bucket the latency bucket
+	 * @return the blame
+	 */
+	private String getLatencyBlame(int bucket) {
+		if (fLatencyBlames == null)
+			fLatencyBlames= new String[LatencyHistogram.getBucketCount()];
+		if (fLatencyBlames[bucket] == null)
+			fLatencyBlames[bucket]= fId + ' ' + LatencyHistogram.getBucketLabel(bucket);
+		return fLatencyBlames[bucket];
+	}
+
 	private IStatus createExceptionStatus(InvalidRegistryObjectException x) {
 		// extension has become invalid - log & disable
 		String blame= createBlameMessage();
@@ -579,6 +652,18 @@ final class CompletionProposalComputerDescriptor {
         }
     }
 
+	/**
+	 * Returns whether the described extension must be called in the UI thread. Extensions that do
+	 * not require the UI thread compute their proposals in the background, concurrently with the
+	 * other extensions.
+	 *
+	 * @return <code>true</code> if the described extension must be called in the UI thread
+	 * @since 3.14
+	 */
+	public boolean requiresUIThread() {
+		return fRequiresUIThread;
+	}
+
 	/**
 	 * Returns the <code>needsSortingAfterFiltering</code> flag of the described extension.
 	 * 
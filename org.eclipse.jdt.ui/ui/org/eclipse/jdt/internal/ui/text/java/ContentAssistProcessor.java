@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 IBM Corporation and others.
+ * Copyright (c) 2005, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Set;
 
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.layout.GridData;
@@ -29,6 +30,7 @@ import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Link;
 import org.eclipse.swt.widgets.Shell;
 
@@ -110,6 +112,7 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 			if (event.processor != ContentAssistProcessor.this)
 				return;
 
+			fIsSessionActive= true;
 			fIterationGesture= getIterationGesture();
 			KeySequence binding= getIterationBinding();
 
@@ -177,6 +180,13 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 				cat.sessionEnded();
 			}
 
+			fIsSessionActive= false;
+			// late proposals are only shown if the user has not seen and closed the partial list
+			if (fPendingComputation != null && fPendingComputationShown) {
+				fPendingComputation.cancel();
+				fPendingComputation= null;
+			}
+
 			fSelectedProposal= null;
 			fCategoryIteration= null;
 			fRepetition= -1;
@@ -258,6 +268,45 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 	 */
 	private boolean fNeedsSortingAfterFiltering;
 
+	/**
+	 * The computation whose background computers have missed the latency budget, or
+	 * <code>null</code>. Its proposals are shown when the late computers are done.
+	 *
+	 * @since 3.14
+	 */
+	private ProposalComputation fPendingComputation;
+
+	/**
+	 * Tells whether the partial proposals of {@link #fPendingComputation} have been shown.
+	 *
+	 * @since 3.14
+	 */
+	private boolean fPendingComputationShown;
+
+	/**
+	 * The value of {@link #fRepetition} after the categories of {@link #fPendingComputation} have
+	 * been selected.
+	 *
+	 * @since 3.14
+	 */
+	private int fPendingComputationRepetition;
+
+	/**
+	 * Tells whether content assist is invoked again to show the late proposals of
+	 * {@link #fPendingComputation}, rather than by the user.
+	 *
+	 * @since 3.14
+	 */
+	private boolean fShowingLateProposals;
+
+	/**
+	 * Tells whether a content assist session of this processor is active. Outside of sessions,
+	 * proposals are computed programmatically and the latency budget does not apply.
+	 *
+	 * @since 3.14
+	 */
+	private boolean fIsSessionActive;
+
 
 	public ContentAssistProcessor(ContentAssistant assistant, String partition) {
 		Assert.isNotNull(partition);
@@ -309,6 +358,50 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 		return result;
 	}
 
+	/**
+	 * Invokes content assist again when the late computers of a computation are done, unless the
+	 * document or the caret position have changed since.
+	 *
+	 * @param computation the computation that has missed the latency budget
+	 * @since 3.14
+	 */
+	private void showLateProposals(final ProposalComputation computation) {
+		fPendingComputation= computation;
+		fPendingComputationRepetition= fRepetition;
+		final ITextViewer viewer= computation.getContext().getViewer();
+		final Display display= viewer.getTextWidget().getDisplay();
+		computation.setDoneListener(new Runnable() {
+			@Override
+			public void run() {
+				display.asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						if (fPendingComputation != computation)
+							return;
+						StyledText widget= viewer.getTextWidget();
+						int offset= computation.getContext().getInvocationOffset();
+						if (widget == null || widget.isDisposed() || viewer.getSelectedRange().x != offset || !computation.matches(viewer, offset)) {
+							fPendingComputation= null;
+							return;
+						}
+						// an open proposal popup only recomputes its proposals in repeated invocation mode
+						boolean isRepeatedInvocationMode= fCategoryIteration != null && fCategoryIteration.size() > 1;
+						fShowingLateProposals= true;
+						try {
+							if (!isRepeatedInvocationMode)
+								fAssistant.setRepeatedInvocationMode(true);
+							fAssistant.showPossibleCompletions();
+						} finally {
+							if (!isRepeatedInvocationMode)
+								fAssistant.setRepeatedInvocationMode(false);
+							fShowingLateProposals= false;
+						}
+					}
+				});
+			}
+		});
+	}
+
 	private void clearState() {
 		fErrorMessage=null;
 		fNumberOfComputedResults= 0;
@@ -316,6 +409,13 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 
 	/**
 	 * Collects the proposals.
+	 * <p>
+	 * The computers that do not require the UI thread compute their proposals in the background.
+	 * If they miss the {@linkplain ProposalComputation#LATENCY_BUDGET latency budget} of a content
+	 * assist session, the proposals computed so far are returned, and content assist is invoked again when the late
+	 * computers are done. The second invocation returns all proposals of the computation, if the
+	 * document and the invocation offset have not changed.
+	 * </p>
 	 *
 	 * @param viewer the text viewer
 	 * @param offset the offset
@@ -324,15 +424,33 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 	 * @return the list of proposals
 	 */
 	private List<ICompletionProposal> collectProposals(ITextViewer viewer, int offset, IProgressMonitor monitor, ContentAssistInvocationContext context) {
-		boolean needsSortingAfterFiltering= false;
-		List<ICompletionProposal> proposals= new ArrayList<>();
-		List<CompletionProposalCategory> providers= getCategories();
-		for (CompletionProposalCategory cat : providers) {
-			List<ICompletionProposal> computed= cat.computeCompletionProposals(context, fPartition, new SubProgressMonitor(monitor, 1));
-			proposals.addAll(computed);
-			needsSortingAfterFiltering= needsSortingAfterFiltering || (cat.isSortingAfterFilteringNeeded() && !computed.isEmpty());
-			if (fErrorMessage == null)
-				fErrorMessage= cat.getErrorMessage();
+		long start= System.currentTimeMillis();
+		ProposalComputation computation= fPendingComputation;
+		fPendingComputation= null;
+		if (fShowingLateProposals && computation != null && computation.isDone() && computation.matches(viewer, offset)) {
+			// the late proposals of the last invocation are available
+			if (fCategoryIteration != null)
+				fRepetition= fPendingComputationRepetition;
+		} else {
+			if (computation != null)
+				computation.cancel();
+			List<CompletionProposalCategory> providers= getCategories();
+			// without a latency budget, all computers run in this thread rather than making it wait
+			boolean hasBudget= fIsSessionActive && ProposalComputation.LATENCY_BUDGET > 0 && ProposalComputation.canComputeInBackground(context);
+			computation= new ProposalComputation(providers, fComputerRegistry.getProposalComputerDescriptors(fPartition), context, hasBudget);
+			computation.compute(monitor);
+			if (hasBudget && !computation.await(start + ProposalComputation.LATENCY_BUDGET))
+				showLateProposals(computation);
+		}
+
+		List<ICompletionProposal> proposals= computation.getProposals();
+		boolean needsSortingAfterFiltering= computation.isSortingAfterFilteringNeeded();
+		if (fErrorMessage == null)
+			fErrorMessage= computation.getErrorMessage();
+		if (fPendingComputation != null) {
+			fPendingComputationShown= !proposals.isEmpty() || fCategoryIteration != null && fCategoryIteration.size() > 1;
+			if (JavaPlugin.DEBUG_RESULT_COLLECTOR)
+				System.err.println("Code Assist (late computers):\t" + computation.getPendingCount()); //$NON-NLS-1$
 		}
 		if (fNeedsSortingAfterFiltering && !needsSortingAfterFiltering)
 			fAssistant.setSorter(null);
@@ -443,6 +561,8 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 			return fErrorMessage;
 		if (fNumberOfComputedResults > 0)
 			return null;
+		if (fPendingComputation != null)
+			return JavaTextMessages.ContentAssistProcessor_computing_late_proposals;
 		return JavaUIMessages.JavaEditor_codeassist_noCompletions;
 	}
 
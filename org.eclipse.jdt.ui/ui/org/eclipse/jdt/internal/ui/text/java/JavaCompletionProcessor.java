@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,6 +14,8 @@ package org.eclipse.jdt.internal.ui.text.java;
 import java.util.Hashtable;
 import java.util.List;
 
+import org.eclipse.swt.graphics.Point;
+
 import org.eclipse.core.runtime.IProgressMonitor;
 
 import org.eclipse.jface.text.ITextViewer;
@@ -23,10 +25,15 @@ import org.eclipse.jface.text.contentassist.IContextInformationValidator;
 
 import org.eclipse.ui.IEditorPart;
 
+import org.eclipse.jdt.core.CompletionContext;
+import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.JavaCore;
 
+import org.eclipse.jdt.ui.text.java.CompletionProposalLabelProvider;
 import org.eclipse.jdt.ui.text.java.ContentAssistInvocationContext;
+import org.eclipse.jdt.ui.text.java.IJavaCompletionProposal;
 import org.eclipse.jdt.ui.text.java.JavaContentAssistInvocationContext;
 
 import org.eclipse.jdt.internal.ui.javaeditor.EditorUtility;
@@ -37,6 +44,68 @@ import org.eclipse.jdt.internal.ui.javaeditor.EditorUtility;
  */
 public class JavaCompletionProcessor extends ContentAssistProcessor {
 
+	/**
+	 * The context of a content assist invocation in the Java editor. Proposal computers that do not
+	 * require the UI thread share the context with the computers in the UI thread, so the context
+	 * records the selection of the viewer when it is created in the UI thread, and its lazily
+	 * computed information is computed only once.
+	 *
+	 * @since 3.14
+	 */
+	static final class InvocationContext extends JavaContentAssistInvocationContext {
+
+		private final Point fSelectedRange;
+
+		InvocationContext(ITextViewer viewer, int offset, IEditorPart editor) {
+			super(viewer, offset, editor);
+			fSelectedRange= viewer.getSelectedRange();
+		}
+
+		/**
+		 * Returns the selected range of the viewer at the time content assist was invoked.
+		 *
+		 * @return the selected range
+		 */
+		Point getSelectedRange() {
+			return fSelectedRange;
+		}
+
+		@Override
+		public synchronized ICompilationUnit getCompilationUnit() {
+			return super.getCompilationUnit();
+		}
+
+		@Override
+		public synchronized IJavaProject getProject() {
+			return super.getProject();
+		}
+
+		@Override
+		public synchronized IJavaCompletionProposal[] getKeywordProposals() {
+			return super.getKeywordProposals();
+		}
+
+		@Override
+		public synchronized CompletionContext getCoreContext() {
+			return super.getCoreContext();
+		}
+
+		@Override
+		public synchronized float getHistoryRelevance(String qualifiedTypeName) {
+			return super.getHistoryRelevance(qualifiedTypeName);
+		}
+
+		@Override
+		public synchronized IType getExpectedType() {
+			return super.getExpectedType();
+		}
+
+		@Override
+		public synchronized CompletionProposalLabelProvider getLabelProvider() {
+			return super.getLabelProvider();
+		}
+	}
+
 	private final static String VISIBILITY= JavaCore.CODEASSIST_VISIBILITY_CHECK;
 	private final static String ENABLED= "enabled"; //$NON-NLS-1$
 	private final static String DISABLED= "disabled"; //$NON-NLS-1$
@@ -123,6 +192,6 @@ public class JavaCompletionProcessor extends ContentAssistProcessor {
 	 */
 	@Override
 	protected ContentAssistInvocationContext createContext(ITextViewer viewer, int offset) {
-		return new JavaContentAssistInvocationContext(viewer, offset, fEditor);
+		return new InvocationContext(viewer, offset, fEditor);
 	}
 }
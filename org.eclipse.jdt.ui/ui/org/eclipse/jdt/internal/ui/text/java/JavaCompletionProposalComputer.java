@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,6 +18,7 @@ import java.util.List;
 
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -129,12 +130,6 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 
 	private String fErrorMessage;
 
-	private final IProgressMonitor fTimeoutProgressMonitor;
-
-	public JavaCompletionProposalComputer() {
-		fTimeoutProgressMonitor= createTimeoutProgressMonitor(JAVA_CODE_ASSIST_TIMEOUT);
-	}
-
 	protected int guessContextInformationPosition(ContentAssistInvocationContext context) {
 		return context.getInvocationOffset();
 	}
@@ -163,8 +158,8 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 		return contextPosition;
 	}
 
-	private List<IContextInformation> addContextInformations(JavaContentAssistInvocationContext context, int offset) {
-		List<ICompletionProposal> proposals= internalComputeCompletionProposals(offset, context);
+	private List<IContextInformation> addContextInformations(JavaContentAssistInvocationContext context, int offset, IProgressMonitor monitor) {
+		List<ICompletionProposal> proposals= internalComputeCompletionProposals(offset, context, monitor);
 		List<IContextInformation> result= new ArrayList<>(proposals.size());
 		List<IContextInformation> anonymousResult= new ArrayList<>(proposals.size());
 
@@ -196,7 +191,7 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 			JavaContentAssistInvocationContext javaContext= (JavaContentAssistInvocationContext) context;
 
 			int contextInformationPosition= guessContextInformationPosition(javaContext);
-			List<IContextInformation> result= addContextInformations(javaContext, contextInformationPosition);
+			List<IContextInformation> result= addContextInformations(javaContext, contextInformationPosition, monitor);
 			return result;
 		}
 		return Collections.emptyList();
@@ -209,17 +204,17 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 	public List<ICompletionProposal> computeCompletionProposals(ContentAssistInvocationContext context, IProgressMonitor monitor) {
 		if (context instanceof JavaContentAssistInvocationContext) {
 			JavaContentAssistInvocationContext javaContext= (JavaContentAssistInvocationContext) context;
-			return internalComputeCompletionProposals(context.getInvocationOffset(), javaContext);
+			return internalComputeCompletionProposals(context.getInvocationOffset(), javaContext, monitor);
 		}
 		return Collections.emptyList();
 	}
 
-	private List<ICompletionProposal> internalComputeCompletionProposals(int offset, JavaContentAssistInvocationContext context) {
-		ICompilationUnit unit= context.getCompilationUnit();
+	private List<ICompletionProposal> internalComputeCompletionProposals(int offset, JavaContentAssistInvocationContext context, IProgressMonitor monitor) {
+		final ICompilationUnit unit= context.getCompilationUnit();
 		if (unit == null)
 			return Collections.emptyList();
 
-		ITextViewer viewer= context.getViewer();
+		final ITextViewer viewer= context.getViewer();
 
 		CompletionProposalCollector collector= createCollector(context);
 		collector.setInvocationContext(context);
@@ -244,20 +239,25 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 		collector.setFavoriteReferences(getFavoriteStaticMembers());
 
 		try {
-			Point selection= viewer.getSelectedRange();
+			Point selection= getSelectedRange(context);
 			if (selection.y > 0)
 				collector.setReplacementLength(selection.y);
-			unit.codeComplete(offset, collector, fTimeoutProgressMonitor);
+			unit.codeComplete(offset, collector, createTimeoutProgressMonitor(JAVA_CODE_ASSIST_TIMEOUT, monitor));
 		} catch (OperationCanceledException x) {
 			IBindingService bindingSvc= PlatformUI.getWorkbench().getAdapter(IBindingService.class);
 			String keyBinding= bindingSvc.getBestActiveBindingFormattedFor(IWorkbenchCommandConstants.EDIT_CONTENT_ASSIST);
 			fErrorMessage= Messages.format(JavaTextMessages.CompletionProcessor_error_javaCompletion_took_too_long_message, keyBinding);
-		} catch (JavaModelException x) {
-			Shell shell= viewer.getTextWidget().getShell();
-			if (x.isDoesNotExist() && !unit.getJavaProject().isOnClasspath(unit))
-				MessageDialog.openInformation(shell, JavaTextMessages.CompletionProcessor_error_notOnBuildPath_title, JavaTextMessages.CompletionProcessor_error_notOnBuildPath_message);
-			else
-				ErrorDialog.openError(shell, JavaTextMessages.CompletionProcessor_error_accessing_title, JavaTextMessages.CompletionProcessor_error_accessing_message, x.getStatus());
+		} catch (final JavaModelException x) {
+			runInUIThread(viewer, new Runnable() {
+				@Override
+				public void run() {
+					Shell shell= viewer.getTextWidget().getShell();
+					if (x.isDoesNotExist() && !unit.getJavaProject().isOnClasspath(unit))
+						MessageDialog.openInformation(shell, JavaTextMessages.CompletionProcessor_error_notOnBuildPath_title, JavaTextMessages.CompletionProcessor_error_notOnBuildPath_message);
+					else
+						ErrorDialog.openError(shell, JavaTextMessages.CompletionProcessor_error_accessing_title, JavaTextMessages.CompletionProcessor_error_accessing_message, x.getStatus());
+				}
+			});
 		}
 
 		ICompletionProposal[] javaProposals= collector.getJavaCompletionProposals();
@@ -281,13 +281,45 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 	}
 
 	/**
-	 * Returns a new progress monitor that get cancelled after the given timeout.
+	 * Returns the selected range of the viewer at the time content assist was invoked. This
+	 * computer only runs in the background with the context of the Java editor, which records the
+	 * selection in the UI thread, see {@link ProposalComputation#canComputeInBackground(ContentAssistInvocationContext)}.
+	 *
+	 * @param context the invocation context
+	 * @return the selected range
+	 * @since 3.14
+	 */
+	private static Point getSelectedRange(ContentAssistInvocationContext context) {
+		if (context instanceof JavaCompletionProcessor.InvocationContext)
+			return ((JavaCompletionProcessor.InvocationContext) context).getSelectedRange();
+		return context.getViewer().getSelectedRange();
+	}
+
+	/**
+	 * Runs an operation in the UI thread, synchronously if called in the UI thread, asynchronously
+	 * otherwise.
+	 *
+	 * @param viewer the viewer
+	 * @param runnable the operation
+	 * @since 3.14
+	 */
+	private static void runInUIThread(ITextViewer viewer, Runnable runnable) {
+		if (Display.getCurrent() != null)
+			runnable.run();
+		else
+			viewer.getTextWidget().getDisplay().asyncExec(runnable);
+	}
+
+	/**
+	 * Returns a new progress monitor that get cancelled after the given timeout, or when the given
+	 * monitor is cancelled.
 	 * 
 	 * @param timeout the timeout in ms
+	 * @param monitor the monitor of the computation
 	 * @return the progress monitor
 	 * @since 3.5
 	 */
-	private IProgressMonitor createTimeoutProgressMonitor(final long timeout) {
+	private IProgressMonitor createTimeoutProgressMonitor(final long timeout, final IProgressMonitor monitor) {
 		return new IProgressMonitor() {
 
 			private long fEndTime;
@@ -298,7 +330,7 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 			}
 			@Override
 			public boolean isCanceled() {
-				return fEndTime <= System.currentTimeMillis();
+				return fEndTime <= System.currentTimeMillis() || monitor != null && monitor.isCanceled();
 			}
 			@Override
 			public void done() {
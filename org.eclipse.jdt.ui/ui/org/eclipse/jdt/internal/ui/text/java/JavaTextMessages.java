@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -50,6 +50,7 @@ final class JavaTextMessages extends NLS {
 	public static String ContentAssistProcessor_computing_contexts;
 	public static String ContentAssistProcessor_collecting_contexts;
 	public static String ContentAssistProcessor_sorting_contexts;
+	public static String ContentAssistProcessor_computing_late_proposals;
 	public static String CompletionProposalComputerDescriptor_illegal_attribute_message;
 	public static String CompletionProposalComputerDescriptor_reason_invalid;
 	public static String CompletionProposalComputerDescriptor_reason_instantiation;
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.java;
+
+/**
+ * The fixed, roughly logarithmic buckets of the latency histograms of the completion proposal
+ * computers. The counts of the buckets are kept by {@link org.eclipse.core.runtime.PerformanceStats},
+ * see {@link CompletionProposalComputerDescriptor}.
+ *
+ * @since 3.14
+ */
+final class LatencyHistogram {
+
+	/** The exclusive upper bounds of all but the last bucket, in milliseconds. */
+	private static final long[] BOUNDS= { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000 };
+
+	private LatencyHistogram() {
+	}
+
+	/**
+	 * Returns the bucket of a latency.
+	 *
+	 * @param millis the latency in milliseconds
+	 * @return the index of the bucket
+	 */
+	static int getBucket(long millis) {
+		for (int i= 0; i < BOUNDS.length; i++) {
+			if (millis < BOUNDS[i])
+				return i;
+		}
+		return BOUNDS.length;
+	}
+
+	/**
+	 * @return the number of buckets
+	 */
+	static int getBucketCount() {
+		return BOUNDS.length + 1;
+	}
+
+	/**
+	 * Returns a label of a bucket, like <code>[20, 50) ms</code>.
+	 *
+	 * @param bucket the index of the bucket
+	 * @return the label
+	 */
+	static String getBucketLabel(int bucket) {
+		long lower= bucket == 0 ? 0 : BOUNDS[bucket - 1];
+		if (bucket == BOUNDS.length)
+			return ">= " + lower + " ms"; //$NON-NLS-1$ //$NON-NLS-2$
+		return "[" + lower + ", " + BOUNDS[bucket] + ") ms"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+}
@@ -0,0 +1,348 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.java;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.SubProgressMonitor;
+
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+
+import org.eclipse.jdt.ui.text.java.ContentAssistInvocationContext;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * A computation of completion proposals by the computers of a list of categories. The computers
+ * that do not require the UI thread compute their proposals in background threads, concurrently
+ * with each other and with the computers that run in the UI thread.
+ * <p>
+ * The proposals are returned in the order of the categories and of the computers within each
+ * category, independently of the order in which the computers finish. A computation that missed
+ * its latency budget can be asked again for its proposals once the late computers are done.
+ * </p>
+ * <p>
+ * Only computations with a latency budget run computers in the background, so the UI thread
+ * never waits for them without a bound. The context must have recorded the state of the viewer
+ * that the computers need, see {@link #canComputeInBackground(ContentAssistInvocationContext)}.
+ * </p>
+ *
+ * @since 3.14
+ */
+final class ProposalComputation {
+
+	/**
+	 * The time in milliseconds that content assist waits for the proposals computed in the
+	 * background, before it shows the proposals computed so far. <code>0</code> computes all
+	 * proposals in the UI thread.
+	 */
+	static final long LATENCY_BUDGET= Long.getLong("org.eclipse.jdt.ui.codeAssistLatencyBudget", 1000).longValue(); // ms //$NON-NLS-1$
+
+	private static final int MAX_THREADS= Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+	private static ThreadPoolExecutor fgExecutor;
+
+	/**
+	 * The computation of a single computer.
+	 */
+	private final class Slot {
+		final CompletionProposalCategory fCategory;
+		final CompletionProposalComputerDescriptor fDescriptor;
+		final FutureTask<List<ICompletionProposal>> fTask;
+		final boolean fInBackground;
+		IProgressMonitor fMonitor;
+		volatile String fErrorMessage;
+
+		Slot(CompletionProposalCategory category, CompletionProposalComputerDescriptor descriptor, boolean inBackground) {
+			fCategory= category;
+			fDescriptor= descriptor;
+			fInBackground= inBackground;
+			Callable<List<ICompletionProposal>> callable= new Callable<List<ICompletionProposal>>() {
+				@Override
+				public List<ICompletionProposal> call() {
+					List<ICompletionProposal> proposals= fDescriptor.computeCompletionProposals(fContext, fMonitor);
+					fErrorMessage= fDescriptor.getErrorMessage();
+					return proposals;
+				}
+			};
+			if (!inBackground) {
+				fTask= new FutureTask<>(callable);
+			} else {
+				fMonitor= fBackgroundMonitor;
+				fTask= new FutureTask<List<ICompletionProposal>>(callable) {
+					@Override
+					protected void done() {
+						backgroundSlotDone();
+					}
+				};
+			}
+		}
+
+		List<ICompletionProposal> getProposals() {
+			if (!fTask.isDone() || fTask.isCancelled())
+				return Collections.emptyList();
+			try {
+				return fTask.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				JavaPlugin.log(e.getCause());
+			}
+			return Collections.emptyList();
+		}
+	}
+
+	private final List<CompletionProposalCategory> fCategories;
+	private final ContentAssistInvocationContext fContext;
+	private final long fModificationStamp;
+	private final List<Slot> fSlots= new ArrayList<>();
+	/** The monitor of the background computers, cancelled by {@link #cancel()}. */
+	private final IProgressMonitor fBackgroundMonitor= new NullProgressMonitor();
+	private int fPendingCount;
+	private Runnable fDoneListener;
+
+	/**
+	 * Creates a new computation.
+	 *
+	 * @param categories the categories to compute the proposals of
+	 * @param descriptors the computers of the partition where content assist is invoked
+	 * @param context the invocation context, created in the UI thread
+	 * @param inBackground <code>true</code> to run the computers that do not require the UI thread
+	 *            in the background, <code>false</code> to run all computers in the calling thread
+	 */
+	ProposalComputation(List<CompletionProposalCategory> categories, List<CompletionProposalComputerDescriptor> descriptors, ContentAssistInvocationContext context, boolean inBackground) {
+		fCategories= categories;
+		fContext= context;
+		fModificationStamp= getModificationStamp(context.getDocument());
+		for (CompletionProposalCategory category : categories) {
+			for (CompletionProposalComputerDescriptor descriptor : descriptors) {
+				if (descriptor.getCategory() != category)
+					continue;
+				Slot slot= new Slot(category, descriptor, inBackground && !descriptor.requiresUIThread());
+				fSlots.add(slot);
+				if (slot.fInBackground)
+					fPendingCount++;
+			}
+		}
+	}
+
+	/**
+	 * Tells whether the computers of a context can run in the background. The Java editor's context
+	 * records the selection of the viewer when it is created in the UI thread, the computers must not
+	 * access the viewer of other contexts outside of the UI thread.
+	 *
+	 * @param context the invocation context
+	 * @return <code>true</code> if the computers that do not require the UI thread can run in the
+	 *         background
+	 */
+	static boolean canComputeInBackground(ContentAssistInvocationContext context) {
+		return context instanceof JavaCompletionProcessor.InvocationContext;
+	}
+
+	private static long getModificationStamp(IDocument document) {
+		if (document instanceof IDocumentExtension4)
+			return ((IDocumentExtension4) document).getModificationStamp();
+		return IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+	}
+
+	/**
+	 * Starts the computers that do not require the UI thread, then runs the other computers in the
+	 * calling thread.
+	 *
+	 * @param monitor the progress monitor, one unit of work is reported per category
+	 */
+	void compute(IProgressMonitor monitor) {
+		for (Slot slot : fSlots) {
+			if (slot.fInBackground)
+				getExecutor().execute(slot.fTask);
+		}
+		for (CompletionProposalCategory category : fCategories) {
+			IProgressMonitor categoryMonitor= new SubProgressMonitor(monitor, 1);
+			for (Slot slot : fSlots) {
+				if (slot.fCategory == category && !slot.fInBackground) {
+					slot.fMonitor= categoryMonitor;
+					slot.fTask.run();
+				}
+			}
+			categoryMonitor.done();
+		}
+	}
+
+	/**
+	 * Waits for the computers that run in the background.
+	 *
+	 * @param deadline the time in milliseconds until which to wait at most
+	 * @return <code>true</code> if all computers are done
+	 */
+	boolean await(long deadline) {
+		try {
+			for (Slot slot : fSlots) {
+				long remaining= deadline - System.currentTimeMillis();
+				if (remaining <= 0)
+					break;
+				slot.fTask.get(remaining, TimeUnit.MILLISECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (TimeoutException e) {
+			// show what we have
+		} catch (CancellationException e) {
+			// cancelled concurrently
+		} catch (ExecutionException e) {
+			// logged when the proposals are collected
+		}
+		return isDone();
+	}
+
+	/**
+	 * @return <code>true</code> if all computers are done
+	 */
+	synchronized boolean isDone() {
+		return fPendingCount == 0;
+	}
+
+	/**
+	 * Sets the listener that is notified when the last background computer is done. The listener
+	 * is called in a background thread, or right away if all computers are done.
+	 *
+	 * @param listener the listener
+	 */
+	void setDoneListener(Runnable listener) {
+		synchronized (this) {
+			if (fPendingCount > 0) {
+				fDoneListener= listener;
+				return;
+			}
+		}
+		listener.run();
+	}
+
+	private void backgroundSlotDone() {
+		Runnable listener= null;
+		synchronized (this) {
+			if (--fPendingCount == 0) {
+				listener= fDoneListener;
+				fDoneListener= null;
+			}
+		}
+		if (listener != null)
+			listener.run();
+	}
+
+	/**
+	 * Cancels the computers that are not done yet. Their proposals are discarded.
+	 */
+	void cancel() {
+		synchronized (this) {
+			fDoneListener= null;
+		}
+		fBackgroundMonitor.setCanceled(true);
+		for (Slot slot : fSlots)
+			slot.fTask.cancel(false);
+	}
+
+	/**
+	 * Tells whether the computation was invoked at the given location, and the document has not
+	 * been modified since.
+	 *
+	 * @param viewer the viewer
+	 * @param offset the invocation offset
+	 * @return <code>true</code> if the computation is still valid at this location
+	 */
+	boolean matches(ITextViewer viewer, int offset) {
+		if (fContext.getViewer() != viewer || fContext.getInvocationOffset() != offset)
+			return false;
+		IDocument document= viewer.getDocument();
+		return document == fContext.getDocument()
+				&& fModificationStamp != IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP
+				&& fModificationStamp == getModificationStamp(document);
+	}
+
+	/**
+	 * @return the invocation context
+	 */
+	ContentAssistInvocationContext getContext() {
+		return fContext;
+	}
+
+	/**
+	 * Returns the proposals of the computers that are done.
+	 *
+	 * @return the proposals, in the order of the categories and computers
+	 */
+	List<ICompletionProposal> getProposals() {
+		List<ICompletionProposal> proposals= new ArrayList<>();
+		for (Slot slot : fSlots)
+			proposals.addAll(slot.getProposals());
+		return proposals;
+	}
+
+	/**
+	 * @return the first error message of the computers that are done, or <code>null</code>
+	 */
+	String getErrorMessage() {
+		for (Slot slot : fSlots) {
+			if (slot.fTask.isDone() && slot.fErrorMessage != null)
+				return slot.fErrorMessage;
+		}
+		return null;
+	}
+
+	/**
+	 * @return <code>true</code> if a category that has computed proposals needs to sort them again
+	 *         after filtering
+	 */
+	boolean isSortingAfterFilteringNeeded() {
+		for (Slot slot : fSlots) {
+			if (slot.fCategory.isSortingAfterFilteringNeeded() && !slot.getProposals().isEmpty())
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the number of computers that run in the background and are not done yet
+	 */
+	synchronized int getPendingCount() {
+		return fPendingCount;
+	}
+
+	private static synchronized ThreadPoolExecutor getExecutor() {
+		if (fgExecutor == null) {
+			fgExecutor= new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread= new Thread(runnable, "Java Content Assist"); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			fgExecutor.allowCoreThreadTimeOut(true);
+		}
+		return fgExecutor;
+	}
+}
@@ -27,6 +27,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -131,6 +132,16 @@ public class JavadocContentAccess2 {
 	private static final String PARAM_NAME_START= "<b>"; //$NON-NLS-1$
 	private static final String PARAM_NAME_END= "</b> "; //$NON-NLS-1$
 
+	/**
+	 * Collects the handle identifiers of the type roots whose members have been visited for
+	 * inherited Javadoc by the computation in the current thread, <code>null</code> if no
+	 * computation records them.
+	 *
+	 * @see #computeHTMLContent(IJavaElement, boolean, Set)
+	 * @since 3.14
+	 */
+	private static final ThreadLocal<Set<String>> fgVisitedTypeRoots= new ThreadLocal<>();
+
 	/**
 	 * Implements the "Algorithm for Inheriting Method Comments" as specified for <a href=
 	 * "http://download.oracle.com/javase/1.4.2/docs/tooldocs/solaris/javadoc.html#inheritingcomments"
@@ -200,7 +211,7 @@ public class JavadocContentAccess2 {
 				superClass= typeHierarchy.getSuperclass(currentType);
 
 			while (superClass != null && ! visited.contains(superClass)) {
-				result= visit(superClass);
+				result= visitRecorded(superClass);
 				if (result == InheritDocVisitor.STOP_BRANCH) {
 					return null;
 				} else if (result == InheritDocVisitor.CONTINUE) {
@@ -235,7 +246,7 @@ public class JavadocContentAccess2 {
 				if (visited.contains(superInterface))
 					continue;
 				visited.add(superInterface);
-				Object result= visit(superInterface);
+				Object result= visitRecorded(superInterface);
 				if (result == InheritDocVisitor.STOP_BRANCH) {
 					//skip
 				} else if (result == InheritDocVisitor.CONTINUE) {
@@ -252,6 +263,14 @@ public class JavadocContentAccess2 {
 			}
 			return InheritDocVisitor.CONTINUE;
 		}
+
+		private Object visitRecorded(IType currType) throws JavaModelException {
+			Set<String> visitedTypeRoots= fgVisitedTypeRoots.get();
+			ITypeRoot typeRoot= currType.getTypeRoot();
+			if (visitedTypeRoots != null && typeRoot != null)
+				visitedTypeRoots.add(typeRoot.getHandleIdentifier());
+			return visit(currType);
+		}
 	}
 
 	private static class JavadocLookup {
@@ -520,6 +539,7 @@ public class JavadocContentAccess2 {
 	 * @return the Javadoc comment content in HTML or <code>null</code> if the element
 	 * 			does not have a Javadoc comment or if no source is available
 	 * @throws CoreException is thrown when the element's Javadoc cannot be accessed
+	 * @see JavadocContentCache
 	 */
 	public static String getHTMLContent(IJavaElement element, boolean useAttachedJavadoc) throws CoreException {
 		if (element instanceof IPackageFragment) {
@@ -528,11 +548,61 @@ public class JavadocContentAccess2 {
 		if (element instanceof IPackageDeclaration) {
 			return getHTMLContent((IPackageDeclaration) element);
 		}
-		if (!(element instanceof IMember || element instanceof ITypeParameter || (element instanceof ILocalVariable && (((ILocalVariable) element).isParameter())))) {
+		if (!hasMemberJavadoc(element)) {
 			return null;
 		}
+		return JavadocContentCache.getDefault().getHTMLContent(element, useAttachedJavadoc);
+	}
+
+	/**
+	 * Tells whether the given element is a member, type parameter or parameter, whose Javadoc is
+	 * cached by the {@link JavadocContentCache}.
+	 *
+	 * @param element the element
+	 * @return <code>true</code> if the element can have member Javadoc
+	 * @since 3.14
+	 */
+	static boolean hasMemberJavadoc(IJavaElement element) {
+		return element instanceof IMember || element instanceof ITypeParameter || (element instanceof ILocalVariable && (((ILocalVariable) element).isParameter()));
+	}
+
+	/**
+	 * Tells whether the Javadoc from source is completed by attached Javadoc, if requested.
+	 *
+	 * @param sourceJavadoc the Javadoc from source in HTML, or <code>null</code>
+	 * @return <code>true</code> if attached Javadoc is looked up for the given Javadoc
+	 * @since 3.14
+	 */
+	static boolean needsAttachedJavadoc(String sourceJavadoc) {
+		return sourceJavadoc == null || sourceJavadoc.length() == 0 || sourceJavadoc.trim().equals("{@inheritDoc}"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Computes the Javadoc of a member, type parameter or parameter, bypassing the
+	 * {@link JavadocContentCache}.
+	 *
+	 * @param element the element, see {@link #hasMemberJavadoc(IJavaElement)}
+	 * @param useAttachedJavadoc if <code>true</code> Javadoc will be extracted from attached
+	 *            Javadoc if there's no source
+	 * @param visitedTypeRoots the set to add the handle identifiers of the type roots to, whose
+	 *            members have been visited for inherited Javadoc
+	 * @return the Javadoc comment content in HTML or <code>null</code>
+	 * @throws CoreException is thrown when the element's Javadoc cannot be accessed
+	 * @since 3.14
+	 */
+	static String computeHTMLContent(IJavaElement element, boolean useAttachedJavadoc, Set<String> visitedTypeRoots) throws CoreException {
+		Set<String> outer= fgVisitedTypeRoots.get();
+		fgVisitedTypeRoots.set(visitedTypeRoots);
+		try {
+			return computeHTMLContent(element, useAttachedJavadoc);
+		} finally {
+			fgVisitedTypeRoots.set(outer);
+		}
+	}
+
+	private static String computeHTMLContent(IJavaElement element, boolean useAttachedJavadoc) throws CoreException {
 		String sourceJavadoc= getHTMLContentFromSource(element);
-		if (sourceJavadoc == null || sourceJavadoc.length() == 0 || sourceJavadoc.trim().equals("{@inheritDoc}")) { //$NON-NLS-1$
+		if (needsAttachedJavadoc(sourceJavadoc)) {
 			if (useAttachedJavadoc) {
 				if (element.getOpenable().getBuffer() == null) { // only if no source available
 					return element.getAttachedJavadoc(null);
@@ -786,7 +856,7 @@ public class JavadocContentAccess2 {
 		return new JavadocContentAccess2(element, javadoc, rawJavadoc).toHTML();
 	}
 
-	private static boolean canInheritJavadoc(IMember member) {
+	static boolean canInheritJavadoc(IMember member) {
 		if (member instanceof IMethod && member.getJavaProject().exists()) {
 			/*
 			 * Exists test catches ExternalJavaProject, in which case no hierarchy can be built.
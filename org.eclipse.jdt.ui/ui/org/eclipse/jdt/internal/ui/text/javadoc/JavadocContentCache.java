@@ -0,0 +1,526 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.javadoc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.CoreException;
+
+import org.eclipse.core.resources.IResource;
+
+import org.eclipse.jface.text.ITextSelection;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.Block;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.NodeFinder;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.Statement;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * A workspace wide cache of the rendered Javadoc of members, type parameters and parameters, as
+ * returned by {@link JavadocContentAccess2#getHTMLContent(IJavaElement, boolean)}. Hovers, the
+ * Javadoc view and the additional info of proposals share the cache, so inherited Javadoc is not
+ * looked up and parsed again each time the same element is shown.
+ * <p>
+ * Entries are keyed by the handle identifier of the element and store the modification stamp of
+ * its resource; an entry with another stamp is computed again. Concurrent requests for the same
+ * element wait for a single computation. The cache is least recently used ordered and bounded in
+ * number of entries and accumulated length of the content.
+ * </p>
+ * <p>
+ * The cache follows the Java element deltas. A changed compilation unit or class file drops the
+ * entries of its elements and the entries of the methods that visited its types for inherited
+ * Javadoc. Changes to projects, roots and packages clear the whole cache.
+ * </p>
+ * <p>
+ * The Java editor asks the cache to {@link #prefetch(CompilationUnit, ITextSelection) prefetch}
+ * the Javadoc of the elements referenced near the caret on a background thread, so that a
+ * following hover finds it. Only elements declared in compilation units are prefetched, and
+ * without attached Javadoc, which may have to be fetched from the network. A request with attached
+ * Javadoc uses such an entry if the source Javadoc does not need to be completed.
+ * </p>
+ *
+ * @since 3.14
+ */
+public final class JavadocContentCache {
+
+	/**
+	 * The maximal number of cached entries.
+	 */
+	static final int MAX_ENTRIES= 500;
+
+	/**
+	 * The maximal accumulated length of the cached content.
+	 */
+	static final int MAX_CONTENT_LENGTH= 4000000;
+
+	/**
+	 * Maximal number of elements prefetched for one caret position.
+	 */
+	private static final int PREFETCH_LIMIT= 16;
+
+	private static final String DEBUG_PREFIX= "JavadocContentCache > "; //$NON-NLS-1$
+
+	private static JavadocContentCache fgInstance;
+
+	private final LinkedHashMap<String, Entry> fEntries= new LinkedHashMap<>(16, 0.75f, true);
+	private final ConcurrentHashMap<String, FutureTask<String>> fRunning= new ConcurrentHashMap<>();
+	private final AtomicInteger fGeneration= new AtomicInteger();
+	private final AtomicLong fHits= new AtomicLong();
+	private final AtomicLong fMisses= new AtomicLong();
+	private final AtomicLong fPrefetches= new AtomicLong();
+	private final IElementChangedListener fDeltaListener= new CacheDeltaListener();
+	private int fContentLength;
+	private ThreadPoolExecutor fExecutor;
+	private boolean fDisposed;
+
+	/**
+	 * A cached Javadoc.
+	 */
+	private static final class Entry {
+		final String fContent;
+		final String fTypeRoot;
+		final long fStamp;
+		final Set<String> fVisitedTypeRoots;
+
+		Entry(IJavaElement element, String content, long stamp, Set<String> visitedTypeRoots) {
+			fContent= content;
+			ITypeRoot typeRoot= getTypeRoot(element);
+			fTypeRoot= typeRoot != null ? typeRoot.getHandleIdentifier() : null;
+			fStamp= stamp;
+			visitedTypeRoots.remove(fTypeRoot);
+			fVisitedTypeRoots= visitedTypeRoots.isEmpty() ? Collections.<String> emptySet() : visitedTypeRoots;
+		}
+
+		boolean isAffected(Set<String> changedTypeRoots) {
+			return fTypeRoot == null || changedTypeRoots.contains(fTypeRoot) || !Collections.disjoint(fVisitedTypeRoots, changedTypeRoots);
+		}
+
+		int getLength() {
+			return fContent != null ? fContent.length() : 0;
+		}
+	}
+
+	private class CacheDeltaListener implements IElementChangedListener {
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			List<IJavaElement> changed= new ArrayList<>();
+			if (collectChanges(event.getDelta(), changed)) {
+				clear();
+			} else if (!changed.isEmpty()) {
+				invalidate(changed);
+			}
+		}
+
+		/**
+		 * Collects the changed compilation units and class files.
+		 *
+		 * @param delta the Java element delta
+		 * @param changed the list to add the changed type roots to
+		 * @return <code>true</code> if the whole cache has to be cleared
+		 */
+		private boolean collectChanges(IJavaElementDelta delta, List<IJavaElement> changed) {
+			IJavaElement element= delta.getElement();
+			int flags= delta.getFlags();
+			boolean isChanged= delta.getKind() == IJavaElementDelta.CHANGED;
+
+			switch (element.getElementType()) {
+				case IJavaElement.JAVA_MODEL:
+					return collectChildrenChanges(delta, changed);
+				case IJavaElement.JAVA_PROJECT:
+					if (!isChanged || (flags & (IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED
+							| IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED)) != 0)
+						return true;
+					return collectChildrenChanges(delta, changed);
+				case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+					if (!isChanged || (flags & (IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+							| IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED | IJavaElementDelta.F_SOURCEATTACHED | IJavaElementDelta.F_SOURCEDETACHED)) != 0)
+						return true;
+					return collectChildrenChanges(delta, changed);
+				case IJavaElement.PACKAGE_FRAGMENT:
+					if (!isChanged)
+						return true;
+					return collectChildrenChanges(delta, changed);
+				case IJavaElement.COMPILATION_UNIT:
+				case IJavaElement.CLASS_FILE:
+					if (!isChanged || (flags & (IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_CHILDREN)) != 0)
+						changed.add(element);
+					return false;
+				default:
+					return false;
+			}
+		}
+
+		private boolean collectChildrenChanges(IJavaElementDelta delta, List<IJavaElement> changed) {
+			IJavaElementDelta[] children= delta.getAffectedChildren();
+			for (int i= 0; i < children.length; i++) {
+				if (collectChanges(children[i], changed))
+					return true;
+			}
+			return false;
+		}
+	}
+
+	private JavadocContentCache() {
+		JavaCore.addElementChangedListener(fDeltaListener, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+	}
+
+	/**
+	 * Returns the shared Javadoc cache.
+	 *
+	 * @return the Javadoc cache
+	 */
+	public static synchronized JavadocContentCache getDefault() {
+		if (fgInstance == null)
+			fgInstance= new JavadocContentCache();
+		return fgInstance;
+	}
+
+	/**
+	 * Disposes the shared cache if it has been created.
+	 */
+	public static synchronized void shutdown() {
+		if (fgInstance == null)
+			return;
+		JavaCore.removeElementChangedListener(fgInstance.fDeltaListener);
+		fgInstance.dispose();
+		fgInstance= null;
+	}
+
+	private synchronized void dispose() {
+		fDisposed= true;
+		clear();
+		if (fExecutor != null)
+			fExecutor.shutdownNow();
+	}
+
+	/**
+	 * Removes all entries and cancels the pending prefetches.
+	 */
+	public void clear() {
+		fGeneration.incrementAndGet();
+		synchronized (this) {
+			fEntries.clear();
+			fContentLength= 0;
+			if (fExecutor != null)
+				fExecutor.getQueue().clear();
+		}
+	}
+
+	/**
+	 * Returns the Javadoc of the given element from the cache, or computes and caches it.
+	 *
+	 * @param element a member, type parameter or parameter
+	 * @param useAttachedJavadoc if <code>true</code> Javadoc will be extracted from attached
+	 *            Javadoc if there's no source
+	 * @return the Javadoc comment content in HTML or <code>null</code>
+	 * @throws CoreException is thrown when the element's Javadoc cannot be accessed
+	 * @see JavadocContentAccess2#getHTMLContent(IJavaElement, boolean)
+	 */
+	public String getHTMLContent(IJavaElement element, boolean useAttachedJavadoc) throws CoreException {
+		return getHTMLContent(element, useAttachedJavadoc, false);
+	}
+
+	private String getHTMLContent(final IJavaElement element, final boolean useAttachedJavadoc, boolean prefetch) throws CoreException {
+		String key= getKey(element, useAttachedJavadoc);
+		long stamp= getModificationStamp(element);
+		synchronized (this) {
+			Entry entry= fEntries.get(key);
+			if (entry == null && useAttachedJavadoc) {
+				// a prefetched entry is complete if the source Javadoc is not completed by attached Javadoc
+				entry= fEntries.get(getKey(element, false));
+				if (entry != null && JavadocContentAccess2.needsAttachedJavadoc(entry.fContent))
+					entry= null;
+			}
+			if (entry != null && entry.fStamp == stamp) {
+				if (!prefetch)
+					fHits.incrementAndGet();
+				return entry.fContent;
+			}
+		}
+
+		final Set<String> visitedTypeRoots= new HashSet<>();
+		FutureTask<String> task= new FutureTask<>(new Callable<String>() {
+			@Override
+			public String call() throws CoreException {
+				return JavadocContentAccess2.computeHTMLContent(element, useAttachedJavadoc, visitedTypeRoots);
+			}
+		});
+		FutureTask<String> running= fRunning.putIfAbsent(key, task);
+		if (running != null) {
+			// a prefetch or another view computes the same element
+			if (!prefetch)
+				fHits.incrementAndGet();
+			return getContent(running);
+		}
+
+		long start= System.currentTimeMillis();
+		int generation= fGeneration.get();
+		String content;
+		try {
+			task.run();
+			content= getContent(task);
+		} finally {
+			fRunning.remove(key, task);
+		}
+		(prefetch ? fPrefetches : fMisses).incrementAndGet();
+		put(key, new Entry(element, content, stamp, visitedTypeRoots), generation);
+
+		if (JavaPlugin.DEBUG_JAVADOC_CACHE) {
+			System.out.println(DEBUG_PREFIX + (prefetch ? "prefetched " : "computed ") + element.getElementName() //$NON-NLS-1$ //$NON-NLS-2$
+					+ " in " + (System.currentTimeMillis() - start) + " ms, " + getStatistics()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return content;
+	}
+
+	private static String getContent(FutureTask<String> task) throws CoreException {
+		boolean interrupted= false;
+		try {
+			while (true) {
+				try {
+					return task.get();
+				} catch (InterruptedException e) {
+					interrupted= true;
+				} catch (ExecutionException e) {
+					Throwable cause= e.getCause();
+					if (cause instanceof CoreException)
+						throw (CoreException) cause;
+					if (cause instanceof RuntimeException)
+						throw (RuntimeException) cause;
+					if (cause instanceof Error)
+						throw (Error) cause;
+					throw new IllegalStateException(cause);
+				}
+			}
+		} finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	private synchronized void put(String key, Entry entry, int generation) {
+		if (fDisposed || generation != fGeneration.get())
+			return; // computed concurrently with a change, may be stale
+		Entry old= fEntries.put(key, entry);
+		if (old != null)
+			fContentLength-= old.getLength();
+		fContentLength+= entry.getLength();
+		Iterator<Entry> iter= fEntries.values().iterator();
+		while ((fEntries.size() > MAX_ENTRIES || fContentLength > MAX_CONTENT_LENGTH) && iter.hasNext()) {
+			fContentLength-= iter.next().getLength();
+			iter.remove();
+		}
+	}
+
+	private void invalidate(List<IJavaElement> typeRoots) {
+		Set<String> handles= new LinkedHashSet<>();
+		for (int i= 0; i < typeRoots.size(); i++) {
+			handles.add(typeRoots.get(i).getHandleIdentifier());
+		}
+		fGeneration.incrementAndGet();
+		synchronized (this) {
+			for (Iterator<Entry> iter= fEntries.values().iterator(); iter.hasNext();) {
+				Entry entry= iter.next();
+				if (entry.isAffected(handles)) {
+					fContentLength-= entry.getLength();
+					iter.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Prefetches the Javadoc of the elements referenced near the given selection: in the enclosing
+	 * statement, or in the header of the enclosing declaration. The Javadoc is computed on a
+	 * background thread; pending prefetches of a former selection are dropped.
+	 *
+	 * @param astRoot the AST of the editor input, with bindings
+	 * @param selection the selection in the editor
+	 */
+	public void prefetch(CompilationUnit astRoot, ITextSelection selection) {
+		if (astRoot == null || selection == null || selection.getOffset() < 0)
+			return;
+		final List<IJavaElement> elements= collectReferencedElements(astRoot, selection.getOffset(), selection.getLength());
+		if (elements.isEmpty())
+			return;
+		final int generation= fGeneration.get();
+		ThreadPoolExecutor executor;
+		synchronized (this) {
+			if (fDisposed)
+				return;
+			executor= getExecutor();
+			executor.getQueue().clear();
+		}
+		for (int i= 0; i < elements.size(); i++) {
+			final IJavaElement element= elements.get(i);
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					if (generation != fGeneration.get() || !element.exists())
+						return;
+					try {
+						getHTMLContent(element, false, true);
+					} catch (CoreException e) {
+						// reported when the element is shown
+					} catch (RuntimeException e) {
+						// the element has been changed or deleted meanwhile
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Collects the elements declared in compilation units that are referenced by the names near
+	 * the given range.
+	 *
+	 * @param astRoot the AST with bindings
+	 * @param offset the offset of the range
+	 * @param length the length of the range
+	 * @return the referenced elements, at most {@value #PREFETCH_LIMIT}
+	 */
+	static List<IJavaElement> collectReferencedElements(CompilationUnit astRoot, int offset, int length) {
+		final List<IJavaElement> result= new ArrayList<>();
+		ASTNode node= NodeFinder.perform(astRoot, offset, length);
+		while (node != null && !(node instanceof Statement && !(node instanceof Block)) && !(node instanceof BodyDeclaration)) {
+			node= node.getParent();
+		}
+		if (node == null)
+			return result;
+		final Set<IJavaElement> found= new LinkedHashSet<>();
+		final ASTNode scope= node;
+		scope.accept(new ASTVisitor() {
+			@Override
+			public boolean preVisit2(ASTNode child) {
+				if (found.size() >= PREFETCH_LIMIT)
+					return false;
+				// only the header of a declaration
+				return child == scope || !(scope instanceof BodyDeclaration) || !(child instanceof Block || child instanceof BodyDeclaration);
+			}
+
+			@Override
+			public boolean visit(SimpleName name) {
+				IBinding binding= name.resolveBinding();
+				if (binding != null) {
+					IJavaElement element= binding.getJavaElement();
+					if (element != null && JavadocContentAccess2.hasMemberJavadoc(element) && element.getAncestor(IJavaElement.COMPILATION_UNIT) != null)
+						found.add(element);
+				}
+				return false;
+			}
+		});
+		result.addAll(found);
+		return result;
+	}
+
+	private synchronized ThreadPoolExecutor getExecutor() {
+		if (fExecutor == null) {
+			fExecutor= new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS, new LinkedBlockingDeque<Runnable>(PREFETCH_LIMIT), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread= new Thread(runnable, "JavadocContentCache prefetch"); //$NON-NLS-1$
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}
+			}, new ThreadPoolExecutor.DiscardOldestPolicy());
+			fExecutor.allowCoreThreadTimeOut(true);
+		}
+		return fExecutor;
+	}
+
+	/**
+	 * @return the number of requests answered from the cache, including requests that waited for a
+	 *         running computation
+	 */
+	public long getHitCount() {
+		return fHits.get();
+	}
+
+	/**
+	 * @return the number of requests that computed the Javadoc
+	 */
+	public long getMissCount() {
+		return fMisses.get();
+	}
+
+	/**
+	 * @return the number of elements whose Javadoc has been computed by a prefetch
+	 */
+	public long getPrefetchCount() {
+		return fPrefetches.get();
+	}
+
+	/**
+	 * @return a summary of the cache metrics, for tracing
+	 */
+	public synchronized String getStatistics() {
+		long hits= fHits.get();
+		long requests= hits + fMisses.get();
+		return "entries=" + fEntries.size() + ", length=" + fContentLength //$NON-NLS-1$ //$NON-NLS-2$
+				+ ", hits=" + hits + ", misses=" + fMisses.get() + ", prefetched=" + fPrefetches.get() //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ ", hit rate=" + (requests == 0 ? 0 : hits * 100 / requests) + '%'; //$NON-NLS-1$
+	}
+
+	private static String getKey(IJavaElement element, boolean useAttachedJavadoc) {
+		String handle= element.getHandleIdentifier();
+		return useAttachedJavadoc ? handle : handle + '\n';
+	}
+
+	private static ITypeRoot getTypeRoot(IJavaElement element) {
+		return (ITypeRoot) (element.getAncestor(IJavaElement.COMPILATION_UNIT) != null
+				? element.getAncestor(IJavaElement.COMPILATION_UNIT)
+				: element.getAncestor(IJavaElement.CLASS_FILE));
+	}
+
+	/*
+	 * The modification stamp of the file or archive that contains the element.
+	 */
+	private static long getModificationStamp(IJavaElement element) {
+		IResource resource= element.getResource();
+		if (resource != null)
+			return resource.getModificationStamp();
+		IPackageFragmentRoot root= (IPackageFragmentRoot) element.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+		if (root != null && root.isArchive() && root.isExternal())
+			return root.getPath().toFile().lastModified();
+		return IResource.NULL_STAMP;
+	}
+}
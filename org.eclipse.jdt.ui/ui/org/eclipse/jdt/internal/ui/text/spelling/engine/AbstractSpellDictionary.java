@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -27,6 +27,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -125,6 +126,13 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	/** The mapping from phonetic hashes to word lists */
 	private final Map<ByteArrayWrapper, Object> fHashBuckets= new HashMap<>(getInitialSize(), LOAD_FACTOR);
 
+	/**
+	 * The precompiled dictionary, or <code>null</code> if the words are hashed into
+	 * {@link #fHashBuckets}.
+	 * @since 3.14
+	 */
+	private volatile CompiledSpellDictionary fCompiledDictionary;
+
 	/** The phonetic hash provider */
 	private IPhoneticHashProvider fHashProvider= new DefaultPhoneticHashProvider();
 
@@ -160,14 +168,17 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 * @return Array of candidates for the phonetic hash
 	 */
 	protected final Object getCandidates(final String hash) {
-		ByteArrayWrapper hashBytes;
+		byte[] hashBytes;
 		try {
-			hashBytes= new ByteArrayWrapper(hash.getBytes(UTF_8));
+			hashBytes= hash.getBytes(UTF_8);
 		} catch (UnsupportedEncodingException e) {
 			JavaPlugin.log(e);
 			return null;
 		}
-		return fHashBuckets.get(hashBytes);
+		CompiledSpellDictionary compiled= fCompiledDictionary;
+		if (compiled != null)
+			return compiled.getCandidates(hashBytes);
+		return fHashBuckets.get(new ByteArrayWrapper(hashBytes));
 	}
 
 	/**
@@ -218,7 +229,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 			}
 
 			@SuppressWarnings("unchecked")
-			final ArrayList<byte[]> candidateList= (ArrayList<byte[]>)candidates;
+			final List<byte[]> candidateList= (List<byte[]>)candidates;
 			int candidateSize= Math.min(500, candidateList.size()); // see https://bugs.eclipse.org/bugs/show_bug.cgi?id=195357
 			for (int offset= 0; offset < candidateSize; offset++) {
 
@@ -286,7 +297,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		}
 
 		@SuppressWarnings("unchecked")
-		final ArrayList<byte[]> candidateList= (ArrayList<byte[]>)candidates;
+		final List<byte[]> candidateList= (List<byte[]>)candidates;
 		final ArrayList<RankedWordProposal> matches= new ArrayList<>(candidateList.size());
 
 		for (int index= 0; index < candidateList.size(); index++) {
@@ -325,7 +336,8 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 * @since 3.3
 	 */
 	protected boolean isEmpty() {
-		return fHashBuckets.size() == 0;
+		CompiledSpellDictionary compiled= fCompiledDictionary;
+		return fHashBuckets.size() == 0 && (compiled == null || compiled.getWordCount() == 0);
 	}
 
 	/**
@@ -349,19 +361,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	@Override
 	public Set<RankedWordProposal> getProposals(final String word, final boolean sentence) {
 
-		try {
-
-			if (!fLoaded) {
-				synchronized (this) {
-					fLoaded= load(getURL());
-					if (fLoaded)
-						compact();
-				}
-			}
-
-		} catch (MalformedURLException exception) {
-			// Do nothing
-		}
+		ensureLoaded();
 
 		final String hash= fHashProvider.getHash(word);
 		final char[] mutators= fHashProvider.getMutators();
@@ -457,6 +457,52 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		return candidates;
 	}
 
+	/**
+	 * Loads the dictionary if this has not been tried yet. A precompiled dictionary is preferred
+	 * over the word list.
+	 *
+	 * @since 3.14
+	 */
+	private void ensureLoaded() {
+		try {
+
+			if (!fLoaded) {
+				synchronized (this) {
+					if (fMustLoad) {
+						fCompiledDictionary= loadCompiled(getURL());
+						if (fCompiledDictionary != null) {
+							fMustLoad= false;
+							fLoaded= true;
+							return;
+						}
+					}
+					fLoaded= load(getURL());
+					if (fLoaded)
+						compact();
+				}
+			}
+
+		} catch (MalformedURLException exception) {
+			// Do nothing
+		}
+	}
+
+	/**
+	 * Returns the precompiled form of the given word list.
+	 * <p>
+	 * Subclasses with large read-only word lists override this method to return a
+	 * memory-mapped {@link CompiledSpellDictionary}, which is queried in place of hashing all
+	 * words into the heap. The default implementation returns <code>null</code>.
+	 * </p>
+	 *
+	 * @param url the URL of the word list
+	 * @return the precompiled dictionary, or <code>null</code> to load the word list
+	 * @since 3.14
+	 */
+	protected CompiledSpellDictionary loadCompiled(URL url) {
+		return null;
+	}
+
 	/**
 	 * Returns the URL of the dictionary word list.
 	 *
@@ -504,21 +550,21 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	@Override
 	public boolean isCorrect(String word) {
 		word= stripNonLetters(word);
-		try {
+		ensureLoaded();
 
-			if (!fLoaded) {
-				synchronized (this) {
-					fLoaded= load(getURL());
-					if (fLoaded)
-						compact();
-				}
+		final String hash= fHashProvider.getHash(word);
+		final CompiledSpellDictionary compiled= fCompiledDictionary;
+		if (compiled != null) {
+			try {
+				byte[] hashBytes= hash.getBytes(UTF_8);
+				return compiled.contains(hashBytes, word.getBytes(UTF_8)) || compiled.contains(hashBytes, word.toLowerCase().getBytes(UTF_8));
+			} catch (UnsupportedEncodingException e) {
+				JavaPlugin.log(e);
+				return false;
 			}
-
-		} catch (MalformedURLException exception) {
-			// Do nothing
 		}
 
-		final Object candidates= getCandidates(fHashProvider.getHash(word));
+		final Object candidates= getCandidates(hash);
 		if (candidates == null)
 			return false;
 		else if (candidates instanceof byte[]) {
@@ -534,7 +580,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 			return false;
 		}
 		@SuppressWarnings("unchecked")
-		final ArrayList<byte[]> candidateList= (ArrayList<byte[]>)candidates;
+		final List<byte[]> candidateList= (List<byte[]>)candidates;
 		byte[] wordBytes;
 		byte[] lowercaseWordBytes;
 		try {
@@ -709,6 +755,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		fLoaded= false;
 		fMustLoad= true;
 		fHashBuckets.clear();
+		fCompiledDictionary= null;
 	}
 
 	@Override
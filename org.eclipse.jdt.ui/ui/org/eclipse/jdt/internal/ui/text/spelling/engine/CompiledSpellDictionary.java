@@ -0,0 +1,273 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.spelling.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+
+/**
+ * Read-only view of a dictionary in the precompiled binary format written by
+ * {@link SpellDictionaryCompiler}. The dictionary is usually memory-mapped and queried in place:
+ * no objects are created per word, words are only copied out of the buffer when a query returns
+ * them.
+ * <p>
+ * The format consists of a header, an open addressing hash table of phonetic hashes, a record per
+ * phonetic hash that points to the words with this hash, the offsets of all words, and the UTF-8
+ * encoded phonetic hashes and words packed in an arena. All numbers are big-endian.
+ * </p>
+ *
+ * <pre>
+ * header:   int magic, int version, long source stamp,
+ *           int slot count, int bucket count, int word count, int arena size
+ * slots:    int[slot count], bucket index + 1 or 0 for an empty slot
+ * buckets:  (int hash offset, int hash length, int first word, int word count)[bucket count]
+ * words:    int[word count + 1], arena offset of each word and the end of the last word
+ * arena:    byte[arena size]
+ * </pre>
+ *
+ * @since 3.14
+ */
+public final class CompiledSpellDictionary {
+
+	/**
+	 * File extension of precompiled dictionaries.
+	 */
+	public static final String FILE_EXTENSION= ".cdictionary"; //$NON-NLS-1$
+
+	/** 'JSPD' */
+	static final int MAGIC= 0x4A535044;
+
+	static final int VERSION= 1;
+
+	static final int HEADER_SIZE= 32;
+
+	static final int BUCKET_RECORD_SIZE= 16;
+
+	private final ByteBuffer fBuffer;
+	private final long fSourceStamp;
+	private final int fSlotCount;
+	private final int fBucketCount;
+	private final int fWordCount;
+	private final int fSlotsOffset;
+	private final int fBucketsOffset;
+	private final int fWordsOffset;
+	private final int fArenaOffset;
+
+	/**
+	 * The words of one phonetic hash, copied out of the buffer on access.
+	 */
+	private final class Bucket extends AbstractList<byte[]> implements RandomAccess {
+
+		private final int fFirst;
+		private final int fCount;
+
+		Bucket(int first, int count) {
+			fFirst= first;
+			fCount= count;
+		}
+
+		@Override
+		public byte[] get(int index) {
+			if (index < 0 || index >= fCount)
+				throw new IndexOutOfBoundsException(String.valueOf(index));
+			return getWord(fFirst + index);
+		}
+
+		@Override
+		public int size() {
+			return fCount;
+		}
+	}
+
+	private CompiledSpellDictionary(ByteBuffer buffer) throws IOException {
+		fBuffer= buffer;
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+			throw new IOException("Not a compiled dictionary"); //$NON-NLS-1$
+		if (buffer.getInt(4) != VERSION)
+			throw new IOException("Unsupported compiled dictionary version " + buffer.getInt(4)); //$NON-NLS-1$
+		fSourceStamp= buffer.getLong(8);
+		fSlotCount= buffer.getInt(16);
+		fBucketCount= buffer.getInt(20);
+		fWordCount= buffer.getInt(24);
+		int arenaSize= buffer.getInt(28);
+
+		fSlotsOffset= HEADER_SIZE;
+		fBucketsOffset= fSlotsOffset + 4 * fSlotCount;
+		fWordsOffset= fBucketsOffset + BUCKET_RECORD_SIZE * fBucketCount;
+		fArenaOffset= fWordsOffset + 4 * (fWordCount + 1);
+		if (fSlotCount <= 0 || Integer.bitCount(fSlotCount) != 1 || fBucketCount < 0 || fWordCount < 0 || arenaSize < 0
+				|| (long) fArenaOffset + arenaSize != buffer.limit())
+			throw new IOException("Corrupt compiled dictionary"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Memory-maps the given compiled dictionary file.
+	 *
+	 * @param file the file
+	 * @return the dictionary
+	 * @throws IOException if the file cannot be read or is not a compiled dictionary
+	 */
+	public static CompiledSpellDictionary map(File file) throws IOException {
+		try (FileChannel channel= FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size= channel.size();
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("Compiled dictionary too large: " + file); //$NON-NLS-1$
+			return new CompiledSpellDictionary(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+		}
+	}
+
+	/**
+	 * Reads the source stamp from the header of the given compiled dictionary file without
+	 * mapping it, so that a stale file can still be replaced.
+	 *
+	 * @param file the file
+	 * @return the source stamp, see {@link #getSourceStamp()}
+	 * @throws IOException if the file cannot be read or is not a compiled dictionary
+	 */
+	public static long readSourceStamp(File file) throws IOException {
+		try (FileChannel channel= FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer header= ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining()) {
+				if (channel.read(header) < 0)
+					throw new IOException("Not a compiled dictionary"); //$NON-NLS-1$
+			}
+			if (header.getInt(0) != MAGIC)
+				throw new IOException("Not a compiled dictionary"); //$NON-NLS-1$
+			if (header.getInt(4) != VERSION)
+				throw new IOException("Unsupported compiled dictionary version " + header.getInt(4)); //$NON-NLS-1$
+			return header.getLong(8);
+		}
+	}
+
+	/**
+	 * Creates a dictionary on the given buffer.
+	 *
+	 * @param buffer the buffer holding a compiled dictionary from index 0 to its limit
+	 * @return the dictionary
+	 * @throws IOException if the buffer does not hold a compiled dictionary
+	 */
+	public static CompiledSpellDictionary wrap(ByteBuffer buffer) throws IOException {
+		return new CompiledSpellDictionary(buffer);
+	}
+
+	/**
+	 * Returns the stamp of the word list this dictionary was compiled from.
+	 *
+	 * @return the source stamp, <code>0</code> for dictionaries compiled at build time
+	 */
+	public long getSourceStamp() {
+		return fSourceStamp;
+	}
+
+	/**
+	 * Returns the number of words in this dictionary.
+	 *
+	 * @return the number of words
+	 */
+	public int getWordCount() {
+		return fWordCount;
+	}
+
+	/**
+	 * Returns the words with the given phonetic hash.
+	 *
+	 * @param hash the UTF-8 encoded phonetic hash
+	 * @return the UTF-8 encoded words, or <code>null</code> if there is no word with this hash
+	 */
+	public List<byte[]> getCandidates(byte[] hash) {
+		int bucket= findBucket(hash);
+		if (bucket == -1)
+			return null;
+		int record= fBucketsOffset + BUCKET_RECORD_SIZE * bucket;
+		return new Bucket(fBuffer.getInt(record + 8), fBuffer.getInt(record + 12));
+	}
+
+	/**
+	 * Tells whether the dictionary contains the given word with the given phonetic hash. Does not
+	 * allocate.
+	 *
+	 * @param hash the UTF-8 encoded phonetic hash of the word
+	 * @param word the UTF-8 encoded word
+	 * @return <code>true</code> if the word is in the dictionary
+	 */
+	public boolean contains(byte[] hash, byte[] word) {
+		int bucket= findBucket(hash);
+		if (bucket == -1)
+			return false;
+		int record= fBucketsOffset + BUCKET_RECORD_SIZE * bucket;
+		int first= fBuffer.getInt(record + 8);
+		int end= first + fBuffer.getInt(record + 12);
+		for (int index= first; index < end; index++) {
+			int start= fBuffer.getInt(fWordsOffset + 4 * index);
+			int length= fBuffer.getInt(fWordsOffset + 4 * (index + 1)) - start;
+			if (equalsArena(start, length, word))
+				return true;
+		}
+		return false;
+	}
+
+	private int findBucket(byte[] hash) {
+		int mask= fSlotCount - 1;
+		int slot= hash(hash) & mask;
+		while (true) {
+			int bucket= fBuffer.getInt(fSlotsOffset + 4 * slot) - 1;
+			if (bucket == -1)
+				return -1;
+			int record= fBucketsOffset + BUCKET_RECORD_SIZE * bucket;
+			if (equalsArena(fBuffer.getInt(record), fBuffer.getInt(record + 4), hash))
+				return bucket;
+			slot= (slot + 1) & mask;
+		}
+	}
+
+	private byte[] getWord(int index) {
+		int start= fBuffer.getInt(fWordsOffset + 4 * index);
+		int end= fBuffer.getInt(fWordsOffset + 4 * (index + 1));
+		byte[] word= new byte[end - start];
+		int position= fArenaOffset + start;
+		for (int i= 0; i < word.length; i++)
+			word[i]= fBuffer.get(position + i);
+		return word;
+	}
+
+	private boolean equalsArena(int start, int length, byte[] bytes) {
+		if (length != bytes.length)
+			return false;
+		int position= fArenaOffset + start;
+		for (int i= 0; i < length; i++) {
+			if (fBuffer.get(position + i) != bytes[i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Hashes the UTF-8 encoded phonetic hash for the slot table (32 bit FNV-1a).
+	 *
+	 * @param bytes the bytes to hash
+	 * @return the hash code
+	 */
+	static int hash(byte[] bytes) {
+		int hash= 0x811C9DC5;
+		for (int i= 0; i < bytes.length; i++) {
+			hash^= bytes[i] & 0xFF;
+			hash*= 0x01000193;
+		}
+		return hash;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,18 +10,46 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.ui.text.spelling.engine;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Locale;
 
+import org.eclipse.core.runtime.FileLocator;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
 
 /**
  * Platform wide read-only locale sensitive dictionary for spell checking.
+ * <p>
+ * The dictionary is queried in its precompiled form: either the one compiled at build time next
+ * to the word list, or one compiled once into the state location of the plug-in and compiled
+ * again when the word list or the encoding changes.
+ * </p>
  *
  * @since 3.0
  */
 public class LocaleSensitiveSpellDictionary extends AbstractSpellDictionary {
 
+	/**
+	 * The folder in the plug-in state location that holds the compiled dictionaries.
+	 * @since 3.14
+	 */
+	private static final String COMPILED_DICTIONARIES_FOLDER= "spelling"; //$NON-NLS-1$
+
 	/** The locale of this dictionary */
 	private final Locale fLocale;
 
@@ -55,6 +83,87 @@ public class LocaleSensitiveSpellDictionary extends AbstractSpellDictionary {
 		return new URL(fLocation, fLocale.toString() + ".dictionary");  //$NON-NLS-1$
 	}
 
+	@Override
+	protected CompiledSpellDictionary loadCompiled(URL url) {
+		try {
+			File precompiled= toFile(new URL(fLocation, fLocale.toString() + CompiledSpellDictionary.FILE_EXTENSION));
+			if (precompiled != null && precompiled.isFile())
+				return CompiledSpellDictionary.map(precompiled);
+
+			File wordList= toFile(url);
+			JavaPlugin plugin= JavaPlugin.getDefault();
+			if (wordList == null || !wordList.isFile() || plugin == null)
+				return null;
+
+			String encoding= getEncoding();
+			long stamp= (wordList.lastModified() * 31 + wordList.length()) * 31 + encoding.hashCode();
+			File folder= plugin.getStateLocation().append(COMPILED_DICTIONARIES_FOLDER).toFile();
+			File compiled= new File(folder, fLocale.toString() + CompiledSpellDictionary.FILE_EXTENSION);
+			// only map the file that is used, a mapped file cannot be replaced on all platforms
+			if (compiled.isFile() && isCompiledFrom(compiled, stamp))
+				return CompiledSpellDictionary.map(compiled);
+
+			SpellDictionaryCompiler compiler= new SpellDictionaryCompiler(getHashProvider());
+			CharsetDecoder decoder= Charset.forName(encoding).newDecoder();
+			decoder.onMalformedInput(CodingErrorAction.REPORT);
+			decoder.onUnmappableCharacter(CodingErrorAction.REPORT);
+			try (BufferedReader reader= new BufferedReader(new InputStreamReader(new FileInputStream(wordList), decoder))) {
+				compiler.addWords(reader);
+			}
+			folder.mkdirs();
+			File temp= new File(folder, compiled.getName() + ".tmp"); //$NON-NLS-1$
+			try (OutputStream out= new FileOutputStream(temp)) {
+				compiler.write(out, stamp);
+			}
+			Files.move(temp.toPath(), compiled.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			return CompiledSpellDictionary.map(compiled);
+
+		} catch (CharacterCodingException e) {
+			// the word list loader reports malformed input
+			return null;
+		} catch (IOException e) {
+			JavaPlugin.log(e);
+			return null;
+		}
+	}
+
+	/**
+	 * Tells whether the given compiled dictionary has been compiled from the word list with the
+	 * given stamp.
+	 *
+	 * @param compiled the compiled dictionary
+	 * @param stamp the stamp of the word list
+	 * @return <code>true</code> if the compiled dictionary is up to date, <code>false</code> if
+	 *         it is stale or cannot be read
+	 * @since 3.14
+	 */
+	private static boolean isCompiledFrom(File compiled, long stamp) {
+		try {
+			return CompiledSpellDictionary.readSourceStamp(compiled) == stamp;
+		} catch (IOException e) {
+			// compile it again
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the local file of the given URL.
+	 *
+	 * @param url the URL
+	 * @return the file, or <code>null</code> if the URL cannot be converted to a local file
+	 * @since 3.14
+	 */
+	private static File toFile(URL url) {
+		try {
+			URL fileURL= FileLocator.toFileURL(url);
+			if ("file".equals(fileURL.getProtocol())) //$NON-NLS-1$
+				return new File(fileURL.getPath());
+		} catch (IOException e) {
+			// not available
+		}
+		return null;
+	}
+
 	@Override
 	protected int getInitialSize() {
 		return 32 * 1024;
@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.spelling.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+
+/**
+ * Compiles word lists into the binary format read by {@link CompiledSpellDictionary}.
+ * <p>
+ * The words of a phonetic hash keep the order of the word list, duplicates are dropped. The
+ * compiler has no dependencies on the workbench, so that the build can run it on the shipped word
+ * lists:
+ * </p>
+ *
+ * <pre>
+ * java -cp &lt;classes&gt; org.eclipse.jdt.internal.ui.text.spelling.engine.SpellDictionaryCompiler &lt;word list&gt; &lt;output&gt; [&lt;encoding&gt;]
+ * </pre>
+ *
+ * @since 3.14
+ */
+public final class SpellDictionaryCompiler {
+
+	private final IPhoneticHashProvider fHashProvider;
+
+	/** The mapping from phonetic hashes to word lists, in the order of first occurrence */
+	private final Map<String, List<String>> fBuckets= new LinkedHashMap<>();
+
+	private int fWordCount;
+
+	/**
+	 * Creates a new compiler.
+	 *
+	 * @param hashProvider the phonetic hash provider, must be the one used to query the dictionary
+	 */
+	public SpellDictionaryCompiler(IPhoneticHashProvider hashProvider) {
+		fHashProvider= hashProvider;
+	}
+
+	/**
+	 * Adds a word to the dictionary.
+	 *
+	 * @param word the word
+	 */
+	public void addWord(String word) {
+		String hash= fHashProvider.getHash(word);
+		List<String> bucket= fBuckets.get(hash);
+		if (bucket == null) {
+			bucket= new ArrayList<>(AbstractSpellDictionary.BUCKET_CAPACITY);
+			fBuckets.put(hash, bucket);
+		} else if (bucket.contains(word)) {
+			return;
+		}
+		bucket.add(word);
+		fWordCount++;
+	}
+
+	/**
+	 * Adds all lines of the given reader to the dictionary.
+	 *
+	 * @param reader the word list, one word per line
+	 * @throws IOException if reading fails
+	 */
+	public void addWords(BufferedReader reader) throws IOException {
+		String word;
+		while ((word= reader.readLine()) != null)
+			addWord(word);
+	}
+
+	/**
+	 * Returns the number of distinct words added so far.
+	 *
+	 * @return the number of words
+	 */
+	public int getWordCount() {
+		return fWordCount;
+	}
+
+	/**
+	 * Writes the compiled dictionary.
+	 *
+	 * @param out the output stream, not closed by this method
+	 * @param sourceStamp the stamp of the word list, or <code>0</code> if the dictionary is
+	 *            compiled at build time
+	 * @throws IOException if writing fails
+	 */
+	public void write(OutputStream out, long sourceStamp) throws IOException {
+		int bucketCount= fBuckets.size();
+		int slotCount= 16;
+		while (slotCount < 2 * bucketCount)
+			slotCount<<= 1;
+
+		// phonetic hashes first, then the words, so that the words are contiguous in the arena
+		ByteArrayOutputStream arena= new ByteArrayOutputStream(fWordCount * 12);
+		int[] slots= new int[slotCount];
+		int[] buckets= new int[4 * bucketCount];
+		int[] wordOffsets= new int[fWordCount + 1];
+
+		int bucket= 0;
+		int word= 0;
+		for (Iterator<Entry<String, List<String>>> iter= fBuckets.entrySet().iterator(); iter.hasNext(); bucket++) {
+			Entry<String, List<String>> entry= iter.next();
+			byte[] hash= entry.getKey().getBytes(StandardCharsets.UTF_8);
+			buckets[4 * bucket]= arena.size();
+			buckets[4 * bucket + 1]= hash.length;
+			buckets[4 * bucket + 2]= word;
+			buckets[4 * bucket + 3]= entry.getValue().size();
+			word+= entry.getValue().size();
+			arena.write(hash);
+
+			int slot= CompiledSpellDictionary.hash(hash) & (slotCount - 1);
+			while (slots[slot] != 0)
+				slot= (slot + 1) & (slotCount - 1);
+			slots[slot]= bucket + 1;
+		}
+		word= 0;
+		for (Iterator<List<String>> iter= fBuckets.values().iterator(); iter.hasNext();) {
+			List<String> words= iter.next();
+			for (int i= 0; i < words.size(); i++) {
+				wordOffsets[word++]= arena.size();
+				arena.write(words.get(i).getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		wordOffsets[word]= arena.size();
+
+		DataOutputStream data= new DataOutputStream(new BufferedOutputStream(out));
+		data.writeInt(CompiledSpellDictionary.MAGIC);
+		data.writeInt(CompiledSpellDictionary.VERSION);
+		data.writeLong(sourceStamp);
+		data.writeInt(slotCount);
+		data.writeInt(bucketCount);
+		data.writeInt(fWordCount);
+		data.writeInt(arena.size());
+		for (int i= 0; i < slots.length; i++)
+			data.writeInt(slots[i]);
+		for (int i= 0; i < buckets.length; i++)
+			data.writeInt(buckets[i]);
+		for (int i= 0; i < wordOffsets.length; i++)
+			data.writeInt(wordOffsets[i]);
+		arena.writeTo(data);
+		data.flush();
+	}
+
+	/**
+	 * Compiles a word list at build time.
+	 *
+	 * @param args the word list, the output file, and optionally the encoding of the word list
+	 *            (default UTF-8)
+	 * @throws IOException if reading or writing fails
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: SpellDictionaryCompiler <word list> <output> [<encoding>]"); //$NON-NLS-1$
+			System.exit(1);
+		}
+		Charset charset= args.length > 2 ? Charset.forName(args[2]) : StandardCharsets.UTF_8;
+		CharsetDecoder decoder= charset.newDecoder();
+		decoder.onMalformedInput(CodingErrorAction.REPLACE);
+		decoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+		SpellDictionaryCompiler compiler= new SpellDictionaryCompiler(new DefaultPhoneticHashProvider());
+		try (BufferedReader reader= new BufferedReader(new InputStreamReader(new FileInputStream(args[0]), decoder))) {
+			compiler.addWords(reader);
+		}
+		try (OutputStream out= new FileOutputStream(args[1])) {
+			compiler.write(out, 0);
+		}
+		System.out.println(args[1] + ": " + compiler.getWordCount() + " words"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
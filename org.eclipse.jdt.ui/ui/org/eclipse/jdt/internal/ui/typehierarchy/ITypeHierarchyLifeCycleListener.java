@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -26,4 +26,15 @@ public interface ITypeHierarchyLifeCycleListener {
 	 */
 	void typeHierarchyChanged(TypeHierarchyLifeCycle typeHierarchyProvider, IType[] changedTypes);
 
+	/**
+	 * The hierarchy has been updated in place: types have been added or removed, or have
+	 * changed their supertypes. The hierarchy is up to date and does not need to be refreshed.
+	 * Can be called from any thread.
+	 *
+	 * @param typeHierarchyProvider the type hierarchy that changed
+	 * @param changedTypes the types whose supertypes or subtypes have changed
+	 * @since 3.14
+	 */
+	void typeHierarchyUpdated(TypeHierarchyLifeCycle typeHierarchyProvider, IType[] changedTypes);
+
 }
@@ -0,0 +1,616 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.typehierarchy;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.ListenerList;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubProgressMonitor;
+
+import org.eclipse.jdt.core.Flags;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IOrdinaryClassFile;
+import org.eclipse.jdt.core.IParent;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeHierarchy;
+import org.eclipse.jdt.core.ITypeHierarchyChangedListener;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchMatch;
+import org.eclipse.jdt.core.search.SearchParticipant;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.SearchRequestor;
+
+/**
+ * A type hierarchy on a focus type that is patched with the changes of the Java model instead of
+ * being computed again.
+ * <p>
+ * The hierarchy starts as a copy of a hierarchy computed by JDT Core.
+ * {@link #update(Collection, IProgressMonitor)} computes the direct supertypes of the types in
+ * changed compilation units and class files again, and moves these types into, out of, or within
+ * the subtypes of the focus type. A type that leaves the hierarchy takes its subtypes along.
+ * </p>
+ * <p>
+ * Changes that cannot be patched are reported to the {@link ITypeHierarchyChangedListener}s,
+ * which have to compute the hierarchy again: the focus type is removed, the supertypes of the
+ * focus type change, or a type joins the hierarchy while other types already extend it.
+ * </p>
+ * <p>
+ * The hierarchy can be read while it is updated.
+ * </p>
+ *
+ * @since 3.14
+ */
+public class IncrementalTypeHierarchy implements ITypeHierarchy {
+
+	private static final IType[] NO_TYPES= new IType[0];
+
+	private final ITypeHierarchy fHierarchy;
+	private final IType fFocus;
+	private final ListenerList<ITypeHierarchyChangedListener> fListeners= new ListenerList<>();
+
+	// all fields below are guarded by this
+	private final Map<IType, Integer> fFlags= new HashMap<>();
+	private final Map<IType, IType> fSuperclasses= new HashMap<>();
+	private final Map<IType, IType[]> fSuperInterfaces= new HashMap<>();
+	private final Map<IType, List<IType>> fSubtypes= new HashMap<>();
+
+	/**
+	 * Creates a hierarchy that starts as a copy of the given hierarchy.
+	 *
+	 * @param hierarchy a hierarchy on a focus type, computed by JDT Core
+	 */
+	public IncrementalTypeHierarchy(ITypeHierarchy hierarchy) {
+		fHierarchy= hierarchy;
+		fFocus= hierarchy.getType();
+		copy();
+	}
+
+	private synchronized void copy() {
+		fFlags.clear();
+		fSuperclasses.clear();
+		fSuperInterfaces.clear();
+		fSubtypes.clear();
+		IType[] types= fHierarchy.getAllTypes();
+		for (int i= 0; i < types.length; i++) {
+			fFlags.put(types[i], Integer.valueOf(fHierarchy.getCachedFlags(types[i])));
+		}
+		for (int i= 0; i < types.length; i++) {
+			setSupertypes(types[i], fHierarchy.getSuperclass(types[i]), fHierarchy.getSuperInterfaces(types[i]));
+		}
+	}
+
+	/**
+	 * Patches the hierarchy with the current state of the given compilation units and class files.
+	 * If the changes cannot be patched, the hierarchy changed listeners are notified and
+	 * <code>null</code> is returned.
+	 *
+	 * @param containers the added, removed or changed compilation units and class files
+	 * @param monitor the progress monitor, or <code>null</code>
+	 * @return the types whose supertypes, subtypes or flags have changed, or <code>null</code> if
+	 *         the hierarchy has to be computed again
+	 * @throws JavaModelException if the supertypes of a type cannot be computed
+	 */
+	public IType[] update(Collection<IJavaElement> containers, IProgressMonitor monitor) throws JavaModelException {
+		if (monitor == null)
+			monitor= new NullProgressMonitor();
+		Set<IType> changedTypes= new LinkedHashSet<>();
+		for (Iterator<IJavaElement> iter= containers.iterator(); iter.hasNext();) {
+			if (monitor.isCanceled())
+				throw new OperationCanceledException();
+			if (!updateContainer(iter.next(), changedTypes, monitor)) {
+				fireHierarchyChanged();
+				return null;
+			}
+		}
+		if (!changedTypes.isEmpty()) {
+			synchronized (this) {
+				removeUnreachableTypes();
+			}
+		}
+		return changedTypes.toArray(new IType[changedTypes.size()]);
+	}
+
+	private boolean updateContainer(IJavaElement container, Set<IType> changedTypes, IProgressMonitor monitor) throws JavaModelException {
+		List<IType> newTypes= new ArrayList<>();
+		if (container.exists())
+			collectTypes(container, newTypes);
+
+		Set<IType> supertypes;
+		Set<IType> subtypes;
+		Set<String> subtypeNames= new HashSet<>();
+		synchronized (this) {
+			supertypes= getAllSupertypesSet(fFocus);
+			subtypes= getAllSubtypesSet(fFocus);
+			subtypes.add(fFocus);
+			for (Iterator<IType> iter= subtypes.iterator(); iter.hasNext();) {
+				subtypeNames.add(iter.next().getElementName());
+			}
+
+			// types that are gone
+			List<IType> oldTypes= new ArrayList<>();
+			for (Iterator<IType> iter= fFlags.keySet().iterator(); iter.hasNext();) {
+				IType type= iter.next();
+				if (container.equals(type.getTypeRoot()) && !newTypes.contains(type))
+					oldTypes.add(type);
+			}
+			for (int i= 0; i < oldTypes.size(); i++) {
+				IType type= oldTypes.get(i);
+				if (type.equals(fFocus) || supertypes.contains(type))
+					return false;
+				changedTypes.addAll(Arrays.asList(getSupertypes(type)));
+				removeType(type);
+			}
+		}
+
+		for (int i= 0; i < newTypes.size(); i++) {
+			IType type= newTypes.get(i);
+			boolean known= contains(type);
+			if (!known && !declaresSupertype(type, subtypeNames))
+				continue;
+
+			ITypeHierarchy hierarchy= type.newSupertypeHierarchy(new SubProgressMonitor(monitor, 0));
+			IType superclass= hierarchy.getSuperclass(type);
+			IType[] superInterfaces= hierarchy.getSuperInterfaces(type);
+			int flags= hierarchy.getCachedFlags(type);
+			synchronized (this) {
+				if (known) {
+					// modifiers can change without a change of the supertypes
+					Integer oldFlags= fFlags.put(type, Integer.valueOf(flags));
+					if (isUnchanged(type, superclass, superInterfaces, oldFlags, flags)) {
+						if (oldFlags == null || oldFlags.intValue() != flags)
+							changedTypes.add(type);
+						continue;
+					}
+					if (type.equals(fFocus) || supertypes.contains(type))
+						return false;
+				} else if (!containsAny(subtypes, superclass, superInterfaces)) {
+					continue;
+				}
+				changedTypes.add(type);
+				changedTypes.addAll(Arrays.asList(getSupertypes(type)));
+				fFlags.put(type, Integer.valueOf(flags));
+				setSupertypes(type, superclass, superInterfaces);
+				changedTypes.addAll(Arrays.asList(getSupertypes(type)));
+			}
+			if (!known && hasSubtypesElsewhere(type, container, monitor))
+				return false;
+		}
+		return true;
+	}
+
+	private boolean isUnchanged(IType type, IType superclass, IType[] superInterfaces, Integer oldFlags, int flags) {
+		if (oldFlags == null || Flags.isInterface(flags) != Flags.isInterface(oldFlags.intValue()))
+			return false;
+		IType oldSuperclass= fSuperclasses.get(type);
+		if (oldSuperclass == null ? superclass != null : !oldSuperclass.equals(superclass))
+			return false;
+		return Arrays.equals(getSuperInterfaces(type), superInterfaces);
+	}
+
+	private static boolean containsAny(Set<IType> types, IType superclass, IType[] superInterfaces) {
+		if (superclass != null && types.contains(superclass))
+			return true;
+		for (int i= 0; i < superInterfaces.length; i++) {
+			if (types.contains(superInterfaces[i]))
+				return true;
+		}
+		return false;
+	}
+
+	/*
+	 * Cheap test before the supertypes of a type that is not in the hierarchy are resolved.
+	 */
+	private static boolean declaresSupertype(IType type, Set<String> simpleNames) throws JavaModelException {
+		String superclassName= type.getSuperclassName();
+		if (superclassName != null && simpleNames.contains(getSimpleName(superclassName)))
+			return true;
+		String[] superInterfaceNames= type.getSuperInterfaceNames();
+		for (int i= 0; i < superInterfaceNames.length; i++) {
+			if (simpleNames.contains(getSimpleName(superInterfaceNames[i])))
+				return true;
+		}
+		return false;
+	}
+
+	private static String getSimpleName(String typeName) {
+		int end= typeName.indexOf('<');
+		if (end == -1)
+			end= typeName.length();
+		int start= Math.max(typeName.lastIndexOf('.', end - 1), typeName.lastIndexOf('$', end - 1)) + 1;
+		return typeName.substring(start, end).trim();
+	}
+
+	/*
+	 * A type that joins the hierarchy brings along the types that already extend it. Those can
+	 * only be found with a search; if there are any, the hierarchy is computed again.
+	 */
+	private boolean hasSubtypesElsewhere(IType type, final IJavaElement container, IProgressMonitor monitor) throws JavaModelException {
+		final boolean[] found= new boolean[1];
+		SearchRequestor requestor= new SearchRequestor() {
+			@Override
+			public void acceptSearchMatch(SearchMatch match) {
+				Object element= match.getElement();
+				if (element instanceof IType && container.equals(((IType) element).getTypeRoot()))
+					return; // handled with the container
+				found[0]= true;
+			}
+		};
+		SearchPattern pattern= SearchPattern.createPattern(type, IJavaSearchConstants.IMPLEMENTORS);
+		try {
+			new SearchEngine().search(pattern, new SearchParticipant[] { SearchEngine.getDefaultSearchParticipant() }, SearchEngine.createWorkspaceScope(), requestor, new SubProgressMonitor(monitor, 0));
+		} catch (CoreException e) {
+			throw new JavaModelException(e);
+		}
+		return found[0];
+	}
+
+	private static void collectTypes(IJavaElement element, List<IType> result) throws JavaModelException {
+		if (element instanceof IOrdinaryClassFile) {
+			result.add(((IOrdinaryClassFile) element).getType());
+			return;
+		}
+		if (element instanceof IType)
+			result.add((IType) element);
+		if (element instanceof IParent) {
+			IJavaElement[] children= ((IParent) element).getChildren();
+			for (int i= 0; i < children.length; i++) {
+				switch (children[i].getElementType()) {
+					case IJavaElement.TYPE:
+					case IJavaElement.METHOD:
+					case IJavaElement.FIELD:
+					case IJavaElement.INITIALIZER:
+						collectTypes(children[i], result); // local and anonymous types
+						break;
+				}
+			}
+		}
+	}
+
+	private void setSupertypes(IType type, IType superclass, IType[] superInterfaces) {
+		IType[] oldSupertypes= getSupertypes(type);
+		for (int i= 0; i < oldSupertypes.length; i++) {
+			List<IType> subtypes= fSubtypes.get(oldSupertypes[i]);
+			if (subtypes != null)
+				subtypes.remove(type);
+		}
+		if (superclass != null) {
+			fSuperclasses.put(type, superclass);
+		} else {
+			fSuperclasses.remove(type);
+		}
+		fSuperInterfaces.put(type, superInterfaces);
+		IType[] newSupertypes= getSupertypes(type);
+		for (int i= 0; i < newSupertypes.length; i++) {
+			List<IType> subtypes= fSubtypes.get(newSupertypes[i]);
+			if (subtypes == null) {
+				subtypes= new ArrayList<>(2);
+				fSubtypes.put(newSupertypes[i], subtypes);
+			}
+			if (!subtypes.contains(type))
+				subtypes.add(type);
+		}
+	}
+
+	private void removeType(IType type) {
+		setSupertypes(type, null, NO_TYPES);
+		List<IType> subtypes= fSubtypes.remove(type);
+		if (subtypes != null) {
+			for (int i= 0; i < subtypes.size(); i++) {
+				IType subtype= subtypes.get(i);
+				if (type.equals(fSuperclasses.get(subtype)))
+					fSuperclasses.remove(subtype);
+				IType[] superInterfaces= fSuperInterfaces.get(subtype);
+				if (superInterfaces != null) {
+					List<IType> remaining= new ArrayList<>(Arrays.asList(superInterfaces));
+					remaining.remove(type);
+					fSuperInterfaces.put(subtype, remaining.toArray(new IType[remaining.size()]));
+				}
+			}
+		}
+		fSuperInterfaces.remove(type);
+		fFlags.remove(type);
+	}
+
+	/*
+	 * The hierarchy consists of the focus type, its supertypes and its subtypes.
+	 */
+	private void removeUnreachableTypes() {
+		Set<IType> reachable= getAllSubtypesSet(fFocus);
+		reachable.addAll(getAllSupertypesSet(fFocus));
+		reachable.add(fFocus);
+		List<IType> unreachable= new ArrayList<>();
+		for (Iterator<IType> iter= fFlags.keySet().iterator(); iter.hasNext();) {
+			IType type= iter.next();
+			if (!reachable.contains(type))
+				unreachable.add(type);
+		}
+		for (int i= 0; i < unreachable.size(); i++) {
+			removeType(unreachable.get(i));
+		}
+	}
+
+	private Set<IType> getAllSupertypesSet(IType type) {
+		Set<IType> result= new LinkedHashSet<>();
+		List<IType> queue= new ArrayList<>();
+		queue.add(type);
+		for (int i= 0; i < queue.size(); i++) {
+			IType[] supertypes= getSupertypes(queue.get(i));
+			for (int k= 0; k < supertypes.length; k++) {
+				if (result.add(supertypes[k]))
+					queue.add(supertypes[k]);
+			}
+		}
+		return result;
+	}
+
+	private Set<IType> getAllSubtypesSet(IType type) {
+		Set<IType> result= new LinkedHashSet<>();
+		List<IType> queue= new ArrayList<>();
+		queue.add(type);
+		for (int i= 0; i < queue.size(); i++) {
+			List<IType> subtypes= fSubtypes.get(queue.get(i));
+			if (subtypes == null)
+				continue;
+			for (int k= 0; k < subtypes.size(); k++) {
+				if (result.add(subtypes.get(k)))
+					queue.add(subtypes.get(k));
+			}
+		}
+		return result;
+	}
+
+	private boolean isInterface(IType type) {
+		Integer flags= fFlags.get(type);
+		return flags != null && Flags.isInterface(flags.intValue());
+	}
+
+	private void fireHierarchyChanged() {
+		for (ITypeHierarchyChangedListener listener : fListeners) {
+			listener.typeHierarchyChanged(this);
+		}
+	}
+
+	@Override
+	public void addTypeHierarchyChangedListener(ITypeHierarchyChangedListener listener) {
+		fListeners.add(listener);
+	}
+
+	@Override
+	public void removeTypeHierarchyChangedListener(ITypeHierarchyChangedListener listener) {
+		fListeners.remove(listener);
+	}
+
+	@Override
+	public synchronized boolean contains(IType type) {
+		return fFlags.containsKey(type);
+	}
+
+	@Override
+	public boolean exists() {
+		return fHierarchy.exists();
+	}
+
+	@Override
+	public synchronized IType[] getAllClasses() {
+		List<IType> result= new ArrayList<>();
+		for (Iterator<IType> iter= fFlags.keySet().iterator(); iter.hasNext();) {
+			IType type= iter.next();
+			if (!isInterface(type))
+				result.add(type);
+		}
+		return result.toArray(new IType[result.size()]);
+	}
+
+	@Override
+	public synchronized IType[] getAllInterfaces() {
+		List<IType> result= new ArrayList<>();
+		for (Iterator<IType> iter= fFlags.keySet().iterator(); iter.hasNext();) {
+			IType type= iter.next();
+			if (isInterface(type))
+				result.add(type);
+		}
+		return result.toArray(new IType[result.size()]);
+	}
+
+	@Override
+	public synchronized IType[] getAllSubtypes(IType type) {
+		Set<IType> result= getAllSubtypesSet(type);
+		return result.toArray(new IType[result.size()]);
+	}
+
+	@Override
+	public synchronized IType[] getAllSuperclasses(IType type) {
+		List<IType> result= new ArrayList<>();
+		IType superclass= fSuperclasses.get(type);
+		while (superclass != null && !result.contains(superclass)) {
+			result.add(superclass);
+			superclass= fSuperclasses.get(superclass);
+		}
+		return result.toArray(new IType[result.size()]);
+	}
+
+	@Override
+	public synchronized IType[] getAllSuperInterfaces(IType type) {
+		Set<IType> result= new LinkedHashSet<>();
+		result.addAll(Arrays.asList(getSuperInterfaces(type)));
+		for (Iterator<IType> iter= getAllSupertypesSet(type).iterator(); iter.hasNext();) {
+			result.addAll(Arrays.asList(getSuperInterfaces(iter.next())));
+		}
+		return result.toArray(new IType[result.size()]);
+	}
+
+	@Override
+	public synchronized IType[] getAllSupertypes(IType type) {
+		Set<IType> result= getAllSupertypesSet(type);
+		return result.toArray(new IType[result.size()]);
+	}
+
+	@Override
+	public synchronized IType[] getAllTypes() {
+		return fFlags.keySet().toArray(new IType[fFlags.size()]);
+	}
+
+	@Override
+	public synchronized int getCachedFlags(IType type) {
+		Integer flags= fFlags.get(type);
+		return flags != null ? flags.intValue() : -1;
+	}
+
+	@Override
+	public synchronized IType[] getExtendingInterfaces(IType type) {
+		if (!isInterface(type))
+			return NO_TYPES;
+		List<IType> result= new ArrayList<>();
+		List<IType> subtypes= fSubtypes.get(type);
+		if (subtypes != null) {
+			for (int i= 0; i < subtypes.size(); i++) {
+				if (isInterface(subtypes.get(i)))
+					result.add(subtypes.get(i));
+			}
+		}
+		return result.toArray(new IType[result.size()]);
+	}
+
+	@Override
+	public synchronized IType[] getImplementingClasses(IType type) {
+		if (!isInterface(type))
+			return NO_TYPES;
+		List<IType> result= new ArrayList<>();
+		List<IType> subtypes= fSubtypes.get(type);
+		if (subtypes != null) {
+			for (int i= 0; i < subtypes.size(); i++) {
+				if (!isInterface(subtypes.get(i)))
+					result.add(subtypes.get(i));
+			}
+		}
+		return result.toArray(new IType[result.size()]);
+	}
+
+	@Override
+	public synchronized IType[] getRootClasses() {
+		List<IType> result= new ArrayList<>();
+		for (Iterator<IType> iter= fFlags.keySet().iterator(); iter.hasNext();) {
+			IType type= iter.next();
+			if (!isInterface(type) && fSuperclasses.get(type) == null)
+				result.add(type);
+		}
+		return result.toArray(new IType[result.size()]);
+	}
+
+	@Override
+	public synchronized IType[] getRootInterfaces() {
+		List<IType> result= new ArrayList<>();
+		for (Iterator<IType> iter= fFlags.keySet().iterator(); iter.hasNext();) {
+			IType type= iter.next();
+			if (isInterface(type) && getSuperInterfaces(type).length == 0)
+				result.add(type);
+		}
+		return result.toArray(new IType[result.size()]);
+	}
+
+	@Override
+	public synchronized IType[] getSubclasses(IType type) {
+		if (isInterface(type))
+			return NO_TYPES;
+		List<IType> result= new ArrayList<>();
+		List<IType> subtypes= fSubtypes.get(type);
+		if (subtypes != null) {
+			for (int i= 0; i < subtypes.size(); i++) {
+				if (type.equals(fSuperclasses.get(subtypes.get(i))))
+					result.add(subtypes.get(i));
+			}
+		}
+		return result.toArray(new IType[result.size()]);
+	}
+
+	@Override
+	public synchronized IType[] getSubtypes(IType type) {
+		List<IType> subtypes= fSubtypes.get(type);
+		if (subtypes == null)
+			return NO_TYPES;
+		return subtypes.toArray(new IType[subtypes.size()]);
+	}
+
+	@Override
+	public synchronized IType getSuperclass(IType type) {
+		return fSuperclasses.get(type);
+	}
+
+	@Override
+	public synchronized IType[] getSuperInterfaces(IType type) {
+		IType[] superInterfaces= fSuperInterfaces.get(type);
+		if (superInterfaces == null)
+			return NO_TYPES;
+		return superInterfaces.clone();
+	}
+
+	@Override
+	public synchronized IType[] getSupertypes(IType type) {
+		IType superclass= fSuperclasses.get(type);
+		IType[] superInterfaces= getSuperInterfaces(type);
+		if (superclass == null)
+			return superInterfaces;
+		IType[] result= new IType[superInterfaces.length + 1];
+		result[0]= superclass;
+		System.arraycopy(superInterfaces, 0, result, 1, superInterfaces.length);
+		return result;
+	}
+
+	@Override
+	public IType getType() {
+		return fFocus;
+	}
+
+	/**
+	 * Computes the hierarchy again and drops all patches.
+	 *
+	 * @param monitor the progress monitor
+	 * @throws JavaModelException if the hierarchy cannot be computed
+	 */
+	@Override
+	public void refresh(IProgressMonitor monitor) throws JavaModelException {
+		fHierarchy.refresh(monitor);
+		copy();
+	}
+
+	/**
+	 * Stores the hierarchy as it was last computed by JDT Core, without the patches.
+	 *
+	 * @param outputStream the output stream
+	 * @param monitor the progress monitor
+	 * @throws JavaModelException if the hierarchy cannot be stored
+	 */
+	@Override
+	public void store(OutputStream outputStream, IProgressMonitor monitor) throws JavaModelException {
+		fHierarchy.store(outputStream, monitor);
+	}
+
+	@Override
+	public String toString() {
+		return "Incremental " + fHierarchy.toString(); //$NON-NLS-1$
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -65,6 +65,13 @@ public abstract class TypeHierarchyContentProvider implements ITreeContentProvid
 					}
 				}
 			}
+
+			@Override
+			public void typeHierarchyUpdated(TypeHierarchyLifeCycle typeHierarchyProvider, IType[] changedTypes) {
+				synchronized (this) {
+					fMethodOverrideTester= null;
+				}
+			}
 		};
 		lifecycle.addChangedListener(fTypeHierarchyLifeCycleListener);
 	}
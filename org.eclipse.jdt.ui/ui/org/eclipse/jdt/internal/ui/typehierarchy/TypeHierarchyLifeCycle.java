@@ -13,7 +13,9 @@ package org.eclipse.jdt.internal.ui.typehierarchy;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.swt.widgets.Display;
 
@@ -35,6 +37,7 @@ import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaElementDelta;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IOrdinaryClassFile;
+import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
 import org.eclipse.jdt.core.IRegion;
 import org.eclipse.jdt.core.IType;
@@ -53,6 +56,11 @@ import org.eclipse.jdt.internal.ui.JavaPlugin;
  */
 public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IElementChangedListener {
 
+	/**
+	 * Milliseconds to wait for more changes before the hierarchy is updated.
+	 */
+	private static final long UPDATE_DELAY= 200;
+
 	private boolean fHierarchyRefreshNeeded;
 	private ITypeHierarchy fHierarchy;
 	private IJavaElement[] fInputElements;
@@ -81,6 +89,30 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 	 */
 	private boolean fRefreshJobCanceledExplicitly= true;
 
+	/**
+	 * Indicates whether hierarchies on a single type are updated with the changes of the Java model
+	 * instead of being refreshed.
+	 *
+	 * @see IncrementalTypeHierarchy
+	 * @since 3.14
+	 */
+	private boolean fIsIncremental;
+
+	/**
+	 * The compilation units and class files that changed since the last update of the hierarchy.
+	 * Access is guarded by the set itself.
+	 *
+	 * @since 3.14
+	 */
+	private final Set<IJavaElement> fPendingContainers= new LinkedHashSet<>();
+
+	/**
+	 * The job that updates an {@link IncrementalTypeHierarchy} with the pending containers.
+	 *
+	 * @since 3.14
+	 */
+	private Job fUpdateHierarchyJob;
+
 	/**
 	 * Creates the type hierarchy life cycle.
 	 *
@@ -91,6 +123,7 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 		this(false);
 		fTypeHierarchyViewPart= part;
 		fRefreshHierarchyJob= null;
+		fIsIncremental= true;
 	}
 
 	public TypeHierarchyLifeCycle(boolean isSuperTypesOnly) {
@@ -127,6 +160,7 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 				fRefreshHierarchyJob= null;
 			}
 		}
+		cancelUpdate();
 	}
 
 	public void removeChangedListener(ITypeHierarchyLifeCycleListener listener) {
@@ -146,6 +180,13 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 		}
 	}
 
+	private void fireUpdate(IType[] changedTypes) {
+		for (int i= fChangeListeners.size()-1; i>=0; i--) {
+			ITypeHierarchyLifeCycleListener curr= fChangeListeners.get(i);
+			curr.typeHierarchyUpdated(this, changedTypes);
+		}
+	}
+
 	/**
 	 * Refreshes the type hierarchy for the java element if it exists.
 	 *
@@ -297,6 +338,8 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 			IType type= (IType)elements[0];
 			if (fIsSuperTypesOnly) {
 				return type.newSupertypeHierarchy(pm);
+			} else if (fIsIncremental) {
+				return new IncrementalTypeHierarchy(type.newTypeHierarchy(pm));
 			} else {
 				return type.newTypeHierarchy(pm);
 			}
@@ -328,6 +371,7 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 			fHierarchy.removeTypeHierarchyChangedListener(this);
 			JavaCore.removeElementChangedListener(this);
 		}
+		cancelUpdate();
 		if (hierachyCreationNeeded) {
 			fHierarchy= createTypeHierarchy(elements, pm);
 			if (pm != null && pm.isCanceled()) {
@@ -365,6 +409,17 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 		if (fHierarchyRefreshNeeded) {
 			return;
 		} else {
+			ITypeHierarchy hierarchy= fHierarchy;
+			if (hierarchy instanceof IncrementalTypeHierarchy) {
+				Set<IJavaElement> containers= new LinkedHashSet<>();
+				if (!collectChangedContainers(event.getDelta(), containers)) {
+					typeHierarchyChanged(hierarchy);
+					return;
+				}
+				if (!containers.isEmpty()) {
+					scheduleUpdate(containers);
+				}
+			}
 			ArrayList<IType> changedTypes= new ArrayList<>();
 			processDelta(event.getDelta(), changedTypes);
 			if (changedTypes.size() > 0) {
@@ -373,6 +428,139 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 		}
 	}
 
+	/*
+	 * Collects the compilation units and class files that may have changed the supertypes of
+	 * their types. Returns false if the class path changed and the hierarchy has to be refreshed.
+	 */
+	private boolean collectChangedContainers(IJavaElementDelta delta, Set<IJavaElement> containers) {
+		IJavaElement element= delta.getElement();
+		int kind= delta.getKind();
+		int flags= delta.getFlags();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+				break;
+			case IJavaElement.JAVA_PROJECT:
+				if (kind != IJavaElementDelta.CHANGED
+						|| (flags & (IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED | IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED)) != 0) {
+					return false;
+				}
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+				if (kind != IJavaElementDelta.CHANGED
+						|| (flags & (IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH | IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED | IJavaElementDelta.F_REORDER)) != 0) {
+					return false;
+				}
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if (kind == IJavaElementDelta.ADDED) {
+					try {
+						IPackageFragment pack= (IPackageFragment) element;
+						containers.addAll(Arrays.asList(pack.getCompilationUnits()));
+						containers.addAll(Arrays.asList(pack.getOrdinaryClassFiles()));
+					} catch (JavaModelException e) {
+						return false;
+					}
+					return true;
+				} else if (kind == IJavaElementDelta.REMOVED) {
+					IType[] types= getHierarchy().getAllTypes();
+					for (int i= 0; i < types.length; i++) {
+						if (element.equals(types[i].getPackageFragment())) {
+							containers.add(types[i].getTypeRoot());
+						}
+					}
+					return true;
+				}
+				break;
+			case IJavaElement.COMPILATION_UNIT:
+				if (JavaModelUtil.isPrimary((ICompilationUnit) element)
+						&& (kind != IJavaElementDelta.CHANGED || isPossibleStructuralChange(flags) || hasSupertypeChange(delta))) {
+					containers.add(element);
+				}
+				return true;
+			case IJavaElement.CLASS_FILE:
+				containers.add(element);
+				return true;
+			default:
+				return true;
+		}
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			if (!collectChangedContainers(children[i], containers)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean hasSupertypeChange(IJavaElementDelta delta) {
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			IJavaElementDelta child= children[i];
+			if (child.getElement().getElementType() == IJavaElement.TYPE
+					&& (child.getKind() != IJavaElementDelta.CHANGED || (child.getFlags() & (IJavaElementDelta.F_SUPER_TYPES | IJavaElementDelta.F_MODIFIERS)) != 0)) {
+				return true;
+			}
+			if (hasSupertypeChange(child)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void scheduleUpdate(Set<IJavaElement> containers) {
+		synchronized (fPendingContainers) {
+			fPendingContainers.addAll(containers);
+		}
+		synchronized (this) {
+			if (fUpdateHierarchyJob == null) {
+				fUpdateHierarchyJob= new Job(TypeHierarchyMessages.TypeHierarchyLifeCycle_updateHierarchy) {
+					@Override
+					protected IStatus run(IProgressMonitor pm) {
+						return doHierarchyUpdate(pm);
+					}
+				};
+				fUpdateHierarchyJob.setSystem(true);
+			}
+			fUpdateHierarchyJob.schedule(UPDATE_DELAY);
+		}
+	}
+
+	private void cancelUpdate() {
+		synchronized (this) {
+			if (fUpdateHierarchyJob != null) {
+				fUpdateHierarchyJob.cancel();
+			}
+		}
+		synchronized (fPendingContainers) {
+			fPendingContainers.clear();
+		}
+	}
+
+	private IStatus doHierarchyUpdate(IProgressMonitor pm) {
+		ITypeHierarchy hierarchy= fHierarchy;
+		List<IJavaElement> containers;
+		synchronized (fPendingContainers) {
+			containers= new ArrayList<>(fPendingContainers);
+			fPendingContainers.clear();
+		}
+		if (!(hierarchy instanceof IncrementalTypeHierarchy) || containers.isEmpty()) {
+			return Status.OK_STATUS;
+		}
+		try {
+			IType[] changedTypes= ((IncrementalTypeHierarchy) hierarchy).update(containers, pm);
+			if (changedTypes != null && changedTypes.length > 0 && hierarchy == fHierarchy) {
+				fireUpdate(changedTypes);
+			}
+		} catch (JavaModelException e) {
+			if (hierarchy == fHierarchy) {
+				typeHierarchyChanged(hierarchy);
+			}
+		} catch (OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		}
+		return Status.OK_STATUS;
+	}
+
 	/*
 	 * Assume that the hierarchy is intact (no refresh needed)
 	 */
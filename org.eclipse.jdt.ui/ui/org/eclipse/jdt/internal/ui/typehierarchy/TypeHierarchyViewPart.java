@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -272,6 +272,11 @@ public class TypeHierarchyViewPart extends ViewPart implements ITypeHierarchyVie
 			public void typeHierarchyChanged(TypeHierarchyLifeCycle typeHierarchy, IType[] changedTypes) {
 				doTypeHierarchyChanged(typeHierarchy, changedTypes);
 			}
+
+			@Override
+			public void typeHierarchyUpdated(TypeHierarchyLifeCycle typeHierarchy, IType[] changedTypes) {
+				doTypeHierarchyUpdated(changedTypes);
+			}
 		};
 		fHierarchyLifeCycle.addChangedListener(fTypeHierarchyLifeCycleListener);
 
@@ -1600,6 +1605,50 @@ public class TypeHierarchyViewPart extends ViewPart implements ITypeHierarchyVie
 		}
 	}
 
+	/**
+	 * Called from ITypeHierarchyLifeCycleListener when the hierarchy has been updated in place.
+	 * Can be called from any thread.
+	 *
+	 * @param changedTypes the types whose supertypes or subtypes have changed
+	 * @since 3.14
+	 */
+	protected void doTypeHierarchyUpdated(final IType[] changedTypes) {
+		if (!fIsVisible) {
+			fNeedRefresh= true;
+			return;
+		}
+		Display display= getDisplay();
+		if (display != null) {
+			display.asyncExec(new Runnable() {
+				@Override
+				public void run() {
+					if (fPagebook != null && !fPagebook.isDisposed()) {
+						doTypeHierarchyUpdatedOnViewers(changedTypes);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Refreshes the changed types in all hierarchy viewers, without computing the hierarchy again.
+	 *
+	 * @param changedTypes the types whose supertypes or subtypes have changed
+	 * @since 3.14
+	 */
+	protected void doTypeHierarchyUpdatedOnViewers(IType[] changedTypes) {
+		if (fHierarchyLifeCycle.getHierarchy() == null) {
+			return;
+		}
+		for (int i= 0; i < fAllViewers.length; i++) {
+			TypeHierarchyViewer viewer= fAllViewers[i];
+			for (int k= 0; k < changedTypes.length; k++) {
+				viewer.refresh(changedTypes[k]);
+			}
+		}
+		fMethodsViewer.refresh();
+	}
+
 	protected void doTypeHierarchyChangedOnViewers(IType[] changedTypes) {
 		if (fHierarchyLifeCycle.getHierarchy() == null || !fHierarchyLifeCycle.getHierarchy().exists()) {
 			clearInput();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -54,14 +54,16 @@ public class ImageDescriptorRegistry {
 		if (descriptor == null)
 			descriptor= ImageDescriptor.getMissingImageDescriptor();
 
-		Image result= fRegistry.get(descriptor);
-		if (result != null)
-			return result;
+		synchronized (fRegistry) { // content assist creates images in background threads, too
+			Image result= fRegistry.get(descriptor);
+			if (result != null)
+				return result;
 
-		result= descriptor.createImage();
-		if (result != null)
-			fRegistry.put(descriptor, result);
-		return result;
+			result= descriptor.createImage();
+			if (result != null)
+				fRegistry.put(descriptor, result);
+			return result;
+		}
 	}
 
 	/**
@@ -0,0 +1,255 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.viewsupport;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jface.util.IPropertyChangeListener;
+import org.eclipse.jface.util.PropertyChangeEvent;
+import org.eclipse.jface.viewers.StyledString;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.JavaCore;
+
+import org.eclipse.jdt.ui.JavaElementLabels;
+import org.eclipse.jdt.ui.PreferenceConstants;
+
+import org.eclipse.jdt.internal.ui.viewsupport.JavaElementLabelComposer.ComposedLabel;
+
+/**
+ * A workspace wide cache of the labels of Java elements, keyed by element and rendering flags.
+ * Label providers that repaint the same elements over and over, like the ones of the Package
+ * Explorer and the Outline, can opt in with {@link JavaUILabelProvider#setUseLabelCache(boolean)}.
+ * <p>
+ * The labels are composed with {@link JavaElementLabels#COLORIZE}, so that one entry serves
+ * both the plain and the styled label. The cache is least recently used ordered and bounded in
+ * number of entries.
+ * </p>
+ * <p>
+ * The cache follows the Java element deltas: a changed compilation unit or class file drops the
+ * labels of its elements, changes to projects, roots and packages clear the whole cache. Changes
+ * of the Java UI preferences, like the package name compression, clear the cache as well.
+ * </p>
+ *
+ * @since 3.14
+ */
+public final class JavaElementLabelCache {
+
+	/**
+	 * The maximal number of cached labels.
+	 */
+	static final int MAX_ENTRIES= 10000;
+
+	private static JavaElementLabelCache fgInstance;
+
+	private final LinkedHashMap<Key, Entry> fEntries= new LinkedHashMap<Key, Entry>(256, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+	private final IElementChangedListener fDeltaListener= new CacheDeltaListener();
+	private final IPropertyChangeListener fPropertyListener= new IPropertyChangeListener() {
+		@Override
+		public void propertyChange(PropertyChangeEvent event) {
+			clear();
+		}
+	};
+	private int fGeneration;
+
+	private static final class Key {
+		final IJavaElement fElement;
+		final long fFlags;
+		private final int fHashCode;
+
+		Key(IJavaElement element, long flags) {
+			fElement= element;
+			fFlags= flags;
+			fHashCode= element.hashCode() * 31 + (int) (flags ^ (flags >>> 32));
+		}
+
+		@Override
+		public int hashCode() {
+			return fHashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other= (Key) obj;
+			return fFlags == other.fFlags && fHashCode == other.fHashCode && fElement.equals(other.fElement);
+		}
+	}
+
+	private static final class Entry {
+		final ComposedLabel fLabel;
+		/** The compilation unit or class file of the element, or <code>null</code> */
+		final IJavaElement fTypeRoot;
+
+		Entry(ComposedLabel label, IJavaElement typeRoot) {
+			fLabel= label;
+			fTypeRoot= typeRoot;
+		}
+	}
+
+	private class CacheDeltaListener implements IElementChangedListener {
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			List<IJavaElement> changed= new ArrayList<>();
+			if (collectChanges(event.getDelta(), changed)) {
+				clear();
+			} else if (!changed.isEmpty()) {
+				invalidate(changed);
+			}
+		}
+
+		/**
+		 * Collects the changed compilation units and class files.
+		 *
+		 * @param delta the Java element delta
+		 * @param changed the list to add the changed type roots to
+		 * @return <code>true</code> if the whole cache has to be cleared
+		 */
+		private boolean collectChanges(IJavaElementDelta delta, List<IJavaElement> changed) {
+			IJavaElement element= delta.getElement();
+			boolean isChanged= delta.getKind() == IJavaElementDelta.CHANGED;
+
+			switch (element.getElementType()) {
+				case IJavaElement.JAVA_MODEL:
+					return collectChildrenChanges(delta, changed);
+				case IJavaElement.JAVA_PROJECT:
+				case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+				case IJavaElement.PACKAGE_FRAGMENT:
+					if (!isChanged || (delta.getFlags() & ~(IJavaElementDelta.F_CHILDREN | IJavaElementDelta.F_CONTENT)) != 0)
+						return true;
+					return collectChildrenChanges(delta, changed);
+				case IJavaElement.COMPILATION_UNIT:
+				case IJavaElement.CLASS_FILE:
+					changed.add(element);
+					return false;
+				default:
+					return false;
+			}
+		}
+
+		private boolean collectChildrenChanges(IJavaElementDelta delta, List<IJavaElement> changed) {
+			IJavaElementDelta[] children= delta.getAffectedChildren();
+			for (int i= 0; i < children.length; i++) {
+				if (collectChanges(children[i], changed))
+					return true;
+			}
+			return false;
+		}
+	}
+
+	private JavaElementLabelCache() {
+		JavaCore.addElementChangedListener(fDeltaListener, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+		PreferenceConstants.getPreferenceStore().addPropertyChangeListener(fPropertyListener);
+	}
+
+	/**
+	 * Returns the shared label cache.
+	 *
+	 * @return the label cache
+	 */
+	public static synchronized JavaElementLabelCache getDefault() {
+		if (fgInstance == null)
+			fgInstance= new JavaElementLabelCache();
+		return fgInstance;
+	}
+
+	/**
+	 * Disposes the shared cache if it has been created.
+	 */
+	public static synchronized void shutdown() {
+		if (fgInstance == null)
+			return;
+		JavaCore.removeElementChangedListener(fgInstance.fDeltaListener);
+		PreferenceConstants.getPreferenceStore().removePropertyChangeListener(fgInstance.fPropertyListener);
+		fgInstance.clear();
+		fgInstance= null;
+	}
+
+	/**
+	 * Removes all labels.
+	 */
+	public synchronized void clear() {
+		fGeneration++;
+		fEntries.clear();
+	}
+
+	/**
+	 * Returns the label of an element, see {@link JavaElementLabels#getElementLabel(IJavaElement, long)}.
+	 * The label is not BiDi-processed.
+	 *
+	 * @param element the element to render
+	 * @param flags the rendering flags
+	 * @return the label of the element
+	 */
+	public String getTextLabel(IJavaElement element, long flags) {
+		return getLabel(element, flags).getText();
+	}
+
+	/**
+	 * Returns the styled label of an element, see
+	 * {@link JavaElementLabels#getStyledElementLabel(IJavaElement, long)}. The label is not
+	 * BiDi-processed.
+	 *
+	 * @param element the element to render
+	 * @param flags the rendering flags, {@link JavaElementLabels#COLORIZE} is implied
+	 * @return a new styled label of the element
+	 */
+	public StyledString getStyledTextLabel(IJavaElement element, long flags) {
+		return getLabel(element, flags).toStyledString();
+	}
+
+	private ComposedLabel getLabel(IJavaElement element, long flags) {
+		Key key= new Key(element, flags | JavaElementLabels.COLORIZE);
+		int generation;
+		synchronized (this) {
+			Entry entry= fEntries.get(key);
+			if (entry != null)
+				return entry.fLabel;
+			generation= fGeneration;
+		}
+		ComposedLabel label= JavaElementLabelComposer.getComposedLabel(element, key.fFlags);
+		IJavaElement typeRoot= element.getAncestor(IJavaElement.COMPILATION_UNIT);
+		if (typeRoot == null)
+			typeRoot= element.getAncestor(IJavaElement.CLASS_FILE);
+		synchronized (this) {
+			if (generation == fGeneration) // otherwise composed concurrently with a change
+				fEntries.put(key, new Entry(label, typeRoot));
+		}
+		return label;
+	}
+
+	private synchronized void invalidate(List<IJavaElement> changed) {
+		Set<IJavaElement> typeRoots= new HashSet<>(changed);
+		fGeneration++;
+		for (Iterator<Entry> iter= fEntries.values().iterator(); iter.hasNext();) {
+			IJavaElement typeRoot= iter.next().fTypeRoot;
+			if (typeRoot != null && typeRoots.contains(typeRoot))
+				iter.remove();
+		}
+	}
+}
@@ -13,8 +13,10 @@
 package org.eclipse.jdt.internal.ui.viewsupport;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.Attributes.Name;
 
 import org.eclipse.core.runtime.IPath;
@@ -23,6 +25,8 @@ import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 
 import org.eclipse.jface.preference.IPreferenceStore;
+import org.eclipse.jface.util.IPropertyChangeListener;
+import org.eclipse.jface.util.PropertyChangeEvent;
 import org.eclipse.jface.viewers.StyledString;
 import org.eclipse.jface.viewers.StyledString.Styler;
 
@@ -177,6 +181,123 @@ public class JavaElementLabelComposer {
 		}
 	}
 
+	/**
+	 * A reusable buffer that records the styles set on the label, so that the label can be
+	 * created as a string or as a styled string after it has been composed.
+	 *
+	 * @since 3.14
+	 */
+	public static class FlexibleLabelBuffer extends FlexibleBuffer {
+
+		/**
+		 * Buffers that have grown beyond this capacity are not kept for reuse.
+		 */
+		private static final int MAX_REUSED_CAPACITY= 1024;
+
+		private final StringBuilder fBuilder= new StringBuilder(64);
+		private int[] fRanges= new int[8];
+		private Styler[] fStylers= new Styler[4];
+		private int fStyleCount;
+
+		@Override
+		public FlexibleBuffer append(char ch) {
+			fBuilder.append(ch);
+			return this;
+		}
+
+		@Override
+		public FlexibleBuffer append(String string) {
+			fBuilder.append(string);
+			return this;
+		}
+
+		@Override
+		public int length() {
+			return fBuilder.length();
+		}
+
+		@Override
+		public void setStyle(int offset, int length, Styler styler) {
+			if (fStyleCount == fStylers.length) {
+				fStylers= Arrays.copyOf(fStylers, fStyleCount * 2);
+				fRanges= Arrays.copyOf(fRanges, fStyleCount * 4);
+			}
+			fRanges[2 * fStyleCount]= offset;
+			fRanges[2 * fStyleCount + 1]= length;
+			fStylers[fStyleCount++]= styler;
+		}
+
+		/**
+		 * Empties the buffer.
+		 *
+		 * @return <code>true</code> if the buffer is small enough to be reused
+		 */
+		public boolean clear() {
+			fBuilder.setLength(0);
+			Arrays.fill(fStylers, 0, fStyleCount, null);
+			fStyleCount= 0;
+			return fBuilder.capacity() <= MAX_REUSED_CAPACITY;
+		}
+
+		/**
+		 * @return the styled label
+		 */
+		public StyledString toStyledString() {
+			return createStyledString(fBuilder.toString(), fRanges, fStylers, fStyleCount);
+		}
+
+		/**
+		 * @return an immutable copy of the label
+		 */
+		public ComposedLabel toComposedLabel() {
+			return new ComposedLabel(fBuilder.toString(), Arrays.copyOf(fRanges, 2 * fStyleCount), Arrays.copyOf(fStylers, fStyleCount));
+		}
+
+		@Override
+		public String toString() {
+			return fBuilder.toString();
+		}
+
+		static StyledString createStyledString(String text, int[] ranges, Styler[] stylers, int styleCount) {
+			StyledString result= new StyledString(text);
+			for (int i= 0; i < styleCount; i++) {
+				result.setStyle(ranges[2 * i], ranges[2 * i + 1], stylers[i]);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * An immutable label composed in a {@link FlexibleLabelBuffer}.
+	 *
+	 * @since 3.14
+	 */
+	public static final class ComposedLabel {
+		private final String fText;
+		private final int[] fRanges;
+		private final Styler[] fStylers;
+
+		ComposedLabel(String text, int[] ranges, Styler[] stylers) {
+			fText= text;
+			fRanges= ranges;
+			fStylers= stylers;
+		}
+
+		/**
+		 * @return the label without styles
+		 */
+		public String getText() {
+			return fText;
+		}
+
+		/**
+		 * @return a new styled string for the label
+		 */
+		public StyledString toStyledString() {
+			return FlexibleLabelBuffer.createStyledString(fText, fRanges, fStylers, fStylers.length);
+		}
+	}
+
 	private static class PackageNameAbbreviation {
 		private String fPackagePrefix;
 
@@ -203,20 +324,150 @@ public class JavaElementLabelComposer {
 	private static final Styler COUNTER_STYLE= StyledString.COUNTER_STYLER;
 	private static final Styler DECORATIONS_STYLE= StyledString.DECORATIONS_STYLER;
 	
-	/*
-	 * Package name compression
+	/**
+	 * The package name compression and abbreviation settings, with the rendered names of the
+	 * packages seen so far. A new instance is created when the settings change.
+	 *
+	 * @since 3.14
 	 */
-	private static String fgPkgNamePattern= ""; //$NON-NLS-1$
-	private static String fgPkgNamePrefix;
-	private static String fgPkgNamePostfix;
-	private static int fgPkgNameChars;
-	private static int fgPkgNameLength= -1;
-	
-	/*
-	 * Package name abbreviation
+	private static final class PackageNames {
+
+		private static final int MAX_NAMES= 4000;
+
+		/*
+		 * Package name compression
+		 */
+		private String fPkgNamePrefix= ""; //$NON-NLS-1$
+		private String fPkgNamePostfix= ""; //$NON-NLS-1$
+		private int fPkgNameChars;
+		private int fPkgNameLength= -1;
+
+		/*
+		 * Package name abbreviation
+		 */
+		private final boolean fAbbreviate;
+		private PackageNameAbbreviation[] fPkgNameAbbreviation;
+
+		private final ConcurrentHashMap<String, String> fNames= new ConcurrentHashMap<>();
+
+		PackageNames(IPreferenceStore store) {
+			if (store.getBoolean(PreferenceConstants.APPEARANCE_COMPRESS_PACKAGE_NAMES))
+				initPackageNamePattern(store.getString(PreferenceConstants.APPEARANCE_PKG_NAME_PATTERN_FOR_PKG_VIEW));
+			fAbbreviate= store.getBoolean(PreferenceConstants.APPEARANCE_ABBREVIATE_PACKAGE_NAMES);
+			if (fAbbreviate) {
+				String pattern= store.getString(PreferenceConstants.APPEARANCE_PKG_NAME_ABBREVIATION_PATTERN_FOR_PKG_VIEW);
+				if (pattern != null && pattern.length() != 0) {
+					fPkgNameAbbreviation= parseAbbreviationPattern(pattern);
+					if (fPkgNameAbbreviation == null)
+						fPkgNameAbbreviation= new PackageNameAbbreviation[0];
+				}
+			}
+		}
+
+		private void initPackageNamePattern(String pattern) {
+			if (pattern.length() == 0)
+				return;
+			int i= 0;
+			while (i < pattern.length()) {
+				char ch= pattern.charAt(i);
+				if (Character.isDigit(ch)) {
+					fPkgNameChars= ch-48;
+					if (i > 0)
+						fPkgNamePrefix= pattern.substring(0, i);
+					fPkgNamePostfix= pattern.substring(i+1);
+					fPkgNameLength= fPkgNamePrefix.length() + fPkgNameChars + fPkgNamePostfix.length();
+					return;
+				}
+				i++;
+			}
+			fPkgNamePrefix= pattern;
+			fPkgNameLength= pattern.length();
+		}
+
+		/**
+		 * Returns the compressed or abbreviated name of a package.
+		 *
+		 * @param pkgName the name of the package
+		 * @return the name to render
+		 */
+		String getName(String pkgName) {
+			String name= fNames.get(pkgName);
+			if (name == null) {
+				StringBuilder buf= new StringBuilder(pkgName.length());
+				if (fAbbreviate)
+					appendAbbreviated(pkgName, buf);
+				else
+					appendCompressed(pkgName, buf);
+				name= buf.toString();
+				if (fNames.size() >= MAX_NAMES)
+					fNames.clear();
+				fNames.put(pkgName, name);
+			}
+			return name;
+		}
+
+		private void appendCompressed(String name, StringBuilder buf) {
+			if (fPkgNameLength < 0) {
+				buf.append(name);
+				return;
+			}
+			int start= 0;
+			int dot= name.indexOf('.', start);
+			while (dot > 0) {
+				if (dot - start > fPkgNameLength-1) {
+					buf.append(fPkgNamePrefix);
+					if (fPkgNameChars > 0)
+						buf.append(name, start, Math.min(start+ fPkgNameChars, dot));
+					buf.append(fPkgNamePostfix);
+				} else
+					buf.append(name, start, dot + 1);
+				start= dot + 1;
+				dot= name.indexOf('.', start);
+			}
+			buf.append(name, start, name.length());
+		}
+
+		private void appendAbbreviated(String pkgName, StringBuilder buf) {
+			if (fPkgNameAbbreviation != null && fPkgNameAbbreviation.length != 0) {
+
+				for (int i= 0; i < fPkgNameAbbreviation.length; i++) {
+					PackageNameAbbreviation abbr= fPkgNameAbbreviation[i];
+
+					String abbrPrefix= abbr.getPackagePrefix();
+					if (pkgName.startsWith(abbrPrefix)) {
+						int abbrPrefixLength= abbrPrefix.length();
+						int pkgLength= pkgName.length();
+						if (!(pkgLength == abbrPrefixLength || pkgName.charAt(abbrPrefixLength) == '.'))
+							continue;
+
+						buf.append(abbr.getAbbreviation());
+
+						if (pkgLength > abbrPrefixLength) {
+							buf.append('.');
+							appendCompressed(pkgName.substring(abbrPrefixLength + 1), buf);
+						}
+
+						return;
+					}
+				}
+			}
+			appendCompressed(pkgName, buf);
+		}
+	}
+
+	private static volatile PackageNames fgPackageNames;
+	/**
+	 * The listener that drops the package names when their preferences change, or
+	 * <code>null</code> if not installed. Guarded by <code>PackageNames.class</code>.
+	 * @since 3.14
+	 */
+	private static IPropertyChangeListener fgPackageNamesListener;
+
+	/**
+	 * Reusable composer of the current thread, <code>null</code> while it is in use.
+	 * @since 3.14
 	 */
-	private static String fgPkgNameAbbreviationPattern= ""; //$NON-NLS-1$
-	private static PackageNameAbbreviation[] fgPkgNameAbbreviation;
+	private static final ThreadLocal<JavaElementLabelComposer> fgReusableComposer= new ThreadLocal<>();
 
 	protected final FlexibleBuffer fBuffer;
 
@@ -251,6 +502,77 @@ public class JavaElementLabelComposer {
 		this(new FlexibleStringBuffer(buffer));
 	}
 
+	/**
+	 * Returns the label for a Java element with the flags as defined by {@link JavaElementLabels}.
+	 * The label is composed in a buffer that is reused by the current thread.
+	 *
+	 * @param element the element to render
+	 * @param flags the rendering flags
+	 * @return the label of the Java element
+	 * @since 3.14
+	 */
+	public static String getElementLabel(IJavaElement element, long flags) {
+		JavaElementLabelComposer composer= acquireComposer();
+		try {
+			composer.appendElementLabel(element, flags);
+			return composer.fBuffer.toString();
+		} finally {
+			releaseComposer(composer);
+		}
+	}
+
+	/**
+	 * Returns the styled label for a Java element with the flags as defined by
+	 * {@link JavaElementLabels}. The label is composed in a buffer that is reused by the current
+	 * thread.
+	 *
+	 * @param element the element to render
+	 * @param flags the rendering flags
+	 * @return the styled label of the Java element
+	 * @since 3.14
+	 */
+	public static StyledString getStyledElementLabel(IJavaElement element, long flags) {
+		JavaElementLabelComposer composer= acquireComposer();
+		try {
+			composer.appendElementLabel(element, flags);
+			return ((FlexibleLabelBuffer) composer.fBuffer).toStyledString();
+		} finally {
+			releaseComposer(composer);
+		}
+	}
+
+	/**
+	 * Returns the immutable label for a Java element with the flags as defined by
+	 * {@link JavaElementLabels}, to be kept in a cache.
+	 *
+	 * @param element the element to render
+	 * @param flags the rendering flags
+	 * @return the label of the Java element
+	 * @since 3.14
+	 */
+	public static ComposedLabel getComposedLabel(IJavaElement element, long flags) {
+		JavaElementLabelComposer composer= acquireComposer();
+		try {
+			composer.appendElementLabel(element, flags);
+			return ((FlexibleLabelBuffer) composer.fBuffer).toComposedLabel();
+		} finally {
+			releaseComposer(composer);
+		}
+	}
+
+	private static JavaElementLabelComposer acquireComposer() {
+		JavaElementLabelComposer composer= fgReusableComposer.get();
+		if (composer == null)
+			return new JavaElementLabelComposer(new FlexibleLabelBuffer());
+		fgReusableComposer.set(null); // labels composed meanwhile on this thread use another composer
+		return composer;
+	}
+
+	private static void releaseComposer(JavaElementLabelComposer composer) {
+		if (((FlexibleLabelBuffer) composer.fBuffer).clear())
+			fgReusableComposer.set(composer);
+	}
+
 	/**
 	 * Appends the label for a Java element with the flags as defined by this class.
 	 *
@@ -1216,10 +1538,7 @@ public class JavaElementLabelComposer {
 		if (pack.isDefaultPackage()) {
 			fBuffer.append(JavaElementLabels.DEFAULT_PACKAGE);
 		} else if (getFlag(flags, JavaElementLabels.P_COMPRESSED)) {
-			if (isPackageNameAbbreviationEnabled())
-				appendAbbreviatedPackageFragment(pack);
-			else
-				appendCompressedPackageFragment(pack);
+			fBuffer.append(getPackageNames().getName(pack.getElementName()));
 		} else {
 			fBuffer.append(getElementName(pack));
 		}
@@ -1233,75 +1552,6 @@ public class JavaElementLabelComposer {
 		}
 	}
 
-	private void appendCompressedPackageFragment(IPackageFragment pack) {
-		appendCompressedPackageFragment(pack.getElementName());
-	}
-	
-	private void appendCompressedPackageFragment(String elementName) {
-		refreshPackageNamePattern();
-		if (fgPkgNameLength < 0) {
-			fBuffer.append(elementName);
-			return;
-		}
-		String name= elementName;
-		int start= 0;
-		int dot= name.indexOf('.', start);
-		while (dot > 0) {
-			if (dot - start > fgPkgNameLength-1) {
-				fBuffer.append(fgPkgNamePrefix);
-				if (fgPkgNameChars > 0)
-					fBuffer.append(name.substring(start, Math.min(start+ fgPkgNameChars, dot)));
-				fBuffer.append(fgPkgNamePostfix);
-			} else
-				fBuffer.append(name.substring(start, dot + 1));
-			start= dot + 1;
-			dot= name.indexOf('.', start);
-		}
-		fBuffer.append(name.substring(start));
-	}
-
-	private void appendAbbreviatedPackageFragment(IPackageFragment pack) {
-		refreshPackageNameAbbreviation();
-
-		String pkgName= pack.getElementName();
-
-		if (fgPkgNameAbbreviation != null && fgPkgNameAbbreviation.length != 0) {
-
-			for (int i= 0; i < fgPkgNameAbbreviation.length; i++) {
-				PackageNameAbbreviation abbr= fgPkgNameAbbreviation[i];
-
-				String abbrPrefix= abbr.getPackagePrefix();
-				if (pkgName.startsWith(abbrPrefix)) {
-					int abbrPrefixLength= abbrPrefix.length();
-					int pkgLength= pkgName.length();
-					if (!(pkgLength == abbrPrefixLength || pkgName.charAt(abbrPrefixLength) == '.'))
-						continue;
-
-					fBuffer.append(abbr.getAbbreviation());
-
-					if (pkgLength > abbrPrefixLength) {
-						fBuffer.append('.');
-
-						String remaining= pkgName.substring(abbrPrefixLength + 1);
-
-						if (isPackageNameCompressionEnabled())
-							appendCompressedPackageFragment(remaining);
-						else
-							fBuffer.append(remaining);
-					}
-
-					return;
-				}
-			}
-		}
-
-		if (isPackageNameCompressionEnabled()) {
-			appendCompressedPackageFragment(pkgName);
-		} else {
-			fBuffer.append(pkgName);
-		}
-	}
-
 	/**
 	 * Appends the label for a package fragment root. Considers the ROOT_* flags.
 	 *
@@ -1503,58 +1753,44 @@ public class JavaElementLabelComposer {
 		return false;
 	}
 
-	private void refreshPackageNamePattern() {
-		String pattern= getPkgNamePatternForPackagesView();
-		final String EMPTY_STRING= ""; //$NON-NLS-1$
-		if (pattern.equals(fgPkgNamePattern))
-			return;
-		else if (pattern.length() == 0) {
-			fgPkgNamePattern= EMPTY_STRING;
-			fgPkgNameLength= -1;
-			return;
-		}
-		fgPkgNamePattern= pattern;
-		int i= 0;
-		fgPkgNameChars= 0;
-		fgPkgNamePrefix= EMPTY_STRING;
-		fgPkgNamePostfix= EMPTY_STRING;
-		while (i < pattern.length()) {
-			char ch= pattern.charAt(i);
-			if (Character.isDigit(ch)) {
-				fgPkgNameChars= ch-48;
-				if (i > 0)
-					fgPkgNamePrefix= pattern.substring(0, i);
-				if (i >= 0)
-					fgPkgNamePostfix= pattern.substring(i+1);
-				fgPkgNameLength= fgPkgNamePrefix.length() + fgPkgNameChars + fgPkgNamePostfix.length();
-				return;
+	private static PackageNames getPackageNames() {
+		PackageNames packageNames= fgPackageNames;
+		if (packageNames == null) {
+			IPreferenceStore store= PreferenceConstants.getPreferenceStore();
+			synchronized (PackageNames.class) {
+				if (fgPackageNamesListener == null) {
+					fgPackageNamesListener= new IPropertyChangeListener() {
+						@Override
+						public void propertyChange(PropertyChangeEvent event) {
+							String property= event.getProperty();
+							if (PreferenceConstants.APPEARANCE_COMPRESS_PACKAGE_NAMES.equals(property)
+									|| PreferenceConstants.APPEARANCE_PKG_NAME_PATTERN_FOR_PKG_VIEW.equals(property)
+									|| PreferenceConstants.APPEARANCE_ABBREVIATE_PACKAGE_NAMES.equals(property)
+									|| PreferenceConstants.APPEARANCE_PKG_NAME_ABBREVIATION_PATTERN_FOR_PKG_VIEW.equals(property))
+								fgPackageNames= null;
+						}
+					};
+					store.addPropertyChangeListener(fgPackageNamesListener);
+				}
 			}
-			i++;
+			packageNames= new PackageNames(store);
+			fgPackageNames= packageNames;
 		}
-		fgPkgNamePrefix= pattern;
-		fgPkgNameLength= pattern.length();
+		return packageNames;
 	}
-	
-	private void refreshPackageNameAbbreviation() {
-		String pattern= getPkgNameAbbreviationPatternForPackagesView();
-
-		if (fgPkgNameAbbreviationPattern.equals(pattern))
-			return;
-
-		fgPkgNameAbbreviationPattern= pattern;
 
-		if (pattern == null || pattern.length() == 0) {
-			fgPkgNameAbbreviationPattern= ""; //$NON-NLS-1$
-			fgPkgNameAbbreviation= null;
-			return;
+	/**
+	 * Removes the preference listener of the package names and drops them.
+	 * @since 3.14
+	 */
+	public static void shutdown() {
+		synchronized (PackageNames.class) {
+			if (fgPackageNamesListener != null) {
+				PreferenceConstants.getPreferenceStore().removePropertyChangeListener(fgPackageNamesListener);
+				fgPackageNamesListener= null;
+			}
+			fgPackageNames= null;
 		}
-
-		PackageNameAbbreviation[] abbrs= parseAbbreviationPattern(pattern);
-
-		if (abbrs == null)
-			abbrs= new PackageNameAbbreviation[0];
-
-		fgPkgNameAbbreviation= abbrs;
 	}
 
 	public static PackageNameAbbreviation[] parseAbbreviationPattern(String pattern) {
@@ -1593,29 +1829,5 @@ public class JavaElementLabelComposer {
 
 		return result.toArray(new PackageNameAbbreviation[0]);
 	}
-	
-	private boolean isPackageNameCompressionEnabled() {
-		IPreferenceStore store= PreferenceConstants.getPreferenceStore();
-		return store.getBoolean(PreferenceConstants.APPEARANCE_COMPRESS_PACKAGE_NAMES);
-	}
-
-	private String getPkgNamePatternForPackagesView() {
-		IPreferenceStore store= PreferenceConstants.getPreferenceStore();
-		if (!store.getBoolean(PreferenceConstants.APPEARANCE_COMPRESS_PACKAGE_NAMES))
-			return ""; //$NON-NLS-1$
-		return store.getString(PreferenceConstants.APPEARANCE_PKG_NAME_PATTERN_FOR_PKG_VIEW);
-	}
-
-	private boolean isPackageNameAbbreviationEnabled() {
-		IPreferenceStore store= PreferenceConstants.getPreferenceStore();
-		return store.getBoolean(PreferenceConstants.APPEARANCE_ABBREVIATE_PACKAGE_NAMES);
-	}
-
-	private String getPkgNameAbbreviationPatternForPackagesView() {
-		IPreferenceStore store= PreferenceConstants.getPreferenceStore();
-		if (!store.getBoolean(PreferenceConstants.APPEARANCE_ABBREVIATE_PACKAGE_NAMES))
-			return ""; //$NON-NLS-1$
-		return store.getString(PreferenceConstants.APPEARANCE_PKG_NAME_ABBREVIATION_PATTERN_FOR_PKG_VIEW);
-	}
 
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -30,6 +30,10 @@ import org.eclipse.jface.viewers.LabelProviderChangedEvent;
 import org.eclipse.jface.viewers.StyledCellLabelProvider;
 import org.eclipse.jface.viewers.StyledString;
 
+import org.eclipse.jdt.core.IJavaElement;
+
+import org.eclipse.jdt.internal.corext.util.Strings;
+
 import org.eclipse.jdt.ui.JavaElementLabels;
 
 public class JavaUILabelProvider implements ILabelProvider, IColorProvider, IStyledLabelProvider {
@@ -43,6 +47,7 @@ public class JavaUILabelProvider implements ILabelProvider, IColorProvider, ISty
 
 	private int fImageFlags;
 	private long fTextFlags;
+	private boolean fUseLabelCache;
 
 	/**
 	 * Creates a new label provider with default flags.
@@ -83,6 +88,18 @@ public class JavaUILabelProvider implements ILabelProvider, IColorProvider, ISty
 		fTextFlags= textFlags;
 	}
 
+	/**
+	 * Sets whether the labels of Java elements are taken from the shared
+	 * {@link JavaElementLabelCache}. Viewers that repaint many elements over and over should
+	 * use the cache.
+	 *
+	 * @param useLabelCache <code>true</code> to use the label cache
+	 * @since 3.14
+	 */
+	public final void setUseLabelCache(boolean useLabelCache) {
+		fUseLabelCache= useLabelCache;
+	}
+
 	/**
 	 * Sets the imageFlags
 	 * @param imageFlags The imageFlags to set
@@ -163,7 +180,11 @@ public class JavaUILabelProvider implements ILabelProvider, IColorProvider, ISty
 
 	@Override
 	public String getText(Object element) {
-		String result= JavaElementLabels.getTextLabel(element, evaluateTextFlags(element));
+		String result;
+		if (fUseLabelCache && element instanceof IJavaElement)
+			result= Strings.markJavaElementLabelLTR(JavaElementLabelCache.getDefault().getTextLabel((IJavaElement) element, evaluateTextFlags(element)));
+		else
+			result= JavaElementLabels.getTextLabel(element, evaluateTextFlags(element));
 		if (result.length() == 0 && (element instanceof IStorage)) {
 			result= fStorageLabelProvider.getText(element);
 		}
@@ -172,7 +193,11 @@ public class JavaUILabelProvider implements ILabelProvider, IColorProvider, ISty
 
 	@Override
 	public StyledString getStyledText(Object element) {
-		StyledString string= JavaElementLabels.getStyledTextLabel(element, (evaluateTextFlags(element) | JavaElementLabels.COLORIZE));
+		StyledString string;
+		if (fUseLabelCache && element instanceof IJavaElement)
+			string= Strings.markJavaElementLabelLTR(JavaElementLabelCache.getDefault().getStyledTextLabel((IJavaElement) element, evaluateTextFlags(element)));
+		else
+			string= JavaElementLabels.getStyledTextLabel(element, (evaluateTextFlags(element) | JavaElementLabels.COLORIZE));
 		if (string.length() == 0 && (element instanceof IStorage)) {
 			string= new StyledString(fStorageLabelProvider.getText(element));
 		}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2011 IBM Corporation and others.
+ * Copyright (c) 2006, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -24,11 +24,14 @@ import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.PerformanceStats;
 
 import org.eclipse.jface.preference.IPreferenceStore;
 
 import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.Position;
 import org.eclipse.jface.text.Region;
@@ -102,6 +105,25 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 		private LinkedHashMap<JavaProjectionAnnotation, Position> fMap= new LinkedHashMap<>();
 		private IScanner fScanner;
 
+		/**
+		 * The document range changed since the last update, or <code>null</code> if the whole
+		 * structure is computed.
+		 * @since 3.14
+		 */
+		private ChangedRange fChangedRange;
+		/**
+		 * The elements whose folding regions are recomputed by an incremental update.
+		 * @since 3.14
+		 */
+		private Set<IJavaElement> fAffectedElements;
+		/**
+		 * The elements added according to the element delta, their children are recomputed as well.
+		 * @since 3.14
+		 */
+		private Set<IJavaElement> fAddedElements;
+		private int fElementCount;
+		private int fComputedCount;
+
 		private FoldingStructureComputationContext(IDocument document, ProjectionAnnotationModel model, boolean allowCollapsing, IScanner scanner) {
 			Assert.isNotNull(document);
 			Assert.isNotNull(model);
@@ -159,6 +181,104 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 			return fModel;
 		}
 
+		/**
+		 * Restricts the computation to the elements affected by a change.
+		 *
+		 * @param changedRange the document range changed since the last update
+		 * @param delta the Java element delta of the input
+		 * @since 3.14
+		 */
+		private void setIncremental(ChangedRange changedRange, IJavaElementDelta delta) {
+			fChangedRange= changedRange;
+			fAffectedElements= new HashSet<>();
+			fAddedElements= new HashSet<>();
+			collectAffectedElements(delta.getAffectedChildren());
+			collectOverlappingElements();
+		}
+
+		/**
+		 * Collects the elements of the current folding regions that overlap the changed range.
+		 * This includes the elements that have been removed or renamed.
+		 */
+		private void collectOverlappingElements() {
+			Iterator<Annotation> e= fModel.getAnnotationIterator();
+			while (e.hasNext()) {
+				Annotation annotation= e.next();
+				if (annotation instanceof JavaProjectionAnnotation) {
+					Position position= fModel.getPosition(annotation);
+					if (position != null && (position.isDeleted() || fChangedRange.overlaps(position.getOffset(), position.getLength())))
+						fAffectedElements.add(((JavaProjectionAnnotation) annotation).getElement());
+				}
+			}
+		}
+
+		private void collectAffectedElements(IJavaElementDelta[] deltas) {
+			for (int i= 0; i < deltas.length; i++) {
+				IJavaElementDelta delta= deltas[i];
+				switch (delta.getKind()) {
+					case IJavaElementDelta.ADDED:
+						fAddedElements.add(delta.getElement());
+						fAffectedElements.add(delta.getElement());
+						break;
+					case IJavaElementDelta.REMOVED:
+						fAffectedElements.add(delta.getElement());
+						break;
+					default:
+						if ((delta.getFlags() & ~(IJavaElementDelta.F_CHILDREN | IJavaElementDelta.F_FINE_GRAINED | IJavaElementDelta.F_AST_AFFECTED)) != 0)
+							fAffectedElements.add(delta.getElement());
+						collectAffectedElements(delta.getAffectedChildren());
+				}
+			}
+		}
+
+		/**
+		 * Returns <code>true</code> if only the folding regions of the elements affected by a
+		 * change are computed.
+		 *
+		 * @return <code>true</code> for an incremental update
+		 * @since 3.14
+		 */
+		private boolean isIncremental() {
+			return fChangedRange != null;
+		}
+
+		/**
+		 * Returns whether the folding regions of an element have to be computed. Elements that are
+		 * in the element delta, that overlap the changed document range, or whose current folding
+		 * regions overlap it are affected. All elements are affected by a full update.
+		 * <p>
+		 * The header comment belongs to the first type. If the first type is not affected, it is
+		 * remembered here, so that the header comment is not computed for another type.
+		 * </p>
+		 *
+		 * @param element the element
+		 * @param inAddedElement <code>true</code> if the element is a descendant of an added
+		 *            element
+		 * @return <code>true</code> if the folding regions of the element have to be computed
+		 * @throws JavaModelException if the source range of the element cannot be accessed
+		 * @since 3.14
+		 */
+		private boolean isAffected(IJavaElement element, boolean inAddedElement) throws JavaModelException {
+			if (!isIncremental())
+				return true;
+			ISourceRange range= element instanceof ISourceReference ? ((ISourceReference) element).getSourceRange() : null;
+			boolean isAvailable= SourceRange.isAvailable(range);
+			boolean affected= inAddedElement || fAffectedElements.contains(element) || isAvailable && fChangedRange.overlaps(range.getOffset(), range.getLength());
+			if (!hasFirstType() && element.getElementType() == IJavaElement.TYPE) {
+				if (!affected && isAvailable && fChangedRange.overlaps(0, range.getOffset()))
+					affected= true;
+				if (!affected)
+					setFirstType((IType) element);
+			}
+			if (affected)
+				fAffectedElements.add(element);
+			return affected;
+		}
+
+		private boolean isAdded(IJavaElement element) {
+			return fAddedElements != null && fAddedElements.contains(element);
+		}
+
 		private IScanner getScanner() {
 			if (fScanner == null)
 				fScanner= ToolFactory.createScanner(true, false, false, false);
@@ -362,7 +482,7 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 
 				fUpdatingCount++;
 				try {
-					update(createContext(false));
+					update(createContext(false), delta);
 				} finally {
 					fUpdatingCount--;
 				}
@@ -655,6 +775,157 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 
 	}
 
+	/**
+	 * A document range, in the coordinates of the current document content.
+	 *
+	 * @since 3.14
+	 */
+	private static final class ChangedRange {
+		private int fStart= -1;
+		private int fEnd= -1;
+
+		ChangedRange() {
+		}
+
+		ChangedRange(ChangedRange range) {
+			fStart= range.fStart;
+			fEnd= range.fEnd;
+		}
+
+		boolean isEmpty() {
+			return fStart == -1;
+		}
+
+		void clear() {
+			fStart= -1;
+			fEnd= -1;
+		}
+
+		void add(ChangedRange range) {
+			if (range.isEmpty())
+				return;
+			if (isEmpty()) {
+				fStart= range.fStart;
+				fEnd= range.fEnd;
+			} else {
+				fStart= Math.min(fStart, range.fStart);
+				fEnd= Math.max(fEnd, range.fEnd);
+			}
+		}
+
+		/**
+		 * Adapts the range to a document change.
+		 *
+		 * @param offset the offset of the replaced text
+		 * @param length the length of the replaced text
+		 * @param textLength the length of the new text
+		 * @param addChange <code>true</code> to extend the range to the new text
+		 */
+		void update(int offset, int length, int textLength, boolean addChange) {
+			if (!isEmpty()) {
+				fStart= map(fStart, offset, length, textLength);
+				fEnd= map(fEnd, offset, length, textLength);
+			}
+			if (addChange) {
+				ChangedRange change= new ChangedRange();
+				change.fStart= offset;
+				change.fEnd= offset + textLength;
+				add(change);
+			}
+		}
+
+		private static int map(int position, int offset, int length, int textLength) {
+			if (position <= offset)
+				return position;
+			if (position >= offset + length)
+				return position - length + textLength;
+			return Math.min(position, offset + textLength);
+		}
+
+		/**
+		 * Returns whether the range overlaps or touches a region.
+		 *
+		 * @param offset the offset of the region
+		 * @param length the length of the region
+		 * @return <code>true</code> if the range overlaps or touches the region
+		 */
+		boolean overlaps(int offset, int length) {
+			return !isEmpty() && offset <= fEnd && offset + length >= fStart;
+		}
+
+		boolean coversHalf(IDocument document) {
+			return !isEmpty() && fEnd - fStart > document.getLength() / 2;
+		}
+	}
+
+	/**
+	 * Tracks the ranges of a document changed between folding structure updates.
+	 * <p>
+	 * The Java model of an update may be older than the document, as the document can change
+	 * while the reconciler computes the element delta. The changes consumed by an update are
+	 * therefore also reported to the next update, which sees them reconciled.
+	 * </p>
+	 *
+	 * @since 3.14
+	 */
+	private static final class ChangedRangeTracker implements IDocumentListener {
+		private IDocument fDocument;
+		/** <code>true</code> once a full update has consumed the changes */
+		private boolean fIsKnown;
+		/** The changes since the last update */
+		private final ChangedRange fChanged= new ChangedRange();
+		/** The changes consumed by the last update */
+		private final ChangedRange fConsumed= new ChangedRange();
+
+		synchronized void connect(IDocument document) {
+			if (document != fDocument) {
+				disconnect();
+				fDocument= document;
+				if (document != null)
+					document.addDocumentListener(this);
+			}
+		}
+
+		synchronized void disconnect() {
+			if (fDocument != null) {
+				fDocument.removeDocumentListener(this);
+				fDocument= null;
+			}
+			fIsKnown= false;
+			fChanged.clear();
+			fConsumed.clear();
+		}
+
+		/**
+		 * Returns the range changed since the last but one update and starts a new interval.
+		 *
+		 * @return the changed range, or <code>null</code> if the changes are not known
+		 */
+		synchronized ChangedRange consume() {
+			ChangedRange result= null;
+			if (fIsKnown) {
+				result= new ChangedRange(fConsumed);
+				result.add(fChanged);
+			}
+			fConsumed.clear();
+			fConsumed.add(fChanged);
+			fChanged.clear();
+			fIsKnown= fDocument != null;
+			return result;
+		}
+
+		@Override
+		public void documentAboutToBeChanged(DocumentEvent event) {
+		}
+
+		@Override
+		public synchronized void documentChanged(DocumentEvent event) {
+			int textLength= event.getText() == null ? 0 : event.getText().length();
+			fConsumed.update(event.getOffset(), event.getLength(), textLength, false);
+			fChanged.update(event.getOffset(), event.getLength(), textLength, true);
+		}
+	}
+
 	/**
 	 * Internal projection listener.
 	 */
@@ -699,6 +970,10 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 		}
 	}
 
+	private static final String PERFORMANCE_EVENT= JavaPlugin.getPluginId() + "/perf/folding/update"; //$NON-NLS-1$
+
+	private static final boolean MEASURE_PERFORMANCE= PerformanceStats.isEnabled(PERFORMANCE_EVENT);
+
 	/* context and listeners */
 	private JavaEditor fEditor;
 	private ProjectionListener fProjectionListener;
@@ -726,6 +1001,12 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 
 	private volatile int fUpdatingCount= 0;
 
+	/**
+	 * Tracks the document ranges changed between updates.
+	 * @since 3.14
+	 */
+	private final ChangedRangeTracker fChangedRangeTracker= new ChangedRangeTracker();
+
 	/**
 	 * Creates a new folding provider. It must be
 	 * {@link #install(ITextEditor, ProjectionViewer) installed} on an editor/viewer pair before it
@@ -830,6 +1111,7 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 			JavaCore.removeElementChangedListener(fElementListener);
 			fElementListener= null;
 		}
+		fChangedRangeTracker.disconnect();
 	}
 
 	/*
@@ -839,7 +1121,9 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 	public final void initialize() {
 		fUpdatingCount++;
 		try {
-			update(createInitialContext());
+			if (isInstalled())
+				fChangedRangeTracker.connect(getDocument());
+			update(createInitialContext(), null);
 		} finally {
 			fUpdatingCount--;
 		}
@@ -886,10 +1170,24 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 		fCollapseHeaderComments= store.getBoolean(PreferenceConstants.EDITOR_FOLDING_HEADERS);
 	}
 
-	private void update(FoldingStructureComputationContext ctx) {
+	/**
+	 * Updates the folding structure. The regions of the elements that are not affected by the
+	 * changes since the last update are kept if the update is caused by an element delta of a
+	 * compilation unit.
+	 *
+	 * @param ctx the computation context, or <code>null</code>
+	 * @param delta the element delta of the input, or <code>null</code> to compute the whole
+	 *            structure
+	 */
+	private void update(FoldingStructureComputationContext ctx, IJavaElementDelta delta) {
 		if (ctx == null)
 			return;
 
+		long start= System.currentTimeMillis();
+		ChangedRange changedRange= fChangedRangeTracker.consume();
+		if (delta != null && changedRange != null && fInput instanceof ICompilationUnit && !changedRange.coversHalf(ctx.getDocument()))
+			ctx.setIncremental(changedRange, delta);
+
 		Map<JavaProjectionAnnotation, Position> additions= new HashMap<>();
 		List<JavaProjectionAnnotation> deletions= new ArrayList<>();
 		List<JavaProjectionAnnotation> updates= new ArrayList<>();
@@ -965,8 +1263,20 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 		ctx.getModel().modifyAnnotations(deletedArray, additions, changedArray);
 
 		ctx.fScanner.setSource(null);
+
+		reportUpdate(ctx, System.currentTimeMillis() - start);
     }
 
+	private void reportUpdate(FoldingStructureComputationContext ctx, long time) {
+		String kind= ctx.isIncremental() ? "incremental" : "full"; //$NON-NLS-1$ //$NON-NLS-2$
+		if (MEASURE_PERFORMANCE)
+			PerformanceStats.getStats(PERFORMANCE_EVENT, this).addRun(time, kind);
+		if (JavaPlugin.DEBUG_FOLDING) {
+			System.out.println("DefaultJavaFoldingStructureProvider: " + kind + " update of " + fInput.getElementName() + " computed " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					+ ctx.fComputedCount + " of " + ctx.fElementCount + " elements in " + time + " ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+	}
+
 	private void computeFoldingStructure(FoldingStructureComputationContext ctx) {
 		IParent parent= (IParent) fInput;
 		try {
@@ -977,20 +1287,24 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 				return;
 
 			ctx.getScanner().setSource(source.toCharArray());
-			computeFoldingStructure(parent.getChildren(), ctx);
+			computeFoldingStructure(parent.getChildren(), ctx, false);
 		} catch (JavaModelException x) {
 		}
 	}
 
-	private void computeFoldingStructure(IJavaElement[] elements, FoldingStructureComputationContext ctx) throws JavaModelException {
+	private void computeFoldingStructure(IJavaElement[] elements, FoldingStructureComputationContext ctx, boolean inAddedElement) throws JavaModelException {
 		for (int i= 0; i < elements.length; i++) {
 			IJavaElement element= elements[i];
 
-			computeFoldingStructure(element, ctx);
+			ctx.fElementCount++;
+			if (ctx.isAffected(element, inAddedElement)) {
+				ctx.fComputedCount++;
+				computeFoldingStructure(element, ctx);
+			}
 
 			if (element instanceof IParent) {
 				IParent parent= (IParent) element;
-				computeFoldingStructure(parent.getChildren(), ctx);
+				computeFoldingStructure(parent.getChildren(), ctx, inAddedElement || ctx.isAdded(element));
 			}
 		}
 	}
@@ -1397,6 +1711,8 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 			Object annotation= e.next();
 			if (annotation instanceof JavaProjectionAnnotation) {
 				JavaProjectionAnnotation java= (JavaProjectionAnnotation) annotation;
+				if (ctx.isIncremental() && !ctx.fAffectedElements.contains(java.getElement()))
+					continue; // kept as is
 				Position position= model.getPosition(java);
 				Assert.isNotNull(position);
 				List<Tuple> list= map.get(java.getElement());
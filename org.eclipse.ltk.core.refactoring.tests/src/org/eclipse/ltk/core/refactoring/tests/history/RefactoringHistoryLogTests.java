@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests.history;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.filesystem.EFS;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptor;
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
+import org.eclipse.ltk.core.refactoring.RefactoringSessionDescriptor;
+import org.eclipse.ltk.internal.core.refactoring.history.DefaultRefactoringDescriptor;
+import org.eclipse.ltk.internal.core.refactoring.history.DefaultRefactoringDescriptorProxy;
+import org.eclipse.ltk.internal.core.refactoring.history.RefactoringHistoryLog;
+import org.eclipse.ltk.internal.core.refactoring.history.RefactoringHistoryManager;
+import org.eclipse.ltk.internal.core.refactoring.history.RefactoringHistoryService;
+
+public class RefactoringHistoryLogTests extends TestCase {
+
+	private static final String PROJECT_NAME= "LogProject";
+
+	private static void delete(File file) {
+		File[] children= file.listFiles();
+		if (children != null) {
+			for (int index= 0; index < children.length; index++)
+				delete(children[index]);
+		}
+		file.delete();
+	}
+
+	private static RefactoringDescriptor createDescriptor(int index, long stamp) {
+		Map<String, String> arguments= new HashMap<>();
+		arguments.put("element", "element" + index);
+		arguments.put("name", "name" + index);
+		RefactoringDescriptor descriptor= new DefaultRefactoringDescriptor("org.eclipse.ltk.core.log.test", null, "Log refactoring " + index, null, arguments, RefactoringDescriptor.STRUCTURAL_CHANGE);
+		descriptor.setTimeStamp(stamp);
+		return descriptor;
+	}
+
+	private static void assertDescriptor(RefactoringDescriptor expected, RefactoringDescriptor actual) {
+		assertNotNull("Descriptor should be resolved", actual);
+		assertEquals("Wrong time stamp", expected.getTimeStamp(), actual.getTimeStamp());
+		assertEquals("Wrong id", expected.getID(), actual.getID());
+		assertEquals("Wrong description", expected.getDescription(), actual.getDescription());
+		assertEquals("Wrong flags", expected.getFlags(), actual.getFlags());
+		assertEquals("Wrong project", PROJECT_NAME, actual.getProject());
+		assertEquals("Wrong arguments", RefactoringHistoryManager.getArgumentMap(expected), RefactoringHistoryManager.getArgumentMap(actual));
+	}
+
+	private File fFolder;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fFolder= new File(System.getProperty("java.io.tmpdir"), "RefactoringHistoryLogTests");
+		delete(fFolder);
+		assertTrue("Could not create history folder.", fFolder.mkdirs());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		delete(fFolder);
+		super.tearDown();
+	}
+
+	private RefactoringHistoryLog createLog(int count) throws Exception {
+		RefactoringHistoryLog log= new RefactoringHistoryLog(fFolder, PROJECT_NAME);
+		for (int index= 0; index < count; index++) {
+			RefactoringDescriptor descriptor= createDescriptor(index, 1000 + index);
+			log.addRefactoringDescriptor(descriptor, RefactoringHistoryManager.getArgumentMap(descriptor));
+		}
+		return log;
+	}
+
+	private List<RefactoringDescriptorProxy> readProxies(RefactoringHistoryLog log, long start, long end) throws Exception {
+		List<RefactoringDescriptorProxy> list= new ArrayList<>();
+		log.readRefactoringDescriptorProxies(start, end, list);
+		return list;
+	}
+
+	public void testAddAndRead0() throws Exception {
+		RefactoringHistoryLog log= createLog(50);
+		assertTrue("Log should exist", log.exists());
+		List<RefactoringDescriptorProxy> proxies= readProxies(log, 1010, 1019);
+		assertEquals("Wrong number of proxies in time range", 10, proxies.size());
+		for (int index= 0; index < proxies.size(); index++) {
+			RefactoringDescriptorProxy proxy= proxies.get(index);
+			assertEquals("Wrong time stamp", 1010 + index, proxy.getTimeStamp());
+			assertEquals("Wrong description", "Log refactoring " + (10 + index), proxy.getDescription());
+			assertEquals("Wrong project", PROJECT_NAME, proxy.getProject());
+		}
+		assertEquals("Wrong number of proxies", 50, readProxies(log, 0, Long.MAX_VALUE).size());
+	}
+
+	public void testAddAndRead1() throws Exception {
+		RefactoringHistoryLog log= createLog(10);
+		RefactoringDescriptor earlier= createDescriptor(99, 500);
+		log.addRefactoringDescriptor(earlier, RefactoringHistoryManager.getArgumentMap(earlier));
+		assertEquals("Wrong number of proxies", 11, readProxies(log, 0, Long.MAX_VALUE).size());
+		List<RefactoringDescriptorProxy> proxies= readProxies(log, 0, 999);
+		assertEquals("Wrong number of proxies in time range", 1, proxies.size());
+		assertEquals("Wrong time stamp", 500, proxies.get(0).getTimeStamp());
+	}
+
+	public void testRequestDescriptor0() throws Exception {
+		RefactoringHistoryLog log= createLog(20);
+		assertDescriptor(createDescriptor(7, 1007), log.requestDescriptor(1007));
+		assertNull("Descriptor should not exist", log.requestDescriptor(2000));
+	}
+
+	public void testRemoveDescriptors0() throws Exception {
+		RefactoringHistoryLog log= createLog(20);
+		log.removeRefactoringDescriptors(new RefactoringDescriptorProxy[] { new DefaultRefactoringDescriptorProxy("Log refactoring 3", PROJECT_NAME, 1003), new DefaultRefactoringDescriptorProxy("Log refactoring 4", PROJECT_NAME, 1004) });
+		assertEquals("Wrong number of proxies", 18, readProxies(log, 0, Long.MAX_VALUE).size());
+		assertNull("Descriptor should have been removed", log.requestDescriptor(1003));
+		assertNotNull("Descriptor should still exist", log.requestDescriptor(1005));
+	}
+
+	public void testRemoveDescriptors1() throws Exception {
+		RefactoringHistoryLog log= createLog(20);
+		log.removeRefactoringDescriptors(new RefactoringDescriptorProxy[] { new DefaultRefactoringDescriptorProxy("Log refactoring 3", PROJECT_NAME, 1003) });
+		log.setComment(1004, "A comment");
+		new FileOutputStream(new File(fFolder, RefactoringHistoryLog.NAME_LOG_INDEX_FILE)).close();
+		assertEquals("Wrong number of proxies after rebuild", 19, readProxies(log, 0, Long.MAX_VALUE).size());
+		assertNull("Removed descriptor should not be restored", log.requestDescriptor(1003));
+		assertEquals("Wrong comment after rebuild", "A comment", log.requestDescriptor(1004).getComment());
+	}
+
+	public void testRemoveDescriptors2() throws Exception {
+		RefactoringHistoryLog log= createLog(10);
+		log.removeRefactoringDescriptors(new RefactoringDescriptorProxy[] { new DefaultRefactoringDescriptorProxy("Log refactoring 3", PROJECT_NAME, 1003) });
+		RefactoringDescriptor descriptor= createDescriptor(3, 1003);
+		log.addRefactoringDescriptor(descriptor, RefactoringHistoryManager.getArgumentMap(descriptor));
+		new FileOutputStream(new File(fFolder, RefactoringHistoryLog.NAME_LOG_INDEX_FILE)).close();
+		assertEquals("Wrong number of proxies after rebuild", 10, readProxies(log, 0, Long.MAX_VALUE).size());
+		assertDescriptor(descriptor, log.requestDescriptor(1003));
+	}
+
+	public void testCompaction0() throws Exception {
+		RefactoringHistoryLog log= createLog(3000);
+		File index= new File(fFolder, RefactoringHistoryLog.NAME_LOG_INDEX_FILE);
+		assertTrue("Index should be memory-mapped", index.length() >= 64 * 1024);
+		List<RefactoringDescriptorProxy> proxies= readProxies(log, 1000, 3499);
+		log.removeRefactoringDescriptors(proxies.toArray(new RefactoringDescriptorProxy[proxies.size()]));
+		assertTrue("Index should have been compacted", index.length() < 64 * 1024);
+		assertFalse("Temporary index should have been replaced", new File(index.getPath() + ".tmp").exists());
+		assertEquals("Wrong number of proxies", 500, readProxies(log, 0, Long.MAX_VALUE).size());
+		assertDescriptor(createDescriptor(2999, 3999), log.requestDescriptor(3999));
+	}
+
+	public void testReadDescriptors0() throws Exception {
+		RefactoringHistoryLog log= createLog(5);
+		log.removeRefactoringDescriptors(new RefactoringDescriptorProxy[] { new DefaultRefactoringDescriptorProxy("Log refactoring 1", PROJECT_NAME, 1001) });
+		RefactoringDescriptor[] descriptors= log.readRefactoringDescriptors();
+		assertEquals("Wrong number of descriptors", 4, descriptors.length);
+		assertDescriptor(createDescriptor(0, 1000), descriptors[0]);
+		assertDescriptor(createDescriptor(4, 1004), descriptors[3]);
+		log.delete();
+		assertFalse("Log should have been deleted", log.exists());
+		assertEquals("Wrong number of descriptors", 0, log.readRefactoringDescriptors().length);
+	}
+
+	public void testSetComment0() throws Exception {
+		RefactoringHistoryLog log= createLog(5);
+		log.setComment(1002, "A comment");
+		assertEquals("Wrong comment", "A comment", log.requestDescriptor(1002).getComment());
+		assertEquals("Comment should be unchanged", "", log.requestDescriptor(1001).getComment());
+		assertEquals("Wrong number of proxies", 5, readProxies(log, 0, Long.MAX_VALUE).size());
+	}
+
+	public void testMigrate0() throws Exception {
+		RefactoringDescriptor[] descriptors= new RefactoringDescriptor[] { createDescriptor(0, 1000), createDescriptor(1, 1001), createDescriptor(2, 1002) };
+		File folder= new File(fFolder, RefactoringHistoryManager.stampToPath(1000).toOSString());
+		assertTrue("Could not create history part.", folder.mkdirs());
+		try (OutputStream stream= new FileOutputStream(new File(folder, RefactoringHistoryService.NAME_HISTORY_FILE))) {
+			RefactoringHistoryManager.writeRefactoringSession(stream, new RefactoringSessionDescriptor(descriptors, RefactoringSessionDescriptor.VERSION_1_0, null), true);
+		}
+		RefactoringHistoryLog log= new RefactoringHistoryLog(fFolder, PROJECT_NAME);
+		assertFalse("Log should not exist", log.exists());
+		log.migrate(EFS.getLocalFileSystem().fromLocalFile(fFolder), new NullProgressMonitor());
+		assertTrue("Log should exist", log.exists());
+		assertEquals("Wrong number of proxies", 3, readProxies(log, 0, Long.MAX_VALUE).size());
+		assertDescriptor(descriptors[1], log.requestDescriptor(1001));
+	}
+}
@@ -0,0 +1,1059 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.internal.core.refactoring.history;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileInfo;
+import org.eclipse.core.filesystem.IFileStore;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubProgressMonitor;
+
+import org.eclipse.ltk.core.refactoring.IRefactoringCoreStatusCodes;
+import org.eclipse.ltk.core.refactoring.RefactoringCore;
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptor;
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCoreMessages;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringPreferenceConstants;
+
+/**
+ * Binary, append-only store for persistable refactoring histories.
+ * <p>
+ * The store consists of a log file holding one length-prefixed record per
+ * refactoring descriptor, and an index file holding fixed-width entries of the
+ * form <code>(time stamp, offset, length, state)</code>. As long as descriptors
+ * are added in chronological order, the index is sorted by time stamp and time
+ * range queries are answered by a binary search over the index. Reading proxies only decodes the descriptions of the records; the
+ * arguments are decoded when the descriptor itself is requested.
+ * </p>
+ * <p>
+ * Removing a descriptor appends a removal record to the log and marks the old
+ * record as obsolete in the index; changing its comment appends a new record
+ * superseding the old one. Rebuilding the index from the log replays these
+ * records in order. The log is compacted once obsolete records dominate its
+ * size. The existing XML history layout can be migrated with
+ * {@link #migrate(IFileStore, IProgressMonitor)}; the XML files are left in
+ * place and are not maintained while the log is in use.
+ * </p>
+ * <p>
+ * Logs are only used for the workspace-private history locations. Shared
+ * project histories are kept under version control and stay in the XML layout.
+ * </p>
+ *
+ * @since 3.8.100
+ */
+public final class RefactoringHistoryLog {
+
+	/**
+	 * A decoded log record.
+	 */
+	private static final class LogRecord {
+
+		/** The argument map, or <code>null</code> if not decoded */
+		private final Map<String, String> fArguments;
+
+		/** The comment, or <code>null</code> */
+		private final String fComment;
+
+		/** The description */
+		private final String fDescription;
+
+		/** The flags */
+		private final int fFlags;
+
+		/** The refactoring id, or <code>null</code> if not decoded */
+		private final String fId;
+
+		/** The project, or <code>null</code> */
+		private final String fProject;
+
+		/** The time stamp */
+		private final long fStamp;
+
+		/**
+		 * Creates a new log record.
+		 *
+		 * @param stamp
+		 *            the time stamp
+		 * @param description
+		 *            the description
+		 * @param project
+		 *            the project, or <code>null</code>
+		 * @param id
+		 *            the refactoring id
+		 * @param comment
+		 *            the comment, or <code>null</code>
+		 * @param flags
+		 *            the flags
+		 * @param arguments
+		 *            the argument map
+		 */
+		LogRecord(final long stamp, final String description, final String project, final String id, final String comment, final int flags, final Map<String, String> arguments) {
+			fStamp= stamp;
+			fDescription= description;
+			fProject= project;
+			fId= id;
+			fComment= comment;
+			fFlags= flags;
+			fArguments= arguments;
+		}
+
+		/**
+		 * Creates a removal record for the specified time stamp.
+		 *
+		 * @param stamp
+		 *            the time stamp of the removed descriptor
+		 * @return the removal record
+		 */
+		static LogRecord removal(final long stamp) {
+			return new LogRecord(stamp, null, null, null, null, 0, Collections.<String, String> emptyMap());
+		}
+
+		/**
+		 * Returns whether this record denotes the removal of the descriptor
+		 * with its time stamp. Descriptors always have a description, removal
+		 * records never have one.
+		 *
+		 * @return <code>true</code> if this is a removal record,
+		 *         <code>false</code> otherwise
+		 */
+		boolean isRemoval() {
+			return fDescription == null;
+		}
+
+		/**
+		 * Creates a copy of this record with the specified comment.
+		 *
+		 * @param comment
+		 *            the comment, or <code>null</code>
+		 * @return the new record
+		 */
+		LogRecord withComment(final String comment) {
+			return new LogRecord(fStamp, fDescription, fProject, fId, comment, fFlags, fArguments);
+		}
+
+		/**
+		 * Encodes this record including its length prefix.
+		 *
+		 * @return the encoded record
+		 * @throws IOException
+		 *             if an error occurs while encoding
+		 */
+		byte[] encode() throws IOException {
+			final ByteArrayOutputStream bytes= new ByteArrayOutputStream(256);
+			final DataOutputStream output= new DataOutputStream(bytes);
+			output.writeInt(0);
+			output.writeLong(fStamp);
+			writeString(output, fDescription);
+			writeString(output, fProject);
+			writeString(output, fId);
+			writeString(output, fComment);
+			output.writeInt(fFlags);
+			output.writeInt(fArguments.size());
+			for (final Iterator<Entry<String, String>> iterator= fArguments.entrySet().iterator(); iterator.hasNext();) {
+				final Entry<String, String> entry= iterator.next();
+				writeString(output, entry.getKey());
+				writeString(output, entry.getValue());
+			}
+			output.flush();
+			final byte[] result= bytes.toByteArray();
+			ByteBuffer.wrap(result).putInt(result.length - 4);
+			return result;
+		}
+
+		/**
+		 * Materializes the refactoring descriptor of this record.
+		 *
+		 * @param project
+		 *            the project to use if the record does not specify one,
+		 *            or <code>null</code>
+		 * @return the refactoring descriptor
+		 */
+		RefactoringDescriptor toDescriptor(final String project) {
+			final RefactoringDescriptor descriptor= RefactoringContributionManager.getInstance().createDescriptor(fId, fProject != null ? fProject : project, fDescription, fComment, fArguments, fFlags);
+			descriptor.setTimeStamp(fStamp);
+			return descriptor;
+		}
+	}
+
+	/** The log file name */
+	public static final String NAME_LOG_FILE= "refactorings.log"; //$NON-NLS-1$
+
+	/** The log index file name */
+	public static final String NAME_LOG_INDEX_FILE= "refactorings.log.index"; //$NON-NLS-1$
+
+	/** The length of a file header: magic, version, generation and flags */
+	private static final int HEADER_LENGTH= 16;
+
+	/** The length of an index entry: time stamp, offset, length and state */
+	private static final int ENTRY_LENGTH= 24;
+
+	/** The offset of the generation in the file header */
+	private static final int OFFSET_GENERATION= 8;
+
+	/** The offset of the flags in the file header */
+	private static final int OFFSET_FLAGS= 12;
+
+	/** The index flag denoting entries not in ascending time stamp order */
+	private static final int FLAG_UNSORTED= 1;
+
+	/** The magic number of the log file */
+	private static final int MAGIC_LOG= 0x52484C47;
+
+	/** The magic number of the index file */
+	private static final int MAGIC_INDEX= 0x52484958;
+
+	/** The format version of both files */
+	private static final int FORMAT_VERSION= 1;
+
+	/** The state of a live index entry */
+	private static final int STATE_LIVE= 0;
+
+	/** The state of an obsolete index entry */
+	private static final int STATE_OBSOLETE= 1;
+
+	/** The log size in bytes from which the log may be compacted */
+	private static final int COMPACTION_THRESHOLD= 256 * 1024;
+
+	/** The number of bytes read to decode the description of a record */
+	private static final int PREFIX_LENGTH= 256;
+
+	/** The suffix of temporary files */
+	private static final String SUFFIX_TEMPORARY= ".tmp"; //$NON-NLS-1$
+
+	/** The UTF-8 character set */
+	private static final Charset UTF_8= Charset.forName("UTF-8"); //$NON-NLS-1$
+
+	/** The lock guarding all history logs */
+	private static final Object fgLock= new Object();
+
+	/**
+	 * Returns a history log for the specified workspace-private history
+	 * location.
+	 * <p>
+	 * The log is returned regardless of whether binary refactoring histories
+	 * are enabled, so that an existing log can be written back into the XML
+	 * layout once they have been disabled.
+	 * </p>
+	 *
+	 * @param store
+	 *            the file store describing the history location
+	 * @param project
+	 *            the non-empty name of the project, or <code>null</code> for
+	 *            the workspace
+	 * @return the history log, or <code>null</code> if the store is not local
+	 */
+	public static RefactoringHistoryLog create(final IFileStore store, final String project) {
+		try {
+			final File folder= store.toLocalFile(EFS.NONE, null);
+			if (folder != null)
+				return new RefactoringHistoryLog(folder, project);
+		} catch (CoreException exception) {
+			// Not a local store
+		}
+		return null;
+	}
+
+	/**
+	 * Creates a new core exception representing an I/O error.
+	 *
+	 * @param exception
+	 *            the throwable to wrap
+	 * @return the core exception
+	 */
+	private static CoreException createCoreException(final Throwable exception) {
+		return new CoreException(new Status(IStatus.ERROR, RefactoringCore.ID_PLUGIN, IRefactoringCoreStatusCodes.REFACTORING_HISTORY_IO_ERROR, exception.getLocalizedMessage(), exception));
+	}
+
+	/**
+	 * Returns whether binary refactoring histories are enabled.
+	 *
+	 * @return <code>true</code> if enabled, <code>false</code> otherwise
+	 */
+	public static boolean isEnabled() {
+		return Platform.getPreferencesService().getBoolean(RefactoringCorePlugin.getPluginId(), RefactoringPreferenceConstants.PREFERENCE_BINARY_REFACTORING_HISTORY, false, null);
+	}
+
+	private static void readFully(final FileChannel channel, final ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			final int read= channel.read(buffer, position);
+			if (read < 0)
+				throw new IOException("Unexpected end of refactoring history log"); //$NON-NLS-1$
+			position+= read;
+		}
+	}
+
+	private static String readString(final ByteBuffer buffer) {
+		final int length= buffer.getInt();
+		if (length < 0)
+			return null;
+		final byte[] bytes= new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	private static void writeFully(final FileChannel channel, final ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining())
+			position+= channel.write(buffer, position);
+	}
+
+	private static void writeString(final DataOutputStream output, final String string) throws IOException {
+		if (string == null) {
+			output.writeInt(-1);
+		} else {
+			final byte[] bytes= string.getBytes(UTF_8);
+			output.writeInt(bytes.length);
+			output.write(bytes);
+		}
+	}
+
+	/** The index file */
+	private final File fIndexFile;
+
+	/** The log file */
+	private final File fLogFile;
+
+	/**
+	 * The non-empty name of the project, or <code>null</code> for the
+	 * workspace
+	 */
+	private final String fProjectName;
+
+	/**
+	 * Creates a new refactoring history log.
+	 *
+	 * @param folder
+	 *            the history folder
+	 * @param project
+	 *            the non-empty name of the project, or <code>null</code> for
+	 *            the workspace
+	 */
+	public RefactoringHistoryLog(final File folder, final String project) {
+		fLogFile= new File(folder, NAME_LOG_FILE);
+		fIndexFile= new File(folder, NAME_LOG_INDEX_FILE);
+		fProjectName= project;
+	}
+
+	/**
+	 * Adds the specified refactoring descriptor to the log.
+	 *
+	 * @param descriptor
+	 *            the refactoring descriptor
+	 * @param arguments
+	 *            the argument map of the descriptor, or <code>null</code>
+	 * @throws CoreException
+	 *             if an error occurs while adding the descriptor
+	 */
+	public void addRefactoringDescriptor(final RefactoringDescriptor descriptor, final Map<String, String> arguments) throws CoreException {
+		final Map<String, String> map= arguments != null ? arguments : Collections.<String, String> emptyMap();
+		final String comment= descriptor.getComment();
+		final LogRecord record= new LogRecord(descriptor.getTimeStamp(), descriptor.getDescription(), null, descriptor.getID(), !"".equals(comment) ? comment : null, descriptor.getFlags(), map); //$NON-NLS-1$
+		synchronized (fgLock) {
+			try {
+				if (!exists())
+					writeStore(Collections.<LogRecord> emptyList(), (int) System.currentTimeMillis());
+				else
+					checkConsistency();
+				append(record, -1);
+			} catch (IOException exception) {
+				throw createCoreException(exception);
+			}
+		}
+	}
+
+	/**
+	 * Appends the specified record to the log and either adds a new index
+	 * entry or redirects an existing one.
+	 *
+	 * @param record
+	 *            the record to append
+	 * @param entry
+	 *            the index entry to redirect, or <code>-1</code> to add a new
+	 *            entry
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	private void append(final LogRecord record, final int entry) throws IOException {
+		final byte[] bytes= record.encode();
+		final long offset;
+		try (FileChannel log= FileChannel.open(fLogFile.toPath(), StandardOpenOption.WRITE)) {
+			offset= log.size();
+			writeFully(log, ByteBuffer.wrap(bytes), offset);
+		}
+		try (FileChannel index= FileChannel.open(fIndexFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			if (entry < 0) {
+				final long size= HEADER_LENGTH + getEntryCount(index.size()) * (long) ENTRY_LENGTH;
+				if (size > HEADER_LENGTH) {
+					final ByteBuffer previous= ByteBuffer.allocate(8);
+					readFully(index, previous, size - ENTRY_LENGTH);
+					if (previous.getLong(0) > record.fStamp) {
+						final ByteBuffer flags= ByteBuffer.allocate(4);
+						readFully(index, flags, OFFSET_FLAGS);
+						flags.putInt(0, flags.getInt(0) | FLAG_UNSORTED);
+						flags.rewind();
+						writeFully(index, flags, OFFSET_FLAGS);
+					}
+				}
+				final ByteBuffer buffer= ByteBuffer.allocate(ENTRY_LENGTH);
+				buffer.putLong(record.fStamp).putLong(offset).putInt(bytes.length).putInt(STATE_LIVE);
+				buffer.flip();
+				writeFully(index, buffer, size);
+			} else {
+				final ByteBuffer buffer= ByteBuffer.allocate(12);
+				buffer.putLong(offset).putInt(bytes.length);
+				buffer.flip();
+				writeFully(index, buffer, HEADER_LENGTH + entry * (long) ENTRY_LENGTH + 8);
+			}
+		}
+	}
+
+	/**
+	 * Appends removal records for the specified time stamps to the log.
+	 *
+	 * @param stamps
+	 *            the time stamps of the removed descriptors
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	private void appendRemovals(final Collection<Long> stamps) throws IOException {
+		final ByteArrayOutputStream bytes= new ByteArrayOutputStream(stamps.size() * 40);
+		for (final Iterator<Long> iterator= stamps.iterator(); iterator.hasNext();)
+			bytes.write(LogRecord.removal(iterator.next().longValue()).encode());
+		try (FileChannel log= FileChannel.open(fLogFile.toPath(), StandardOpenOption.WRITE)) {
+			writeFully(log, ByteBuffer.wrap(bytes.toByteArray()), log.size());
+		}
+	}
+
+	/**
+	 * Checks the headers of the log and index files and rebuilds the index
+	 * if it does not belong to the log.
+	 *
+	 * @throws IOException
+	 *             if an input/output error occurs or the format is not
+	 *             supported
+	 */
+	private void checkConsistency() throws IOException {
+		final int log;
+		try (FileChannel channel= FileChannel.open(fLogFile.toPath(), StandardOpenOption.READ)) {
+			final ByteBuffer buffer= ByteBuffer.allocate(HEADER_LENGTH);
+			readFully(channel, buffer, 0);
+			log= checkHeader(buffer, MAGIC_LOG);
+		}
+		int index= log + 1;
+		try (FileChannel channel= FileChannel.open(fIndexFile.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() >= HEADER_LENGTH) {
+				final ByteBuffer buffer= ByteBuffer.allocate(HEADER_LENGTH);
+				readFully(channel, buffer, 0);
+				index= checkHeader(buffer, MAGIC_INDEX);
+			}
+		}
+		if (index != log)
+			writeStore(readLog(), log + 1);
+	}
+
+	/**
+	 * Checks the specified file header.
+	 *
+	 * @param buffer
+	 *            the buffer containing the header
+	 * @param magic
+	 *            the expected magic number
+	 * @return the generation of the file
+	 * @throws IOException
+	 *             if the header is invalid
+	 */
+	private int checkHeader(final ByteBuffer buffer, final int magic) throws IOException {
+		if (buffer.getInt(0) != magic || buffer.getInt(4) != FORMAT_VERSION)
+			throw new IOException("Unsupported refactoring history log format: " + fLogFile); //$NON-NLS-1$
+		return buffer.getInt(OFFSET_GENERATION);
+	}
+
+	/**
+	 * Compacts the log if obsolete records dominate its size.
+	 *
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	private void compactIfNecessary() throws IOException {
+		final long size= fLogFile.length();
+		if (size < COMPACTION_THRESHOLD)
+			return;
+		long live= 0;
+		final List<LogRecord> records= new ArrayList<>();
+		try (FileChannel index= FileChannel.open(fIndexFile.toPath(), StandardOpenOption.READ); FileChannel log= FileChannel.open(fLogFile.toPath(), StandardOpenOption.READ)) {
+			final ByteBuffer buffer= readIndex(index);
+			final int count= getEntryCount(buffer.limit());
+			for (int entry= 0; entry < count; entry++) {
+				final int position= HEADER_LENGTH + entry * ENTRY_LENGTH;
+				if (buffer.getInt(position + 20) == STATE_LIVE)
+					live+= buffer.getInt(position + 16);
+			}
+			if (live * 2 > size)
+				return;
+			for (int entry= 0; entry < count; entry++) {
+				final int position= HEADER_LENGTH + entry * ENTRY_LENGTH;
+				if (buffer.getInt(position + 20) == STATE_LIVE)
+					records.add(readRecord(log, buffer.getLong(position + 8), buffer.getInt(position + 16), true));
+			}
+		}
+		writeStore(records, readGeneration() + 1);
+	}
+
+	/**
+	 * Deletes the log and its index.
+	 */
+	public void delete() {
+		synchronized (fgLock) {
+			fIndexFile.delete();
+			fLogFile.delete();
+		}
+	}
+
+	/**
+	 * Returns whether the log exists on disk.
+	 *
+	 * @return <code>true</code> if the log exists, <code>false</code>
+	 *         otherwise
+	 */
+	public boolean exists() {
+		return fLogFile.isFile() && fIndexFile.isFile();
+	}
+
+	/**
+	 * Returns the index of the live entry with the specified time stamp.
+	 *
+	 * @param buffer
+	 *            the index buffer
+	 * @param stamp
+	 *            the time stamp
+	 * @return the entry index, or <code>-1</code>
+	 */
+	private int findEntry(final ByteBuffer buffer, final long stamp) {
+		final int count= getEntryCount(buffer.limit());
+		final boolean sorted= (buffer.getInt(OFFSET_FLAGS) & FLAG_UNSORTED) == 0;
+		for (int entry= sorted ? findFirstEntry(buffer, count, stamp) : 0; entry < count; entry++) {
+			final int position= HEADER_LENGTH + entry * ENTRY_LENGTH;
+			final long current= buffer.getLong(position);
+			if (sorted && current > stamp)
+				break;
+			if (current == stamp && buffer.getInt(position + 20) == STATE_LIVE)
+				return entry;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the first entry of a sorted index whose time stamp is not
+	 * before the specified one.
+	 *
+	 * @param buffer
+	 *            the index buffer
+	 * @param count
+	 *            the number of entries
+	 * @param stamp
+	 *            the time stamp
+	 * @return the entry index, or <code>count</code>
+	 */
+	private int findFirstEntry(final ByteBuffer buffer, final int count, final long stamp) {
+		int low= 0;
+		int high= count;
+		while (low < high) {
+			final int middle= (low + high) >>> 1;
+			if (buffer.getLong(HEADER_LENGTH + middle * ENTRY_LENGTH) < stamp)
+				low= middle + 1;
+			else
+				high= middle;
+		}
+		return low;
+	}
+
+	private int getEntryCount(final long size) {
+		return size <= HEADER_LENGTH ? 0 : (int) ((size - HEADER_LENGTH) / ENTRY_LENGTH);
+	}
+
+	/**
+	 * Marks the specified index entry as obsolete.
+	 *
+	 * @param channel
+	 *            the index channel
+	 * @param entry
+	 *            the entry index
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	private void markObsolete(final FileChannel channel, final int entry) throws IOException {
+		final ByteBuffer buffer= ByteBuffer.allocate(4);
+		buffer.putInt(STATE_OBSOLETE);
+		buffer.flip();
+		writeFully(channel, buffer, HEADER_LENGTH + entry * (long) ENTRY_LENGTH + 20);
+	}
+
+	/**
+	 * Migrates the XML refactoring history below the specified store into
+	 * this log, unless the log already exists.
+	 *
+	 * @param store
+	 *            the file store of the XML history
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs while writing the log
+	 */
+	public void migrate(final IFileStore store, final IProgressMonitor monitor) throws CoreException {
+		synchronized (fgLock) {
+			if (exists())
+				return;
+			try {
+				monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_updating_history, 10);
+				final List<LogRecord> records= new ArrayList<>(64);
+				if (store.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
+					readHistoryEntries(store, records, new SubProgressMonitor(monitor, 8));
+				writeStore(records, (int) System.currentTimeMillis());
+				monitor.worked(1);
+			} catch (IOException exception) {
+				throw createCoreException(exception);
+			} finally {
+				monitor.done();
+			}
+		}
+	}
+
+	/**
+	 * Reads the generation of the log file.
+	 *
+	 * @return the generation
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	private int readGeneration() throws IOException {
+		try (FileChannel channel= FileChannel.open(fLogFile.toPath(), StandardOpenOption.READ)) {
+			final ByteBuffer buffer= ByteBuffer.allocate(HEADER_LENGTH);
+			readFully(channel, buffer, 0);
+			return checkHeader(buffer, MAGIC_LOG);
+		}
+	}
+
+	/**
+	 * Reads the refactoring descriptors of the XML history files below the
+	 * specified store.
+	 *
+	 * @param store
+	 *            the file store to read
+	 * @param records
+	 *            the list of records to fill in
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs while traversing the history
+	 */
+	private void readHistoryEntries(final IFileStore store, final List<LogRecord> records, final IProgressMonitor monitor) throws CoreException {
+		try {
+			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_updating_history, 10);
+			final IFileInfo info= store.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+			if (monitor.isCanceled())
+				throw new OperationCanceledException();
+			if (info.isDirectory()) {
+				final IFileStore[] stores= store.childStores(EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+				final IProgressMonitor subMonitor= new SubProgressMonitor(monitor, 8);
+				try {
+					subMonitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_updating_history, stores.length);
+					for (int index= 0; index < stores.length; index++)
+						readHistoryEntries(stores[index], records, new SubProgressMonitor(subMonitor, 1));
+				} finally {
+					subMonitor.done();
+				}
+			} else if (info.exists() && store.getName().equalsIgnoreCase(RefactoringHistoryService.NAME_HISTORY_FILE)) {
+				try (InputStream stream= store.openInputStream(EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL))) {
+					final DefaultRefactoringDescriptor[] descriptors= RefactoringHistoryManager.readRefactoringDescriptors(stream);
+					for (int index= 0; index < descriptors.length; index++) {
+						final DefaultRefactoringDescriptor descriptor= descriptors[index];
+						if (descriptor.getTimeStamp() >= 0)
+							records.add(new LogRecord(descriptor.getTimeStamp(), descriptor.getDescription(), descriptor.getProject(), descriptor.getID(), descriptor.getComment(), descriptor.getFlags(), descriptor.getArguments()));
+					}
+				} catch (IOException exception) {
+					RefactoringCorePlugin.log(exception);
+				} catch (CoreException exception) {
+					// Skip unreadable history parts rather than failing the whole migration
+					RefactoringCorePlugin.log(exception.getStatus());
+				}
+			}
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Reads the index into a heap buffer. The index is not mapped, since a live
+	 * mapping prevents the index file from being replaced on compaction.
+	 *
+	 * @param channel
+	 *            the index channel
+	 * @return the index buffer
+	 * @throws IOException
+	 *             if an input/output error occurs or the format is not
+	 *             supported
+	 */
+	private ByteBuffer readIndex(final FileChannel channel) throws IOException {
+		final long size= HEADER_LENGTH + getEntryCount(channel.size()) * (long) ENTRY_LENGTH;
+		final ByteBuffer buffer= ByteBuffer.allocate((int) size);
+		readFully(channel, buffer, 0);
+		buffer.flip();
+		checkHeader(buffer, MAGIC_INDEX);
+		return buffer;
+	}
+
+	/**
+	 * Reads all records of the log, where later records with the same time
+	 * stamp supersede earlier ones, and removal records drop them.
+	 *
+	 * @return the records
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	private List<LogRecord> readLog() throws IOException {
+		final Map<Long, LogRecord> records= new LinkedHashMap<>();
+		try (FileChannel channel= FileChannel.open(fLogFile.toPath(), StandardOpenOption.READ)) {
+			final long size= channel.size();
+			final ByteBuffer prefix= ByteBuffer.allocate(4);
+			long offset= HEADER_LENGTH;
+			while (offset + 4 <= size) {
+				prefix.clear();
+				readFully(channel, prefix, offset);
+				final int length= prefix.getInt(0) + 4;
+				if (length < 16 || offset + length > size)
+					break;
+				final LogRecord record= readRecord(channel, offset, length, true);
+				if (record.isRemoval())
+					records.remove(Long.valueOf(record.fStamp));
+				else
+					records.put(Long.valueOf(record.fStamp), record);
+				offset+= length;
+			}
+		}
+		return new ArrayList<>(records.values());
+	}
+
+	/**
+	 * Reads the record at the specified offset of the log.
+	 *
+	 * @param channel
+	 *            the log channel
+	 * @param offset
+	 *            the offset of the record
+	 * @param length
+	 *            the length of the record
+	 * @param full
+	 *            <code>true</code> to decode the whole record,
+	 *            <code>false</code> to decode time stamp and description only
+	 * @return the decoded record
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	private LogRecord readRecord(final FileChannel channel, final long offset, final int length, final boolean full) throws IOException {
+		ByteBuffer buffer= ByteBuffer.allocate(full ? length : Math.min(length, PREFIX_LENGTH));
+		readFully(channel, buffer, offset);
+		buffer.flip();
+		if (buffer.getInt() != length - 4)
+			throw new IOException("Corrupt refactoring history log: " + fLogFile); //$NON-NLS-1$
+		final long stamp= buffer.getLong();
+		if (!full) {
+			final int size= buffer.getInt(12);
+			if (size > buffer.limit() - 16) {
+				buffer= ByteBuffer.allocate(size + 16);
+				readFully(channel, buffer, offset);
+				buffer.position(12);
+			}
+			return new LogRecord(stamp, readString(buffer), null, null, null, 0, null);
+		}
+		final String description= readString(buffer);
+		final String project= readString(buffer);
+		final String id= readString(buffer);
+		final String comment= readString(buffer);
+		final int flags= buffer.getInt();
+		final int count= buffer.getInt();
+		final Map<String, String> arguments= new HashMap<>(count * 2);
+		for (int index= 0; index < count; index++)
+			arguments.put(readString(buffer), readString(buffer));
+		return new LogRecord(stamp, description, project, id, comment, flags, arguments);
+	}
+
+	/**
+	 * Reads refactoring descriptor proxies.
+	 *
+	 * @param start
+	 *            the start time stamp, inclusive
+	 * @param end
+	 *            the end time stamp, inclusive
+	 * @param collection
+	 *            the collection of proxies to fill in
+	 * @throws CoreException
+	 *             if an error occurs while reading the log
+	 */
+	public void readRefactoringDescriptorProxies(final long start, final long end, final Collection<RefactoringDescriptorProxy> collection) throws CoreException {
+		synchronized (fgLock) {
+			if (!exists())
+				return;
+			try {
+				checkConsistency();
+				try (FileChannel index= FileChannel.open(fIndexFile.toPath(), StandardOpenOption.READ); FileChannel log= FileChannel.open(fLogFile.toPath(), StandardOpenOption.READ)) {
+					final ByteBuffer buffer= readIndex(index);
+					final int count= getEntryCount(buffer.limit());
+					final boolean sorted= (buffer.getInt(OFFSET_FLAGS) & FLAG_UNSORTED) == 0;
+					for (int entry= sorted ? findFirstEntry(buffer, count, start) : 0; entry < count; entry++) {
+						final int position= HEADER_LENGTH + entry * ENTRY_LENGTH;
+						final long stamp= buffer.getLong(position);
+						if (stamp > end) {
+							if (sorted)
+								break;
+							continue;
+						}
+						if (stamp < start || buffer.getInt(position + 20) != STATE_LIVE)
+							continue;
+						final LogRecord record= readRecord(log, buffer.getLong(position + 8), buffer.getInt(position + 16), false);
+						collection.add(new DefaultRefactoringDescriptorProxy(record.fDescription, fProjectName, stamp));
+					}
+				}
+			} catch (IOException exception) {
+				throw createCoreException(exception);
+			}
+		}
+	}
+
+	/**
+	 * Reads all refactoring descriptors of the log.
+	 *
+	 * @return the refactoring descriptors
+	 * @throws CoreException
+	 *             if an error occurs while reading the log
+	 */
+	public RefactoringDescriptor[] readRefactoringDescriptors() throws CoreException {
+		final List<LogRecord> records= new ArrayList<>();
+		synchronized (fgLock) {
+			if (!exists())
+				return new RefactoringDescriptor[0];
+			try {
+				checkConsistency();
+				try (FileChannel index= FileChannel.open(fIndexFile.toPath(), StandardOpenOption.READ); FileChannel log= FileChannel.open(fLogFile.toPath(), StandardOpenOption.READ)) {
+					final ByteBuffer buffer= readIndex(index);
+					final int count= getEntryCount(buffer.limit());
+					for (int entry= 0; entry < count; entry++) {
+						final int position= HEADER_LENGTH + entry * ENTRY_LENGTH;
+						if (buffer.getInt(position + 20) == STATE_LIVE)
+							records.add(readRecord(log, buffer.getLong(position + 8), buffer.getInt(position + 16), true));
+					}
+				}
+			} catch (IOException exception) {
+				throw createCoreException(exception);
+			}
+		}
+		final RefactoringDescriptor[] descriptors= new RefactoringDescriptor[records.size()];
+		try {
+			for (int index= 0; index < descriptors.length; index++)
+				descriptors[index]= records.get(index).toDescriptor(fProjectName);
+		} catch (RuntimeException exception) {
+			throw new CoreException(new Status(IStatus.ERROR, RefactoringCore.ID_PLUGIN, IRefactoringCoreStatusCodes.REFACTORING_HISTORY_FORMAT_ERROR, exception.getLocalizedMessage(), exception));
+		}
+		return descriptors;
+	}
+
+	/**
+	 * Removes the refactoring descriptors with the specified time stamps from
+	 * the log.
+	 *
+	 * @param proxies
+	 *            the refactoring descriptor proxies to remove
+	 * @throws CoreException
+	 *             if an error occurs while updating the log
+	 */
+	public void removeRefactoringDescriptors(final RefactoringDescriptorProxy[] proxies) throws CoreException {
+		final Set<Long> stamps= new HashSet<>(proxies.length * 2);
+		for (int index= 0; index < proxies.length; index++)
+			stamps.add(Long.valueOf(proxies[index].getTimeStamp()));
+		synchronized (fgLock) {
+			if (!exists())
+				return;
+			try {
+				checkConsistency();
+				appendRemovals(stamps);
+				try (FileChannel index= FileChannel.open(fIndexFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+					final ByteBuffer buffer= readIndex(index);
+					final int count= getEntryCount(buffer.limit());
+					for (int entry= 0; entry < count; entry++) {
+						final int position= HEADER_LENGTH + entry * ENTRY_LENGTH;
+						if (buffer.getInt(position + 20) == STATE_LIVE && stamps.contains(Long.valueOf(buffer.getLong(position))))
+							markObsolete(index, entry);
+					}
+				}
+				compactIfNecessary();
+			} catch (IOException exception) {
+				throw createCoreException(exception);
+			}
+		}
+	}
+
+	/**
+	 * Requests the refactoring descriptor with the specified time stamp.
+	 *
+	 * @param stamp
+	 *            the time stamp
+	 * @return the refactoring descriptor, or <code>null</code>
+	 * @throws CoreException
+	 *             if an error occurs while reading the log
+	 */
+	public RefactoringDescriptor requestDescriptor(final long stamp) throws CoreException {
+		final LogRecord record;
+		synchronized (fgLock) {
+			if (!exists())
+				return null;
+			try {
+				checkConsistency();
+				try (FileChannel index= FileChannel.open(fIndexFile.toPath(), StandardOpenOption.READ); FileChannel log= FileChannel.open(fLogFile.toPath(), StandardOpenOption.READ)) {
+					final ByteBuffer buffer= readIndex(index);
+					final int entry= findEntry(buffer, stamp);
+					if (entry < 0)
+						return null;
+					final int position= HEADER_LENGTH + entry * ENTRY_LENGTH;
+					record= readRecord(log, buffer.getLong(position + 8), buffer.getInt(position + 16), true);
+				}
+			} catch (IOException exception) {
+				throw createCoreException(exception);
+			}
+		}
+		try {
+			return record.toDescriptor(fProjectName);
+		} catch (RuntimeException exception) {
+			throw new CoreException(new Status(IStatus.ERROR, RefactoringCore.ID_PLUGIN, IRefactoringCoreStatusCodes.REFACTORING_HISTORY_FORMAT_ERROR, exception.getLocalizedMessage(), exception));
+		}
+	}
+
+	/**
+	 * Sets the comment of the refactoring descriptor with the specified time
+	 * stamp.
+	 *
+	 * @param stamp
+	 *            the time stamp
+	 * @param comment
+	 *            the comment
+	 * @throws CoreException
+	 *             if an error occurs while updating the log
+	 */
+	public void setComment(final long stamp, final String comment) throws CoreException {
+		synchronized (fgLock) {
+			if (!exists())
+				return;
+			try {
+				checkConsistency();
+				final int entry;
+				final LogRecord record;
+				try (FileChannel index= FileChannel.open(fIndexFile.toPath(), StandardOpenOption.READ); FileChannel log= FileChannel.open(fLogFile.toPath(), StandardOpenOption.READ)) {
+					final ByteBuffer buffer= readIndex(index);
+					entry= findEntry(buffer, stamp);
+					if (entry < 0)
+						return;
+					final int position= HEADER_LENGTH + entry * ENTRY_LENGTH;
+					record= readRecord(log, buffer.getLong(position + 8), buffer.getInt(position + 16), true);
+				}
+				append(record.withComment(comment != null && !"".equals(comment) ? comment : null), entry); //$NON-NLS-1$
+				compactIfNecessary();
+			} catch (IOException exception) {
+				throw createCoreException(exception);
+			}
+		}
+	}
+
+	/**
+	 * Writes a new log and index containing the specified records, and
+	 * replaces the current files with them.
+	 * <p>
+	 * The log is replaced before the index; an index left behind from an
+	 * interrupted replacement is detected by its generation and rebuilt.
+	 * </p>
+	 *
+	 * @param records
+	 *            the records to write
+	 * @param generation
+	 *            the generation of the new files
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	private void writeStore(final List<LogRecord> records, final int generation) throws IOException {
+		final List<LogRecord> sorted= new ArrayList<>(records);
+		Collections.sort(sorted, new Comparator<LogRecord>() {
+
+			@Override
+			public int compare(final LogRecord first, final LogRecord second) {
+				return Long.compare(first.fStamp, second.fStamp);
+			}
+		});
+		fLogFile.getParentFile().mkdirs();
+		final File log= new File(fLogFile.getPath() + SUFFIX_TEMPORARY);
+		final File index= new File(fIndexFile.getPath() + SUFFIX_TEMPORARY);
+		try {
+			final ByteBuffer entries= ByteBuffer.allocate(HEADER_LENGTH + sorted.size() * ENTRY_LENGTH);
+			entries.putInt(MAGIC_INDEX).putInt(FORMAT_VERSION).putInt(generation).putInt(0);
+			try (DataOutputStream output= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(log)))) {
+				output.writeInt(MAGIC_LOG);
+				output.writeInt(FORMAT_VERSION);
+				output.writeInt(generation);
+				output.writeInt(0);
+				long offset= HEADER_LENGTH;
+				for (final Iterator<LogRecord> iterator= sorted.iterator(); iterator.hasNext();) {
+					final LogRecord record= iterator.next();
+					final byte[] bytes= record.encode();
+					output.write(bytes);
+					entries.putLong(record.fStamp).putLong(offset).putInt(bytes.length).putInt(STATE_LIVE);
+					offset+= bytes.length;
+				}
+			}
+			entries.flip();
+			try (FileChannel channel= FileChannel.open(index.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				writeFully(channel, entries, 0);
+			}
+			Files.move(log.toPath(), fLogFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			Files.move(index.toPath(), fIndexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			log.delete();
+			index.delete();
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2015 IBM Corporation and others.
+ * Copyright (c) 2005, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -166,6 +166,46 @@ public final class RefactoringHistoryManager {
 		return string;
 	}
 
+	/**
+	 * Writes the refactoring descriptors of the specified binary history log
+	 * back into the XML layout and deletes the log.
+	 * <p>
+	 * The XML history of a location is not maintained while its binary log is
+	 * in use. Once binary histories are disabled, the XML history is
+	 * regenerated from the log, so that it neither misses descriptors added
+	 * nor resurrects descriptors removed in the meantime.
+	 * </p>
+	 *
+	 * @param store
+	 *            the file store describing the history location
+	 * @param log
+	 *            the binary history log of the location
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs while exporting the log
+	 */
+	private static void exportHistoryLog(final IFileStore store, final RefactoringHistoryLog log, final IProgressMonitor monitor) throws CoreException {
+		try {
+			final RefactoringDescriptor[] descriptors= log.readRefactoringDescriptors();
+			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_updating_history, descriptors.length + 2);
+			final IFileStore[] stores= store.childStores(EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+			for (int index= 0; index < stores.length; index++) {
+				final String name= stores[index].getName();
+				if (name.length() > 0 && Character.isDigit(name.charAt(0)) && stores[index].fetchInfo().isDirectory())
+					stores[index].delete(EFS.NONE, null);
+			}
+			monitor.worked(1);
+			sortRefactoringDescriptorsAscending(descriptors);
+			final RefactoringHistoryManager manager= new RefactoringHistoryManager(store, null, false);
+			for (int index= 0; index < descriptors.length; index++)
+				manager.addRefactoringDescriptor(descriptors[index], false, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+			log.delete();
+		} finally {
+			monitor.done();
+		}
+	}
+
 	/**
 	 * Returns the argument map of the specified descriptor.
 	 *
@@ -183,6 +223,77 @@ public final class RefactoringHistoryManager {
 		return arguments;
 	}
 
+	/**
+	 * Returns the binary history log of the specified history location,
+	 * migrating the XML history into it on first use.
+	 * <p>
+	 * If binary histories have been disabled since, an existing log is written
+	 * back into the XML layout first.
+	 * </p>
+	 *
+	 * @param store
+	 *            the file store describing the history location
+	 * @param log
+	 *            the binary history log of the location, or <code>null</code>
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @return the history log, or <code>null</code> if the XML history should
+	 *         be used
+	 */
+	private static RefactoringHistoryLog getHistoryLog(final IFileStore store, final RefactoringHistoryLog log, final IProgressMonitor monitor) {
+		try {
+			if (log != null) {
+				if (RefactoringHistoryLog.isEnabled()) {
+					log.migrate(store, monitor);
+					return log;
+				}
+				if (log.exists())
+					exportHistoryLog(store, log, monitor);
+			}
+		} catch (CoreException exception) {
+			RefactoringCorePlugin.log(exception);
+		} finally {
+			monitor.done();
+		}
+		return null;
+	}
+
+	/**
+	 * Reads refactoring descriptor proxies from the binary history log if
+	 * available, or from the XML history otherwise.
+	 *
+	 * @param store
+	 *            the file store to read
+	 * @param log
+	 *            the binary history log of the store, or <code>null</code>
+	 * @param project
+	 *            the name of the project, or <code>null</code> for the
+	 *            workspace
+	 * @param collection
+	 *            the collection of proxies to fill in
+	 * @param start
+	 *            the start time stamp, inclusive
+	 * @param end
+	 *            the end time stamp, inclusive
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs
+	 */
+	private static void readRefactoringDescriptorProxies(final IFileStore store, final RefactoringHistoryLog log, final String project, final Collection<RefactoringDescriptorProxy> collection, final long start, final long end, final IProgressMonitor monitor) throws CoreException {
+		try {
+			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, 10);
+			final RefactoringHistoryLog current= getHistoryLog(store, log, new SubProgressMonitor(monitor, 5, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+			if (current != null) {
+				current.readRefactoringDescriptorProxies(start, end, collection);
+				monitor.worked(5);
+			} else
+				readRefactoringDescriptorProxies(store, project, collection, start, end, new SubProgressMonitor(monitor, 5), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
+		} finally {
+			monitor.done();
+		}
+	}
+
 	/**
 	 * Reads refactoring descriptor proxies.
 	 *
@@ -771,6 +882,9 @@ public final class RefactoringHistoryManager {
 	/** The history file store */
 	private final IFileStore fHistoryStore;
 
+	/** The binary history log, or <code>null</code> to use the XML layout */
+	private final RefactoringHistoryLog fHistoryLog;
+
 	/**
 	 * The non-empty name of the managed project, or <code>null</code> for the
 	 * workspace
@@ -785,12 +899,19 @@ public final class RefactoringHistoryManager {
 	 * @param name
 	 *            the non-empty name of the managed project, or
 	 *            <code>null</code> for the workspace
+	 * @param binary
+	 *            <code>true</code> if the history may be kept in a binary
+	 *            history log, <code>false</code> to always use the XML
+	 *            layout. Only the workspace-private history locations may use
+	 *            a binary log; shared project histories are under version
+	 *            control and must stay in the XML layout.
 	 */
-	RefactoringHistoryManager(final IFileStore store, final String name) {
+	RefactoringHistoryManager(final IFileStore store, final String name, final boolean binary) {
 		Assert.isNotNull(store);
 		Assert.isTrue(name == null || !"".equals(name)); //$NON-NLS-1$
 		fHistoryStore= store;
 		fProjectName= name;
+		fHistoryLog= binary ? RefactoringHistoryLog.create(store, name) : null;
 	}
 
 	/**
@@ -810,9 +931,15 @@ public final class RefactoringHistoryManager {
 	 */
 	void addRefactoringDescriptor(final RefactoringDescriptor descriptor, final boolean sort, final IProgressMonitor monitor) throws CoreException {
 		try {
-			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_updating_history, 18);
+			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_updating_history, 26);
 			final long stamp= descriptor.getTimeStamp();
-			if (stamp >= 0) {
+			final RefactoringHistoryLog log= getHistoryLog(fHistoryStore, fHistoryLog, new SubProgressMonitor(monitor, 8, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+			if (stamp >= 0 && log != null) {
+				final Map<String, String> arguments= getArgumentMap(descriptor);
+				if (arguments != null)
+					checkArgumentMap(arguments);
+				log.addRefactoringDescriptor(descriptor, arguments);
+			} else if (stamp >= 0) {
 				final IPath path= stampToPath(stamp);
 				final IFileStore folder= fHistoryStore.getFileStore(path);
 				final IFileStore history= folder.getChild(RefactoringHistoryService.NAME_HISTORY_FILE);
@@ -964,10 +1091,10 @@ public final class RefactoringHistoryManager {
 			final Set<RefactoringDescriptorProxy> set= new HashSet<>();
 			try {
 				if (fHistoryStore.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
-					readRefactoringDescriptorProxies(fHistoryStore, fProjectName, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
+					readRefactoringDescriptorProxies(fHistoryStore, fHistoryLog, fProjectName, set, start, end, new SubProgressMonitor(monitor, 80));
 				final IFileStore store= EFS.getLocalFileSystem().getStore(RefactoringCorePlugin.getDefault().getStateLocation()).getChild(RefactoringHistoryService.NAME_HISTORY_FOLDER).getChild(RefactoringHistoryService.NAME_WORKSPACE_PROJECT);
 				if (store.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
-					readRefactoringDescriptorProxies(store, null, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
+					readRefactoringDescriptorProxies(store, RefactoringHistoryLog.create(store, null), null, set, start, end, new SubProgressMonitor(monitor, 80));
 			} catch (CoreException exception) {
 				RefactoringCorePlugin.log(exception);
 			}
@@ -1086,7 +1213,12 @@ public final class RefactoringHistoryManager {
 	void removeRefactoringDescriptors(final RefactoringDescriptorProxy[] proxies, final IProgressMonitor monitor, final String task) throws CoreException {
 		try {
 			final Map<IPath, Collection<RefactoringDescriptorProxy>> paths= new HashMap<>();
-			monitor.beginTask(task, proxies.length + 300);
+			monitor.beginTask(task, 2 * proxies.length + 300);
+			final RefactoringHistoryLog log= getHistoryLog(fHistoryStore, fHistoryLog, new SubProgressMonitor(monitor, proxies.length, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+			if (log != null) {
+				log.removeRefactoringDescriptors(proxies);
+				return;
+			}
 			for (int index= 0; index < proxies.length; index++) {
 				final IPath path= stampToPath(proxies[index].getTimeStamp());
 				Collection<RefactoringDescriptorProxy> collection= paths.get(path);
@@ -1125,9 +1257,16 @@ public final class RefactoringHistoryManager {
 	 */
 	RefactoringDescriptor requestDescriptor(final RefactoringDescriptorProxy proxy, final IProgressMonitor monitor) {
 		try {
-			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_resolving_information, 2);
+			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_resolving_information, 3);
 			final long stamp= proxy.getTimeStamp();
-			if (stamp >= 0) {
+			final RefactoringHistoryLog log= getHistoryLog(fHistoryStore, fHistoryLog, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+			if (stamp >= 0 && log != null) {
+				try {
+					return log.requestDescriptor(stamp);
+				} catch (CoreException exception) {
+					RefactoringCorePlugin.log(exception);
+				}
+			} else if (stamp >= 0) {
 				InputStream input= null;
 				try {
 					final IFileStore folder= fHistoryStore.getFileStore(stampToPath(stamp));
@@ -1176,9 +1315,12 @@ public final class RefactoringHistoryManager {
 	 */
 	void setComment(final RefactoringDescriptorProxy proxy, final String comment, final IProgressMonitor monitor) throws CoreException {
 		try {
-			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_updating_history, 100);
+			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_updating_history, 120);
 			final long stamp= proxy.getTimeStamp();
-			if (stamp >= 0) {
+			final RefactoringHistoryLog log= getHistoryLog(fHistoryStore, fHistoryLog, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+			if (stamp >= 0 && log != null) {
+				log.setComment(stamp, comment);
+			} else if (stamp >= 0) {
 				final IPath path= stampToPath(stamp);
 				final IFileStore folder= fHistoryStore.getFileStore(path);
 				final IFileStore history= folder.getChild(RefactoringHistoryService.NAME_HISTORY_FILE);
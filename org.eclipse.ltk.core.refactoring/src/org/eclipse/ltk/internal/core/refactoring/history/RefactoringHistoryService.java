@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 IBM Corporation and others.
+ * Copyright (c) 2005, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -972,15 +972,15 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 					if (hasSharedRefactoringHistory(project)) {
 						final URI uri= project.getLocationURI();
 						if (uri != null)
-							return getManager(EFS.getStore(uri).getChild(RefactoringHistoryService.NAME_HISTORY_FOLDER), name);
+							return getManager(EFS.getStore(uri).getChild(RefactoringHistoryService.NAME_HISTORY_FOLDER), name, false);
 					} else
-						return getManager(store.getChild(name), name);
+						return getManager(store.getChild(name), name, true);
 				}
 			} catch (CoreException exception) {
 				// Do nothing
 			}
 		} else
-			return getManager(store.getChild(NAME_WORKSPACE_PROJECT), null);
+			return getManager(store.getChild(NAME_WORKSPACE_PROJECT), null, true);
 		return null;
 	}
 
@@ -993,13 +993,17 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 	 * @param name
 	 *            the non-empty project name, or <code>null</code> for the
 	 *            workspace
+	 * @param binary
+	 *            <code>true</code> if the location is private to the
+	 *            workspace and may use a binary history log,
+	 *            <code>false</code> otherwise
 	 * @return the refactoring history manager
 	 */
-	private RefactoringHistoryManager getManager(final IFileStore store, final String name) {
+	private RefactoringHistoryManager getManager(final IFileStore store, final String name, final boolean binary) {
 		Assert.isNotNull(store);
 		RefactoringHistoryManager manager= fManagerCache.get(store);
 		if (manager == null) {
-			manager= new RefactoringHistoryManager(store, name);
+			manager= new RefactoringHistoryManager(store, name, binary);
 			fManagerCache.put(store, manager);
 		}
 		return manager;